@@ -204,6 +204,121 @@ galaxy {
                     }
                 }
             }
+            library("r2dbc_pool") {
+                repositories.add(MAVEN_CENTRAL)
+                group = "io.r2dbc"
+                artifact = "r2dbc-pool"
+                version = "1.0.2.RELEASE"
+                relocate()
+                dependencies.addAll("r2dbc_spi")
+
+                library("r2dbc_mysql") {
+                    group = "io.asyncer"
+                    artifact = "r2dbc-mysql"
+                    version = "1.3.0"
+                    relocate("io.asyncer.r2dbc")
+
+                    dependency("reactor_netty_core") {
+                        repositories.add(MAVEN_CENTRAL)
+                        group = "io.projectreactor.netty"
+                        artifact = "reactor-netty-core"
+                        version = "1.1.23"
+                        relocate("reactor.")
+                        dependencies.addAll("reactor_core")
+
+                        // Reactor Netty needs Netty 4.1 (older servers only have 4.0), relocated so it never clashes with the server's
+                        dependency("netty_handler_proxy") {
+                            repositories.add(MAVEN_CENTRAL)
+                            group = "io.netty"
+                            artifact = "netty-handler-proxy"
+                            version = "4.1.114.Final"
+                            relocate("io.netty")
+                            dependencies.addAll("netty_handler")
+
+                            dependency("netty_codec_http") {
+                                artifact = "netty-codec-http"
+                                dependencies.addAll("netty_handler")
+                            }
+                            dependency("netty_codec_socks") {
+                                artifact = "netty-codec-socks"
+                                dependencies.addAll("netty_codec")
+                            }
+                        }
+                        dependency("netty_resolver_dns") {
+                            repositories.add(MAVEN_CENTRAL)
+                            group = "io.netty"
+                            artifact = "netty-resolver-dns"
+                            version = "4.1.114.Final"
+                            relocate("io.netty")
+                            dependencies.addAll("netty_handler")
+
+                            dependency("netty_codec_dns") {
+                                artifact = "netty-codec-dns"
+                                dependencies.addAll("netty_codec")
+                            }
+                        }
+                        dependency("netty_handler") {
+                            repositories.add(MAVEN_CENTRAL)
+                            group = "io.netty"
+                            artifact = "netty-handler"
+                            version = "4.1.114.Final"
+                            relocate("io.netty")
+
+                            dependency("netty_codec") {
+                                artifact = "netty-codec"
+
+                                dependency("netty_transport") {
+                                    artifact = "netty-transport"
+
+                                    dependency("netty_buffer") {
+                                        artifact = "netty-buffer"
+                                        dependencies.addAll("netty_common")
+                                    }
+                                    dependency("netty_resolver") {
+                                        artifact = "netty-resolver"
+
+                                        dependency("netty_common") {
+                                            artifact = "netty-common"
+                                        }
+                                    }
+                                }
+                            }
+                            dependency("netty_transport_native_unix_common") {
+                                artifact = "netty-transport-native-unix-common"
+                                dependencies.addAll("netty_transport")
+                            }
+                        }
+                    }
+                }
+                library("r2dbc_postgresql") {
+                    group = "org.postgresql"
+                    artifact = "r2dbc-postgresql"
+                    version = "1.0.5.RELEASE"
+                    relocate("io.r2dbc.postgresql")
+                    dependencies.addAll("reactor_netty_core")
+
+                    dependency("scram_client") {
+                        repositories.add(MAVEN_CENTRAL)
+                        group = "com.ongres.scram"
+                        artifact = "client"
+                        version = "2.1"
+                        relocate("com.ongres")
+
+                        dependency("scram_common") {
+                            artifact = "common"
+                        }
+                    }
+                }
+
+                dependency("reactor_core") {
+                    repositories.add(MAVEN_CENTRAL)
+                    group = "io.projectreactor"
+                    artifact = "reactor-core"
+                    version = "3.6.11"
+                    relocate("reactor.")
+                    dependencies.addAll("reactive_streams")
+                }
+            }
             library("h2") {
                 repositories.add(MAVEN_CENTRAL)
                 group = "com.h2database"
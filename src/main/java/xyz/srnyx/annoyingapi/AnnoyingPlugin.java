@@ -28,6 +28,7 @@ import xyz.srnyx.annoyingapi.library.AnnoyingLibrary;
 import xyz.srnyx.annoyingapi.message.AnnoyingMessages;
 import xyz.srnyx.annoyingapi.message.MessagesProvider;
 import xyz.srnyx.annoyingapi.options.AnnoyingOptions;
+import xyz.srnyx.annoyingapi.options.DataOptions;
 import xyz.srnyx.annoyingapi.scheduler.AnnoyingScheduler;
 import xyz.srnyx.annoyingapi.stats.loader.BStatsLoader;
 import xyz.srnyx.annoyingapi.stats.loader.FastStatsLoader;
@@ -36,8 +37,9 @@ import xyz.srnyx.annoyingapi.stats.provider.FastStatsProvider;
 import xyz.srnyx.annoyingapi.stats.provider.StatsProvider;
 import xyz.srnyx.annoyingapi.storage.ConnectionException;
 import xyz.srnyx.annoyingapi.storage.DataManager;
+import xyz.srnyx.annoyingapi.storage.PlayerSessionListener;
 import xyz.srnyx.annoyingapi.storage.StorageConfig;
-import xyz.srnyx.annoyingapi.storage.dialects.SQLDialect;
+import xyz.srnyx.annoyingapi.storage.dialects.JDBCDialect;
 import xyz.srnyx.annoyingapi.dependency.AnnoyingDependency;
 import xyz.srnyx.annoyingapi.dependency.AnnoyingDownload;
 import xyz.srnyx.annoyingapi.events.AdvancedPlayerMoveEvent;
@@ -57,6 +59,11 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -93,8 +100,23 @@ public class AnnoyingPlugin extends JavaPlugin {
     @NotNull public final ConfigLoader configLoader;
     /**
      * The {@link DataManager} for the plugin
+     * <br>If {@link DataOptions#asyncConnect} is enabled, this is {@code null} until {@link #dataManagerReady} completes
      */
-    @Nullable public DataManager dataManager;
+    @Nullable public volatile DataManager dataManager;
+    /**
+     * Completed with {@link #dataManager} once it's connected (or with {@code null} if data is disabled or connecting failed)
+     * <br>Only takes time if {@link DataOptions#asyncConnect} is enabled, otherwise it's already completed when the plugin is loaded
+     */
+    @NotNull public volatile CompletableFuture<DataManager> dataManagerReady = CompletableFuture.completedFuture(null);
+    /**
+     * Guards {@link #dataManagerGeneration} and publishing a background connection to {@link #dataManager}
+     */
+    @NotNull private final Object dataManagerLock = new Object();
+    /**
+     * Increased whenever the {@link #dataManager} is closed, so a background connection that finishes after that (see {@link #closeDataManager(Predicate)}) never replaces a newer manager
+     * <br>Guarded by {@link #dataManagerLock}
+     */
+    private long dataManagerGeneration;
     /**
      * Set of registered {@link Registrable}s by the plugin
      */
@@ -208,12 +230,8 @@ public class AnnoyingPlugin extends JavaPlugin {
      */
     @Override
     public final void onDisable() {
-        if (dataManager != null) {
-            // Save cache
-            if (dataManager.storageConfig.cache.getSaveOn().contains(StorageConfig.Cache.SaveOn.DISABLE)) dataManager.dialect.saveCache();
-            // Close connection (if SQL)
-            if (dataManager.dialect instanceof SQLDialect sqlDialect) sqlDialect.dataSource.close();
-        }
+        // Save cache & close connection
+        closeDataManager(manager -> manager.storageConfig.cache.getSaveOn().contains(StorageConfig.Cache.SaveOn.DISABLE));
 
         // Stats loaders
         for (final Registrable registrable : new HashSet<>(registeredClasses)) if (registrable instanceof StatsProvider<?>) registrable.unregister();
@@ -358,8 +376,15 @@ public class AnnoyingPlugin extends JavaPlugin {
         registerBStatsManually();
         registerFastStatsManually();
 
-        // Enable/disable interval cache saving (depending on config)
-        if (dataManager != null) dataManager.toggleIntervalCacheSaving();
+        // Enable/disable interval cache saving and eviction (depending on config)
+        dataManagerReady.thenAccept(manager -> {
+            if (manager == null) return;
+            manager.toggleIntervalCacheSaving();
+            manager.toggleCacheEviction();
+        });
+
+        // Player data sessions (checks config on each event, so reloads don't need to re-register)
+        if (options.dataOptions.enabled) new PlayerSessionListener(this).register();
 
         if (options.pluginOptions.sendStartupMessages) {
             // Get start message colors
@@ -438,7 +463,11 @@ public class AnnoyingPlugin extends JavaPlugin {
         }
         // Load data manager
         loadDataManger(storageConfig, saveCache);
-        if (dataManager != null) dataManager.toggleIntervalCacheSaving();
+        dataManagerReady.thenAccept(manager -> {
+            if (manager == null) return;
+            manager.toggleIntervalCacheSaving();
+            manager.toggleCacheEviction();
+        });
 
         // Custom reload
         reload();
@@ -600,24 +629,20 @@ public class AnnoyingPlugin extends JavaPlugin {
     /**
      * Attempts to load the {@link #dataManager}, catching any exceptions and logging them
      * <br>If {@code storage-new.yml} exists, it will attempt to migrate the data from {@code storage.yml} to {@code storage-new.yml} using {@link DataManager#attemptDatabaseMigration()}
+     * <br>If {@link DataOptions#asyncConnect} is enabled, this returns right away and the connection is made on a separate thread (see {@link #dataManagerReady})
      *
      * @param   storageConfig   the {@link StorageConfig} to load the data manager with. If {@code null}, {@code storage.yml} will be used
      * @param   saveCache       whether to save the cache before loading the data manager <b>(data may be lost if {@code false})</b>
      */
     public void loadDataManger(@Nullable StorageConfig storageConfig, boolean saveCache) {
-        // Check if a manager is already loaded
-        if (dataManager != null) {
-            // Save cache
-            if (saveCache) dataManager.dialect.saveCache();
-            // Close previous connection
-            if (dataManager.dialect instanceof SQLDialect sqlDialect) sqlDialect.dataSource.close();
-            // Stop cache saving task
-            if (dataManager.cacheSavingTask != null) dataManager.cacheSavingTask.cancel();
-        }
+        // Check if a manager is already loaded (or still connecting)
+        // Save cache & close previous connection
+        closeDataManager(previous -> saveCache);
+        dataManager = null;
 
         // Cancel if data is disabled
         if (!options.dataOptions.enabled) {
-            dataManager = null;
+            dataManagerReady = CompletableFuture.completedFuture(null);
             return;
         }
 
@@ -627,33 +652,117 @@ public class AnnoyingPlugin extends JavaPlugin {
             if (storageConfig == null) throw new RuntimeException("Failed to load storage config");
         }
 
+        // Connect right away
+        if (!options.dataOptions.asyncConnect) {
+            dataManager = connectDataManager(storageConfig);
+            dataManagerReady = CompletableFuture.completedFuture(dataManager);
+            return;
+        }
+
+        // Connect in the background (own thread since the scheduler can't be used before the plugin is enabled)
+        final StorageConfig finalStorageConfig = storageConfig;
+        final long generation;
+        synchronized (dataManagerLock) {
+            generation = dataManagerGeneration;
+        }
+        dataManagerReady = CompletableFuture.supplyAsync(() -> {
+            final DataManager manager = connectDataManager(finalStorageConfig);
+            // Only publish it if it wasn't closed (replaced) while connecting, closeDataManager closes it then
+            synchronized (dataManagerLock) {
+                if (generation == dataManagerGeneration) dataManager = manager;
+            }
+            return manager;
+        }, runnable -> {
+            final Thread thread = new Thread(runnable, getName() + " Storage Connect");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * Get the {@link #dataManager}, waiting for it to connect if {@link DataOptions#asyncConnect} is enabled and it's still connecting
+     * <br>Waits for up to {@link DataOptions#readyTimeout}
+     *
+     * @return  the data manager, or {@code null} if data is disabled, connecting failed, or it didn't connect in time
+     */
+    @Nullable
+    public DataManager awaitDataManager() {
+        final CompletableFuture<DataManager> ready = dataManagerReady;
+        if (ready.isDone()) return ready.getNow(null);
+        try {
+            return ready.get(options.dataOptions.readyTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            log(Level.WARNING, "&cTimed out waiting for the database connection of &4" + getName() + "&c!");
+        } catch (final ExecutionException e) {
+            log(Level.SEVERE, "&cFailed to connect to the database of &4" + getName(), e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * Close the {@link #dataManager}, waiting for it to connect first (see {@link #awaitDataManager()})
+     * <br>If it doesn't connect in time, it's closed as soon as it does, so a late connection is never left open (and never becomes the {@link #dataManager})
+     *
+     * @param   saveCache   whether to save the cache of the data manager before closing it
+     */
+    private void closeDataManager(@NotNull Predicate<DataManager> saveCache) {
+        final CompletableFuture<DataManager> ready = dataManagerReady;
+        synchronized (dataManagerLock) {
+            dataManagerGeneration++;
+        }
+        final DataManager manager = awaitDataManager();
+        if (manager != null) {
+            manager.close(saveCache.test(manager));
+            return;
+        }
+
+        // Still connecting (or failed), close it once it's connected
+        ready.thenAccept(late -> {
+            if (late != null) late.close(saveCache.test(late));
+        });
+    }
+
+    /**
+     * Connect a new {@link DataManager}, migrate its data (if {@code storage-new.yml} exists), and create its tables/columns
+     *
+     * @param   storageConfig   the {@link StorageConfig} to connect with
+     *
+     * @return                  the new data manager, or {@code null} if connecting failed
+     */
+    @Nullable
+    protected DataManager connectDataManager(@NotNull StorageConfig storageConfig) {
         // Connect to database
+        DataManager manager;
         try {
-            dataManager = new DataManager(storageConfig);
+            manager = new DataManager(storageConfig);
         } catch (final ConnectionException e) {
-            dataManager = null;
             log(Level.SEVERE, "&4storage.yml &8|&c Failed to connect to database! URL: '&4" + e.url + "&c' Properties: &4" + e.getPropertiesRedacted(), e);
-            return;
+            return null;
         }
 
         // Attempt database migration
-        dataManager = dataManager.attemptDatabaseMigration();
+        manager = manager.attemptDatabaseMigration();
 
         // Create tables/columns
-        if (dataManager.dialect instanceof final SQLDialect sqlDialect) {
+        if (manager.dialect instanceof final JDBCDialect sqlDialect) {
             final Map<String, Set<String>> tables = new HashMap<>(options.dataOptions.tables);
 
             // Remove entities table if it has no custom columns
             final Set<String> entitiesTable = tables.get(EntityData.TABLE_NAME);
             if (entitiesTable != null && entitiesTable.size() == 1) tables.remove(EntityData.TABLE_NAME);
 
-            sqlDialect.createTablesKeys(tables);
+            sqlDialect.createTablesKeys(tables, options.dataOptions.columnTypes, options.dataOptions.indexes);
 
-            // Warm up jOOQ (see warmup docs)
-            tables.keySet().stream()
-                    .findFirst()
-                    .ifPresent(table -> scheduler.attemptAsync(() -> sqlDialect.warmup(table)));
+            // Pre-compile statements (see warmup docs)
+            if (options.dataOptions.asyncConnect) {
+                sqlDialect.warmup(tables);
+            } else {
+                scheduler.attemptAsync(() -> sqlDialect.warmup(tables));
+            }
         }
+        return manager;
     }
 
     /**
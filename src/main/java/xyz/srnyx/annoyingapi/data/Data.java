@@ -7,7 +7,16 @@ import xyz.srnyx.annoyingapi.parents.AnnoyableClass;
 import xyz.srnyx.annoyingapi.utility.BukkitUtility;
 import xyz.srnyx.javautilities.parents.Stringable;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 
@@ -76,6 +85,43 @@ public abstract class Data<T> extends AnnoyableClass {
         return value == null ? def : value;
     }
 
+    /**
+     * Get the data values for the given keys
+     * <br>Implementations may override this to get all values at once (for example, {@link StringData} reads them in one database query)
+     *
+     * @param   keys    the keys to get the data values for
+     *
+     * @return          {@code [ Key: Data value ]}, keys that aren't found are left out
+     */
+    @NotNull
+    public Map<String, String> get(@NotNull Collection<String> keys) {
+        final Map<String, String> values = new HashMap<>();
+        for (final String key : keys) {
+            final String value = get(key);
+            if (value != null) values.put(key, value);
+        }
+        return values;
+    }
+
+    /**
+     * Get the data value for the given key, or if not found, get it from the loader and set it
+     *
+     * @param   key     the key to get the data value for
+     * @param   loader  the loader for the data value if it's not found, may return null to set nothing
+     *
+     * @return          the existing data value, or the loaded value if not found
+     */
+    @Nullable
+    public String getOrLoad(@NotNull String key, @NotNull Supplier<?> loader) {
+        final String existing = get(key);
+        if (existing != null) return existing;
+        final Object loaded = loader.get();
+        if (loaded == null) return null;
+        final String value = loaded.toString();
+        set(key, value);
+        return value;
+    }
+
     /**
      * Get the data value for the given key as an {@link Optional}
      *
@@ -88,6 +134,144 @@ public abstract class Data<T> extends AnnoyableClass {
         return Optional.ofNullable(get(key));
     }
 
+    /**
+     * Get the data value for the given key as an {@link Integer}
+     *
+     * @param   key the key to get the data value for
+     *
+     * @return      the data value, or null if not found or not an integer
+     */
+    @Nullable
+    public Integer getInt(@NotNull String key) {
+        return getParsed(key, value -> Integer.parseInt(value.trim()));
+    }
+
+    /**
+     * Get the data value for the given key as an {@code int}, or the default value if not found or not an integer
+     *
+     * @param   key the key to get the data value for
+     * @param   def the default value
+     *
+     * @return      the data value, or the default value
+     */
+    public int getInt(@NotNull String key, int def) {
+        final Integer value = getInt(key);
+        return value == null ? def : value;
+    }
+
+    /**
+     * Get the data value for the given key as a {@link Long}
+     *
+     * @param   key the key to get the data value for
+     *
+     * @return      the data value, or null if not found or not a long
+     */
+    @Nullable
+    public Long getLong(@NotNull String key) {
+        return getParsed(key, value -> Long.parseLong(value.trim()));
+    }
+
+    /**
+     * Get the data value for the given key as a {@code long}, or the default value if not found or not a long
+     *
+     * @param   key the key to get the data value for
+     * @param   def the default value
+     *
+     * @return      the data value, or the default value
+     */
+    public long getLong(@NotNull String key, long def) {
+        final Long value = getLong(key);
+        return value == null ? def : value;
+    }
+
+    /**
+     * Get the data value for the given key as a {@link Double}
+     *
+     * @param   key the key to get the data value for
+     *
+     * @return      the data value, or null if not found or not a number
+     */
+    @Nullable
+    public Double getDouble(@NotNull String key) {
+        return getParsed(key, Double::parseDouble);
+    }
+
+    /**
+     * Get the data value for the given key as a {@code double}, or the default value if not found or not a number
+     *
+     * @param   key the key to get the data value for
+     * @param   def the default value
+     *
+     * @return      the data value, or the default value
+     */
+    public double getDouble(@NotNull String key, double def) {
+        final Double value = getDouble(key);
+        return value == null ? def : value;
+    }
+
+    /**
+     * Get the data value for the given key as a {@link Boolean}
+     * <br>{@code true}/{@code false} (case-insensitive) and {@code 1}/{@code 0} are accepted
+     *
+     * @param   key the key to get the data value for
+     *
+     * @return      the data value, or null if not found or not a boolean
+     */
+    @Nullable
+    public Boolean getBoolean(@NotNull String key) {
+        return getParsed(key, value -> {
+            final String trimmed = value.trim();
+            if (trimmed.equalsIgnoreCase("true") || trimmed.equals("1")) return true;
+            if (trimmed.equalsIgnoreCase("false") || trimmed.equals("0")) return false;
+            throw new IllegalArgumentException(value);
+        });
+    }
+
+    /**
+     * Get the data value for the given key as a {@code boolean}, or the default value if not found or not a boolean
+     *
+     * @param   key the key to get the data value for
+     * @param   def the default value
+     *
+     * @return      the data value, or the default value
+     */
+    public boolean getBoolean(@NotNull String key, boolean def) {
+        final Boolean value = getBoolean(key);
+        return value == null ? def : value;
+    }
+
+    /**
+     * Get the data value for the given key as a {@link UUID}
+     *
+     * @param   key the key to get the data value for
+     *
+     * @return      the data value, or null if not found or not a UUID
+     */
+    @Nullable
+    public UUID getUUID(@NotNull String key) {
+        return getParsed(key, value -> UUID.fromString(value.trim()));
+    }
+
+    /**
+     * Get the data value for the given key and parse it
+     *
+     * @param   key     the key to get the data value for
+     * @param   parser  parses the value, throwing {@link IllegalArgumentException} (or {@link NumberFormatException}) if it's invalid
+     * @param   <V>     the type of the parsed value
+     *
+     * @return          the parsed value, or null if not found or invalid
+     */
+    @Nullable
+    private <V> V getParsed(@NotNull String key, @NotNull Function<String, V> parser) {
+        final String value = get(key);
+        if (value == null) return null;
+        try {
+            return parser.apply(value);
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /**
      * Set the data value for the given key. If the key already exists, it will be overwritten
      *
@@ -100,6 +284,8 @@ public abstract class Data<T> extends AnnoyableClass {
 
     /**
      * Set the data value for the given key. If the key already exists, it will be overwritten
+     * <br>Numbers, booleans and {@link UUID UUIDs} are stored in their column's native type if it was declared in {@link xyz.srnyx.annoyingapi.options.DataOptions#columnTypes}.
+     * A value that doesn't fit the declared type isn't set
      *
      * @param   key     the key to set the data value for
      * @param   value   the data value to set, or null to remove the data value
@@ -111,6 +297,82 @@ public abstract class Data<T> extends AnnoyableClass {
         return value == null ? remove(key) : set(key, value.toString());
     }
 
+    /**
+     * Set a whole-number data value for the given key. If the key already exists, it will be overwritten
+     *
+     * @param   key     the key to set the data value for
+     * @param   value   the data value to set
+     *
+     * @return          {@code true} if the data value was set successfully, {@code false} otherwise
+     *
+     * @see             #getInt(String)
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    public boolean set(@NotNull String key, int value) {
+        return set(key, String.valueOf(value));
+    }
+
+    /**
+     * Set a whole-number data value for the given key. If the key already exists, it will be overwritten
+     *
+     * @param   key     the key to set the data value for
+     * @param   value   the data value to set
+     *
+     * @return          {@code true} if the data value was set successfully, {@code false} otherwise
+     *
+     * @see             #getLong(String)
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    public boolean set(@NotNull String key, long value) {
+        return set(key, String.valueOf(value));
+    }
+
+    /**
+     * Set a decimal data value for the given key. If the key already exists, it will be overwritten
+     * <br>It's stored in the same format it's read back from a {@link xyz.srnyx.annoyingapi.storage.ColumnType#DOUBLE double} column in (for example {@code 100.0})
+     *
+     * @param   key     the key to set the data value for
+     * @param   value   the data value to set
+     *
+     * @return          {@code true} if the data value was set successfully, {@code false} otherwise
+     *
+     * @see             #getDouble(String)
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    public boolean set(@NotNull String key, double value) {
+        return set(key, String.valueOf(value));
+    }
+
+    /**
+     * Set a boolean data value for the given key. If the key already exists, it will be overwritten
+     *
+     * @param   key     the key to set the data value for
+     * @param   value   the data value to set
+     *
+     * @return          {@code true} if the data value was set successfully, {@code false} otherwise
+     *
+     * @see             #getBoolean(String)
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    public boolean set(@NotNull String key, boolean value) {
+        return set(key, String.valueOf(value));
+    }
+
+    /**
+     * Set a {@link UUID} data value for the given key. If the key already exists, it will be overwritten
+     *
+     * @param   key     the key to set the data value for
+     * @param   value   the data value to set, or null to remove the data value
+     *
+     * @return          {@code true} if the data value was set successfully, {@code false} otherwise
+     *
+     * @see             #getUUID(String)
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    public boolean set(@NotNull String key, @Nullable UUID value) {
+        return value == null ? remove(key) : set(key, value.toString());
+    }
+
     /**
      * Set the data value for the given key. If the key already exists, it will be overwritten
      *
@@ -147,6 +409,142 @@ public abstract class Data<T> extends AnnoyableClass {
         return this;
     }
 
+    /**
+     * Add to the whole-number data value for the given key, a missing value counts as {@code 0}
+     * <br>By default this is a {@link #get(String)} followed by a {@link #set(String, Object)}, so it isn't atomic. {@link StringData} overrides it to be atomic
+     *
+     * @param   key     the key to add to the data value of
+     * @param   delta   the amount to add (negative to subtract)
+     *
+     * @return          the new data value, or null if the existing value isn't a whole number or it couldn't be set
+     */
+    @Nullable
+    public Long increment(@NotNull String key, long delta) {
+        final String existing = get(key);
+        final long updated;
+        try {
+            updated = (existing == null ? 0L : Long.parseLong(existing.trim())) + delta;
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+        return set(key, updated) ? updated : null;
+    }
+
+    /**
+     * Set the data value for the given key, only if it currently has the expected value
+     * <br>By default this is a {@link #get(String)} followed by a {@link #set(String, Object)}, so it isn't atomic. {@link StringData} overrides it to be atomic
+     *
+     * @param   key         the key to set the data value for
+     * @param   expected    the expected data value, or null to only set it if it doesn't exist
+     * @param   value       the data value to set, or null to remove the data value
+     *
+     * @return              {@code true} if the data value was set, {@code false} if it didn't have the expected value or it couldn't be set
+     */
+    public boolean compareAndSet(@NotNull String key, @Nullable Object expected, @Nullable Object value) {
+        if (!Objects.equals(get(key), expected == null ? null : expected.toString())) return false;
+        return set(key, value);
+    }
+
+    /**
+     * Set the data value for the given key, only if it doesn't exist yet
+     *
+     * @param   key     the key to set the data value for
+     * @param   value   the data value to set
+     *
+     * @return          {@code true} if the data value was set, {@code false} if it already exists or it couldn't be set
+     *
+     * @see             #compareAndSet(String, Object, Object)
+     */
+    public boolean setIfAbsent(@NotNull String key, @NotNull Object value) {
+        return compareAndSet(key, null, value);
+    }
+
+    /**
+     * Get the data value for the given key on {@link #getExecutor() the storage executor}
+     *
+     * @param   key the key to get the data value for
+     *
+     * @return      a future completed with the data value (or null if not found)
+     *
+     * @see         #get(String)
+     * @see         xyz.srnyx.annoyingapi.scheduler.AnnoyingScheduler#syncExecutor()
+     */
+    @NotNull
+    public CompletableFuture<String> getAsync(@NotNull String key) {
+        return CompletableFuture.supplyAsync(() -> get(key), getExecutor());
+    }
+
+    /**
+     * Set the data value for the given key on {@link #getExecutor() the storage executor}
+     *
+     * @param   key     the key to set the data value for
+     * @param   value   the data value to set, or null to remove the data value
+     *
+     * @return          a future completed with {@code true} if the data value was set successfully, {@code false} otherwise
+     *
+     * @see             #set(String, Object)
+     */
+    @NotNull
+    public CompletableFuture<Boolean> setAsync(@NotNull String key, @Nullable Object value) {
+        return CompletableFuture.supplyAsync(() -> set(key, value), getExecutor());
+    }
+
+    /**
+     * Remove the data value with the given key on {@link #getExecutor() the storage executor}
+     *
+     * @param   key the key to remove the data value for
+     *
+     * @return      a future completed with {@code true} if the data value was removed successfully, {@code false} otherwise
+     *
+     * @see         #remove(String)
+     */
+    @NotNull
+    public CompletableFuture<Boolean> removeAsync(@NotNull String key) {
+        return CompletableFuture.supplyAsync(() -> remove(key), getExecutor());
+    }
+
+    /**
+     * Add to the whole-number data value for the given key on {@link #getExecutor() the storage executor}
+     *
+     * @param   key     the key to add to the data value of
+     * @param   delta   the amount to add (negative to subtract)
+     *
+     * @return          a future completed with the new data value (or null if it failed)
+     *
+     * @see             #increment(String, long)
+     */
+    @NotNull
+    public CompletableFuture<Long> incrementAsync(@NotNull String key, long delta) {
+        return CompletableFuture.supplyAsync(() -> increment(key, delta), getExecutor());
+    }
+
+    /**
+     * Set the data value for the given key, only if it currently has the expected value, on {@link #getExecutor() the storage executor}
+     *
+     * @param   key         the key to set the data value for
+     * @param   expected    the expected data value, or null to only set it if it doesn't exist
+     * @param   value       the data value to set, or null to remove the data value
+     *
+     * @return              a future completed with {@code true} if the data value was set, {@code false} otherwise
+     *
+     * @see                 #compareAndSet(String, Object, Object)
+     */
+    @NotNull
+    public CompletableFuture<Boolean> compareAndSetAsync(@NotNull String key, @Nullable Object expected, @Nullable Object value) {
+        return CompletableFuture.supplyAsync(() -> compareAndSet(key, expected, value), getExecutor());
+    }
+
+    /**
+     * The executor that the {@code *Async} methods run on
+     * <br>By default, they run on the calling thread (for data that doesn't do any I/O)
+     *
+     * @return  the executor
+     */
+    @NotNull
+    protected Executor getExecutor() {
+        return Runnable::run;
+    }
+
     /**
      * Send an error message to the console
      *
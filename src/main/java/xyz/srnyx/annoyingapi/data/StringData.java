@@ -4,10 +4,17 @@ import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import xyz.srnyx.annoyingapi.AnnoyingPlugin;
+import xyz.srnyx.annoyingapi.storage.ColumnType;
 import xyz.srnyx.annoyingapi.storage.FailedSet;
 import xyz.srnyx.annoyingapi.storage.CachedValue;
+import xyz.srnyx.annoyingapi.storage.WriteQueue;
 import xyz.srnyx.annoyingapi.options.DataOptions;
 
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 
@@ -37,7 +44,7 @@ public class StringData extends Data<String> {
      */
     public StringData(@NotNull AnnoyingPlugin plugin, @NotNull String table, @NotNull String string) {
         super(plugin, string);
-        if (annoyingPlugin.dataManager == null) throw new IllegalStateException(annoyingPlugin.options.dataOptions.enabled ? "Data manager is not initialized!" : "Data manager is not enabled! Plugin devs: enable it by setting options.dataOptions.enabled to true");
+        if (annoyingPlugin.awaitDataManager() == null) throw new IllegalStateException(annoyingPlugin.options.dataOptions.enabled ? "Data manager is not initialized!" : "Data manager is not enabled! Plugin devs: enable it by setting options.dataOptions.enabled to true");
         this.table = annoyingPlugin.dataManager.getTableName(table);
         useCache(null);
     }
@@ -79,27 +86,348 @@ public class StringData extends Data<String> {
             if (cached != null) return cached.value();
         }
 
-        // Get the data from the database
-        final String data = annoyingPlugin.dataManager.dialect.getFromDatabase(table, target, key).orElse(null);
-        if (useCache) annoyingPlugin.dataManager.dialect.setToCache(table, target, key, new CachedValue(data));
-        return data;
+        // Get the data from the database (or the write queue if it hasn't been committed yet)
+        if (!useCache) {
+            final CachedValue queued = getQueued(key);
+            if (queued != null) return queued.value();
+            // Database is down, use a value that was written to the cache in the meantime
+            if (!annoyingPlugin.dataManager.dialect.isAvailable()) {
+                final CachedValue cached = annoyingPlugin.dataManager.dialect.getFromCache(table, target, key);
+                if (cached != null) return cached.value();
+            }
+            return annoyingPlugin.dataManager.dialect.getFromDatabase(table, target, key).orElse(null);
+        }
+
+        // Load the data into the cache (concurrent loads of the same target/key share one query)
+        final String loaded;
+        if (annoyingPlugin.dataManager.storageConfig.cache.prefetch_row) {
+            final Map<String, String> row = annoyingPlugin.dataManager.dialect.loadToCache(table, target);
+            final String keyLower = key.toLowerCase();
+            // Key isn't a column, remember that it has no value
+            if (!row.containsKey(keyLower) && annoyingPlugin.dataManager.dialect.isAvailable()) annoyingPlugin.dataManager.dialect.setLoadedToCache(table, target, key, new CachedValue());
+            loaded = row.get(keyLower);
+        } else {
+            loaded = annoyingPlugin.dataManager.dialect.loadToCache(table, target, key).orElse(null);
+        }
+
+        // Prefer a value that was set while loading
+        final CachedValue cached = annoyingPlugin.dataManager.dialect.getFromCache(table, target, key);
+        return cached != null ? cached.value() : loaded;
+    }
+
+    /**
+     * Get all data values of the target in a single query
+     * <br>Values changed in the cache but not saved yet take priority over the database values
+     *
+     * @return  {@code [ Key: Data value ]}, keys without a value are left out
+     */
+    @NotNull
+    public Map<String, String> getAll() {
+        final Map<String, String> values = new HashMap<>();
+        if (annoyingPlugin.dataManager == null) {
+            AnnoyingPlugin.log(Level.SEVERE, "&cFailed to get data for &4" + target + "&c in &4" + table + "&c. DEVELOPERS: Make sure you added the table/column to DataOptions!");
+            return values;
+        }
+
+        final Map<String, String> data = useCache
+                ? annoyingPlugin.dataManager.dialect.loadToCache(table, target)
+                : annoyingPlugin.dataManager.dialect.getAllFromDatabase(table, target);
+        for (final Map.Entry<String, String> entry : data.entrySet()) {
+            final String key = entry.getKey();
+            final CachedValue cached = useCache ? annoyingPlugin.dataManager.dialect.getFromCache(table, target, key) : getQueued(key);
+            final String value = cached != null ? cached.value() : entry.getValue();
+            if (value != null) values.put(key, value);
+        }
+        return values;
+    }
+
+    /**
+     * Get all data values of the target on {@link #getExecutor() the storage executor}
+     *
+     * @return  a future completed with {@code [ Key: Data value ]}
+     *
+     * @see     #getAll()
+     */
+    @NotNull
+    public CompletableFuture<Map<String, String>> getAllAsync() {
+        return CompletableFuture.supplyAsync(this::getAll, getExecutor());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>Runs on {@link xyz.srnyx.annoyingapi.storage.DataManager#executor}
+     */
+    @Override @NotNull
+    protected Executor getExecutor() {
+        return annoyingPlugin.dataManager != null ? annoyingPlugin.dataManager.executor : super.getExecutor();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>If the cache isn't used and {@link xyz.srnyx.annoyingapi.storage.StorageConfig.GroupCommit group commits} are enabled, the future completes once the value is committed
+     */
+    @Override @NotNull
+    public CompletableFuture<Boolean> setAsync(@NotNull String key, @Nullable Object value) {
+        final WriteQueue writeQueue = getWriteQueue();
+        if (writeQueue == null) return super.setAsync(key, value);
+        final String normalized = value == null ? null : normalize(key, value.toString());
+        if (value != null && normalized == null) return CompletableFuture.completedFuture(false);
+        return writeQueue.enqueue(table, target, key, normalized);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>If the cache isn't used and {@link xyz.srnyx.annoyingapi.storage.StorageConfig.GroupCommit group commits} are enabled, the future completes once the removal is committed
+     */
+    @Override @NotNull
+    public CompletableFuture<Boolean> removeAsync(@NotNull String key) {
+        final WriteQueue writeQueue = getWriteQueue();
+        return writeQueue != null ? writeQueue.enqueue(table, target, key, null) : super.removeAsync(key);
+    }
+
+    /**
+     * Get the {@link WriteQueue} that writes of this data go through
+     *
+     * @return  the write queue, or {@code null} if the cache is used or group commits are disabled
+     */
+    @Nullable
+    private WriteQueue getWriteQueue() {
+        return useCache || annoyingPlugin.dataManager == null ? null : annoyingPlugin.dataManager.writeQueue;
+    }
+
+    /**
+     * Whether uncached writes should go to the cache instead, because the database is down and they'd fail
+     * <br>Only if the cache is enabled (so it gets saved) and there's no {@link WriteQueue} (which keeps writes until the database is back itself)
+     *
+     * @return  {@code true} if writes should go to the cache
+     */
+    private boolean isCacheFallback() {
+        return annoyingPlugin.dataManager != null
+                && annoyingPlugin.dataManager.storageConfig.cache.enabled
+                && annoyingPlugin.dataManager.writeQueue == null
+                && !annoyingPlugin.dataManager.dialect.isAvailable();
+    }
+
+    /**
+     * Get a value that's waiting in the {@link WriteQueue} to be committed
+     *
+     * @param   key the key
+     *
+     * @return      the queued value, or {@code null} if nothing is queued for the key
+     */
+    @Nullable
+    private CachedValue getQueued(@NotNull String key) {
+        final WriteQueue writeQueue = getWriteQueue();
+        return writeQueue == null ? null : writeQueue.getPending(table, target, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>Concurrent calls for the same key on the same target share one call of the loader
+     */
+    @Override @Nullable
+    public String getOrLoad(@NotNull String key, @NotNull Supplier<?> loader) {
+        if (annoyingPlugin.dataManager == null) return super.getOrLoad(key, loader);
+        return annoyingPlugin.dataManager.dialect.computeOnce(table, target, key, () -> Optional.ofNullable(super.getOrLoad(key, loader))).orElse(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>Cached values are used where possible, the rest are read from the database in a single query that only selects those keys
+     */
+    @Override @NotNull
+    public Map<String, String> get(@NotNull Collection<String> keys) {
+        final Map<String, String> values = new HashMap<>();
+        if (annoyingPlugin.dataManager == null) {
+            AnnoyingPlugin.log(Level.SEVERE, "&cFailed to get &4" + String.join(", ", keys) + "&c for &4" + target + "&c in &4" + table + "&c. DEVELOPERS: Make sure you added the table/column to DataOptions!");
+            return values;
+        }
+
+        // Get the data from the cache (or the write queue)
+        final Set<String> missing = new LinkedHashSet<>();
+        for (final String key : keys) {
+            final CachedValue cached = useCache ? annoyingPlugin.dataManager.dialect.getFromCache(table, target, key) : getQueued(key);
+            if (cached == null) {
+                missing.add(key);
+            } else if (cached.value() != null) {
+                values.put(key, cached.value());
+            }
+        }
+        if (missing.isEmpty()) return values;
+
+        // Get the rest from the database
+        final Map<String, String> data = annoyingPlugin.dataManager.dialect.getFromDatabase(table, target, missing);
+        for (final String key : missing) {
+            final String value = data.get(key.toLowerCase());
+            if (value != null) values.put(key, value);
+            if (useCache && annoyingPlugin.dataManager.dialect.isAvailable()) annoyingPlugin.dataManager.dialect.setLoadedToCache(table, target, key, new CachedValue(value));
+        }
+        return values;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>If the cache is used, the value is changed atomically in the cache, so it's only atomic on this server (use {@link #useCache(Boolean) useCache(false)} for values that multiple servers change).
+     * Otherwise, it's a single in-place update in the database, which is atomic across servers
+     */
+    @Override @Nullable
+    public Long increment(@NotNull String key, long delta) {
+        if (annoyingPlugin.dataManager == null) {
+            AnnoyingPlugin.log(Level.SEVERE, "&cFailed to increment &4" + key + "&c for &4" + target + "&c in &4" + table + "&c. DEVELOPERS: Make sure you added the table/column to DataOptions!");
+            return null;
+        }
+
+        // Increment the data in the cache
+        if (useCache || isCacheFallback()) {
+            final Long[] updated = {null};
+            computeCached(key, current -> {
+                try {
+                    updated[0] = (current == null ? 0L : Long.parseLong(current.trim())) + delta;
+                } catch (final NumberFormatException e) {
+                    return null;
+                }
+                return new CachedValue(String.valueOf(updated[0]));
+            });
+            return updated[0];
+        }
+
+        // Increment the data in the database
+        flushQueued(key);
+        return annoyingPlugin.dataManager.dialect.incrementInDatabase(table, target, key, delta);
     }
 
+    /**
+     * {@inheritDoc}
+     * <br>Like {@link #increment(String, long)}, this is only atomic on this server if the cache is used, and atomic across servers otherwise
+     */
     @Override
-    protected boolean set(@NotNull String key, @NotNull String value) {
+    public boolean compareAndSet(@NotNull String key, @Nullable Object expected, @Nullable Object value) {
         if (annoyingPlugin.dataManager == null) {
             AnnoyingPlugin.log(Level.SEVERE, "&cFailed to set &4" + key + "&c for &4" + target + "&c in &4" + table + "&c. DEVELOPERS: Make sure you added the table/column to DataOptions!");
             return false;
         }
+        final ColumnType type = getType(key);
+        final String expectedString = expected == null ? null : normalizeQuietly(type, expected.toString());
+        final String valueString = value == null ? null : normalize(key, value.toString());
+        if (value != null && valueString == null) return false;
 
         // Set the data in the cache
-        if (useCache) {
-            annoyingPlugin.dataManager.dialect.setToCache(table, target, key, new CachedValue(value));
+        if (useCache || isCacheFallback()) {
+            final boolean[] swapped = {false};
+            computeCached(key, current -> {
+                if (!Objects.equals(current, expectedString)) return null;
+                swapped[0] = true;
+                return new CachedValue(valueString);
+            });
+            return swapped[0];
+        }
+
+        // Set the data in the database
+        flushQueued(key);
+        return annoyingPlugin.dataManager.dialect.compareAndSetInDatabase(table, target, key, expectedString, valueString);
+    }
+
+    /**
+     * Atomically change a cached value, loading it into the cache first if it isn't cached yet
+     *
+     * @param   key         the key
+     * @param   function    see {@link xyz.srnyx.annoyingapi.storage.dialects.Dialect#computeInCache(String, String, String, Function)}
+     */
+    private void computeCached(@NotNull String key, @NotNull Function<String, CachedValue> function) {
+        if (annoyingPlugin.dataManager == null || annoyingPlugin.dataManager.dialect.computeInCache(table, target, key, function) != null) return;
+        // Not cached yet (isn't cached if the database is down)
+        annoyingPlugin.dataManager.dialect.loadToCache(table, target, key);
+        annoyingPlugin.dataManager.dialect.computeInCache(table, target, key, function);
+    }
+
+    /**
+     * Get the {@link DataOptions#columnTypes declared type} of a key
+     *
+     * @param   key the key
+     *
+     * @return      the type, or {@code null} if it wasn't declared
+     */
+    @Nullable
+    private ColumnType getType(@NotNull String key) {
+        if (annoyingPlugin.dataManager == null) return null;
+        final Map<String, ColumnType> types = annoyingPlugin.options.dataOptions.columnTypes.get(annoyingPlugin.dataManager.getRawTableName(table));
+        return types == null ? null : types.get(key.toLowerCase());
+    }
+
+    /**
+     * Check a value against the {@link DataOptions#columnTypes declared type} of its key (see {@link ColumnType#normalize(String)})
+     *
+     * @param   key     the key
+     * @param   value   the value
+     *
+     * @return          the value in its stored format, or {@code null} if it doesn't fit the type (logged)
+     */
+    @Nullable
+    private String normalize(@NotNull String key, @NotNull String value) {
+        final ColumnType type = getType(key);
+        if (type == null) return value;
+        try {
+            return type.normalize(value);
+        } catch (final IllegalArgumentException e) {
+            AnnoyingPlugin.log(Level.SEVERE, "&cFailed to set &4" + key + "&c for &4" + target + "&c in &4" + table + "&c, &4" + value + "&c isn't a valid &4" + type + "&c value");
+            return null;
+        }
+    }
+
+    /**
+     * Get a value in the stored format of a type if it fits the type, to compare it to stored values
+     *
+     * @param   type    the type, or {@code null} if it wasn't declared
+     * @param   value   the value
+     *
+     * @return          the value in its stored format, or the value itself if it doesn't fit the type
+     */
+    @NotNull
+    private static String normalizeQuietly(@Nullable ColumnType type, @NotNull String value) {
+        if (type == null) return value;
+        try {
+            return type.normalize(value);
+        } catch (final IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    /**
+     * Commit the {@link WriteQueue} if a value is queued for the key, so an atomic operation in the database doesn't run before it (and get overwritten by it)
+     *
+     * @param   key the key
+     */
+    private void flushQueued(@NotNull String key) {
+        if (getQueued(key) != null && annoyingPlugin.dataManager != null && annoyingPlugin.dataManager.writeQueue != null) annoyingPlugin.dataManager.writeQueue.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>The value is checked against the {@link DataOptions#columnTypes declared type} of the key first, so a value the database would reject is never cached/queued
+     */
+    @Override
+    protected boolean set(@NotNull String key, @NotNull String value) {
+        if (annoyingPlugin.dataManager == null) {
+            AnnoyingPlugin.log(Level.SEVERE, "&cFailed to set &4" + key + "&c for &4" + target + "&c in &4" + table + "&c. DEVELOPERS: Make sure you added the table/column to DataOptions!");
+            return false;
+        }
+        final String normalized = normalize(key, value);
+        if (normalized == null) return false;
+
+        // Set the data in the cache (also if the database is down, so it's saved once it's back)
+        if (useCache || isCacheFallback()) {
+            annoyingPlugin.dataManager.dialect.setToCache(table, target, key, new CachedValue(normalized));
+            return true;
+        }
+
+        // Queue the data to be committed
+        if (annoyingPlugin.dataManager.writeQueue != null) {
+            annoyingPlugin.dataManager.writeQueue.enqueue(table, target, key, normalized);
             return true;
         }
 
         // Set the data in the database
-        final FailedSet failed = annoyingPlugin.dataManager.dialect.setToDatabase(table, target, key, value);
+        final FailedSet failed = annoyingPlugin.dataManager.dialect.setToDatabase(table, target, key, normalized);
         if (failed != null) {
             AnnoyingPlugin.log(Level.SEVERE, "&cFailed to set &4" + key + "&c for &4" + target + "&c in &4" + table + "&c. DEVELOPERS: Make sure you added the table/column to DataOptions!", failed.exception());
             return false;
@@ -114,12 +442,18 @@ public class StringData extends Data<String> {
             return false;
         }
 
-        // Remove the data from the cache
-        if (useCache) {
+        // Remove the data from the cache (also if the database is down, so it's saved once it's back)
+        if (useCache || isCacheFallback()) {
             annoyingPlugin.dataManager.dialect.markRemovedInCache(table, target, key);
             return true;
         }
 
+        // Queue the removal to be committed
+        if (annoyingPlugin.dataManager.writeQueue != null) {
+            annoyingPlugin.dataManager.writeQueue.enqueue(table, target, key, null);
+            return true;
+        }
+
         // Remove the data from the database
         if (!annoyingPlugin.dataManager.dialect.removeValueFromDatabase(table, target, key)) {
             AnnoyingPlugin.log(Level.SEVERE, "&cFailed to remove &4" + key + "&c for &4" + target + "&c in &4" + table + "&c. DEVELOPERS: Make sure you added the table/column to DataOptions!");
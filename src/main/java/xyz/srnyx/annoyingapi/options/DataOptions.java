@@ -3,6 +3,8 @@ package xyz.srnyx.annoyingapi.options;
 import org.bukkit.configuration.ConfigurationSection;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.annoyingapi.AnnoyingPlugin;
+import xyz.srnyx.annoyingapi.storage.ColumnType;
 import xyz.srnyx.annoyingapi.storage.DataManager;
 import xyz.srnyx.annoyingapi.data.StringData;
 import xyz.srnyx.annoyingapi.file.AnnoyingFile;
@@ -10,8 +12,10 @@ import xyz.srnyx.annoyingapi.data.EntityData;
 import xyz.srnyx.javautilities.MapGenerator;
 import xyz.srnyx.javautilities.parents.Stringable;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.logging.Level;
 
 
 /**
@@ -30,10 +34,34 @@ public class DataOptions extends Stringable {
      * <br><i>If no custom columns are added to {@link EntityData#TABLE_NAME}, it won't be created. Manually removing it will break {@link EntityData}</i>
      */
     @NotNull @SuppressWarnings("CanBeFinal") public Map<String, Set<String>> tables = MapGenerator.HASH_MAP.mapOf(EntityData.TABLE_NAME, new HashSet<>(Collections.singleton(StringData.TARGET_COLUMN)));
+    /**
+     * The types of columns in {@link #tables} ({@code [ Table: [ Column: Type ] ]}), columns without a type are {@link ColumnType#TEXT text}
+     * <br>Like {@link #tables}, this is case-insensitive and all keys are converted to lowercase
+     * <br><i>Types are only used when a column is created, changing the type of an existing column requires migrating it</i>
+     */
+    @NotNull @SuppressWarnings("CanBeFinal") public Map<String, Map<String, ColumnType>> columnTypes = new HashMap<>();
+    /**
+     * The columns of {@link #tables} to create secondary indexes on ({@code [ Table: [ Column ] ]}), for fast {@link DataManager#getTop(String, String, int, boolean) top}/{@link DataManager#getRange(String, String, String, String, boolean, int) range} queries on big tables
+     * <br>Like {@link #tables}, this is case-insensitive and all keys and values are converted to lowercase
+     * <br><i>Only columns with a {@link #columnTypes type} other than {@link ColumnType#TEXT text} can be indexed (use {@link ColumnType#varchar(int) varchar} for strings).
+     * In {@link xyz.srnyx.annoyingapi.storage.StorageConfig.Layout#NARROW narrow} tables only the key column is indexed, since values are always text.
+     * That finds a key's rows quickly, but the values are still cast and sorted for every query, so top/range queries on big narrow tables aren't served by an index</i>
+     */
+    @NotNull @SuppressWarnings("CanBeFinal") public Map<String, Set<String>> indexes = new HashMap<>();
     /**
      * Whether to use the cache by default for {@link StringData}
      */
     public boolean useCacheDefault = true;
+    /**
+     * Whether to connect to the database in the background instead of blocking the server while the plugin loads
+     * <br>Until it's connected, {@link xyz.srnyx.annoyingapi.AnnoyingPlugin#dataManager} is {@code null}, use {@link xyz.srnyx.annoyingapi.AnnoyingPlugin#dataManagerReady} to run code once it's ready
+     * <br>{@link StringData} waits for the connection (up to {@link #readyTimeout})
+     */
+    public boolean asyncConnect = false;
+    /**
+     * The maximum time to wait for the database connection when data is used before it's ready (only applicable if {@link #asyncConnect} is enabled)
+     */
+    @NotNull public Duration readyTimeout = Duration.ofSeconds(30);
     /**
      * Options for {@link EntityData entity data management}
      */
@@ -103,6 +131,72 @@ public class DataOptions extends Stringable {
         return table(table, Arrays.asList(columns));
     }
 
+    /**
+     * Adds the specified table to {@link #tables} and the types of its columns to {@link #columnTypes}
+     * <br>The table and all columns will be converted to lowercase
+     * <br><i>Also sets {@link #enabled} to true</i>
+     *
+     * @param   table   the table to add
+     * @param   columns the columns to add for the table and their types
+     *
+     * @return          this {@link DataOptions} instance for chaining
+     */
+    @NotNull
+    public DataOptions table(@NotNull String table, @NotNull Map<String, ColumnType> columns) {
+        final Map<String, ColumnType> types = new HashMap<>();
+        columns.forEach((column, type) -> types.put(column.toLowerCase(), type));
+        columnTypes.put(table.toLowerCase(), types);
+        return table(table, columns.keySet());
+    }
+
+    /**
+     * Adds a column with a type to a table in {@link #tables}/{@link #columnTypes}, keeping the table's other columns
+     * <br>The table and column will be converted to lowercase
+     * <br><i>Also sets {@link #enabled} to true</i>
+     *
+     * @param   table   the table to add the column to
+     * @param   column  the column to add
+     * @param   type    the type of the column
+     *
+     * @return          this {@link DataOptions} instance for chaining
+     */
+    @NotNull
+    public DataOptions column(@NotNull String table, @NotNull String column, @NotNull ColumnType type) {
+        tables.computeIfAbsent(table.toLowerCase(), k -> new HashSet<>()).add(column.toLowerCase());
+        columnTypes.computeIfAbsent(table.toLowerCase(), k -> new HashMap<>()).put(column.toLowerCase(), type);
+        return enabled(true);
+    }
+
+    /**
+     * Adds indexes on the specified columns of a table to {@link #indexes}, keeping the table's other indexes
+     * <br>The table and columns will be converted to lowercase
+     *
+     * @param   table   the table of the columns
+     * @param   columns the columns to index
+     *
+     * @return          this {@link DataOptions} instance for chaining
+     */
+    @NotNull
+    public DataOptions index(@NotNull String table, @NotNull Collection<String> columns) {
+        final Set<String> tableIndexes = indexes.computeIfAbsent(table.toLowerCase(), k -> new HashSet<>());
+        for (final String column : columns) tableIndexes.add(column.toLowerCase());
+        return this;
+    }
+
+    /**
+     * Adds indexes on the specified columns of a table to {@link #indexes}, keeping the table's other indexes
+     * <br>The table and columns will be converted to lowercase
+     *
+     * @param   table   the table of the columns
+     * @param   columns the columns to index
+     *
+     * @return          this {@link DataOptions} instance for chaining
+     */
+    @NotNull
+    public DataOptions index(@NotNull String table, @NotNull String... columns) {
+        return index(table, Arrays.asList(columns));
+    }
+
     /**
      * Adds the specified columns to the {@link EntityData#TABLE_NAME} table
      * <br><i>Also sets {@link #enabled} to true</i>
@@ -145,6 +239,32 @@ public class DataOptions extends Stringable {
         return this;
     }
 
+    /**
+     * Sets {@link #asyncConnect}
+     *
+     * @param   asyncConnect    the new value
+     *
+     * @return                  this {@link DataOptions} instance for chaining
+     */
+    @NotNull
+    public DataOptions asyncConnect(boolean asyncConnect) {
+        this.asyncConnect = asyncConnect;
+        return this;
+    }
+
+    /**
+     * Sets {@link #readyTimeout}
+     *
+     * @param   readyTimeout    the new value
+     *
+     * @return                  this {@link DataOptions} instance for chaining
+     */
+    @NotNull
+    public DataOptions readyTimeout(@NotNull Duration readyTimeout) {
+        this.readyTimeout = readyTimeout;
+        return this;
+    }
+
     /**
      * Sets {@link #entities}
      *
@@ -192,7 +312,23 @@ public class DataOptions extends Stringable {
         final ConfigurationSection tablesSection = section.getConfigurationSection("tables");
         if (tablesSection != null) options.tables(tablesSection.getKeys(false).stream()
                 .collect(HashMap::new, (map, table) -> map.put(table, tablesSection.getStringList(table)), HashMap::putAll));
+        final ConfigurationSection columnTypesSection = section.getConfigurationSection("columnTypes");
+        if (columnTypesSection != null) for (final String table : columnTypesSection.getKeys(false)) {
+            final ConfigurationSection tableSection = columnTypesSection.getConfigurationSection(table);
+            if (tableSection != null) for (final String column : tableSection.getKeys(false)) {
+                final String declaration = tableSection.getString(column, "");
+                try {
+                    options.column(table, column, ColumnType.parse(declaration));
+                } catch (final IllegalArgumentException e) {
+                    AnnoyingPlugin.log(Level.WARNING, "&cInvalid type &4" + declaration + "&c for column &4" + column + "&c in table &4" + table + "&c, it will be text");
+                }
+            }
+        }
+        final ConfigurationSection indexesSection = section.getConfigurationSection("indexes");
+        if (indexesSection != null) for (final String table : indexesSection.getKeys(false)) options.index(table, indexesSection.getStringList(table));
         if (section.contains("useCacheDefault")) options.useCacheDefault(section.getBoolean("useCacheDefault"));
+        if (section.contains("asyncConnect")) options.asyncConnect(section.getBoolean("asyncConnect"));
+        if (section.contains("readyTimeout")) options.readyTimeout(Duration.ofMillis(section.getLong("readyTimeout")));
         final ConfigurationSection entitiesSection = section.getConfigurationSection("entities");
         if (entitiesSection != null) options.entities(Entities.load(entitiesSection));
         return options;
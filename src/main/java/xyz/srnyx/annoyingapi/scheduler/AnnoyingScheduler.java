@@ -1,6 +1,7 @@
 package xyz.srnyx.annoyingapi.scheduler;
 
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
 import org.bukkit.plugin.IllegalPluginAccessException;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
@@ -10,6 +11,7 @@ import xyz.srnyx.annoyingapi.parents.AnnoyableClass;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 
@@ -50,6 +52,59 @@ public class AnnoyingScheduler extends AnnoyableClass {
         return new TaskWrapper(annoyingPlugin, Bukkit.getScheduler().runTask(annoyingPlugin, runnable));
     }
 
+    /**
+     * Attempt to run a task synchronously on the thread that owns the entity
+     * <br>If running Folia, the task will be run on the entity's scheduler (or on Folia's global scheduler if the entity has been removed)
+     * <br>Otherwise, it'll be run on the main server thread
+     *
+     * @param   entity      the entity that the task uses
+     * @param   runnable    the task to run
+     *
+     * @return              a {@link TaskWrapper} containing the scheduled task
+     */
+    @NotNull
+    public TaskWrapper runSync(@NotNull Entity entity, @NotNull Runnable runnable) {
+        // Folia
+        if (ServerSoftware.SOFTWARE.hasFolia()) {
+            try {
+                final Object scheduler = Entity.class.getMethod("getScheduler").invoke(entity);
+                final Runnable retired = () -> runSync(runnable);
+                final Object task = scheduler.getClass().getMethod("run", Plugin.class, Consumer.class, Runnable.class).invoke(scheduler, annoyingPlugin, new FoliaConsumer(runnable), retired);
+                // Entity was already removed
+                return task == null ? runSync(runnable) : new TaskWrapper(annoyingPlugin, task);
+            } catch (final InvocationTargetException | IllegalAccessException | NoSuchMethodException e) {
+                throw new RuntimeException("Failed to run a Folia entity task!", e);
+            }
+        }
+
+        // Bukkit
+        return runSync(runnable);
+    }
+
+    /**
+     * An {@link Executor} that runs tasks with {@link #runSync(Runnable)}
+     * <br>Useful for getting back onto the main thread after asynchronous work, for example: {@code data.getAsync("key").thenAcceptAsync(value -> ..., plugin.scheduler.syncExecutor())}
+     *
+     * @return  the executor
+     */
+    @NotNull
+    public Executor syncExecutor() {
+        return this::runSync;
+    }
+
+    /**
+     * An {@link Executor} that runs tasks with {@link #runSync(Entity, Runnable)}
+     * <br>On Folia, use this instead of {@link #syncExecutor()} for tasks that use the entity
+     *
+     * @param   entity  the entity that the tasks use
+     *
+     * @return          the executor
+     */
+    @NotNull
+    public Executor syncExecutor(@NotNull Entity entity) {
+        return runnable -> runSync(entity, runnable);
+    }
+
     /**
      * Attempt to run a task asynchronously
      * <br>If running Folia, the task will be run on Folia's global scheduler
@@ -58,6 +58,27 @@ public abstract class FastStatsLoader extends StatsLoader<String, BukkitContext>
                         .orElse(null)),
                 Metric.number("storage_cache_values", () -> getStorageStats()
                         .map(Dialect.Stats::cacheValues)
+                        .orElse(null)),
+                Metric.number("storage_cache_evictions", () -> getStorageStats()
+                        .map(Dialect.Stats::cacheEvictions)
+                        .orElse(null)),
+                Metric.number("storage_pool_active", () -> getPoolStats()
+                        .map(Dialect.PoolStats::active)
+                        .orElse(null)),
+                Metric.number("storage_pool_idle", () -> getPoolStats()
+                        .map(Dialect.PoolStats::idle)
+                        .orElse(null)),
+                Metric.number("storage_pool_pending", () -> getPoolStats()
+                        .map(Dialect.PoolStats::pending)
+                        .orElse(null)),
+                Metric.number("storage_pool_average_wait_ms", () -> getPoolStats()
+                        .map(Dialect.PoolStats::averageWaitMillis)
+                        .orElse(null)),
+                Metric.number("storage_pool_max_wait_ms", () -> getPoolStats()
+                        .map(Dialect.PoolStats::maxWaitMillis)
+                        .orElse(null)),
+                Metric.number("storage_pool_timeouts", () -> getPoolStats()
+                        .map(Dialect.PoolStats::timeouts)
                         .orElse(null))));
         // Storage
         commonMetrics.add(config("storage", () -> plugin.dataManager == null ? null : plugin.dataManager.storageConfig));
@@ -120,6 +141,11 @@ public abstract class FastStatsLoader extends StatsLoader<String, BukkitContext>
         return Optional.ofNullable(storageStats);
     }
 
+    @NotNull
+    private Optional<Dialect.PoolStats> getPoolStats() {
+        return getStorageStats().map(Dialect.Stats::pool);
+    }
+
     @NotNull
     public static Metric<String[]> stringArray(@NotNull @SourceId String id, @NotNull Callable<@Nullable Collection<String>> callable) {
         return Metric.stringArray(id, () -> {
@@ -0,0 +1,174 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+import xyz.srnyx.annoyingapi.AnnoyingPlugin;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+
+/**
+ * Makes database operations fail fast while the database is down, instead of every operation waiting for the connection timeout
+ * <ul>
+ *     <li><b>Closed:</b> operations run normally, connection failures in a row are counted</li>
+ *     <li><b>Open:</b> after {@link StorageConfig.CircuitBreaker#failure_threshold} failures in a row, operations fail right away with {@link OpenException}
+ *     and the database is probed in the background every {@link StorageConfig.CircuitBreaker#retry_interval} until it's back</li>
+ * </ul>
+ */
+public class CircuitBreaker {
+    /**
+     * The {@link DataManager} whose database is guarded
+     */
+    @NotNull private final DataManager dataManager;
+    /**
+     * Checks whether the database can be reached again
+     */
+    @NotNull private final Probe probe;
+    /**
+     * The number of connection failures since the last success
+     */
+    @NotNull private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    /**
+     * The number of times the breaker has opened
+     */
+    @NotNull private final AtomicLong trips = new AtomicLong();
+    /**
+     * Whether operations are failing fast
+     */
+    private volatile boolean open;
+
+    /**
+     * Construct a new closed {@link CircuitBreaker}
+     *
+     * @param   dataManager {@link #dataManager}
+     * @param   probe       {@link #probe}
+     */
+    public CircuitBreaker(@NotNull DataManager dataManager, @NotNull Probe probe) {
+        this.dataManager = dataManager;
+        this.probe = probe;
+    }
+
+    /**
+     * Whether operations should fail fast right now
+     *
+     * @return  {@code true} if the database is considered down
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * The number of times the database has been considered down since startup
+     *
+     * @return  the number of trips
+     */
+    public long getTrips() {
+        return trips.get();
+    }
+
+    /**
+     * Throw {@link OpenException} if operations should fail fast
+     *
+     * @throws  OpenException   if the breaker is open
+     */
+    public void check() throws OpenException {
+        if (open) throw new OpenException();
+    }
+
+    /**
+     * Record that an operation reached the database
+     */
+    public void success() {
+        consecutiveFailures.set(0);
+    }
+
+    /**
+     * Record that an operation failed, only counted if it failed because the database couldn't be reached (see {@link #isConnectionFailure(SQLException)})
+     *
+     * @param   exception   the reason the operation failed
+     */
+    public void failure(@NotNull SQLException exception) {
+        if (!dataManager.storageConfig.circuit_breaker.enabled || !isConnectionFailure(exception)) return;
+        if (consecutiveFailures.incrementAndGet() < Math.max(1, dataManager.storageConfig.circuit_breaker.failure_threshold)) return;
+        synchronized (this) {
+            if (open) return;
+            open = true;
+        }
+        trips.incrementAndGet();
+        AnnoyingPlugin.log(Level.WARNING, "&cLost connection to the database! Database operations will fail right away until it's back (cached data will still be used)");
+        scheduleProbe();
+    }
+
+    /**
+     * Probe the database after {@link StorageConfig.CircuitBreaker#retry_interval} on {@link DataManager#executor}, closing the breaker if it's back and probing again later if not
+     */
+    private void scheduleProbe() {
+        final long delay = Math.max(1, dataManager.storageConfig.circuit_breaker.retry_interval.toMillis());
+        // Rejected (silently) once the DataManager is closed, which stops the probing
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, dataManager.executor).execute(() -> {
+            boolean back;
+            try {
+                back = probe.run();
+            } catch (final SQLException e) {
+                back = false;
+            }
+            if (!back) {
+                scheduleProbe();
+                return;
+            }
+            consecutiveFailures.set(0);
+            open = false;
+            AnnoyingPlugin.log(Level.INFO, "&aReconnected to the database!");
+        });
+    }
+
+    /**
+     * Whether an exception means the database couldn't be reached (as opposed to, for example, a syntax error)
+     *
+     * @param   exception   the exception
+     *
+     * @return              {@code true} if it's a connection failure or timeout
+     */
+    public static boolean isConnectionFailure(@NotNull SQLException exception) {
+        if (exception instanceof OpenException) return false;
+        if (exception instanceof SQLTransientConnectionException || exception instanceof SQLNonTransientConnectionException || exception instanceof SQLRecoverableException || exception instanceof SQLTimeoutException) return true;
+        // SQLState class 08 is "connection exception"
+        final String state = exception.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    /**
+     * Checks whether the database can be reached
+     */
+    @FunctionalInterface
+    public interface Probe {
+        /**
+         * Check whether the database can be reached
+         *
+         * @return  {@code true} if it can
+         *
+         * @throws  SQLException    if it can't
+         */
+        boolean run() throws SQLException;
+    }
+
+    /**
+     * Thrown instead of running an operation while the {@link CircuitBreaker} is open
+     */
+    public static class OpenException extends SQLTransientConnectionException {
+        /**
+         * Construct a new {@link OpenException}
+         */
+        public OpenException() {
+            super("The database is unavailable, failing fast until it's back", "08000");
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+
+/**
+ * The declared type of a data column, used when the column is created (see {@link xyz.srnyx.annoyingapi.options.DataOptions#columnTypes})
+ * <br>Columns without a declared type are {@link #TEXT}
+ * <br>Values are still read and written as strings through {@link xyz.srnyx.annoyingapi.data.Data}, SQL databases convert them to/from the column's native type when they're bound/read.
+ * They're checked against the type when they're set (see {@link #normalize(String)})
+ *
+ * @param   kind    the kind of type
+ * @param   length  the maximum length, only used for {@link Kind#VARCHAR}
+ *
+ * @see SQLSyntax#type(ColumnType)
+ */
+public record ColumnType(@NotNull Kind kind, int length) {
+    /**
+     * A 32-bit integer
+     */
+    @NotNull public static final ColumnType INT = new ColumnType(Kind.INT, 0);
+    /**
+     * A 64-bit integer, for example a timestamp
+     */
+    @NotNull public static final ColumnType LONG = new ColumnType(Kind.LONG, 0);
+    /**
+     * A double-precision floating point number
+     */
+    @NotNull public static final ColumnType DOUBLE = new ColumnType(Kind.DOUBLE, 0);
+    /**
+     * {@code true}/{@code false}
+     */
+    @NotNull public static final ColumnType BOOLEAN = new ColumnType(Kind.BOOLEAN, 0);
+    /**
+     * A {@link java.util.UUID UUID}, native where the database has a UUID type
+     */
+    @NotNull public static final ColumnType UUID = new ColumnType(Kind.UUID, 0);
+    /**
+     * A string without a (small) length limit, the default
+     */
+    @NotNull public static final ColumnType TEXT = new ColumnType(Kind.TEXT, 0);
+
+    /**
+     * Construct a new {@link ColumnType}
+     *
+     * @param   kind    {@link #kind}
+     * @param   length  {@link #length}
+     *
+     * @throws  IllegalArgumentException    if {@code kind} is {@link Kind#VARCHAR} and {@code length} isn't positive
+     */
+    public ColumnType {
+        if (kind == Kind.VARCHAR && length < 1) throw new IllegalArgumentException("varchar length must be positive, got " + length);
+    }
+
+    /**
+     * A string with a maximum length
+     *
+     * @param   length  the maximum length
+     *
+     * @return          the {@link ColumnType}
+     */
+    @NotNull
+    public static ColumnType varchar(int length) {
+        return new ColumnType(Kind.VARCHAR, length);
+    }
+
+    /**
+     * Parse a type declaration: {@code int}, {@code long}, {@code double}, {@code boolean}, {@code varchar(n)}, {@code uuid} or {@code text} (case-insensitive)
+     *
+     * @param   declaration the declaration
+     *
+     * @return              the {@link ColumnType}
+     *
+     * @throws  IllegalArgumentException    if the declaration isn't valid
+     */
+    @NotNull
+    public static ColumnType parse(@NotNull String declaration) {
+        final String type = declaration.trim().toLowerCase(Locale.ROOT);
+        return switch (type) {
+            case "int", "integer" -> INT;
+            case "long", "bigint" -> LONG;
+            case "double" -> DOUBLE;
+            case "boolean", "bool" -> BOOLEAN;
+            case "uuid" -> UUID;
+            case "text" -> TEXT;
+            default -> {
+                if (type.startsWith("varchar(") && type.endsWith(")")) try {
+                    yield varchar(Integer.parseInt(type.substring(8, type.length() - 1).trim()));
+                } catch (final NumberFormatException ignored) {
+                    // Thrown below
+                }
+                throw new IllegalArgumentException("Invalid column type: " + declaration);
+            }
+        };
+    }
+
+    /**
+     * Check that a value fits this type and get it in the format it's read back from the database in, for example {@code 100.0} for {@code 100} in a {@link #DOUBLE} column
+     * <br>Used when a value is set, so a value that the database would reject never gets cached/queued
+     *
+     * @param   value   the value
+     *
+     * @return          the value in its stored format
+     *
+     * @throws  IllegalArgumentException    if the value doesn't fit this type
+     */
+    @NotNull
+    public String normalize(@NotNull String value) {
+        return switch (kind) {
+            case INT -> String.valueOf(Integer.parseInt(value.trim()));
+            case LONG -> String.valueOf(Long.parseLong(value.trim()));
+            case DOUBLE -> String.valueOf(Double.parseDouble(value));
+            case BOOLEAN -> String.valueOf(parseBoolean(value));
+            case UUID -> java.util.UUID.fromString(value.trim()).toString();
+            case VARCHAR -> {
+                if (value.length() > length) throw new IllegalArgumentException("'" + value + "' is longer than " + length + " characters");
+                yield value;
+            }
+            case TEXT -> value;
+        };
+    }
+
+    /**
+     * Parse a boolean strictly, unlike {@link Boolean#parseBoolean(String)} which treats anything but {@code true} as {@code false}
+     *
+     * @param   value   {@code true}/{@code false} (case-insensitive) or {@code 1}/{@code 0}
+     *
+     * @return          the boolean
+     *
+     * @throws  IllegalArgumentException    if the value isn't a boolean
+     */
+    public static boolean parseBoolean(@NotNull String value) {
+        final String trimmed = value.trim();
+        if (trimmed.equalsIgnoreCase("true") || trimmed.equals("1")) return true;
+        if (trimmed.equalsIgnoreCase("false") || trimmed.equals("0")) return false;
+        throw new IllegalArgumentException("'" + value + "' is not a boolean");
+    }
+
+    /**
+     * The declaration that {@link #parse(String)} reads, for example {@code varchar(16)}
+     */
+    @Override @NotNull
+    public String toString() {
+        return kind == Kind.VARCHAR ? "varchar(" + length + ")" : kind.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The kinds of column types
+     */
+    public enum Kind {
+        /**
+         * See {@link ColumnType#INT}
+         */
+        INT,
+        /**
+         * See {@link ColumnType#LONG}
+         */
+        LONG,
+        /**
+         * See {@link ColumnType#DOUBLE}
+         */
+        DOUBLE,
+        /**
+         * See {@link ColumnType#BOOLEAN}
+         */
+        BOOLEAN,
+        /**
+         * See {@link ColumnType#varchar(int)}
+         */
+        VARCHAR,
+        /**
+         * See {@link ColumnType#UUID}
+         */
+        UUID,
+        /**
+         * See {@link ColumnType#TEXT}
+         */
+        TEXT
+    }
+}
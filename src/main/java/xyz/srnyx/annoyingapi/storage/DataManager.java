@@ -5,11 +5,27 @@ import org.jetbrains.annotations.Nullable;
 import xyz.srnyx.annoyingapi.AnnoyingPlugin;
 import xyz.srnyx.annoyingapi.scheduler.TaskWrapper;
 import xyz.srnyx.annoyingapi.storage.dialects.Dialect;
-import xyz.srnyx.annoyingapi.storage.dialects.SQLDialect;
+import xyz.srnyx.annoyingapi.storage.dialects.JDBCDialect;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 
@@ -18,6 +34,10 @@ import java.util.logging.Level;
  */
 public class DataManager {
     @NotNull private static final String STORAGE_NEW_FILE_NAME = "storage-new.yml";
+    /**
+     * How often {@link #attemptDatabaseMigration()} logs its progress
+     */
+    @NotNull private static final Duration MIGRATION_PROGRESS_INTERVAL = Duration.ofSeconds(10);
     
     /**
      * The {@link AnnoyingPlugin plugin} to use for the data manager
@@ -35,12 +55,32 @@ public class DataManager {
      * The table prefix for the database (only for remote connections)
      */
     @NotNull public final String tablePrefix;
+    /**
+     * The suffix of tables, the {@link StorageConfig.Layout#tableSuffix layout's suffix} for SQL methods
+     */
+    @NotNull public final String tableSuffix;
     /**
      * The task that saves the cache on an interval
      *
      * @see DataManager#toggleIntervalCacheSaving()
      */
     @Nullable public TaskWrapper cacheSavingTask;
+    /**
+     * The task that removes unused targets from the cache
+     *
+     * @see DataManager#toggleCacheEviction()
+     */
+    @Nullable public TaskWrapper cacheEvictionTask;
+    /**
+     * The executor for asynchronous storage operations, with {@link StorageConfig#async_threads} threads
+     *
+     * @see xyz.srnyx.annoyingapi.data.Data#getAsync(String)
+     */
+    @NotNull public final ExecutorService executor;
+    /**
+     * The queue that commits uncached writes in groups, {@code null} if {@link StorageConfig.GroupCommit#enabled group commits} are disabled
+     */
+    @Nullable public final WriteQueue writeQueue;
 
     /**
      * Connect to the configured database and create the pre-defined tables/columns
@@ -54,11 +94,52 @@ public class DataManager {
         storageConfig = config;
         dialect = storageConfig.method.dialect.apply(this);
         tablePrefix = storageConfig.method.isSQLRemote() ? storageConfig.remote_connection.table_prefix : "";
+        tableSuffix = storageConfig.method.isSQL() ? storageConfig.layout.tableSuffix : "";
+
+        // Create executor
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, storageConfig.async_threads), runnable -> {
+            final Thread thread = new Thread(runnable, plugin.getName() + " Storage #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Start group commits
+        writeQueue = storageConfig.group_commit.enabled ? new WriteQueue(this) : null;
     }
 
     /**
-     * Get the full name of a table with the {@link #tablePrefix prefix}
-     * <br><i>This just returns the table name if it's a local database or there isn't prefix</i>
+     * Stop the cache tasks, wait for queued asynchronous operations and writes to finish, optionally save the cache, and close the database connection
+     * <br>The data manager can't be used after this
+     *
+     * @param   saveCache   whether to save the cache before closing the connection <b>(data may be lost if {@code false})</b>
+     */
+    public void close(boolean saveCache) {
+        // Stop cache saving/eviction tasks
+        if (cacheSavingTask != null) cacheSavingTask.cancel();
+        if (cacheEvictionTask != null) cacheEvictionTask.cancel();
+
+        // Let queued asynchronous operations finish
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) AnnoyingPlugin.log(Level.WARNING, "&cTimed out waiting for asynchronous storage operations to finish, some data may not have been saved!");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Commit queued writes
+        if (writeQueue != null) writeQueue.close();
+
+        // Save cache
+        if (saveCache) dialect.saveCache();
+
+        // Close connection (if SQL)
+        if (dialect instanceof JDBCDialect jdbcDialect) jdbcDialect.closeDataSource();
+    }
+
+    /**
+     * Get the full name of a table with the {@link #tablePrefix prefix} and {@link #tableSuffix suffix}
+     * <br><i>This just returns the table name if it's a local database with the wide layout or there isn't prefix</i>
      *
      * @param   tableName   the name of the table to get
      *
@@ -66,7 +147,187 @@ public class DataManager {
      */
     @NotNull
     public String getTableName(@NotNull String tableName) {
-        return tablePrefix + tableName.toLowerCase();
+        return tablePrefix + tableName.toLowerCase() + tableSuffix;
+    }
+
+    /**
+     * Get the name of a table without the {@link #tablePrefix prefix} and {@link #tableSuffix suffix}, the opposite of {@link #getTableName(String)}
+     *
+     * @param   tableName   the full name of the table
+     *
+     * @return              the name of the table as used in {@link xyz.srnyx.annoyingapi.options.DataOptions#tables DataOptions#tables}
+     */
+    @NotNull
+    public String getRawTableName(@NotNull String tableName) {
+        String raw = tableName;
+        if (raw.startsWith(tablePrefix)) raw = raw.substring(tablePrefix.length());
+        if (!tableSuffix.isEmpty() && raw.endsWith(tableSuffix)) raw = raw.substring(0, raw.length() - tableSuffix.length());
+        return raw;
+    }
+
+    /**
+     * Get a key's value for multiple targets at once, for example to show a value of every online player
+     * <br>Values are taken from the {@link WriteQueue} or cache where possible (the same way {@link xyz.srnyx.annoyingapi.data.StringData#get(String) StringData} does), the rest are fetched together (see {@link Dialect#getManyFromDatabase(String, Collection, String)})
+     * <br><i>This runs database queries, so don't call it on the main thread</i>
+     *
+     * @param   table   the name of the table (without the {@link #tablePrefix prefix} and {@link #tableSuffix suffix})
+     * @param   targets the targets to get the value of
+     * @param   key     the key to get
+     *
+     * @return          {@code [ Target: Data value ]}, targets without a value are left out
+     */
+    @NotNull
+    public Map<String, String> getMany(@NotNull String table, @NotNull Collection<String> targets, @NotNull String key) {
+        final String fullTable = getTableName(table);
+        final boolean useCache = storageConfig.cache.enabled && plugin.options.dataOptions.useCacheDefault;
+        final Map<String, String> values = new HashMap<>();
+
+        // Get what's already known from the cache or write queue
+        final Set<String> missing = new LinkedHashSet<>();
+        for (final String target : targets) {
+            CachedValue known = !useCache && writeQueue != null ? writeQueue.getPending(fullTable, target, key) : null;
+            // Database is down, use a value that was written to the cache in the meantime
+            if (known == null && (useCache || !dialect.isAvailable())) known = dialect.getFromCache(fullTable, target, key);
+            if (known == null) {
+                missing.add(target);
+                continue;
+            }
+            if (known.value() != null) values.put(target, known.value());
+        }
+        if (missing.isEmpty()) return values;
+
+        // Get the rest from the database
+        final Map<String, String> loaded = dialect.getManyFromDatabase(fullTable, missing, key);
+        final boolean cache = useCache && dialect.isAvailable();
+        for (final String target : missing) {
+            String value = loaded.get(target);
+            if (cache) {
+                dialect.setLoadedToCache(fullTable, target, key, new CachedValue(value));
+                // Prefer a value that was set while loading
+                final CachedValue cached = dialect.getFromCache(fullTable, target, key);
+                if (cached != null) value = cached.value();
+            }
+            if (value != null) values.put(target, value);
+        }
+        return values;
+    }
+
+    /**
+     * Get the targets with the highest (or lowest) values of a key, for example for a "top 10 kills" leaderboard
+     * <br><i>This runs database queries, so don't call it on the main thread</i>
+     *
+     * @param   table       the name of the table (without the {@link #tablePrefix prefix} and {@link #tableSuffix suffix})
+     * @param   key         the key to order by
+     * @param   limit       the maximum number of targets, or {@code 0} for no limit
+     * @param   descending  {@code true} to start with the highest values, {@code false} to start with the lowest
+     *
+     * @return              {@code [ Target: Data value ]} in order
+     *
+     * @see                 #getRange(String, String, String, String, boolean, int)
+     */
+    @NotNull
+    public LinkedHashMap<String, String> getTop(@NotNull String table, @NotNull String key, int limit, boolean descending) {
+        return getRange(table, key, null, null, descending, limit);
+    }
+
+    /**
+     * Get the targets whose value of a key is in a range (inclusive), ordered by the value
+     * <br>Values are compared as numbers if the key has a numeric type in {@link xyz.srnyx.annoyingapi.options.DataOptions#columnTypes DataOptions#columnTypes}, as text otherwise.
+     * SQL databases run this as one {@code ORDER BY ... LIMIT} query (declare an {@link xyz.srnyx.annoyingapi.options.DataOptions#indexes index} for big tables, only {@link StorageConfig.Layout#WIDE wide} tables can use it for sorting), the file databases use an in-memory index
+     * <br>Values that are still in the {@link WriteQueue} are committed first. Values that were only changed in the cache of an SQL database are included once the cache is saved
+     * <br><i>This runs database queries, so don't call it on the main thread</i>
+     *
+     * @param   table       the name of the table (without the {@link #tablePrefix prefix} and {@link #tableSuffix suffix})
+     * @param   key         the key to order by
+     * @param   min         the minimum value, or {@code null} for no minimum
+     * @param   max         the maximum value, or {@code null} for no maximum
+     * @param   descending  whether to start with the highest values
+     * @param   limit       the maximum number of targets, or {@code 0} for no limit
+     *
+     * @return              {@code [ Target: Data value ]} in order, targets without a value are left out
+     *
+     * @throws  IllegalArgumentException    if {@code limit} is negative, or the key is numeric and {@code min}/{@code max} isn't a number
+     */
+    @NotNull
+    public LinkedHashMap<String, String> getRange(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max, boolean descending, int limit) {
+        if (writeQueue != null) writeQueue.flush();
+        return dialect.queryFromDatabase(getTableName(table), key, min, max, descending, limit);
+    }
+
+    /**
+     * Count the targets whose value of a key is in a range (inclusive), compared like {@link #getRange(String, String, String, String, boolean, int)}
+     * <br><i>This runs database queries, so don't call it on the main thread</i>
+     *
+     * @param   table   the name of the table (without the {@link #tablePrefix prefix} and {@link #tableSuffix suffix})
+     * @param   key     the key
+     * @param   min     the minimum value, or {@code null} for no minimum
+     * @param   max     the maximum value, or {@code null} for no maximum
+     *
+     * @return          the number of targets, {@code 0} if the query failed
+     *
+     * @throws  IllegalArgumentException    if the key is numeric and {@code min}/{@code max} isn't a number
+     */
+    public long count(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max) {
+        if (writeQueue != null) writeQueue.flush();
+        return dialect.countFromDatabase(getTableName(table), key, min, max);
+    }
+
+    /**
+     * Iterate over every target of a table and its values with {@link TableCursor#DEFAULT_PAGE_SIZE} targets per page
+     *
+     * @param   table   the name of the table (without the {@link #tablePrefix prefix} and {@link #tableSuffix suffix})
+     *
+     * @return          the cursor, close it once done
+     *
+     * @see             #scan(String, int)
+     */
+    @NotNull
+    public TableCursor scan(@NotNull String table) {
+        return scan(table, TableCursor.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Iterate over every target of a table and its values, one page of targets at a time so memory use doesn't grow with the size of the table (see {@link TableCursor})
+     * <br>Values that are still in the {@link WriteQueue} are committed first. Values that were only changed in the cache of an SQL database are included once the cache is saved
+     * <br><i>Iterating it runs database queries, so don't iterate it on the main thread</i>
+     *
+     * @param   table       the name of the table (without the {@link #tablePrefix prefix} and {@link #tableSuffix suffix})
+     * @param   pageSize    the maximum number of targets per page
+     *
+     * @return              the cursor, close it once done
+     *
+     * @throws  IllegalArgumentException    if {@code pageSize} isn't positive
+     */
+    @NotNull
+    public TableCursor scan(@NotNull String table, int pageSize) {
+        if (writeQueue != null) writeQueue.flush();
+        return dialect.scan(getTableName(table), pageSize);
+    }
+
+    /**
+     * Load all values of a target from every table in {@link xyz.srnyx.annoyingapi.options.DataOptions#tables DataOptions#tables} into the cache
+     * <br><i>This runs database queries, so don't call it on the main thread</i>
+     *
+     * @param   target  the target to load
+     */
+    public void preload(@NotNull String target) {
+        if (!storageConfig.cache.enabled) return;
+        for (final String rawTable : plugin.options.dataOptions.tables.keySet()) dialect.loadToCache(getTableName(rawTable), target);
+    }
+
+    /**
+     * Save a target's changes from every table in {@link xyz.srnyx.annoyingapi.options.DataOptions#tables DataOptions#tables} and then remove it from the cache
+     * <br><i>This runs database queries, so don't call it on the main thread</i>
+     *
+     * @param   target  the target to unload
+     */
+    public void unload(@NotNull String target) {
+        if (!storageConfig.cache.enabled) return;
+        for (final String rawTable : plugin.options.dataOptions.tables.keySet()) {
+            final String table = getTableName(rawTable);
+            dialect.saveCache(table, target);
+            dialect.evictFromCache(table, target);
+        }
     }
 
     /**
@@ -88,6 +349,27 @@ public class DataManager {
         cacheSavingTask = plugin.scheduler.runGlobalTaskTimerAsync(task -> dialect.saveCache(), ticks, ticks);
     }
 
+    /**
+     * If the cache is enabled, this will start the asynchronous task that removes unused targets from the cache
+     * <br>If the cache is disabled, this will cancel the task if it exists
+     *
+     * @see StorageConfig.Cache.Eviction
+     */
+    public void toggleCacheEviction() {
+        // Cancel ongoing task if one exists
+        if (cacheEvictionTask != null) cacheEvictionTask.cancel();
+
+        // Disable
+        if (!storageConfig.cache.enabled) {
+            cacheEvictionTask = null;
+            return;
+        }
+
+        // Enable
+        final long ticks = Math.max(1, storageConfig.cache.eviction.check_interval.toMillis() / 50);
+        cacheEvictionTask = plugin.scheduler.runGlobalTaskTimerAsync(task -> dialect.evictCache(), ticks, ticks);
+    }
+
     /**
      * Attempts to migrate data from {@code storage.yml} to {@code STORAGE_NEW_FILE_NAME}
      *
@@ -114,21 +396,41 @@ public class DataManager {
             return this;
         }
 
-        // OLD: Get migration data
-        final Dialect.MigrationData migrationData = dialect.getMigrationDataFromDatabase(newManager).orElse(null);
-        if (migrationData == null) return this;
+        // OLD: Get tables to migrate
+        final Map<String, Set<String>> tables = dialect.getMigrationTables().orElse(null);
+        if (tables == null) {
+            newManager.close(false);
+            return this;
+        }
 
-        if (!migrationData.data().isEmpty()) {
-            // NEW: Create missing tables/columns
-            if (newManager.dialect instanceof SQLDialect) ((SQLDialect) newManager.dialect).createTablesKeys(migrationData.tablesKeys());
-            // NEW: Save values to new database (log failures)
-            for (final FailedSet failure : newManager.dialect.setToDatabase(migrationData.data())) AnnoyingPlugin.log(Level.SEVERE, storageConfig.getMigrationLogPrefix() + "Failed to set &4" + failure.column() + "&c for &4" + failure.target() + "&c in table &4" + failure.table() + "&c to &4" + failure.value(), failure.exception());
-        } else {
-            AnnoyingPlugin.log(Level.SEVERE, storageConfig.getMigrationLogPrefix() + "Found no data to migrate! This may or may not be an error...");
+        // PREV: Continue an interrupted migration
+        final File checkpointFile = new File(dataFolder, MigrationCheckpoint.FILE_NAME);
+        final String migration = MigrationCheckpoint.describe(storageConfig, storageNewConfig);
+        MigrationCheckpoint checkpoint;
+        try {
+            checkpoint = MigrationCheckpoint.load(checkpointFile, migration);
+        } catch (final IOException e) {
+            AnnoyingPlugin.log(Level.SEVERE, storageConfig.getMigrationLogPrefix() + "Failed to read &4" + MigrationCheckpoint.FILE_NAME + "&c, starting the migration over", e);
+            checkpoint = new MigrationCheckpoint(checkpointFile, migration);
+        }
+        final boolean resumed = checkpoint.getTable() != null;
+        if (resumed) AnnoyingPlugin.log(Level.WARNING, "&aContinuing the interrupted migration from table &2" + checkpoint.getTable() + "&a after target &2" + checkpoint.getLastTarget(checkpoint.getTable()));
+
+        // OLD -> NEW: Stream the tables
+        final long migrated = migrate(newManager, new TreeMap<>(tables), checkpoint);
+        if (migrated == -1) {
+            newManager.close(false);
+            return this;
+        }
+        if (migrated == 0 && !resumed) AnnoyingPlugin.log(Level.SEVERE, storageConfig.getMigrationLogPrefix() + "Found no data to migrate! This may or may not be an error...");
+        try {
+            checkpoint.delete();
+        } catch (final IOException e) {
+            AnnoyingPlugin.log(Level.SEVERE, "&cFailed to delete &4" + MigrationCheckpoint.FILE_NAME + "&c, delete it before migrating again!", e);
         }
 
         // OLD: Close old connection
-        if (dialect instanceof SQLDialect sqlDialect) sqlDialect.dataSource.close();
+        close(false);
 
         // PREV: Delete storage-old.yml if it exists (from a previous migration)
         final File storageOld = new File(dataFolder, "storage-old.yml");
@@ -155,4 +457,110 @@ public class DataManager {
         AnnoyingPlugin.log(Level.WARNING, "&aSuccessfully finished migrating data from &2" + storageConfig.method + "&a to &2" + storageNewConfig.method + "&a!");
         return newManager;
     }
+
+    /**
+     * Migrate tables from this manager's database to another one without loading them into memory
+     * <br>Each table is read one page of targets at a time with {@link Dialect#scan(String, int, String)}, and each page is written with one bulk {@link Dialect#setToDatabase(ConcurrentHashMap)}
+     * (batched statements, one transaction per {@link StorageConfig.Cache#batch_size batch} for SQL). The new tables are created first and keys found while reading are added before the page is written
+     * <br>The checkpoint is saved after every page and progress is logged every {@link #MIGRATION_PROGRESS_INTERVAL}
+     * <br>Values that fail to be written are logged and skipped, but the migration stops if a table can't be read or the new database can't be reached, so it can continue from the checkpoint later
+     *
+     * @param   newManager  the manager to migrate to
+     * @param   tables      the tables to migrate, in order ({@code [ Table: [ Key ] ]}, see {@link Dialect#getMigrationTables()})
+     * @param   checkpoint  where to continue from, updated as pages are migrated
+     *
+     * @return              the number of migrated targets, or {@code -1} if the migration stopped
+     */
+    private long migrate(@NotNull DataManager newManager, @NotNull SortedMap<String, Set<String>> tables, @NotNull MigrationCheckpoint checkpoint) {
+        final String logPrefix = storageConfig.getMigrationLogPrefix();
+        final JDBCDialect newJdbc = newManager.dialect instanceof JDBCDialect jdbc ? jdbc : null;
+        final long start = System.nanoTime();
+        long lastProgress = start;
+        long targets = 0;
+        long values = 0;
+
+        for (final Map.Entry<String, Set<String>> entry : tables.entrySet()) {
+            final String table = entry.getKey();
+            if (checkpoint.isDone(table)) continue;
+            final String rawTable = getRawTableName(table);
+            final String newTable = newManager.getTableName(rawTable);
+
+            // NEW: Create table/columns known up front
+            final Set<String> keys = new HashSet<>(entry.getValue());
+            if (newJdbc != null) newJdbc.createTablesKeys(Map.of(rawTable, keys), plugin.options.dataOptions.columnTypes, plugin.options.dataOptions.indexes);
+
+            try (final TableCursor cursor = dialect.scan(table, TableCursor.DEFAULT_PAGE_SIZE, checkpoint.getLastTarget(table))) {
+                while (cursor.hasNext()) {
+                    // OLD: Read a page
+                    final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> page = new ConcurrentHashMap<>(); // {Target, {Key, Value}}
+                    boolean newKeys = false;
+                    String lastTarget = null;
+                    int pageValues = 0;
+                    for (int i = 0; i < TableCursor.DEFAULT_PAGE_SIZE && cursor.hasNext(); i++) {
+                        final TableCursor.Row row = cursor.next();
+                        lastTarget = row.target();
+                        if (row.values().isEmpty()) continue;
+                        final ConcurrentHashMap<String, CachedValue> targetValues = new ConcurrentHashMap<>(); // {Key, Value}
+                        for (final Map.Entry<String, String> value : row.values().entrySet()) {
+                            if (keys.add(value.getKey())) newKeys = true;
+                            targetValues.put(value.getKey(), new CachedValue(value.getValue()));
+                        }
+                        page.put(row.target(), targetValues);
+                        pageValues += targetValues.size();
+                    }
+
+                    // NEW: Add keys found in the page, then write it
+                    if (newJdbc != null && newKeys) newJdbc.createTablesKeys(Map.of(rawTable, keys), plugin.options.dataOptions.columnTypes, plugin.options.dataOptions.indexes);
+                    if (!page.isEmpty()) {
+                        final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>>> data = new ConcurrentHashMap<>();
+                        data.put(newTable, page);
+                        boolean unreachable = false;
+                        for (final FailedSet failure : newManager.dialect.setToDatabase(data)) {
+                            AnnoyingPlugin.log(Level.SEVERE, logPrefix + "Failed to set &4" + failure.column() + "&c for &4" + failure.target() + "&c in table &4" + failure.table() + "&c to &4" + failure.value(), failure.exception());
+                            if (failure.exception() instanceof SQLException sqlException && CircuitBreaker.isConnectionFailure(sqlException)) unreachable = true;
+                        }
+                        if (unreachable) {
+                            AnnoyingPlugin.log(Level.SEVERE, logPrefix + "Can't reach the new database, stopping the migration. It will continue from table &4" + table + "&c on the next start");
+                            return -1;
+                        }
+                    }
+                    targets += page.size();
+                    values += pageValues;
+
+                    // Checkpoint
+                    if (lastTarget != null) try {
+                        checkpoint.save(table, lastTarget);
+                    } catch (final IOException e) {
+                        AnnoyingPlugin.log(Level.WARNING, logPrefix + "Failed to save the migration checkpoint to &4" + checkpoint.file.getName(), e);
+                    }
+
+                    // Progress
+                    final long now = System.nanoTime();
+                    if (now - lastProgress >= MIGRATION_PROGRESS_INTERVAL.toNanos()) {
+                        lastProgress = now;
+                        AnnoyingPlugin.log(Level.INFO, "&7Migrating... &f" + targets + "&7 targets (&f" + values + "&7 values) so far, &f" + perSecond(targets, now - start) + "&7 targets/s, at table &f" + rawTable);
+                    }
+                }
+            } catch (final IllegalStateException e) {
+                AnnoyingPlugin.log(Level.SEVERE, logPrefix + "Failed to read table &4" + table + "&c, stopping the migration. It will continue from there on the next start", e);
+                return -1;
+            }
+        }
+
+        final long elapsed = System.nanoTime() - start;
+        AnnoyingPlugin.log(Level.INFO, "&7Migrated &f" + targets + "&7 targets (&f" + values + "&7 values) in &f" + TimeUnit.NANOSECONDS.toSeconds(elapsed) + "&7 seconds (&f" + perSecond(targets, elapsed) + "&7 targets/s)");
+        return targets;
+    }
+
+    /**
+     * Get a rate per second
+     *
+     * @param   count   the count
+     * @param   nanos   the time it took in nanoseconds
+     *
+     * @return          the count per second, rounded
+     */
+    private static long perSecond(long count, long nanos) {
+        return nanos <= 0 ? count : Math.round(count * 1_000_000_000.0 / nanos);
+    }
 }
@@ -0,0 +1,162 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Tracks which cached {@code (table, target, key)} entries have changed since they were last saved to the database
+ * <br>Saving {@link #drain() drains} the tracked entries by swapping in a fresh set, so writes that arrive while saving are tracked for the next save instead of being lost or blocked
+ */
+public class DirtyTracker {
+    /**
+     * Writers share the read lock, only {@link #drain()} takes the write lock (and only for the swap itself)
+     */
+    @NotNull private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    /**
+     * {@code [ Table name: [ Target: [ Data key ] ] ]}
+     * <br>Target sets are only ever mutated inside {@link ConcurrentHashMap#compute(Object, java.util.function.BiFunction) compute} so that {@link #drain(String, String)} can't race with {@link #mark(String, String, String)}
+     */
+    @NotNull private volatile ConcurrentHashMap<String, ConcurrentHashMap<String, Set<String>>> dirty = new ConcurrentHashMap<>();
+    /**
+     * {@code [ Table name: [ Target: Number of saves in progress ] ]}
+     * <br>Targets are added here when they're {@link #drain() drained} and removed once they're {@link #saved(String, String) saved}, so {@link #isDirty(String, String)} stays {@code true} while their values are being written
+     */
+    @NotNull private final ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> saving = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a new empty {@link DirtyTracker}
+     */
+    public DirtyTracker() {
+        // Only exists to give the constructor a Javadoc
+    }
+
+    /**
+     * Mark an entry as changed
+     * <br><i>Call this <b>after</b> the new value has been put in the cache</i>
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     */
+    public void mark(@NotNull String table, @NotNull String target, @NotNull String key) {
+        final Lock lock = swapLock.readLock();
+        lock.lock();
+        try {
+            dirty.computeIfAbsent(table, k -> new ConcurrentHashMap<>()).compute(target, (k, keys) -> {
+                if (keys == null) keys = new HashSet<>();
+                keys.add(key);
+                return keys;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take all changed entries, replacing them with a fresh empty set
+     * <br>Every drained target counts as being saved until {@link #saved(String, String)} is called for it
+     *
+     * @return  {@code [ Table name: [ Target: [ Data key ] ] ]}
+     */
+    @NotNull
+    public Map<String, ConcurrentHashMap<String, Set<String>>> drain() {
+        final Lock lock = swapLock.writeLock();
+        lock.lock();
+        try {
+            final ConcurrentHashMap<String, ConcurrentHashMap<String, Set<String>>> drained = dirty;
+            dirty = new ConcurrentHashMap<>();
+            for (final Map.Entry<String, ConcurrentHashMap<String, Set<String>>> entry : drained.entrySet()) for (final String target : entry.getValue().keySet()) startSaving(entry.getKey(), target);
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the changed keys of a single target
+     * <br>If there were any, the target counts as being saved until {@link #saved(String, String)} is called for it
+     *
+     * @param   table   the table
+     * @param   target  the target
+     *
+     * @return          the changed keys, or {@code null} if none
+     */
+    @Nullable
+    public Set<String> drain(@NotNull String table, @NotNull String target) {
+        final Lock lock = swapLock.readLock();
+        lock.lock();
+        try {
+            final ConcurrentHashMap<String, Set<String>> tableMap = dirty.get(table);
+            if (tableMap == null) return null;
+            // Start saving before removing, so isDirty can't see the target as neither changed nor saving
+            startSaving(table, target);
+            final Set<String> keys = tableMap.remove(target);
+            if (keys == null) saved(table, target);
+            return keys;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Mark a drained target as done saving (whether it succeeded or not, failures should be {@link #mark(String, String, String) marked} again first)
+     *
+     * @param   table   the table
+     * @param   target  the target
+     */
+    public void saved(@NotNull String table, @NotNull String target) {
+        final ConcurrentHashMap<String, Integer> tableMap = saving.get(table);
+        if (tableMap != null) tableMap.computeIfPresent(target, (k, count) -> count <= 1 ? null : count - 1);
+    }
+
+    /**
+     * Whether a target has changes that haven't been saved yet (including changes that are currently being saved)
+     * <br>A target must not be removed from the cache while this is {@code true}
+     *
+     * @param   table   the table
+     * @param   target  the target
+     *
+     * @return          {@code true} if the target has unsaved changes
+     */
+    public boolean isDirty(@NotNull String table, @NotNull String target) {
+        final Lock lock = swapLock.readLock();
+        lock.lock();
+        try {
+            final ConcurrentHashMap<String, Set<String>> dirtyTable = dirty.get(table);
+            if (dirtyTable != null && dirtyTable.containsKey(target)) return true;
+            final ConcurrentHashMap<String, Integer> savingTable = saving.get(table);
+            return savingTable != null && savingTable.containsKey(target);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Count a target as being saved
+     *
+     * @param   table   the table
+     * @param   target  the target
+     */
+    private void startSaving(@NotNull String table, @NotNull String target) {
+        saving.computeIfAbsent(table, k -> new ConcurrentHashMap<>()).merge(target, 1, Integer::sum);
+    }
+
+    /**
+     * Whether there are no changed entries
+     *
+     * @return  {@code true} if nothing needs to be saved
+     */
+    public boolean isEmpty() {
+        for (final ConcurrentHashMap<String, Set<String>> tableMap : dirty.values()) if (!tableMap.isEmpty()) return false;
+        return true;
+    }
+}
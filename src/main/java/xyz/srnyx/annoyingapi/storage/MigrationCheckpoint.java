@@ -0,0 +1,177 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+
+/**
+ * How far a {@link DataManager#attemptDatabaseMigration() migration} got, so an interrupted migration continues from there instead of starting over
+ * <br>Tables are migrated in order of their name and their targets in order (see {@link TableCursor}), so the last migrated table and target are enough:
+ * every table before it is done, and so are its targets up to and including the target
+ * <br>It's saved to a file after every page of targets, along with the migration it belongs to. The checkpoint of another migration (for example if {@code storage-new.yml} changed in between) is ignored
+ */
+public class MigrationCheckpoint {
+    /**
+     * The name of the checkpoint file in the plugin's data folder
+     */
+    @NotNull public static final String FILE_NAME = "migration-checkpoint.properties";
+
+    /**
+     * The file the checkpoint is saved to
+     */
+    @NotNull public final File file;
+    /**
+     * The migration the checkpoint belongs to (see {@link #describe(StorageConfig, StorageConfig)})
+     */
+    @NotNull public final String migration;
+    /**
+     * The last table that was (partly) migrated, {@code null} if nothing was migrated yet
+     */
+    @Nullable private String table;
+    /**
+     * The last migrated target of {@link #table}, {@code null} if none of its targets were migrated yet
+     */
+    @Nullable private String target;
+
+    /**
+     * Construct a new {@link MigrationCheckpoint} at the start of a migration, nothing is saved until {@link #save(String, String)}
+     *
+     * @param   file        {@link #file}
+     * @param   migration   {@link #migration}
+     */
+    public MigrationCheckpoint(@NotNull File file, @NotNull String migration) {
+        this.file = file;
+        this.migration = migration;
+    }
+
+    /**
+     * Load the checkpoint of a migration from a file
+     *
+     * @param   file        the file
+     * @param   migration   the migration
+     *
+     * @return              the saved checkpoint, or a new one if the file doesn't exist or belongs to another migration
+     *
+     * @throws  IOException if the file exists but can't be read
+     */
+    @NotNull
+    public static MigrationCheckpoint load(@NotNull File file, @NotNull String migration) throws IOException {
+        final MigrationCheckpoint checkpoint = new MigrationCheckpoint(file, migration);
+        if (!file.exists()) return checkpoint;
+        final Properties properties = new Properties();
+        try (final Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        if (!migration.equals(properties.getProperty("migration"))) return checkpoint;
+        checkpoint.table = properties.getProperty("table");
+        if (checkpoint.table != null) checkpoint.target = properties.getProperty("target");
+        return checkpoint;
+    }
+
+    /**
+     * Get the last table that was (partly) migrated
+     *
+     * @return  the table, {@code null} if nothing was migrated yet
+     */
+    @Nullable
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Check whether every target of a table was migrated, meaning it comes before {@link #getTable() the last table}
+     *
+     * @param   table   the table
+     *
+     * @return          {@code true} if the table is done
+     */
+    public boolean isDone(@NotNull String table) {
+        return this.table != null && table.compareTo(this.table) < 0;
+    }
+
+    /**
+     * Get the last migrated target of a table, to continue after it
+     *
+     * @param   table   the table
+     *
+     * @return          the target, {@code null} if the table isn't the {@link #getTable() last table} or none of its targets were migrated yet
+     */
+    @Nullable
+    public String getLastTarget(@NotNull String table) {
+        return table.equals(this.table) ? target : null;
+    }
+
+    /**
+     * Save the last migrated table and target
+     * <br>The file is replaced in one move, so a crash while saving leaves the previous checkpoint
+     *
+     * @param   table   the table
+     * @param   target  the last migrated target of the table
+     *
+     * @throws  IOException if the file can't be written
+     */
+    public void save(@NotNull String table, @NotNull String target) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("migration", migration);
+        properties.setProperty("table", table);
+        properties.setProperty("target", target);
+        final Path path = file.toPath();
+        final Path temporary = path.resolveSibling(file.getName() + ".tmp");
+        try (final Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Progress of an interrupted storage migration, delete this file to start the migration over");
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.table = table;
+        this.target = target;
+    }
+
+    /**
+     * Delete the file once the migration is done
+     *
+     * @throws  IOException if the file can't be deleted
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    /**
+     * Describe a migration between two storage configs, so the checkpoint of a different migration isn't used
+     *
+     * @param   from    the config migrated from
+     * @param   to      the config migrated to
+     *
+     * @return          the description
+     */
+    @NotNull
+    public static String describe(@NotNull StorageConfig from, @NotNull StorageConfig to) {
+        return describe(from) + " -> " + describe(to);
+    }
+
+    /**
+     * Describe where a storage config stores its data
+     *
+     * @param   config  the config
+     *
+     * @return          the description
+     */
+    @NotNull
+    private static String describe(@NotNull StorageConfig config) {
+        final StringBuilder description = new StringBuilder(config.method.name());
+        if (config.method.isSQL()) description.append(' ').append(config.layout);
+        if (config.method.isSQLRemote()) description.append(' ')
+                .append(config.remote_connection.host).append(':').append(config.remote_connection.port)
+                .append('/').append(config.remote_connection.database)
+                .append(' ').append(config.remote_connection.table_prefix);
+        return description.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+import xyz.srnyx.annoyingapi.AnnoyingListener;
+import xyz.srnyx.annoyingapi.AnnoyingPlugin;
+import xyz.srnyx.annoyingapi.parents.Registrable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+
+/**
+ * Loads players' data into the cache while they log in and saves/removes it when they quit
+ *
+ * @see StorageConfig.Cache#player_sessions
+ */
+@Registrable.Ignore
+public class PlayerSessionListener extends AnnoyingListener {
+    /**
+     * The {@link AnnoyingPlugin} that this listener is for
+     */
+    @NotNull private final AnnoyingPlugin plugin;
+
+    /**
+     * Constructs a new {@link PlayerSessionListener}
+     *
+     * @param   plugin  {@link #plugin}
+     */
+    public PlayerSessionListener(@NotNull AnnoyingPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override @NotNull
+    public AnnoyingPlugin getAnnoyingPlugin() {
+        return plugin;
+    }
+
+    /**
+     * Preloads the player's data, waiting at most {@link StorageConfig.Cache#preload_timeout}
+     *
+     * @param   event   the event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(@NotNull AsyncPlayerPreLoginEvent event) {
+        final DataManager dataManager = plugin.awaitDataManager();
+        if (dataManager == null || !dataManager.storageConfig.cache.player_sessions || event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        final String target = event.getUniqueId().toString();
+
+        // Loading keeps going in the background if it times out, the player's first reads just might not be cached yet
+        final CompletableFuture<Void> future = CompletableFuture.runAsync(() -> dataManager.preload(target), dataManager.executor);
+        try {
+            future.get(dataManager.storageConfig.cache.preload_timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            AnnoyingPlugin.log(Level.WARNING, "&cLoading data for &4" + event.getName() + "&c took longer than &4" + dataManager.storageConfig.cache.preload_timeout.toMillis() + "ms&c, letting them join anyway");
+        } catch (final ExecutionException e) {
+            plugin.logErrorTrack(Level.SEVERE, "&cFailed to load data for &4" + event.getName(), e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Saves the player's data and removes it from the cache asynchronously
+     *
+     * @param   event   the event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(@NotNull PlayerQuitEvent event) {
+        final DataManager dataManager = plugin.dataManager;
+        if (dataManager == null || !dataManager.storageConfig.cache.player_sessions) return;
+        final String target = event.getPlayer().getUniqueId().toString();
+        // On the storage executor, so closing the data manager waits for it to finish
+        dataManager.executor.execute(() -> dataManager.unload(target));
+    }
+}
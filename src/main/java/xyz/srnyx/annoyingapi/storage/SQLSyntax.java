@@ -0,0 +1,860 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+import xyz.srnyx.annoyingapi.data.StringData;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+
+/**
+ * Hand-written SQL for the different families of SQL databases
+ * <br>Used for statements where jOOQ's emulation either doesn't work for dynamically-named tables or costs extra round trips,
+ * and for the hot read/write paths so their SQL can be rendered once and reused
+ * <br>All statements use {@link StringData#TARGET_COLUMN} as the primary key and {@code ?} bind parameters
+ */
+public enum SQLSyntax {
+    /**
+     * H2, uses {@code MERGE INTO ... KEY(target)}
+     */
+    H2('"', "CLOB", "UUID") {
+        @Override @NotNull
+        public String upsert(@NotNull String table, @NotNull List<String> keys, @NotNull List<String> columns) {
+            return "MERGE INTO " + quote(table) + " (" + columnList(keys, columns) + ") KEY (" + columnList(keys, List.of()) + ") VALUES (" + parameters(keys.size() + columns.size()) + ")";
+        }
+
+        /**
+         * H2 only takes multiple columns as a list: {@code ALTER TABLE ... ADD (a CLOB, b INTEGER)}
+         */
+        @Override @NotNull
+        public List<String> addColumns(@NotNull String table, @NotNull Map<String, ColumnType> columns) {
+            if (columns.isEmpty()) return List.of();
+            return List.of("ALTER TABLE " + quote(table) + " ADD (" + columnDefinitions(columns) + ")");
+        }
+
+        /**
+         * H2 can't cast a {@code CLOB} to a number directly
+         */
+        @Override @NotNull
+        protected String castToInteger(@NotNull String expression) {
+            return "CAST(CAST(" + expression + " AS VARCHAR) AS BIGINT)";
+        }
+
+        @Override @NotNull
+        protected String castToNumber(@NotNull String expression) {
+            return "CAST(CAST(" + expression + " AS VARCHAR) AS DOUBLE PRECISION)";
+        }
+    },
+    /**
+     * MySQL and MariaDB, uses {@code INSERT ... ON DUPLICATE KEY UPDATE}
+     */
+    MYSQL('`', "LONGTEXT", "CHAR(36)") {
+        @Override @NotNull
+        public String upsert(@NotNull String table, @NotNull List<String> keys, @NotNull List<String> columns) {
+            final StringJoiner updates = new StringJoiner(", ");
+            for (final String column : columns) updates.add(quote(column) + " = VALUES(" + quote(column) + ")");
+            // Nothing to update, assigning the key to itself turns a duplicate into a no-op
+            if (columns.isEmpty()) updates.add(quote(keys.get(0)) + " = " + quote(keys.get(0)));
+            return "INSERT INTO " + quote(table) + " (" + columnList(keys, columns) + ") VALUES (" + parameters(keys.size() + columns.size()) + ") ON DUPLICATE KEY UPDATE " + updates;
+        }
+
+        @Override @NotNull
+        protected String castToInteger(@NotNull String expression) {
+            return "CAST(" + expression + " AS SIGNED)";
+        }
+
+        @Override @NotNull
+        protected String castToText(@NotNull String expression) {
+            return "CAST(" + expression + " AS CHAR)";
+        }
+
+        /**
+         * Older MySQL/MariaDB versions can't {@code CAST} to a floating point type, adding a floating point zero converts it instead
+         */
+        @Override @NotNull
+        protected String castToNumber(@NotNull String expression) {
+            return "(" + expression + " + 0E0)";
+        }
+    },
+    /**
+     * PostgreSQL, uses {@code INSERT ... ON CONFLICT (target) DO UPDATE}
+     */
+    POSTGRESQL('"', "TEXT", "UUID") {
+        @Override @NotNull
+        public String upsert(@NotNull String table, @NotNull List<String> keys, @NotNull List<String> columns) {
+            return onConflictUpsert(table, keys, columns);
+        }
+
+        /**
+         * The PostgreSQL R2DBC driver only takes numbered {@code $1, $2, ...} bind markers
+         */
+        @Override @NotNull
+        public String bindMarkers(@NotNull String sql) {
+            return numberParameters(sql);
+        }
+    },
+    /**
+     * SQLite (3.24+), uses {@code INSERT ... ON CONFLICT (target) DO UPDATE}
+     */
+    SQLITE('"', "TEXT", "CHAR(36)") {
+        @Override @NotNull
+        public String upsert(@NotNull String table, @NotNull List<String> keys, @NotNull List<String> columns) {
+            return onConflictUpsert(table, keys, columns);
+        }
+
+        /**
+         * SQLite can only add one column per {@code ALTER TABLE}
+         */
+        @Override @NotNull
+        public List<String> addColumns(@NotNull String table, @NotNull Map<String, ColumnType> columns) {
+            final List<String> statements = new ArrayList<>();
+            for (final Map.Entry<String, ColumnType> column : columns.entrySet()) statements.add(addColumn(table, column.getKey(), column.getValue()));
+            return statements;
+        }
+
+        /**
+         * The SQLite driver doesn't set a SQLState, only the {@code SQLITE_CONSTRAINT} result code
+         */
+        @Override
+        public boolean isDuplicateKey(@NotNull SQLException exception) {
+            return (exception.getErrorCode() & 0xFF) == 19;
+        }
+    };
+
+    /**
+     * The column holding the key of each value in {@link StorageConfig.Layout#NARROW narrow} tables
+     */
+    @NotNull public static final String KEY_COLUMN = "key";
+    /**
+     * The column holding the value in {@link StorageConfig.Layout#NARROW narrow} tables
+     */
+    @NotNull public static final String VALUE_COLUMN = "value";
+
+    /**
+     * The character used to quote identifiers
+     */
+    public final char quote;
+    /**
+     * The type of value columns, a string type without a (small) length limit
+     */
+    @NotNull public final String textType;
+    /**
+     * The type of {@link ColumnType#UUID} columns, native if the database has one
+     */
+    @NotNull public final String uuidType;
+
+    SQLSyntax(char quote, @NotNull String textType, @NotNull String uuidType) {
+        this.quote = quote;
+        this.textType = textType;
+        this.uuidType = uuidType;
+    }
+
+    /**
+     * Get the SQL type of a {@link ColumnType}
+     *
+     * @param   type    the column type
+     *
+     * @return          the SQL type
+     */
+    @NotNull
+    public String type(@NotNull ColumnType type) {
+        return switch (type.kind()) {
+            case INT -> "INTEGER";
+            case LONG -> "BIGINT";
+            case DOUBLE -> "DOUBLE PRECISION";
+            case BOOLEAN -> "BOOLEAN";
+            case VARCHAR -> "VARCHAR(" + type.length() + ")";
+            case UUID -> uuidType;
+            case TEXT -> textType;
+        };
+    }
+
+    /**
+     * Render a single-statement upsert (insert the row, or update the given columns if the target already exists)
+     * <br><b>Parameters:</b> the target, then the value of each column in the given order
+     *
+     * @param   table   the table to upsert into
+     * @param   columns the columns to set (excluding {@link StringData#TARGET_COLUMN})
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String upsert(@NotNull String table, @NotNull List<String> columns) {
+        return upsert(table, List.of(StringData.TARGET_COLUMN), columns);
+    }
+
+    /**
+     * Render a single-statement upsert with a (composite) primary key (insert the row, or update the given columns if the key already exists)
+     * <br><b>Parameters:</b> the value of each key column, then the value of each column in the given order
+     *
+     * @param   table   the table to upsert into
+     * @param   keys    the primary key columns
+     * @param   columns the columns to set (excluding the primary key columns)
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public abstract String upsert(@NotNull String table, @NotNull List<String> keys, @NotNull List<String> columns);
+
+    /**
+     * Render a plain insert, which fails if the key already exists (see {@link #isDuplicateKey(SQLException)})
+     * <br><b>Parameters:</b> the value of each key column, then the value of each column in the given order
+     *
+     * @param   table   the table to insert into
+     * @param   keys    the primary key columns
+     * @param   columns the columns to set (excluding the primary key columns)
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String insert(@NotNull String table, @NotNull List<String> keys, @NotNull List<String> columns) {
+        return "INSERT INTO " + quote(table) + " (" + columnList(keys, columns) + ") VALUES (" + parameters(keys.size() + columns.size()) + ")";
+    }
+
+    /**
+     * Render an update that adds to a column of a target's row in place, a {@code NULL} value counts as {@code 0}
+     * <br><b>Parameters:</b> the amount to add, then the target
+     *
+     * @param   table   the table to update
+     * @param   column  the column to add to
+     * @param   numeric whether the column has a number type, otherwise it's a string column holding a whole number
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String increment(@NotNull String table, @NotNull String column, boolean numeric) {
+        final String quoted = quote(column);
+        final String sum = numeric ? "COALESCE(" + quoted + ", 0) + ?" : castToText(castToInteger("COALESCE(" + quoted + ", '0')") + " + ?");
+        return "UPDATE " + quote(table) + " SET " + quoted + " = " + sum + whereTarget();
+    }
+
+    /**
+     * Render an update that sets a column of a target's row only if it currently has the expected value
+     * <br><b>Parameters:</b> the new value, the target, then the expected value (unless {@code expectNull})
+     *
+     * @param   table       the table to update
+     * @param   column      the column to set
+     * @param   expectNull  whether the expected value is {@code NULL}
+     *
+     * @return              the SQL
+     */
+    @NotNull
+    public String compareAndSet(@NotNull String table, @NotNull String column, boolean expectNull) {
+        return "UPDATE " + quote(table) + " SET " + quote(column) + " = ?" + whereTarget() + " AND " + quote(column) + (expectNull ? " IS NULL" : " = ?");
+    }
+
+    /**
+     * Render a select of the given columns of a target's row
+     * <br><b>Parameters:</b> the target
+     *
+     * @param   table   the table to select from
+     * @param   columns the columns to select, in the order they'll be in the result
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String select(@NotNull String table, @NotNull List<String> columns) {
+        final StringJoiner joiner = new StringJoiner(", ");
+        for (final String column : columns) joiner.add(quote(column));
+        return "SELECT " + joiner + " FROM " + quote(table) + whereTarget();
+    }
+
+    /**
+     * Render a select of a column for multiple targets at once
+     * <br><b>Parameters:</b> each target
+     * <br><b>Result:</b> {@link StringData#TARGET_COLUMN}, then the column (only targets that have a row)
+     *
+     * @param   table   the table to select from
+     * @param   column  the column to select
+     * @param   targets the number of targets
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String selectMany(@NotNull String table, @NotNull String column, int targets) {
+        return "SELECT " + quote(StringData.TARGET_COLUMN) + ", " + quote(column) + " FROM " + quote(table) + " WHERE " + quote(StringData.TARGET_COLUMN) + " IN (" + parameters(targets) + ")";
+    }
+
+    /**
+     * Render a select of the targets with the lowest/highest values of a column, optionally only values in a range (inclusive)
+     * <br>Targets without a value are left out, and targets with the same value are ordered by target (in the same direction)
+     * <br><b>Parameters:</b> the minimum (if {@code min}), the maximum (if {@code max}), then the maximum number of rows
+     * <br><b>Result:</b> {@link StringData#TARGET_COLUMN}, then the column, in order
+     *
+     * @param   table       the table to select from
+     * @param   column      the column to order by
+     * @param   min         whether there's a minimum value
+     * @param   max         whether there's a maximum value
+     * @param   descending  whether to start with the highest values
+     *
+     * @return              the SQL
+     */
+    @NotNull
+    public String selectRange(@NotNull String table, @NotNull String column, boolean min, boolean max, boolean descending) {
+        final String quoted = quote(column);
+        return "SELECT " + quote(StringData.TARGET_COLUMN) + ", " + quoted + " FROM " + quote(table) + " WHERE " + quoted + " IS NOT NULL" + range(quoted, min, max) + orderBy(quoted, descending);
+    }
+
+    /**
+     * Render a count of the targets with a value for a column, optionally only values in a range (inclusive)
+     * <br><b>Parameters:</b> the minimum (if {@code min}), then the maximum (if {@code max})
+     * <br><b>Result:</b> the count
+     *
+     * @param   table   the table to count in
+     * @param   column  the column
+     * @param   min     whether there's a minimum value
+     * @param   max     whether there's a maximum value
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String countRange(@NotNull String table, @NotNull String column, boolean min, boolean max) {
+        final String quoted = quote(column);
+        return "SELECT COUNT(*) FROM " + quote(table) + " WHERE " + quoted + " IS NOT NULL" + range(quoted, min, max);
+    }
+
+    /**
+     * Render a select of every column of a target's row
+     * <br><b>Parameters:</b> the target
+     *
+     * @param   table   the table to select from
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String selectAll(@NotNull String table) {
+        return "SELECT * FROM " + quote(table) + whereTarget();
+    }
+
+    /**
+     * Render a select of a page of whole rows in order of their target, for {@link TableCursor keyset pagination}
+     * <br><b>Parameters:</b> the last target of the previous page (if {@code after}), then the maximum number of rows
+     * <br><b>Result:</b> every column
+     *
+     * @param   table   the table to select from
+     * @param   after   whether to start after a target (every page but the first)
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String selectPage(@NotNull String table, boolean after) {
+        final String target = quote(StringData.TARGET_COLUMN);
+        return "SELECT * FROM " + quote(table) + (after ? " WHERE " + target + " > ?" : "") + " ORDER BY " + target + " LIMIT ?";
+    }
+
+    /**
+     * Render an update that sets a column of a target's row to {@code NULL}
+     * <br><b>Parameters:</b> the target
+     *
+     * @param   table   the table to update
+     * @param   column  the column to set to {@code NULL}
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String setNull(@NotNull String table, @NotNull String column) {
+        return "UPDATE " + quote(table) + " SET " + quote(column) + " = NULL" + whereTarget();
+    }
+
+    /**
+     * Render a select of a target's values in a {@link StorageConfig.Layout#NARROW narrow} table
+     * <br><b>Parameters:</b> the target, then each key
+     * <br><b>Result:</b> {@link #KEY_COLUMN}, {@link #VALUE_COLUMN} (only keys that have a row)
+     *
+     * @param   table   the table to select from
+     * @param   keys    the number of keys to select, or {@code 0} for all of the target's keys
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String selectKeyValues(@NotNull String table, int keys) {
+        final String select = "SELECT " + quote(KEY_COLUMN) + ", " + quote(VALUE_COLUMN) + " FROM " + quote(table) + whereTarget();
+        return keys <= 0 ? select : select + " AND " + quote(KEY_COLUMN) + " IN (" + parameters(keys) + ")";
+    }
+
+    /**
+     * Render a select of a key's value for multiple targets at once in a {@link StorageConfig.Layout#NARROW narrow} table
+     * <br><b>Parameters:</b> the key, then each target
+     * <br><b>Result:</b> {@link StringData#TARGET_COLUMN}, {@link #VALUE_COLUMN} (only targets that have a value)
+     *
+     * @param   table   the table to select from
+     * @param   targets the number of targets
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String selectManyKeyValues(@NotNull String table, int targets) {
+        return "SELECT " + quote(StringData.TARGET_COLUMN) + ", " + quote(VALUE_COLUMN) + " FROM " + quote(table) + " WHERE " + quote(KEY_COLUMN) + " = ? AND " + quote(StringData.TARGET_COLUMN) + " IN (" + parameters(targets) + ")";
+    }
+
+    /**
+     * Render the deletion of a target's value in a {@link StorageConfig.Layout#NARROW narrow} table
+     * <br><b>Parameters:</b> the target, then the key
+     *
+     * @param   table   the table to delete from
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String deleteKeyValue(@NotNull String table) {
+        return "DELETE FROM " + quote(table) + whereTarget() + " AND " + quote(KEY_COLUMN) + " = ?";
+    }
+
+    /**
+     * Render an update that adds to a target's whole-number value in a {@link StorageConfig.Layout#NARROW narrow} table in place
+     * <br><b>Parameters:</b> the amount to add, the target, then the key
+     *
+     * @param   table   the table to update
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String incrementKeyValue(@NotNull String table) {
+        final String value = quote(VALUE_COLUMN);
+        return "UPDATE " + quote(table) + " SET " + value + " = " + castToText(castToInteger(value) + " + ?") + whereTarget() + " AND " + quote(KEY_COLUMN) + " = ?";
+    }
+
+    /**
+     * Render an update that sets a target's value in a {@link StorageConfig.Layout#NARROW narrow} table only if it currently has the expected value
+     * <br><b>Parameters:</b> the new value, the target, the key, then the expected value
+     *
+     * @param   table   the table to update
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String compareAndSetKeyValue(@NotNull String table) {
+        return "UPDATE " + quote(table) + " SET " + quote(VALUE_COLUMN) + " = ?" + whereTarget() + " AND " + quote(KEY_COLUMN) + " = ? AND " + quote(VALUE_COLUMN) + " = ?";
+    }
+
+    /**
+     * Render the deletion of a target's value in a {@link StorageConfig.Layout#NARROW narrow} table only if it currently has the expected value
+     * <br><b>Parameters:</b> the target, the key, then the expected value
+     *
+     * @param   table   the table to delete from
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String compareAndDeleteKeyValue(@NotNull String table) {
+        return deleteKeyValue(table) + " AND " + quote(VALUE_COLUMN) + " = ?";
+    }
+
+    /**
+     * Render a select of the targets with the lowest/highest values of a key in a {@link StorageConfig.Layout#NARROW narrow} table, optionally only values in a range (inclusive)
+     * <br>Like {@link #selectRange(String, String, boolean, boolean, boolean)}, but values are text so they're only compared as numbers if {@code numeric}
+     * <br><b>Parameters:</b> the key, the minimum (if {@code min}), the maximum (if {@code max}), then the maximum number of rows
+     * <br><b>Result:</b> {@link StringData#TARGET_COLUMN}, {@link #VALUE_COLUMN}, in order
+     *
+     * @param   table       the table to select from
+     * @param   numeric     whether to compare the values as numbers
+     * @param   min         whether there's a minimum value
+     * @param   max         whether there's a maximum value
+     * @param   descending  whether to start with the highest values
+     *
+     * @return              the SQL
+     */
+    @NotNull
+    public String selectKeyValueRange(@NotNull String table, boolean numeric, boolean min, boolean max, boolean descending) {
+        final String value = numeric ? castToNumber(quote(VALUE_COLUMN)) : quote(VALUE_COLUMN);
+        return "SELECT " + quote(StringData.TARGET_COLUMN) + ", " + quote(VALUE_COLUMN) + " FROM " + quote(table) + " WHERE " + quote(KEY_COLUMN) + " = ? AND " + quote(VALUE_COLUMN) + " IS NOT NULL" + range(value, min, max) + orderBy(value, descending);
+    }
+
+    /**
+     * Render a count of the targets with a value for a key in a {@link StorageConfig.Layout#NARROW narrow} table, optionally only values in a range (inclusive)
+     * <br><b>Parameters:</b> the key, the minimum (if {@code min}), then the maximum (if {@code max})
+     * <br><b>Result:</b> the count
+     *
+     * @param   table   the table to count in
+     * @param   numeric whether to compare the values as numbers
+     * @param   min     whether there's a minimum value
+     * @param   max     whether there's a maximum value
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String countKeyValueRange(@NotNull String table, boolean numeric, boolean min, boolean max) {
+        final String value = numeric ? castToNumber(quote(VALUE_COLUMN)) : quote(VALUE_COLUMN);
+        return "SELECT COUNT(*) FROM " + quote(table) + " WHERE " + quote(KEY_COLUMN) + " = ? AND " + quote(VALUE_COLUMN) + " IS NOT NULL" + range(value, min, max);
+    }
+
+    /**
+     * Render a select of every value of a page of targets in a {@link StorageConfig.Layout#NARROW narrow} table, in order of their target, for {@link TableCursor keyset pagination}
+     * <br>The page is limited by targets rather than rows (with a derived table, since MySQL doesn't support {@code LIMIT} in {@code IN} subqueries), so a target's values are never split between pages
+     * <br><b>Parameters:</b> the last target of the previous page (if {@code after}), then the maximum number of targets
+     * <br><b>Result:</b> {@link StringData#TARGET_COLUMN}, {@link #KEY_COLUMN}, {@link #VALUE_COLUMN}
+     *
+     * @param   table   the table to select from
+     * @param   after   whether to start after a target (every page but the first)
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String selectKeyValuePage(@NotNull String table, boolean after) {
+        final String target = quote(StringData.TARGET_COLUMN);
+        final String targets = "SELECT DISTINCT " + target + " FROM " + quote(table) + (after ? " WHERE " + target + " > ?" : "") + " ORDER BY " + target + " LIMIT ?";
+        return "SELECT t." + target + ", t." + quote(KEY_COLUMN) + ", t." + quote(VALUE_COLUMN) + " FROM " + quote(table) + " t JOIN (" + targets + ") p ON t." + target + " = p." + target + " ORDER BY t." + target;
+    }
+
+    /**
+     * Render a {@link StorageConfig.Layout#NARROW narrow} table creation (if it doesn't exist): {@link StringData#TARGET_COLUMN}, {@link #KEY_COLUMN} and {@link #VALUE_COLUMN},
+     * with the target and key as the primary key
+     *
+     * @param   table   the table to create
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String createKeyValueTable(@NotNull String table) {
+        return "CREATE TABLE IF NOT EXISTS " + quote(table) + " (" + quote(StringData.TARGET_COLUMN) + " VARCHAR(255) NOT NULL, " + quote(KEY_COLUMN) + " VARCHAR(255) NOT NULL, " + quote(VALUE_COLUMN) + " " + textType + ", PRIMARY KEY (" + quote(StringData.TARGET_COLUMN) + ", " + quote(KEY_COLUMN) + "))";
+    }
+
+    /**
+     * Render a table creation (if it doesn't exist) with only the {@link StringData#TARGET_COLUMN} primary key
+     *
+     * @param   table   the table to create
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String createTable(@NotNull String table) {
+        return createTable(table, List.of());
+    }
+
+    /**
+     * Render a table creation (if it doesn't exist) with the {@link StringData#TARGET_COLUMN} primary key and the given {@link ColumnType#TEXT text} value columns
+     *
+     * @param   table   the table to create
+     * @param   columns the value columns (excluding {@link StringData#TARGET_COLUMN})
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String createTable(@NotNull String table, @NotNull Collection<String> columns) {
+        return createTable(table, textColumns(columns));
+    }
+
+    /**
+     * Render a table creation (if it doesn't exist) with the {@link StringData#TARGET_COLUMN} primary key and the given value columns
+     *
+     * @param   table   the table to create
+     * @param   columns the value columns (excluding {@link StringData#TARGET_COLUMN}) and their types
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String createTable(@NotNull String table, @NotNull Map<String, ColumnType> columns) {
+        final String definitions = columns.isEmpty() ? "" : columnDefinitions(columns) + ", ";
+        return "CREATE TABLE IF NOT EXISTS " + quote(table) + " (" + quote(StringData.TARGET_COLUMN) + " VARCHAR(255) NOT NULL, " + definitions + "PRIMARY KEY (" + quote(StringData.TARGET_COLUMN) + "))";
+    }
+
+    /**
+     * Render the addition of a value column
+     * <br>Not every database supports {@code IF NOT EXISTS} here, so check that the column is missing first
+     *
+     * @param   table   the table to add the column to
+     * @param   column  the column to add
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String addColumn(@NotNull String table, @NotNull String column) {
+        return addColumn(table, column, ColumnType.TEXT);
+    }
+
+    /**
+     * Render the addition of a value column with a type
+     * <br>Like {@link #addColumn(String, String)}, the column must be checked to be missing first
+     *
+     * @param   table   the table to add the column to
+     * @param   column  the column to add
+     * @param   type    the type of the column
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String addColumn(@NotNull String table, @NotNull String column, @NotNull ColumnType type) {
+        return "ALTER TABLE " + quote(table) + " ADD COLUMN " + quote(column) + " " + type(type);
+    }
+
+    /**
+     * Render the addition of multiple value columns in as few statements as the database allows (one, except for SQLite)
+     * <br>Like {@link #addColumn(String, String)}, the columns must be checked to be missing first
+     *
+     * @param   table   the table to add the columns to
+     * @param   columns the columns to add
+     *
+     * @return          the SQL statements, empty if there are no columns
+     */
+    @NotNull
+    public List<String> addColumns(@NotNull String table, @NotNull Collection<String> columns) {
+        return addColumns(table, textColumns(columns));
+    }
+
+    /**
+     * Render the addition of multiple value columns with types in as few statements as the database allows (one, except for SQLite)
+     * <br>Like {@link #addColumn(String, String)}, the columns must be checked to be missing first
+     *
+     * @param   table   the table to add the columns to
+     * @param   columns the columns to add and their types
+     *
+     * @return          the SQL statements, empty if there are no columns
+     */
+    @NotNull
+    public List<String> addColumns(@NotNull String table, @NotNull Map<String, ColumnType> columns) {
+        if (columns.isEmpty()) return List.of();
+        final StringJoiner joiner = new StringJoiner(", ");
+        for (final Map.Entry<String, ColumnType> column : columns.entrySet()) joiner.add("ADD COLUMN " + quote(column.getKey()) + " " + type(column.getValue()));
+        return List.of("ALTER TABLE " + quote(table) + " " + joiner);
+    }
+
+    /**
+     * Render the creation of a secondary index on a column, named by {@link #indexName(String, String)}
+     * <br>Not every database supports {@code IF NOT EXISTS} here, so check that the index is missing first
+     *
+     * @param   table   the table to create the index on
+     * @param   column  the column to index
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    public String createIndex(@NotNull String table, @NotNull String column) {
+        return "CREATE INDEX " + quote(indexName(table, column)) + " ON " + quote(table) + " (" + quote(column) + ")";
+    }
+
+    /**
+     * Whether an exception means that an {@link #insert(String, List, List) insert} failed because the key already exists
+     *
+     * @param   exception   the exception
+     *
+     * @return              {@code true} if it's an integrity constraint violation (SQLState class {@code 23})
+     */
+    public boolean isDuplicateKey(@NotNull SQLException exception) {
+        final String state = exception.getSQLState();
+        return exception instanceof SQLIntegrityConstraintViolationException || (state != null && state.startsWith("23"));
+    }
+
+    /**
+     * Convert the {@code ?} bind parameters of a statement to the bind markers of the database's R2DBC driver (see {@link xyz.srnyx.annoyingapi.storage.dialects.R2DBCDialect})
+     * <br>By default they're left as {@code ?}
+     *
+     * @param   sql the SQL rendered by this syntax
+     *
+     * @return      the SQL for R2DBC
+     */
+    @NotNull
+    public String bindMarkers(@NotNull String sql) {
+        return sql;
+    }
+
+    /**
+     * Replace every {@code ?} bind parameter with a numbered {@code $1, $2, ...} one, leaving quoted identifiers and string literals as they are
+     *
+     * @param   sql the SQL
+     *
+     * @return      the SQL with numbered parameters
+     */
+    @NotNull
+    protected static String numberParameters(@NotNull String sql) {
+        final StringBuilder builder = new StringBuilder(sql.length() + 16);
+        char quoted = 0;
+        int index = 0;
+        for (final char c : sql.toCharArray()) {
+            // Escaped (doubled) quotes end and start the quoted part again
+            if (quoted != 0) {
+                if (c == quoted) quoted = 0;
+            } else if (c == '"' || c == '\'' || c == '`') {
+                quoted = c;
+            } else if (c == '?') {
+                builder.append('$').append(++index);
+                continue;
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Quote an identifier (table/column name)
+     *
+     * @param   identifier  the identifier to quote
+     *
+     * @return              the quoted identifier
+     */
+    @NotNull
+    public String quote(@NotNull String identifier) {
+        final String quoteString = String.valueOf(quote);
+        return quoteString + identifier.replace(quoteString, quoteString + quoteString) + quoteString;
+    }
+
+    /**
+     * {@code "target", "column1", "column2", ...}
+     *
+     * @param   keys    the primary key columns
+     * @param   columns the columns after the keys
+     *
+     * @return          the quoted column list
+     */
+    @NotNull
+    protected String columnList(@NotNull List<String> keys, @NotNull List<String> columns) {
+        final StringJoiner joiner = new StringJoiner(", ");
+        for (final String key : keys) joiner.add(quote(key));
+        for (final String column : columns) joiner.add(quote(column));
+        return joiner.toString();
+    }
+
+    /**
+     * {@code "column1" TEXT, "column2" INTEGER, ...}
+     *
+     * @param   columns the value columns and their types
+     *
+     * @return          the column definitions
+     */
+    @NotNull
+    protected String columnDefinitions(@NotNull Map<String, ColumnType> columns) {
+        final StringJoiner joiner = new StringJoiner(", ");
+        for (final Map.Entry<String, ColumnType> column : columns.entrySet()) joiner.add(quote(column.getKey()) + " " + type(column.getValue()));
+        return joiner.toString();
+    }
+
+    /**
+     * Give every column the {@link ColumnType#TEXT text} type, keeping their order
+     *
+     * @param   columns the value columns
+     *
+     * @return          {@code [ Column: TEXT ]}
+     */
+    @NotNull
+    protected static Map<String, ColumnType> textColumns(@NotNull Collection<String> columns) {
+        final Map<String, ColumnType> types = new LinkedHashMap<>();
+        for (final String column : columns) types.put(column, ColumnType.TEXT);
+        return types;
+    }
+
+    /**
+     * {@code CAST(expression AS BIGINT)}
+     *
+     * @param   expression  the string expression holding a whole number
+     *
+     * @return              the expression as a 64-bit integer
+     */
+    @NotNull
+    protected String castToInteger(@NotNull String expression) {
+        return "CAST(" + expression + " AS BIGINT)";
+    }
+
+    /**
+     * {@code CAST(expression AS DOUBLE PRECISION)}
+     *
+     * @param   expression  the string expression holding a number
+     *
+     * @return              the expression as a floating point number
+     */
+    @NotNull
+    protected String castToNumber(@NotNull String expression) {
+        return "CAST(" + expression + " AS DOUBLE PRECISION)";
+    }
+
+    /**
+     * {@code CAST(expression AS VARCHAR)}
+     *
+     * @param   expression  the expression
+     *
+     * @return              the expression as a string
+     */
+    @NotNull
+    protected String castToText(@NotNull String expression) {
+        return "CAST(" + expression + " AS VARCHAR)";
+    }
+
+    /**
+     * {@code  WHERE "target" = ?}
+     *
+     * @return  the where clause, with a leading space
+     */
+    @NotNull
+    protected String whereTarget() {
+        return " WHERE " + quote(StringData.TARGET_COLUMN) + " = ?";
+    }
+
+    /**
+     * {@code  AND expression >= ? AND expression <= ?}
+     *
+     * @param   expression  the expression to compare
+     * @param   min         whether there's a minimum value
+     * @param   max         whether there's a maximum value
+     *
+     * @return              the conditions, with a leading space (empty if there are none)
+     */
+    @NotNull
+    protected String range(@NotNull String expression, boolean min, boolean max) {
+        return (min ? " AND " + expression + " >= ?" : "") + (max ? " AND " + expression + " <= ?" : "");
+    }
+
+    /**
+     * {@code  ORDER BY expression DESC, "target" DESC LIMIT ?}
+     *
+     * @param   expression  the expression to order by
+     * @param   descending  whether to start with the highest values
+     *
+     * @return              the clause, with a leading space
+     */
+    @NotNull
+    protected String orderBy(@NotNull String expression, boolean descending) {
+        final String direction = descending ? " DESC" : " ASC";
+        return " ORDER BY " + expression + direction + ", " + quote(StringData.TARGET_COLUMN) + direction + " LIMIT ?";
+    }
+
+    /**
+     * The name of the index that {@link #createIndex(String, String)} creates, shortened with a hash if it would be too long for MySQL/PostgreSQL (63 characters)
+     *
+     * @param   table   the table
+     * @param   column  the column
+     *
+     * @return          the name of the index
+     */
+    @NotNull
+    public static String indexName(@NotNull String table, @NotNull String column) {
+        final String name = table + "_" + column + "_idx";
+        if (name.length() <= 63) return name;
+        return name.substring(0, 54) + "_" + String.format("%08x", name.hashCode());
+    }
+
+    /**
+     * {@code INSERT ... ON CONFLICT (target) DO UPDATE SET ...}, shared by PostgreSQL and SQLite
+     *
+     * @param   table   the table to upsert into
+     * @param   keys    the primary key columns
+     * @param   columns the columns to set
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    protected String onConflictUpsert(@NotNull String table, @NotNull List<String> keys, @NotNull List<String> columns) {
+        final String insert = "INSERT INTO " + quote(table) + " (" + columnList(keys, columns) + ") VALUES (" + parameters(keys.size() + columns.size()) + ") ON CONFLICT (" + columnList(keys, List.of()) + ") ";
+        if (columns.isEmpty()) return insert + "DO NOTHING";
+        final StringJoiner updates = new StringJoiner(", ");
+        for (final String column : columns) updates.add(quote(column) + " = EXCLUDED." + quote(column));
+        return insert + "DO UPDATE SET " + updates;
+    }
+
+    /**
+     * {@code ?, ?, ?, ...}
+     *
+     * @param   count   the number of parameters
+     *
+     * @return          the parameter list
+     */
+    @NotNull
+    protected static String parameters(int count) {
+        final StringJoiner joiner = new StringJoiner(", ");
+        for (int i = 0; i < count; i++) joiner.add("?");
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,232 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredServiceProvider;
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.plugin.ServicesManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+
+/**
+ * Lets every AnnoyingAPI plugin on the server that connects to the same database with the same credentials use one connection pool
+ * <br>Each plugin relocates its own copy of AnnoyingAPI and HikariCP, so pools are shared through Bukkit's {@link ServicesManager} as plain {@link DataSource}s:
+ * <ul>
+ *     <li>Every plugin using a pool registers its own {@link DataSource} wrapper of it, named after a hash of the JDBC URL and connection properties</li>
+ *     <li>A plugin looking for a pool uses any registered wrapper with the same name</li>
+ *     <li>The pool is closed once the last wrapper with its name is {@link #release(DataSource) released}</li>
+ * </ul>
+ * The pool keeps the settings of the plugin that created it, {@link StorageConfig.RemoteConnection#table_prefix table prefixes} still apply per plugin
+ *
+ * @see StorageConfig.Pool#shared
+ */
+public final class SharedPools {
+    /**
+     * The start of the name of every shared pool, the rest is a hash of its URL and properties
+     */
+    @NotNull public static final String NAME_PREFIX = "AnnoyingAPI Shared Pool ";
+
+    /**
+     * Get the shared pool for a URL and properties, creating it if no plugin has one yet
+     *
+     * @param   plugin      the plugin that will use the pool
+     * @param   url         the JDBC URL
+     * @param   properties  the connection properties (including credentials)
+     * @param   factory     creates the pool if it doesn't exist yet
+     *
+     * @return              a {@link DataSource} of the shared pool, give it to {@link #release(DataSource)} once it's not used anymore
+     *
+     * @throws  ConnectionException if the pool had to be created and creating it failed
+     */
+    @NotNull
+    public static DataSource acquire(@NotNull Plugin plugin, @NotNull String url, @NotNull Properties properties, @NotNull PoolFactory factory) throws ConnectionException {
+        final String name = getName(url, properties);
+        final ServicesManager services = Bukkit.getServicesManager();
+        synchronized (services) {
+            DataSource pool = find(services, name);
+            if (pool == null) pool = factory.create();
+            final SharedDataSource shared = new SharedDataSource(pool, name);
+            // Lowest so the pools never become the default DataSource service of other plugins
+            services.register(DataSource.class, shared, plugin, ServicePriority.Lowest);
+            return shared;
+        }
+    }
+
+    /**
+     * Stop using a pool from {@link #acquire(Plugin, String, Properties, PoolFactory)}, closing it if no other plugin uses it
+     *
+     * @param   dataSource  the {@link DataSource} returned by {@link #acquire(Plugin, String, Properties, PoolFactory)}
+     */
+    public static void release(@NotNull DataSource dataSource) {
+        if (!(dataSource instanceof SharedDataSource shared)) return;
+        final ServicesManager services = Bukkit.getServicesManager();
+        synchronized (services) {
+            services.unregister(DataSource.class, shared);
+            if (find(services, shared.name) == null) shared.close();
+        }
+    }
+
+    /**
+     * Find a registered pool with the given name
+     *
+     * @param   services    the {@link ServicesManager}
+     * @param   name        the name of the pool
+     *
+     * @return              the pool, or {@code null} if none is registered
+     */
+    @Nullable
+    private static DataSource find(@NotNull ServicesManager services, @NotNull String name) {
+        for (final RegisteredServiceProvider<DataSource> registration : services.getRegistrations(DataSource.class)) {
+            final DataSource provider = registration.getProvider();
+            // Only the name is compared, the provider may be another plugin's (relocated) wrapper class
+            if (name.equals(provider.toString())) return provider;
+        }
+        return null;
+    }
+
+    /**
+     * Get the name of the pool for a URL and properties
+     * <br>Hashed so that credentials can't be read from the name
+     *
+     * @param   url         the JDBC URL
+     * @param   properties  the connection properties
+     *
+     * @return              the name
+     */
+    @NotNull
+    public static String getName(@NotNull String url, @NotNull Properties properties) {
+        final StringBuilder key = new StringBuilder(url);
+        for (final Map.Entry<String, String> entry : toStringMap(properties).entrySet()) key.append('\0').append(entry.getKey()).append('=').append(entry.getValue());
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder(NAME_PREFIX);
+            for (final byte b : hash) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            // Every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NotNull
+    private static Map<String, String> toStringMap(@NotNull Properties properties) {
+        final Map<String, String> map = new TreeMap<>();
+        for (final String name : properties.stringPropertyNames()) map.put(name, properties.getProperty(name));
+        return map;
+    }
+
+    /**
+     * Creates a new pool for {@link #acquire(Plugin, String, Properties, PoolFactory)}
+     */
+    @FunctionalInterface
+    public interface PoolFactory {
+        /**
+         * Create the pool
+         *
+         * @return  the new pool, should be {@link Closeable} so it can be closed once no plugin uses it
+         *
+         * @throws  ConnectionException if creating the pool failed
+         */
+        @NotNull
+        DataSource create() throws ConnectionException;
+    }
+
+    /**
+     * One plugin's registration of a shared pool
+     * <br>Other plugins only see this as a {@link DataSource} (and {@link Closeable}), so nothing else can be used across plugins
+     */
+    private static class SharedDataSource implements DataSource, Closeable {
+        /**
+         * The pool itself, or another plugin's {@link SharedDataSource} of it
+         */
+        @NotNull private final DataSource delegate;
+        /**
+         * The name of the pool, see {@link #getName(String, Properties)}
+         */
+        @NotNull private final String name;
+
+        private SharedDataSource(@NotNull DataSource delegate, @NotNull String name) {
+            this.delegate = delegate;
+            this.name = name;
+        }
+
+        @Override @NotNull
+        public String toString() {
+            return name;
+        }
+
+        @Override
+        public void close() {
+            if (delegate instanceof Closeable closeable) try {
+                closeable.close();
+            } catch (final IOException ignored) {
+                // Pools don't throw when closing
+            }
+        }
+
+        @Override @NotNull
+        public Connection getConnection() throws SQLException {
+            return delegate.getConnection();
+        }
+
+        @Override @NotNull
+        public Connection getConnection(String username, String password) throws SQLException {
+            return delegate.getConnection(username, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return delegate.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+            delegate.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+            delegate.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return delegate.getLoginTimeout();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return delegate.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return delegate.isWrapperFor(iface);
+        }
+
+        @Override @NotNull
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            return delegate.getParentLogger();
+        }
+    }
+
+    private SharedPools() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+}
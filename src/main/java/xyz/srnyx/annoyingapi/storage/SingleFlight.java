@@ -0,0 +1,78 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+
+/**
+ * Makes concurrent calls for the same key share one call of the supplier
+ * <br>The first caller for a key runs the supplier, every caller that arrives while it's running waits for and gets the same result
+ * <br>Nothing is remembered once the call finishes, so later calls run the supplier again
+ *
+ * @param   <K> the type of key
+ * @param   <V> the type of result
+ */
+public class SingleFlight<K, V> {
+    /**
+     * {@code [ Key: Result of the running call ]}
+     */
+    @NotNull private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a new {@link SingleFlight} with no calls running
+     */
+    public SingleFlight() {
+        // Only exists to give the constructor a Javadoc
+    }
+
+    /**
+     * Run the supplier for the key, or wait for the result of the call that's already running for it
+     *
+     * @param   key         the key
+     * @param   supplier    the supplier to run if no call is running for the key
+     *
+     * @return              the result of the supplier
+     *
+     * @throws  RuntimeException    if the supplier threw (every waiter gets the same exception)
+     */
+    public V run(@NotNull K key, @NotNull Supplier<V> supplier) {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+
+        // Another call is running, wait for it
+        if (running != null) try {
+            return running.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+
+        // Run the supplier
+        try {
+            final V value = supplier.get();
+            future.complete(value);
+            return value;
+        } catch (final RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Whether a call is running for the key
+     *
+     * @param   key the key
+     *
+     * @return      {@code true} if a call is running
+     */
+    public boolean isRunning(@NotNull K key) {
+        return inFlight.containsKey(key);
+    }
+}
@@ -0,0 +1,158 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+
+/**
+ * A sorted in-memory index of one key's values in a table, so top/range/count queries don't have to read every target
+ * <br>Used by the file dialects, which don't have a database to push the queries down to. They build it on the first query and keep it up to date as values are written
+ * <br>Values are compared as numbers if the index is {@link #numeric} (values that aren't numbers are left out), as text otherwise
+ */
+public class SortedIndex {
+    /**
+     * Whether values are compared as numbers
+     */
+    public final boolean numeric;
+    /**
+     * {@code [ Target: Sort key ]}, to find a target's old value when it changes
+     */
+    @NotNull private final Map<String, Object> targets = new HashMap<>();
+    /**
+     * {@code [ Sort key: [ Target: Data value ] ]}, the sort key is a {@link BigDecimal} if {@link #numeric}, otherwise the value itself
+     */
+    @NotNull private final TreeMap<Object, TreeMap<String, String>> sorted;
+
+    /**
+     * Construct a new empty {@link SortedIndex}
+     *
+     * @param   numeric {@link #numeric}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SortedIndex(boolean numeric) {
+        this.numeric = numeric;
+        this.sorted = new TreeMap<>((a, b) -> ((Comparable) a).compareTo(b));
+    }
+
+    /**
+     * Set a target's value
+     *
+     * @param   target  the target
+     * @param   value   the new value, or {@code null} if it doesn't have one anymore
+     */
+    public synchronized void put(@NotNull String target, @Nullable String value) {
+        final Object oldKey = targets.remove(target);
+        if (oldKey != null) {
+            final TreeMap<String, String> oldTargets = sorted.get(oldKey);
+            oldTargets.remove(target);
+            if (oldTargets.isEmpty()) sorted.remove(oldKey);
+        }
+        if (value == null) return;
+        final Object key = numeric ? parseNumber(value) : value;
+        if (key == null) return;
+        targets.put(target, key);
+        sorted.computeIfAbsent(key, k -> new TreeMap<>()).put(target, value);
+    }
+
+    /**
+     * Get the targets with the lowest/highest values, optionally only values in a range (inclusive)
+     * <br>Targets with the same value are ordered by target (in the same direction)
+     *
+     * @param   min         the minimum value, or {@code null} for no minimum
+     * @param   max         the maximum value, or {@code null} for no maximum
+     * @param   descending  whether to start with the highest values
+     * @param   limit       the maximum number of targets, or {@code 0} for no limit
+     *
+     * @return              {@code [ Target: Data value ]}, in order
+     *
+     * @throws  IllegalArgumentException    if the index is {@link #numeric} and {@code min}/{@code max} isn't a number
+     */
+    @NotNull
+    public synchronized LinkedHashMap<String, String> query(@Nullable String min, @Nullable String max, boolean descending, int limit) {
+        final LinkedHashMap<String, String> values = new LinkedHashMap<>();
+        NavigableMap<Object, TreeMap<String, String>> range = range(min, max);
+        if (descending) range = range.descendingMap();
+        for (final TreeMap<String, String> sameValue : range.values()) for (final Map.Entry<String, String> entry : (descending ? sameValue.descendingMap() : sameValue).entrySet()) {
+            if (limit > 0 && values.size() >= limit) return values;
+            values.put(entry.getKey(), entry.getValue());
+        }
+        return values;
+    }
+
+    /**
+     * Count the targets with a value, optionally only values in a range (inclusive)
+     *
+     * @param   min the minimum value, or {@code null} for no minimum
+     * @param   max the maximum value, or {@code null} for no maximum
+     *
+     * @return      the number of targets
+     *
+     * @throws  IllegalArgumentException    if the index is {@link #numeric} and {@code min}/{@code max} isn't a number
+     */
+    public synchronized long count(@Nullable String min, @Nullable String max) {
+        if (min == null && max == null) return targets.size();
+        long count = 0;
+        for (final TreeMap<String, String> sameValue : range(min, max).values()) count += sameValue.size();
+        return count;
+    }
+
+    /**
+     * Get the part of {@link #sorted} between two values (inclusive)
+     *
+     * @param   min the minimum value, or {@code null} for no minimum
+     * @param   max the maximum value, or {@code null} for no maximum
+     *
+     * @return      a view of the range, empty if {@code min} is more than {@code max}
+     *
+     * @throws  IllegalArgumentException    if the index is {@link #numeric} and {@code min}/{@code max} isn't a number
+     */
+    @NotNull
+    private NavigableMap<Object, TreeMap<String, String>> range(@Nullable String min, @Nullable String max) {
+        final Object minKey = min == null ? null : sortKey(min);
+        final Object maxKey = max == null ? null : sortKey(max);
+        if (minKey != null && maxKey != null) return sorted.comparator().compare(minKey, maxKey) > 0 ? new TreeMap<>() : sorted.subMap(minKey, true, maxKey, true);
+        if (minKey != null) return sorted.tailMap(minKey, true);
+        if (maxKey != null) return sorted.headMap(maxKey, true);
+        return sorted;
+    }
+
+    /**
+     * Get the sort key of a bound
+     *
+     * @param   bound   the bound
+     *
+     * @return          the sort key
+     *
+     * @throws  IllegalArgumentException    if the index is {@link #numeric} and the bound isn't a number
+     */
+    @NotNull
+    private Object sortKey(@NotNull String bound) {
+        if (!numeric) return bound;
+        final BigDecimal number = parseNumber(bound);
+        if (number == null) throw new IllegalArgumentException("Not a number: " + bound);
+        return number;
+    }
+
+    /**
+     * Parse a value as a number
+     *
+     * @param   value   the value
+     *
+     * @return          the number, or {@code null} if it isn't one
+     */
+    @Nullable
+    public static BigDecimal parseNumber(@NotNull String value) {
+        try {
+            return new BigDecimal(value.trim());
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+}
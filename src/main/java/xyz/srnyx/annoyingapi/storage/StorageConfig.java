@@ -41,17 +41,77 @@ public class StorageConfig extends RootConfig {
     @Stat(key = "method")
     @NotNull public StorageMethod method = StorageMethod.H2;
 
+    /**
+     * Whether SQL methods load jOOQ and use {@link xyz.srnyx.annoyingapi.storage.dialects.SQLDialect}, otherwise only plain JDBC is used
+     *
+     * @deprecated  migrations {@link DataManager#attemptDatabaseMigration() stream} tables with plain JDBC, so nothing uses jOOQ anymore. Only kept so existing configs still load
+     */
+    @Comment
+    @Comment("DEPRECATED: no longer does anything useful, leave it false")
+    @Comment("If true, SQL methods still load the jOOQ library, but data is created, read, written and migrated with plain JDBC either way")
+    @Stat(key = "use_jooq")
+    @Deprecated
+    public boolean use_jooq = false;
+
+    /**
+     * Whether remote SQL methods read and write values through R2DBC instead of blocking JDBC, see {@link xyz.srnyx.annoyingapi.storage.dialects.R2DBCDialect}
+     */
+    @Comment
+    @Comment("Whether REMOTE SQL methods (MySQL, MariaDB, PostgreSQL) will load an R2DBC driver to read and write data without blocking threads")
+    @Comment("Useful for networks with a lot of concurrent reads/writes, as they're no longer limited by the number of pool threads")
+    @Comment("Creating tables, migrations and queries over whole tables still use JDBC. LOCAL methods (H2, SQLite) always use JDBC")
+    @Comment("If true, the R2DBC pool is sized by 'pool' (maximum_pool_size and minimum_idle), and the JDBC pool next to it gets at most 2 connections, which are closed while idle")
+    @Stat(key = "use_r2dbc")
+    public boolean use_r2dbc = false;
+
+    /**
+     * How SQL tables store data, see {@link Layout}
+     */
+    @Comment
+    @Comment("How data is laid out in SQL tables (SQL methods only)")
+    @Comment("- WIDE (default): one row per target with a column per key, new keys add columns to the table")
+    @Comment("- NARROW: one row per target and key (target, key, value), new keys don't change the table and sparse data takes less space")
+    @Comment("NARROW tables end with '_kv'. To switch, migrate like you would between methods (copy this file to storage-new.yml and change the layout there)")
+    @Stat(key = "layout")
+    @NotNull public Layout layout = Layout.WIDE;
+
     @Comment
     @Comment("The connection configuration for REMOTE databases")
     @Comment("NOTE: If you are using a LOCAL database, you can ignore this section")
     @NotNull public RemoteConnection remote_connection;
 
+    @Comment
+    @Comment("The connection pool configuration for SQL methods (both LOCAL and REMOTE)")
+    @Comment("NOTE: If you are using JSON or YAML, you can ignore this section")
+    @NotNull public Pool pool = new Pool(this);
+
+    @Comment
+    @Comment("Options for when the database can't be reached (SQL methods only)")
+    @Comment("After too many connection failures in a row, database operations fail right away (instead of waiting for timeouts) until the database is back")
+    @Comment("While it's down, cached data keeps being used and cached changes are saved once it's back")
+    @NotNull public CircuitBreaker circuit_breaker = new CircuitBreaker(this);
+
     @Comment
     @Comment("Options for the data cache, which is used for both LOCAL and REMOTE storage methods")
     @Comment("The cache greatly improves performance by storing data in memory")
     @Comment("However, there is a potential risk of data loss if the server crashes before the data is saved to the database")
     @NotNull public Cache cache = new Cache(this);
 
+    @Comment
+    @Comment("Options for committing writes that DON'T use the cache in groups (only applicable to data that has the cache disabled)")
+    @Comment("Instead of one transaction per write, writes are queued and committed together, which is much faster for bursts of writes")
+    @Comment("However, queued writes may be lost if the server crashes before they're committed")
+    @NotNull public GroupCommit group_commit = new GroupCommit(this);
+
+    /**
+     * The number of threads used for asynchronous storage operations
+     */
+    @Comment
+    @Comment("The number of threads that will be used for asynchronous storage operations (loading/saving data in the background)")
+    @Comment("For REMOTE databases, this shouldn't be higher than the number of connections the database allows for this server")
+    @Stat(key = "async_threads")
+    public int async_threads = 2;
+
 
     @org.jetbrains.annotations.NotNull public transient final AnnoyingPlugin plugin;
 
@@ -69,6 +129,30 @@ public class StorageConfig extends RootConfig {
         return "&4" + getBindFileName() + " (" + method + ") &8|&c ";
     }
 
+    /**
+     * Valid values for {@link #layout}
+     */
+    public enum Layout {
+        /**
+         * One row per target with a column per key
+         */
+        WIDE(""),
+        /**
+         * One row per target and key: {@link xyz.srnyx.annoyingapi.data.StringData#TARGET_COLUMN target}, {@link SQLSyntax#KEY_COLUMN key} and {@link SQLSyntax#VALUE_COLUMN value}
+         * <br>New keys don't need any DDL, and keys without a value don't take any space
+         */
+        NARROW("_kv");
+
+        /**
+         * Added to the end of table names so tables of both layouts can exist in the same database (for migrations between them)
+         */
+        @org.jetbrains.annotations.NotNull public final String tableSuffix;
+
+        Layout(@org.jetbrains.annotations.NotNull String tableSuffix) {
+            this.tableSuffix = tableSuffix;
+        }
+    }
+
     /**
      * The remote connection details/properties
      */
@@ -124,6 +208,176 @@ public class StorageConfig extends RootConfig {
         }
     }
 
+    /**
+     * The connection pool options (SQL methods only)
+     */
+    public static class Pool extends SubConfig<StorageConfig, StorageConfig> {
+        public Pool(@org.jetbrains.annotations.NotNull StorageConfig root) {
+            super(root);
+        }
+
+        /**
+         * The maximum number of connections, {@code null} for {@link StorageMethod.SQLInfo#defaultPoolSize() the method's default}
+         */
+        @Comment("The maximum number of connections to the database")
+        @Comment("If null, a default for the method will be used (H2: 4, SQLITE: 1, REMOTE: 10)")
+        @Comment("With 'use_r2dbc', this is the size of the R2DBC pool (the JDBC pool gets at most 2 connections)")
+        @Stat(key = "maximum_pool_size")
+        @Nullable public Integer maximum_pool_size = null;
+
+        /**
+         * The minimum number of idle connections, {@code null} for the same as {@link #maximum_pool_size} on REMOTE methods and 1 on LOCAL methods
+         */
+        @Comment("The minimum number of idle connections that will be kept open")
+        @Comment("If null, it'll be the same as 'maximum_pool_size' for REMOTE methods (a fixed-size pool) and 1 for LOCAL methods")
+        @Stat(key = "minimum_idle")
+        @Nullable public Integer minimum_idle = null;
+
+        /**
+         * The maximum time to wait for a connection from the pool
+         */
+        @Comment("The maximum time to wait for a connection before failing")
+        @Comment("Make sure to specify units (ms, s, m, etc.)!")
+        @DurationTickFallback @Stat(key = "connection_timeout")
+        @NotNull public Duration connection_timeout = Duration.ofSeconds(10);
+
+        /**
+         * The maximum time an idle connection is kept open (only if there are more than {@link #minimum_idle} connections)
+         */
+        @Comment("The maximum time a connection can sit idle before it's closed (only applicable if there are more than 'minimum_idle' connections)")
+        @DurationTickFallback @Stat(key = "idle_timeout")
+        @NotNull public Duration idle_timeout = Duration.ofMinutes(10);
+
+        /**
+         * The maximum lifetime of a connection, should be a bit shorter than the database's own connection time limit
+         */
+        @Comment("The maximum time a connection will be used before it's replaced")
+        @Comment("For REMOTE methods, this should be at least 30 seconds shorter than the database's own limit (MySQL: 'wait_timeout')")
+        @DurationTickFallback @Stat(key = "max_lifetime")
+        @NotNull public Duration max_lifetime = Duration.ofMinutes(30);
+
+        /**
+         * How long a connection can be out of the pool before a possible leak is logged, {@link Duration#ZERO} to disable
+         */
+        @Comment("How long a connection can be in use before a warning about a possible connection leak is logged")
+        @Comment("Set to 0 to disable (recommended unless you're debugging)")
+        @DurationTickFallback
+        @NotNull public Duration leak_detection_threshold = Duration.ZERO;
+
+        /**
+         * Whether to share the pool with other AnnoyingAPI plugins that connect to the same database with the same credentials
+         *
+         * @see xyz.srnyx.annoyingapi.storage.SharedPools
+         */
+        @Comment("Whether to share one pool with other plugins (using AnnoyingAPI) that connect to the same database with the same settings")
+        @Comment("The plugin that connects first decides the pool's options, each plugin still uses its own 'table_prefix'")
+        @Stat(key = "shared")
+        public boolean shared = false;
+
+        /**
+         * Get the maximum pool size for a method
+         *
+         * @param   method  the storage method
+         *
+         * @return          {@link #maximum_pool_size}, or the method's default
+         */
+        public int getMaximumPoolSize(@org.jetbrains.annotations.NotNull StorageMethod method) {
+            if (maximum_pool_size != null) return Math.max(1, maximum_pool_size);
+            return method.sqlInfo == null ? 1 : method.sqlInfo.defaultPoolSize();
+        }
+
+        /**
+         * Get the minimum number of idle connections for a method
+         *
+         * @param   method  the storage method
+         *
+         * @return          {@link #minimum_idle}, or the method's default
+         */
+        public int getMinimumIdle(@org.jetbrains.annotations.NotNull StorageMethod method) {
+            final int maximum = getMaximumPoolSize(method);
+            if (minimum_idle != null) return Math.max(0, Math.min(minimum_idle, maximum));
+            return method.isSQLRemote() ? maximum : 1;
+        }
+    }
+
+    /**
+     * Options for failing fast while the database is down
+     *
+     * @see xyz.srnyx.annoyingapi.storage.CircuitBreaker
+     */
+    public static class CircuitBreaker extends SubConfig<StorageConfig, StorageConfig> {
+        public CircuitBreaker(@org.jetbrains.annotations.NotNull StorageConfig root) {
+            super(root);
+        }
+
+        @Comment("Whether to fail fast while the database is down")
+        @Stat(key = "enabled")
+        public boolean enabled = true;
+
+        /**
+         * The number of connection failures in a row that makes operations fail fast
+         */
+        @Comment("The number of connection failures in a row after which database operations will fail right away")
+        @Stat(key = "failure_threshold")
+        public int failure_threshold = 5;
+
+        /**
+         * How often to check whether the database is back while failing fast
+         */
+        @Comment("How often to check whether the database is back (in the background)")
+        @Comment("Make sure to specify units (ms, s, m, etc.)!")
+        @DurationTickFallback @Stat(key = "retry_interval")
+        @NotNull public Duration retry_interval = Duration.ofSeconds(5);
+
+        /**
+         * The maximum time a single statement can run, {@link Duration#ZERO} to disable
+         */
+        @Comment("The maximum time a single query can take before it fails (rounded up to whole seconds)")
+        @Comment("Set to 0 to disable")
+        @DurationTickFallback @Stat(key = "query_timeout")
+        @NotNull public Duration query_timeout = Duration.ofSeconds(10);
+
+        /**
+         * Get {@link #query_timeout} in whole seconds for {@link java.sql.Statement#setQueryTimeout(int)}
+         *
+         * @return  the timeout in seconds, {@code 0} if disabled
+         */
+        public int getQueryTimeoutSeconds() {
+            final long millis = query_timeout.toMillis();
+            return millis <= 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, (millis + 999) / 1000);
+        }
+    }
+
+    /**
+     * Options for committing uncached writes in groups
+     *
+     * @see WriteQueue
+     */
+    public static class GroupCommit extends SubConfig<StorageConfig, StorageConfig> {
+        public GroupCommit(@org.jetbrains.annotations.NotNull StorageConfig root) {
+            super(root);
+        }
+
+        @Comment("Whether to queue uncached writes and commit them in groups")
+        @Stat(key = "enabled")
+        public boolean enabled = false;
+
+        /**
+         * The maximum time a write waits in the queue before it's committed
+         */
+        @Comment("The interval in which queued writes will be committed to the database")
+        @Comment("Make sure to specify units (ms, s, etc.)!")
+        @DurationTickFallback @Stat(key = "interval")
+        @NotNull public Duration interval = Duration.ofMillis(50);
+
+        /**
+         * The number of queued keys that triggers a commit before {@link #interval} is up
+         */
+        @Comment("The number of queued writes that will trigger a commit right away (without waiting for the interval)")
+        @Stat(key = "max_entries")
+        public int max_entries = 500;
+    }
+
     /**
      * Options for the data cache (stored differently per method)
      */
@@ -156,11 +410,124 @@ public class StorageConfig extends RootConfig {
         @DurationTickFallback @Stat(key = "interval")
         @NotNull public Duration interval = Duration.ofMinutes(5);
 
+        /**
+         * The maximum number of rows sent to the database in one batch/transaction when saving the cache (SQL methods only)
+         */
+        @Comment
+        @Comment("The maximum number of rows that will be sent to the database at once when saving the cache (only applicable to SQL methods)")
+        @Comment("Higher values make saving faster (especially for REMOTE databases), but each batch takes longer to write")
+        @Stat(key = "batch_size")
+        public int batch_size = 500;
+
+        /**
+         * Whether the first cache miss for a target loads the target's whole row into the cache
+         */
+        @Comment
+        @Comment("Whether the first time a value isn't in the cache, all values of that player/entity/etc. will be loaded into the cache at once")
+        @Comment("This turns later reads into in-memory hits instead of one database query each, but uses a bit more memory for unused values")
+        @Stat(key = "prefetch_row")
+        public boolean prefetch_row = true;
+
+        /**
+         * Whether to load players' data into the cache when they log in and save/remove it when they quit
+         */
+        @Comment
+        @Comment("Whether players' data will be loaded into the cache while they're logging in, and saved + removed from the cache when they quit")
+        @Comment("This avoids database queries on the main thread when players join, and keeps the cache from growing forever")
+        @Stat(key = "player_sessions")
+        public boolean player_sessions = true;
+
+        /**
+         * The maximum time a login waits for the player's data to load (if {@link #player_sessions} is enabled)
+         */
+        @Comment("The maximum time a player's login will wait for their data to load (only applicable if 'player_sessions' is enabled)")
+        @Comment("If loading takes longer, the player will join anyway and their data will keep loading in the background")
+        @DurationTickFallback
+        @NotNull public Duration preload_timeout = Duration.ofSeconds(3);
+
+        /**
+         * Options for removing unused values from the cache
+         */
+        @Comment
+        @Comment("Options for removing unused values from the cache (only applicable to SQL methods)")
+        @Comment("Values that haven't been saved yet are always saved before being removed")
+        @NotNull public Eviction eviction = new Eviction(this);
+
         @org.jetbrains.annotations.NotNull
         public Set<SaveOn> getSaveOn() {
             return save_on.isEmpty() ? SaveOn.VALUES : save_on;
         }
 
+        /**
+         * Options for removing unused targets from the cache
+         */
+        public static class Eviction extends SubConfig<StorageConfig, Cache> {
+            public Eviction(@org.jetbrains.annotations.NotNull Cache parent) {
+                super(parent);
+            }
+
+            /**
+             * The maximum number of targets cached per table, {@code 0} for no limit
+             */
+            @Comment("The maximum number of players/entities/etc. that will be cached per table")
+            @Comment("When there are more, the ones that were used least recently will be removed from the cache")
+            @Comment("Set to 0 for no limit")
+            @Stat(key = "max_targets")
+            public int max_targets = 10000;
+
+            /**
+             * How long a target can go unused before it's removed from the cache, {@link Duration#ZERO} to never remove idle targets
+             */
+            @Comment("How long a player/entity/etc. can go without its data being used before it's removed from the cache")
+            @Comment("Set to 0 to never remove them for being unused")
+            @DurationTickFallback @Stat(key = "idle_ttl")
+            @NotNull public Duration idle_ttl = Duration.ofMinutes(30);
+
+            /**
+             * Overrides of {@link #max_targets} for specific tables
+             */
+            @Comment("Overrides of 'max_targets' for specific tables (without the table prefix)")
+            @Comment("Example: 'entities: 50000'")
+            @NotNull public Map<String, Integer> table_max_targets = new HashMap<>();
+
+            /**
+             * Overrides of {@link #idle_ttl} for specific tables
+             */
+            @Comment("Overrides of 'idle_ttl' for specific tables (without the table prefix)")
+            @Comment("Example: 'entities: 5m'")
+            @NotNull public Map<String, Duration> table_idle_ttl = new HashMap<>();
+
+            /**
+             * How often to check for targets to remove
+             */
+            @Comment("How often the cache will be checked for players/entities/etc. to remove")
+            @DurationTickFallback
+            @NotNull public Duration check_interval = Duration.ofMinutes(1);
+
+            /**
+             * Get the maximum number of cached targets for a table
+             *
+             * @param   table   the table (without the table prefix)
+             *
+             * @return          the maximum number of targets, {@code 0} for no limit
+             */
+            public int getMaxTargets(@org.jetbrains.annotations.NotNull String table) {
+                return Math.max(0, table_max_targets.getOrDefault(table.toLowerCase(), max_targets));
+            }
+
+            /**
+             * Get how long targets of a table can go unused before being removed
+             *
+             * @param   table   the table (without the table prefix)
+             *
+             * @return          the idle time, {@link Duration#ZERO} to never remove idle targets
+             */
+            @org.jetbrains.annotations.NotNull
+            public Duration getIdleTtl(@org.jetbrains.annotations.NotNull String table) {
+                return table_idle_ttl.getOrDefault(table.toLowerCase(), idle_ttl);
+            }
+        }
+
         /**
          * Valid values for {@link #save_on}
          */
@@ -9,14 +9,20 @@ import xyz.srnyx.annoyingapi.ServerSoftware;
 import xyz.srnyx.annoyingapi.library.AnnoyingAPILibrary;
 import xyz.srnyx.annoyingapi.library.AnnoyingLibrary;
 import xyz.srnyx.annoyingapi.storage.dialects.Dialect;
+import xyz.srnyx.annoyingapi.storage.dialects.JDBCDialect;
 import xyz.srnyx.annoyingapi.storage.dialects.JSONDialect;
+import xyz.srnyx.annoyingapi.storage.dialects.R2DBCDialect;
 import xyz.srnyx.annoyingapi.storage.dialects.YAMLDialect;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.logging.Level;
 
 
 /**
@@ -27,36 +33,50 @@ public enum StorageMethod {
             .dialect(() -> SQLDialect.H2)
             .sqlInfo(sqlInfo -> sqlInfo
                     .driver("org{}h2{}Driver")
+                    .syntax(SQLSyntax.H2)
                     .url(pluginFolder -> "jdbc:h2:file:" + processPath(pluginFolder.resolve("data").resolve("h2").resolve("data")))
+                    .property("QUERY_CACHE_SIZE", "64")
+                    .defaultPoolSize(4)
                     .library(AnnoyingAPILibrary.H2))),
 
     SQLITE(builder -> builder
             .dialect(() -> SQLDialect.SQLITE)
             .sqlInfo(sqlInfo -> sqlInfo
                     .driver("org{}sqlite{}JDBC")
-                    .url(pluginFolder -> "jdbc:sqlite:" + processPath(pluginFolder.resolve("data").resolve("sqlite").resolve("data.db"))))),
+                    .syntax(SQLSyntax.SQLITE)
+                    .url(pluginFolder -> "jdbc:sqlite:" + processPath(pluginFolder.resolve("data").resolve("sqlite").resolve("data.db")))
+                    // SQLite only allows one writer at a time anyway
+                    .defaultPoolSize(1))),
 
     MYSQL(builder -> builder
             .dialect(() -> SQLDialect.MYSQL)
             .sqlInfo(sqlInfo -> sqlInfo
                     .driver(getMysqlMariadbDriver())
+                    .syntax(SQLSyntax.MYSQL)
                     .url("jdbc:mysql://")
-                    .defaultPort(3306))),
+                    .mysqlStatementCache()
+                    .defaultPort(3306)
+                    .r2dbc("mysql", AnnoyingAPILibrary.R2DBC_MYSQL))),
 
     MARIADB(builder -> builder
             .dialect(() -> SQLDialect.MARIADB)
             .sqlInfo(sqlInfo -> sqlInfo
                     .driver(getMysqlMariadbDriver())
+                    .syntax(SQLSyntax.MYSQL)
                     .url("jdbc:mysql://")
-                    .defaultPort(3306))),
+                    .mysqlStatementCache()
+                    .defaultPort(3306)
+                    .r2dbc("mysql", AnnoyingAPILibrary.R2DBC_MYSQL))),
 
     POSTGRESQL(builder -> builder
             .dialect(() -> SQLDialect.POSTGRES)
             .sqlInfo(sqlInfo -> sqlInfo
                     .driver("org{}postgresql{}Driver")
+                    .syntax(SQLSyntax.POSTGRESQL)
                     .url("jdbc:postgresql://")
                     .defaultPort(5432)
-                    .library(AnnoyingAPILibrary.POSTGRESQL))),
+                    .library(AnnoyingAPILibrary.POSTGRESQL)
+                    .r2dbc("postgresql", AnnoyingAPILibrary.R2DBC_POSTGRESQL))),
 
     JSON(builder -> builder.dialect(JSONDialect::new)),
 
@@ -138,15 +158,25 @@ public enum StorageMethod {
     }
 
     /**
-     * @param   url <b>Local:</b> The full URL for the method
-     *              <br><b>Remote:</b> The beginning of the URL for the method
+     * @param   url         <b>Local:</b> The full URL for the method
+     *                      <br><b>Remote:</b> The beginning of the URL for the method
+     * @param   syntax      the hand-written SQL used for the method
+     * @param   properties      the default driver properties (mostly for prepared statement caching), {@link StorageConfig.RemoteConnection#properties} override them
+     * @param   defaultPoolSize the default maximum number of connections, {@link StorageConfig.Pool#maximum_pool_size} overrides it
+     * @param   r2dbcDriver     the R2DBC driver name (the protocol in {@code r2dbc:<driver>://}), {@code null} if there's no R2DBC driver for the method (see {@link StorageConfig#use_r2dbc})
+     * @param   r2dbcLibrary    the library of the R2DBC driver
      */
-    public record SQLInfo(@NotNull String driver, @NotNull Function<Path, String> url, @Nullable AnnoyingLibrary library, @Nullable Integer defaultPort) {
+    public record SQLInfo(@NotNull String driver, @NotNull SQLSyntax syntax, @NotNull Function<Path, String> url, @NotNull Map<String, String> properties, int defaultPoolSize, @Nullable AnnoyingLibrary library, @Nullable Integer defaultPort, @Nullable String r2dbcDriver, @Nullable AnnoyingLibrary r2dbcLibrary) {
         private static class Builder {
             @Nullable public String driver;
+            @Nullable public SQLSyntax syntax;
             @Nullable public Function<Path, String> url;
+            @NotNull public final Map<String, String> properties = new LinkedHashMap<>();
+            public int defaultPoolSize = 10;
             @Nullable public AnnoyingLibrary library;
             @Nullable public Integer defaultPort;
+            @Nullable public String r2dbcDriver;
+            @Nullable public AnnoyingLibrary r2dbcLibrary;
 
             @NotNull
             public Builder driver(@NotNull String driver) {
@@ -154,6 +184,12 @@ public enum StorageMethod {
                 return this;
             }
 
+            @NotNull
+            public Builder syntax(@NotNull SQLSyntax syntax) {
+                this.syntax = syntax;
+                return this;
+            }
+
             @NotNull
             public Builder url(@NotNull Function<Path, String> url) {
                 this.url = url;
@@ -165,6 +201,31 @@ public enum StorageMethod {
                 return url(file -> url);
             }
 
+            @NotNull
+            public Builder property(@NotNull String key, @NotNull String value) {
+                properties.put(key, value);
+                return this;
+            }
+
+            /**
+             * Enable MySQL Connector/J's prepared statement cache (server-side prepared statements, reused per connection)
+             *
+             * @return  this builder
+             */
+            @NotNull
+            public Builder mysqlStatementCache() {
+                return property("cachePrepStmts", "true")
+                        .property("prepStmtCacheSize", "250")
+                        .property("prepStmtCacheSqlLimit", "2048")
+                        .property("useServerPrepStmts", "true");
+            }
+
+            @NotNull
+            public Builder defaultPoolSize(int defaultPoolSize) {
+                this.defaultPoolSize = defaultPoolSize;
+                return this;
+            }
+
             @NotNull
             public Builder library(@NotNull AnnoyingLibrary library) {
                 this.library = library;
@@ -177,11 +238,19 @@ public enum StorageMethod {
                 return this;
             }
 
+            @NotNull
+            public Builder r2dbc(@NotNull String driver, @NotNull AnnoyingLibrary library) {
+                this.r2dbcDriver = driver;
+                this.r2dbcLibrary = library;
+                return this;
+            }
+
             @NotNull
             public SQLInfo build() {
                 if (driver == null) throw new NullPointerException("driver cannot be null");
+                if (syntax == null) throw new NullPointerException("syntax cannot be null");
                 if (url == null) throw new NullPointerException("url cannot be null");
-                return new SQLInfo(driver, url, library, defaultPort);
+                return new SQLInfo(driver, syntax, url, Collections.unmodifiableMap(properties), defaultPoolSize, library, defaultPort, r2dbcDriver, r2dbcLibrary);
             }
         }
     }
@@ -199,10 +268,19 @@ public enum StorageMethod {
         /**
          * For SQLs
          */
-        @NotNull
+        @NotNull @SuppressWarnings("deprecation")
         public Builder dialect(@NotNull Supplier<?> dialect) {
             return dialect(manager -> {
-                // Load jOOQ library
+                // R2DBC for reads/writes (JDBC for the rest)
+                if (manager.storageConfig.use_r2dbc) {
+                    if (manager.storageConfig.method.sqlInfo != null && manager.storageConfig.method.sqlInfo.r2dbcDriver() != null) return new R2DBCDialect(manager);
+                    AnnoyingPlugin.log(Level.WARNING, "&4" + manager.storageConfig.method + "&c doesn't have an R2DBC driver, using JDBC instead");
+                }
+
+                // Plain JDBC, jOOQ isn't needed
+                if (!manager.storageConfig.use_jooq) return new JDBCDialect(manager);
+
+                // Deprecated jOOQ dialect, load jOOQ library
                 if (manager.plugin.libraryManager != null && !manager.plugin.libraryManager.loadLibrary(AnnoyingAPILibrary.JOOQ)) {
                     throw new IllegalStateException("Failed to download jOOQ library for " + manager.storageConfig.method);
                 }
@@ -0,0 +1,156 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.annoyingapi.data.StringData;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Iterates over every target of a table and its values one page at a time, so only one page is in memory no matter how big the table is
+ * <br>Pages are read with keyset pagination on {@link StringData#TARGET_COLUMN}: each page starts after the last target of the previous one, in order.
+ * Nothing is held open between pages, and targets that are added/removed while iterating don't make other targets be skipped or repeated
+ * <br>Use it in a try-with-resources statement, iterating stops once it's closed
+ *
+ * @see xyz.srnyx.annoyingapi.storage.dialects.Dialect#scan(String, int)
+ */
+public class TableCursor implements Iterator<TableCursor.Row>, AutoCloseable {
+    /**
+     * The number of targets per page used by {@link DataManager#scan(String)}
+     */
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    /**
+     * Reads the pages
+     */
+    @NotNull private final PageReader reader;
+    /**
+     * The maximum number of targets per page
+     */
+    private final int pageSize;
+    /**
+     * The rest of the current page
+     */
+    @NotNull private Iterator<Row> page = Collections.emptyIterator();
+    /**
+     * The last target of the last page read, {@code null} before the first page (unless the cursor starts after a target)
+     */
+    @Nullable private String lastTarget;
+    /**
+     * Whether the last page has been read (or the cursor was closed)
+     */
+    private boolean done;
+
+    /**
+     * Construct a new {@link TableCursor}, nothing is read until it's iterated
+     *
+     * @param   reader      {@link #reader}
+     * @param   pageSize    {@link #pageSize}
+     *
+     * @throws  IllegalArgumentException    if {@code pageSize} isn't positive
+     */
+    public TableCursor(@NotNull PageReader reader, int pageSize) {
+        this(reader, pageSize, null);
+    }
+
+    /**
+     * Construct a new {@link TableCursor} that starts after a target, for example to continue an earlier iteration that stopped there
+     *
+     * @param   reader      {@link #reader}
+     * @param   pageSize    {@link #pageSize}
+     * @param   after       the target to start after, or {@code null} to start at the first target
+     *
+     * @throws  IllegalArgumentException    if {@code pageSize} isn't positive
+     */
+    public TableCursor(@NotNull PageReader reader, int pageSize, @Nullable String after) {
+        if (pageSize < 1) throw new IllegalArgumentException("page size must be positive, got " + pageSize);
+        this.reader = reader;
+        this.pageSize = pageSize;
+        this.lastTarget = after;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>Reads the next page if the current one is used up
+     *
+     * @throws  IllegalStateException   if reading the page failed
+     */
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (done) return false;
+            final List<Row> rows = reader.read(lastTarget, pageSize);
+            if (rows.size() < pageSize) done = true;
+            if (rows.isEmpty()) return false;
+            lastTarget = rows.get(rows.size() - 1).target;
+            page = rows.iterator();
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws  IllegalStateException   if reading the page failed
+     */
+    @Override @NotNull
+    public Row next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return page.next();
+    }
+
+    /**
+     * Iterate over the rest of the rows as a sequential {@link Stream}, closing the stream closes this cursor
+     *
+     * @return  the stream
+     */
+    @NotNull
+    public Stream<Row> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    /**
+     * Stop iterating and drop the current page
+     */
+    @Override
+    public void close() {
+        done = true;
+        page = Collections.emptyIterator();
+    }
+
+    /**
+     * A target and its values
+     *
+     * @param   target  the target
+     * @param   values  {@code [ Data key: Data value ]}, keys without a value are left out
+     */
+    public record Row(@NotNull String target, @NotNull Map<String, String> values) {}
+
+    /**
+     * Reads one page of a {@link TableCursor}
+     */
+    @FunctionalInterface
+    public interface PageReader {
+        /**
+         * Read the rows of the first targets after a target, in order
+         *
+         * @param   after   the last target of the previous page, or {@code null} to read the first page
+         * @param   limit   the maximum number of targets (rows) to read
+         *
+         * @return          the rows, fewer than {@code limit} only if it's the last page
+         *
+         * @throws  IllegalStateException   if reading the page failed
+         */
+        @NotNull
+        List<Row> read(@Nullable String after, int limit);
+    }
+}
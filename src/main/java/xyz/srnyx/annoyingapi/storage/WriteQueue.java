@@ -0,0 +1,237 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.annoyingapi.AnnoyingPlugin;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+
+/**
+ * Queues writes that don't go through the cache and commits them to the database together (group commit)
+ * <br>The queue is flushed every {@link StorageConfig.GroupCommit#interval} or once it holds {@link StorageConfig.GroupCommit#max_entries} entries, whichever comes first
+ * <br>Repeated writes to the same key before a flush are coalesced, so only the latest value is written
+ * <br>While the database is {@link xyz.srnyx.annoyingapi.storage.dialects.Dialect#isAvailable() unavailable}, writes stay queued until it's back
+ */
+public class WriteQueue {
+    /**
+     * The {@link DataManager} the queue writes to
+     */
+    @NotNull private final DataManager dataManager;
+    /**
+     * The thread that flushes the queue every interval and whenever it fills up
+     */
+    @NotNull private final ScheduledExecutorService flusher;
+    /**
+     * Held for a whole {@link #flush()} (draining <b>and</b> committing), so a manual flush can't overlap the flusher's
+     * <br>Otherwise two flushes could commit an older value after a newer one, or a manual flush could return while the writes before it are still being committed
+     */
+    @NotNull private final Object flushLock = new Object();
+    /**
+     * {@code [ Table name: [ Target: [ Data key: Pending write ] ] ]}
+     * <br>Guarded by {@code this}
+     */
+    @NotNull private Map<String, Map<String, Map<String, Pending>>> pending = new HashMap<>();
+    /**
+     * The writes of the flush in progress, so reads don't miss them while they're being committed
+     * <br>Guarded by {@code this}
+     */
+    @NotNull private Map<String, Map<String, Map<String, Pending>>> committing = new HashMap<>();
+    /**
+     * The number of keys in {@link #pending}
+     */
+    private int size;
+    /**
+     * Whether a flush has already been requested because the queue is full
+     */
+    private boolean flushQueued;
+    /**
+     * Whether {@link #close()} has been called
+     */
+    private boolean closed;
+
+    /**
+     * Construct a new {@link WriteQueue} and start flushing it every {@link StorageConfig.GroupCommit#interval}
+     *
+     * @param   dataManager {@link #dataManager}
+     */
+    public WriteQueue(@NotNull DataManager dataManager) {
+        this.dataManager = dataManager;
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, dataManager.plugin.getName() + " Storage Commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = Math.max(1, dataManager.storageConfig.group_commit.interval.toMillis());
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue a value to be written to the database
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     * @param   value   the value, or {@code null} to remove it
+     *
+     * @return          a future completed with {@code true} once the value (or a later value for the same key) is committed, or {@code false} if it failed
+     */
+    @NotNull
+    public CompletableFuture<Boolean> enqueue(@NotNull String table, @NotNull String target, @NotNull String key, @Nullable String value) {
+        final CompletableFuture<Boolean> future;
+        synchronized (this) {
+            if (closed) return CompletableFuture.failedFuture(new IllegalStateException("Write queue is closed"));
+            final Map<String, Pending> targetMap = pending
+                    .computeIfAbsent(table.toLowerCase(), k -> new HashMap<>())
+                    .computeIfAbsent(target, k -> new HashMap<>());
+            final String keyLower = key.toLowerCase();
+            final Pending existing = targetMap.get(keyLower);
+            if (existing != null) {
+                // Coalesce, the earlier caller is completed by this value's commit
+                existing.value = value;
+                return existing.future;
+            }
+            future = new CompletableFuture<>();
+            targetMap.put(keyLower, new Pending(value, future));
+            if (++size < dataManager.storageConfig.group_commit.max_entries || flushQueued) return future;
+            flushQueued = true;
+        }
+
+        // Queue is full
+        try {
+            flusher.execute(this::flush);
+        } catch (final RejectedExecutionException e) {
+            // Closing, close() flushes the rest
+        }
+        return future;
+    }
+
+    /**
+     * Get a value that's queued (or being committed) but not in the database yet
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     *
+     * @return          the queued value, or {@code null} if nothing is queued for the key
+     */
+    @Nullable
+    public synchronized CachedValue getPending(@NotNull String table, @NotNull String target, @NotNull String key) {
+        final String tableLower = table.toLowerCase();
+        final String keyLower = key.toLowerCase();
+        Pending write = get(pending, tableLower, target, keyLower);
+        if (write == null) write = get(committing, tableLower, target, keyLower);
+        return write == null ? null : new CachedValue(write.value);
+    }
+
+    /**
+     * Commit everything in the queue
+     * <br>Called automatically, only call this manually if the queued values must be in the database right now
+     * <br>Waits for any flush in progress, so once this returns everything queued before the call is committed (unless the database is unavailable)
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            commit();
+        }
+    }
+
+    /**
+     * Drain the queue and commit it, only called while holding {@link #flushLock}
+     */
+    private void commit() {
+        // Swap in a fresh queue, later writes (even to the same keys) go into the next flush
+        final Map<String, Map<String, Map<String, Pending>>> drained;
+        synchronized (this) {
+            flushQueued = false;
+            if (size == 0) return;
+            // Database is down, keep the writes queued until it's back (unless closing)
+            if (!closed && !dataManager.dialect.isAvailable()) return;
+            drained = pending;
+            committing = drained;
+            pending = new HashMap<>();
+            size = 0;
+        }
+
+        // Commit
+        final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>>> data = new ConcurrentHashMap<>();
+        for (final Map.Entry<String, Map<String, Map<String, Pending>>> entry : drained.entrySet()) for (final Map.Entry<String, Map<String, Pending>> entry1 : entry.getValue().entrySet()) {
+            final ConcurrentHashMap<String, CachedValue> targetData = data
+                    .computeIfAbsent(entry.getKey(), k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(entry1.getKey(), k -> new ConcurrentHashMap<>());
+            for (final Map.Entry<String, Pending> entry2 : entry1.getValue().entrySet()) targetData.put(entry2.getKey(), new CachedValue(entry2.getValue().value));
+        }
+        List<FailedSet> failed;
+        Throwable error = null;
+        try {
+            failed = dataManager.dialect.setToDatabase(data);
+        } catch (final RuntimeException e) {
+            failed = Collections.emptyList();
+            error = e;
+        }
+
+        // Complete futures
+        final Set<String> failedKeys = new HashSet<>();
+        for (final FailedSet failedSet : failed) {
+            failedKeys.add(failedSet.table() + '\0' + failedSet.target() + '\0' + failedSet.column());
+            AnnoyingPlugin.log(Level.SEVERE, "&cFailed to set &4" + failedSet.column() + "&c for &4" + failedSet.target() + "&c in &4" + failedSet.table() + "&c. DEVELOPERS: Make sure you added the table/column to DataOptions!", failedSet.exception());
+        }
+        if (error != null) dataManager.plugin.logErrorTrack(Level.SEVERE, "&cFailed to commit &4" + data.size() + "&c queued table(s) to the database", error);
+        synchronized (this) {
+            committing = new HashMap<>();
+        }
+        for (final Map.Entry<String, Map<String, Map<String, Pending>>> entry : drained.entrySet()) for (final Map.Entry<String, Map<String, Pending>> entry1 : entry.getValue().entrySet()) for (final Map.Entry<String, Pending> entry2 : entry1.getValue().entrySet()) {
+            final boolean success = error == null && !failedKeys.contains(entry.getKey() + '\0' + entry1.getKey() + '\0' + entry2.getKey());
+            entry2.getValue().future.complete(success);
+        }
+    }
+
+    /**
+     * Stop accepting writes, stop the flush timer, and commit everything still in the queue
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(30, TimeUnit.SECONDS)) AnnoyingPlugin.log(Level.WARNING, "&cTimed out waiting for queued writes to commit!");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Nullable
+    private static Pending get(@NotNull Map<String, Map<String, Map<String, Pending>>> map, @NotNull String table, @NotNull String target, @NotNull String key) {
+        final Map<String, Map<String, Pending>> tableMap = map.get(table);
+        if (tableMap == null) return null;
+        final Map<String, Pending> targetMap = tableMap.get(target);
+        return targetMap == null ? null : targetMap.get(key);
+    }
+
+    /**
+     * A queued write
+     */
+    private static final class Pending {
+        /**
+         * The latest value for the key, {@code null} to remove it
+         */
+        @Nullable private String value;
+        /**
+         * Completed once the value is committed, shared by every coalesced write
+         */
+        @NotNull private final CompletableFuture<Boolean> future;
+
+        private Pending(@Nullable String value, @NotNull CompletableFuture<Boolean> future) {
+            this.value = value;
+            this.future = future;
+        }
+    }
+}
@@ -5,9 +5,15 @@ import org.jetbrains.annotations.Nullable;
 import xyz.srnyx.annoyingapi.storage.DataManager;
 import xyz.srnyx.annoyingapi.storage.FailedSet;
 import xyz.srnyx.annoyingapi.storage.CachedValue;
+import xyz.srnyx.annoyingapi.storage.ColumnType;
+import xyz.srnyx.annoyingapi.storage.SingleFlight;
+import xyz.srnyx.annoyingapi.storage.SortedIndex;
+import xyz.srnyx.annoyingapi.storage.TableCursor;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 
 /**
@@ -18,6 +24,24 @@ public abstract class Dialect {
      * The {@link DataManager} to use for database operations
      */
     @NotNull protected final DataManager dataManager;
+    /**
+     * Whole-row loads that are running, keyed by {@code [table, target]}
+     */
+    @NotNull private final SingleFlight<List<String>, Map<String, String>> rowLoads = new SingleFlight<>();
+    /**
+     * Single-value loads that are running, keyed by {@code [table, target, key]}
+     */
+    @NotNull private final SingleFlight<List<String>, Optional<String>> valueLoads = new SingleFlight<>();
+    /**
+     * {@link #computeOnce(String, String, String, Supplier)} calls that are running, keyed by {@code [table, target, key]}
+     */
+    @NotNull private final SingleFlight<List<String>, Optional<String>> computes = new SingleFlight<>();
+
+    /**
+     * Held by the default atomic operations ({@link #incrementInDatabaseImpl(String, String, String, long)}, {@link #compareAndSetInDatabaseImpl(String, String, String, String, String)}
+     * and {@link #computeInCacheImpl(String, String, String, Function)}), so they can't interleave with each other
+     */
+    @NotNull private final Object atomicLock = new Object();
 
     /**
      * Construct a new {@link Dialect} with the given {@link DataManager}
@@ -28,6 +52,18 @@ public abstract class Dialect {
         this.dataManager = dataManager;
     }
 
+    /**
+     * Whether the database can be used right now
+     * <br>While it can't, database operations fail right away, and values that fail to load aren't put in the cache
+     *
+     * @return  {@code true} unless the database is known to be down
+     *
+     * @see     xyz.srnyx.annoyingapi.storage.CircuitBreaker
+     */
+    public boolean isAvailable() {
+        return true;
+    }
+
     /**
      * Get a value from the cache
      *
@@ -60,6 +96,91 @@ public abstract class Dialect {
         setToCacheImpl(tableLower, target, keyLower, value);
     }
 
+    /**
+     * Put a value that was just loaded from the database in the cache
+     * <br>Unlike {@link #setToCache(String, String, String, CachedValue)}, this doesn't count as a change that needs to be saved
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     * @param   value   the value
+     */
+    public void setLoadedToCache(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull CachedValue value) {
+        setLoadedToCacheImpl(table.toLowerCase(), target, key.toLowerCase(), value);
+    }
+
+    /**
+     * Load all values of a target from the database into the cache
+     * <br>If the same target is already being loaded by another thread, this waits for that load instead of running another query
+     *
+     * @param   table   the table
+     * @param   target  the target
+     *
+     * @return          the loaded values (see {@link #getAllFromDatabase(String, String)})
+     */
+    @NotNull
+    public final Map<String, String> loadToCache(@NotNull String table, @NotNull String target) {
+        final String tableLower = table.toLowerCase();
+        return rowLoads.run(List.of(tableLower, target), () -> {
+            final Map<String, String> values = getAllFromDatabaseImpl(tableLower, target);
+            // Failed because the database is down, don't remember the missing values
+            if (!isAvailable()) return values;
+            for (final Map.Entry<String, String> entry : values.entrySet()) setLoadedToCacheImpl(tableLower, target, entry.getKey(), new CachedValue(entry.getValue()));
+            return values;
+        });
+    }
+
+    /**
+     * Load a value from the database into the cache
+     * <br>If the same value is already being loaded by another thread, this waits for that load instead of running another query
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     *
+     * @return          the loaded value, empty if not found
+     */
+    @NotNull
+    public final Optional<String> loadToCache(@NotNull String table, @NotNull String target, @NotNull String key) {
+        final String tableLower = table.toLowerCase();
+        final String keyLower = key.toLowerCase();
+        return valueLoads.run(List.of(tableLower, target, keyLower), () -> {
+            final Optional<String> value = getFromDatabaseImpl(tableLower, target, keyLower);
+            if (isAvailable()) setLoadedToCacheImpl(tableLower, target, keyLower, new CachedValue(value.orElse(null)));
+            return value;
+        });
+    }
+
+    /**
+     * Run the supplier for a value, unless it's already running for the same value on another thread, in which case its result is waited for and returned
+     *
+     * @param   table       the table
+     * @param   target      the target
+     * @param   key         the key
+     * @param   supplier    the supplier to run
+     *
+     * @return              the result of the supplier
+     */
+    @NotNull
+    public final Optional<String> computeOnce(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull Supplier<Optional<String>> supplier) {
+        return computes.run(List.of(table.toLowerCase(), target, key.toLowerCase()), supplier);
+    }
+
+    /**
+     * Atomically change a cached value
+     *
+     * @param   table       the table
+     * @param   target      the target
+     * @param   key         the key
+     * @param   function    gets the current value ({@code null} if it has none) and returns the new one (a {@link CachedValue} without a value to remove it), or {@code null} to leave it unchanged
+     *
+     * @return              the value after the change, or {@code null} if the value isn't cached (load it with {@link #loadToCache(String, String, String)} first)
+     */
+    @Nullable
+    public final CachedValue computeInCache(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull Function<String, CachedValue> function) {
+        return computeInCacheImpl(table.toLowerCase(), target, key.toLowerCase(), function);
+    }
+
     /**
      * Mark a value as removed in the cache
      *
@@ -88,8 +209,31 @@ public abstract class Dialect {
         saveCacheImpl(table.toLowerCase(), target);
     }
 
+    /**
+     * Remove a target from the cache to free memory
+     * <br>Targets with unsaved changes are never removed, {@link #saveCache(String, String) save} them first
+     *
+     * @param   table   the table
+     * @param   target  the target
+     *
+     * @return          {@code true} if the target isn't cached anymore
+     */
+    public boolean evictFromCache(@NotNull String table, @NotNull String target) {
+        return evictFromCacheImpl(table.toLowerCase(), target);
+    }
+
+    /**
+     * Remove targets that are idle or over the size limit from the cache, saving their changes first
+     *
+     * @see xyz.srnyx.annoyingapi.storage.StorageConfig.Cache.Eviction
+     */
+    public void evictCache() {
+        evictCacheImpl();
+    }
+
     /**
      * Get migration data from the database
+     * <br>Every value is loaded into memory at once, {@link DataManager#attemptDatabaseMigration()} streams the tables with {@link #getMigrationTables()} and {@link #scan(String, int, String)} instead
      *
      * @param   newManager  the new {@link DataManager} to migrate to
      *
@@ -100,6 +244,16 @@ public abstract class Dialect {
         return getMigrationDataFromDatabaseImpl(newManager);
     }
 
+    /**
+     * Get the tables to migrate from the database and the keys that are known without reading their values
+     *
+     * @return  {@code [ Table: [ Key ] ]} (tables as they're passed to {@link #scan(String, int, String)}), empty if something went wrong
+     */
+    @NotNull
+    public final Optional<Map<String, Set<String>>> getMigrationTables() {
+        return getMigrationTablesImpl();
+    }
+
     /**
      * Get a value from the database
      *
@@ -114,6 +268,160 @@ public abstract class Dialect {
         return getFromDatabaseImpl(table.toLowerCase(), target, key.toLowerCase());
     }
 
+    /**
+     * Get multiple values of a target from the database at once
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   keys    the keys
+     *
+     * @return          {@code [ Data key: Data value ]}, keys without a value (or if the target doesn't exist) are left out
+     */
+    @NotNull
+    public final Map<String, String> getFromDatabase(@NotNull String table, @NotNull String target, @NotNull Collection<String> keys) {
+        final Set<String> keysLower = new LinkedHashSet<>();
+        for (final String key : keys) keysLower.add(key.toLowerCase());
+        if (keysLower.isEmpty()) return new HashMap<>();
+        return getFromDatabaseImpl(table.toLowerCase(), target, keysLower);
+    }
+
+    /**
+     * Get a key's value for multiple targets from the database at once
+     *
+     * @param   table   the table
+     * @param   targets the targets
+     * @param   key     the key
+     *
+     * @return          {@code [ Target: Data value ]}, targets without a value are left out
+     */
+    @NotNull
+    public final Map<String, String> getManyFromDatabase(@NotNull String table, @NotNull Collection<String> targets, @NotNull String key) {
+        final Set<String> uniqueTargets = new LinkedHashSet<>(targets);
+        if (uniqueTargets.isEmpty()) return new HashMap<>();
+        return getManyFromDatabaseImpl(table.toLowerCase(), uniqueTargets, key.toLowerCase());
+    }
+
+    /**
+     * Get the targets with the lowest/highest values of a key, optionally only values in a range (inclusive)
+     * <br>Values are compared as numbers if the key {@link #isNumeric(String, String) is numeric}, as text otherwise. Targets with the same value are ordered by target (in the same direction)
+     *
+     * @param   table       the table
+     * @param   key         the key to order by
+     * @param   min         the minimum value, or {@code null} for no minimum
+     * @param   max         the maximum value, or {@code null} for no maximum
+     * @param   descending  whether to start with the highest values
+     * @param   limit       the maximum number of targets, or {@code 0} for no limit
+     *
+     * @return              {@code [ Target: Data value ]} in order, targets without a value are left out
+     *
+     * @throws  IllegalArgumentException    if {@code limit} is negative, or the key is numeric and {@code min}/{@code max} isn't a number
+     */
+    @NotNull
+    public final LinkedHashMap<String, String> queryFromDatabase(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max, boolean descending, int limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit can't be negative, got " + limit);
+        final String tableLower = table.toLowerCase();
+        final String keyLower = key.toLowerCase();
+        checkBounds(tableLower, keyLower, min, max);
+        return queryFromDatabaseImpl(tableLower, keyLower, min, max, descending, limit);
+    }
+
+    /**
+     * Count the targets with a value for a key, optionally only values in a range (inclusive)
+     *
+     * @param   table   the table
+     * @param   key     the key
+     * @param   min     the minimum value, or {@code null} for no minimum
+     * @param   max     the maximum value, or {@code null} for no maximum
+     *
+     * @return          the number of targets
+     *
+     * @throws  IllegalArgumentException    if the key {@link #isNumeric(String, String) is numeric} and {@code min}/{@code max} isn't a number
+     */
+    public final long countFromDatabase(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max) {
+        final String tableLower = table.toLowerCase();
+        final String keyLower = key.toLowerCase();
+        checkBounds(tableLower, keyLower, min, max);
+        return countFromDatabaseImpl(tableLower, keyLower, min, max);
+    }
+
+    /**
+     * Whether queries compare a key's values as numbers: whether it has an {@link ColumnType.Kind#INT int}, {@link ColumnType.Kind#LONG long} or {@link ColumnType.Kind#DOUBLE double}
+     * type in {@link xyz.srnyx.annoyingapi.options.DataOptions#columnTypes DataOptions#columnTypes}
+     *
+     * @param   table   the (full) name of the table
+     * @param   key     the key
+     *
+     * @return          {@code true} if the values are numbers
+     */
+    public boolean isNumeric(@NotNull String table, @NotNull String key) {
+        final Map<String, ColumnType> types = dataManager.plugin.options.dataOptions.columnTypes.get(dataManager.getRawTableName(table.toLowerCase()));
+        if (types == null) return false;
+        final ColumnType type = types.get(key.toLowerCase());
+        return type != null && (type.kind() == ColumnType.Kind.INT || type.kind() == ColumnType.Kind.LONG || type.kind() == ColumnType.Kind.DOUBLE);
+    }
+
+    /**
+     * Make sure the bounds of a query can be compared to the key's values
+     *
+     * @param   table   the table
+     * @param   key     the key
+     * @param   min     the minimum value, or {@code null}
+     * @param   max     the maximum value, or {@code null}
+     *
+     * @throws  IllegalArgumentException    if the key {@link #isNumeric(String, String) is numeric} and {@code min}/{@code max} isn't a number
+     */
+    private void checkBounds(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max) {
+        if ((min == null && max == null) || !isNumeric(table, key)) return;
+        if (min != null && SortedIndex.parseNumber(min) == null) throw new IllegalArgumentException("min isn't a number: " + min);
+        if (max != null && SortedIndex.parseNumber(max) == null) throw new IllegalArgumentException("max isn't a number: " + max);
+    }
+
+    /**
+     * Iterate over every target of a table and its values from the database, one page of targets at a time (see {@link TableCursor})
+     * <br><i>Iterating it runs database queries, so don't iterate it on the main thread</i>
+     *
+     * @param   table       the table
+     * @param   pageSize    the maximum number of targets per page
+     *
+     * @return              the cursor, close it once done
+     *
+     * @throws  IllegalArgumentException    if {@code pageSize} isn't positive
+     */
+    @NotNull
+    public final TableCursor scan(@NotNull String table, int pageSize) {
+        return scan(table, pageSize, null);
+    }
+
+    /**
+     * Iterate over the targets of a table after a target and their values from the database, one page of targets at a time (see {@link TableCursor})
+     * <br><i>Iterating it runs database queries, so don't iterate it on the main thread</i>
+     *
+     * @param   table       the table
+     * @param   pageSize    the maximum number of targets per page
+     * @param   after       the target to start after (the last target of an earlier scan of the table), or {@code null} to start at the first target
+     *
+     * @return              the cursor, close it once done
+     *
+     * @throws  IllegalArgumentException    if {@code pageSize} isn't positive
+     */
+    @NotNull
+    public final TableCursor scan(@NotNull String table, int pageSize, @Nullable String after) {
+        return new TableCursor(scanImpl(table.toLowerCase()), pageSize, after);
+    }
+
+    /**
+     * Get all values of a target from the database at once
+     *
+     * @param   table   the table
+     * @param   target  the target
+     *
+     * @return          {@code [ Data key: Data value ]}, values may be {@code null} if the key exists but has no value for the target
+     */
+    @NotNull
+    public final Map<String, String> getAllFromDatabase(@NotNull String table, @NotNull String target) {
+        return getAllFromDatabaseImpl(table.toLowerCase(), target);
+    }
+
     /**
      * Set a value to the database
      *
@@ -154,15 +462,15 @@ public abstract class Dialect {
      */
     @NotNull
     public final List<FailedSet> setToDatabase(@NotNull ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>>> data) {
-        final List<FailedSet> failed = new ArrayList<>();
+        final Map<String, Map<String, Map<String, String>>> dataLower = new LinkedHashMap<>();
         for (final Map.Entry<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>>> entry : data.entrySet()) {
-            final String table = entry.getKey();
+            final Map<String, Map<String, String>> tableData = dataLower.computeIfAbsent(entry.getKey().toLowerCase(), k -> new LinkedHashMap<>());
             for (final Map.Entry<String, ConcurrentHashMap<String, CachedValue>> entry1 : entry.getValue().entrySet()) {
-                final List<FailedSet> failedList = setToDatabase(table, entry1.getKey(), entry1.getValue());
-                if (!failedList.isEmpty()) failed.addAll(failedList);
+                final Map<String, String> targetData = tableData.computeIfAbsent(entry1.getKey(), k -> new LinkedHashMap<>());
+                for (final Map.Entry<String, CachedValue> entry2 : entry1.getValue().entrySet()) targetData.put(entry2.getKey().toLowerCase(), entry2.getValue().value());
             }
         }
-        return failed;
+        return setToDatabaseImpl(dataLower);
     }
 
     /**
@@ -178,6 +486,36 @@ public abstract class Dialect {
         return removeFromDatabaseImpl(table.toLowerCase(), target, key.toLowerCase());
     }
 
+    /**
+     * Atomically add to a whole-number value in the database, a missing value counts as {@code 0}
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     * @param   delta   the amount to add (negative to subtract)
+     *
+     * @return          the new value, or {@code null} if the existing value isn't a whole number or something went wrong
+     */
+    @Nullable
+    public final Long incrementInDatabase(@NotNull String table, @NotNull String target, @NotNull String key, long delta) {
+        return incrementInDatabaseImpl(table.toLowerCase(), target, key.toLowerCase(), delta);
+    }
+
+    /**
+     * Atomically set a value in the database, only if it currently has the expected value
+     *
+     * @param   table       the table
+     * @param   target      the target
+     * @param   key         the key
+     * @param   expected    the expected value, or {@code null} to only set it if it doesn't have a value
+     * @param   value       the new value, or {@code null} to remove it
+     *
+     * @return              {@code true} if the value was set, {@code false} if it didn't have the expected value or something went wrong
+     */
+    public final boolean compareAndSetInDatabase(@NotNull String table, @NotNull String target, @NotNull String key, @Nullable String expected, @Nullable String value) {
+        return compareAndSetInDatabaseImpl(table.toLowerCase(), target, key.toLowerCase(), expected, value);
+    }
+
     @NotNull
     public abstract Stats getStats();
 
@@ -203,6 +541,19 @@ public abstract class Dialect {
      */
     protected abstract void setToCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull CachedValue value);
 
+    /**
+     * Put a value that was just loaded from the database in the cache
+     * <br>Defaults to {@link #setToCacheImpl(String, String, String, CachedValue)} for dialects that don't track changes
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     * @param   value   the value inside a {@link CachedValue}
+     */
+    protected void setLoadedToCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull CachedValue value) {
+        setToCacheImpl(table, target, key, value);
+    }
+
     /**
      * Mark a value as removed in the cache
      *
@@ -225,6 +576,27 @@ public abstract class Dialect {
      */
     protected abstract void saveCacheImpl(@NotNull String table, @NotNull String target);
 
+    /**
+     * Remove a target from the cache to free memory, unless it has unsaved changes
+     * <br>Defaults to doing nothing for dialects that don't cache per target
+     *
+     * @param   table   the table
+     * @param   target  the target
+     *
+     * @return          {@code true} if the target isn't cached anymore
+     */
+    protected boolean evictFromCacheImpl(@NotNull String table, @NotNull String target) {
+        return false;
+    }
+
+    /**
+     * Remove targets that are idle or over the size limit from the cache, saving their changes first
+     * <br>Defaults to doing nothing for dialects that don't cache per target
+     */
+    protected void evictCacheImpl() {
+        // Only exists to be overridden
+    }
+
     /**
      * Get migration data from the database
      *
@@ -235,6 +607,14 @@ public abstract class Dialect {
     @NotNull
     protected abstract Optional<MigrationData> getMigrationDataFromDatabaseImpl(@NotNull DataManager newManager);
 
+    /**
+     * Get the tables to migrate from the database and the keys that are known without reading their values
+     *
+     * @return  {@code [ Table: [ Key ] ]} (tables as they're passed to {@link #scanImpl(String)}), empty if something went wrong
+     */
+    @NotNull
+    protected abstract Optional<Map<String, Set<String>>> getMigrationTablesImpl();
+
     /**
      * Get a value from the database
      *
@@ -247,6 +627,89 @@ public abstract class Dialect {
     @NotNull
     protected abstract Optional<String> getFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key);
 
+    /**
+     * Get multiple values of a target from the database at once
+     * <br>Defaults to calling {@link #getFromDatabaseImpl(String, String, String)} for each key, dialects that can read many keys at once should override this
+     *
+     * @param   table   the table to get from
+     * @param   target  the target to get from
+     * @param   keys    the keys to get
+     *
+     * @return          {@code [ Data key: Data value ]}, keys without a value (or if the target doesn't exist) are left out
+     */
+    @NotNull
+    protected Map<String, String> getFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull Collection<String> keys) {
+        final Map<String, String> values = new HashMap<>();
+        for (final String key : keys) getFromDatabaseImpl(table, target, key).ifPresent(value -> values.put(key, value));
+        return values;
+    }
+
+    /**
+     * Get a key's value for multiple targets from the database at once
+     * <br>Defaults to calling {@link #getFromDatabaseImpl(String, String, String)} for each target, dialects that can read many targets at once should override this
+     *
+     * @param   table   the table to get from
+     * @param   targets the targets to get from (without duplicates)
+     * @param   key     the key to get
+     *
+     * @return          {@code [ Target: Data value ]}, targets without a value are left out
+     */
+    @NotNull
+    protected Map<String, String> getManyFromDatabaseImpl(@NotNull String table, @NotNull Collection<String> targets, @NotNull String key) {
+        final Map<String, String> values = new HashMap<>();
+        for (final String target : targets) getFromDatabaseImpl(table, target, key).ifPresent(value -> values.put(target, value));
+        return values;
+    }
+
+    /**
+     * Get the targets with the lowest/highest values of a key, optionally only values in a range (inclusive)
+     *
+     * @param   table       the table to query
+     * @param   key         the key to order by
+     * @param   min         the minimum value, or {@code null} for no minimum (already checked to be a number if the key {@link #isNumeric(String, String) is numeric})
+     * @param   max         the maximum value, or {@code null} for no maximum (already checked like {@code min})
+     * @param   descending  whether to start with the highest values
+     * @param   limit       the maximum number of targets, or {@code 0} for no limit
+     *
+     * @return              {@code [ Target: Data value ]} in order, targets without a value are left out
+     */
+    @NotNull
+    protected abstract LinkedHashMap<String, String> queryFromDatabaseImpl(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max, boolean descending, int limit);
+
+    /**
+     * Count the targets with a value for a key, optionally only values in a range (inclusive)
+     *
+     * @param   table   the table to count in
+     * @param   key     the key
+     * @param   min     the minimum value, or {@code null} for no minimum (already checked to be a number if the key {@link #isNumeric(String, String) is numeric})
+     * @param   max     the maximum value, or {@code null} for no maximum (already checked like {@code min})
+     *
+     * @return          the number of targets
+     */
+    protected abstract long countFromDatabaseImpl(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max);
+
+    /**
+     * Get the reader of the pages of a {@link #scan(String, int) scan}
+     * <br>Pages must be in order of their target, and a failed read should throw an {@link IllegalStateException} rather than end the scan early
+     *
+     * @param   table   the table to scan
+     *
+     * @return          the page reader
+     */
+    @NotNull
+    protected abstract TableCursor.PageReader scanImpl(@NotNull String table);
+
+    /**
+     * Get all values of a target from the database at once
+     *
+     * @param   table   the table to get from
+     * @param   target  the target to get from
+     *
+     * @return          {@code [ Data key: Data value ]}, values may be {@code null} if the key exists but has no value for the target
+     */
+    @NotNull
+    protected abstract Map<String, String> getAllFromDatabaseImpl(@NotNull String table, @NotNull String target);
+
     /**
      * Set a value to the database
      *
@@ -272,6 +735,27 @@ public abstract class Dialect {
     @NotNull
     protected abstract List<FailedSet> setToDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull Map<String, String> data);
 
+    /**
+     * Set multiple values for multiple targets to the database
+     * <br>Defaults to calling {@link #setToDatabaseImpl(String, String, Map)} for each target, dialects that can write many targets at once should override this
+     *
+     * @param   data    {@code [ Table name: [ Target: [ Data key: Data value ] ] ]}
+     *
+     * @return  failed values as {@link FailedSet FailedSets}
+     */
+    @NotNull
+    protected List<FailedSet> setToDatabaseImpl(@NotNull Map<String, Map<String, Map<String, String>>> data) {
+        final List<FailedSet> failed = new ArrayList<>();
+        for (final Map.Entry<String, Map<String, Map<String, String>>> entry : data.entrySet()) {
+            final String table = entry.getKey();
+            for (final Map.Entry<String, Map<String, String>> entry1 : entry.getValue().entrySet()) {
+                final List<FailedSet> failedList = setToDatabaseImpl(table, entry1.getKey(), entry1.getValue());
+                if (!failedList.isEmpty()) failed.addAll(failedList);
+            }
+        }
+        return failed;
+    }
+
     /**
      * Remove a value from the database
      *
@@ -283,6 +767,77 @@ public abstract class Dialect {
      */
     protected abstract boolean removeFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key);
 
+    /**
+     * Atomically change a cached value
+     * <br>Defaults to reading and writing it with {@link #atomicLock} held, dialects with a concurrent cache should override this
+     *
+     * @param   table       the table
+     * @param   target      the target
+     * @param   key         the key
+     * @param   function    gets the current value and returns the new one, or {@code null} to leave it unchanged
+     *
+     * @return              the value after the change, or {@code null} if the value isn't cached
+     */
+    @Nullable
+    protected CachedValue computeInCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull Function<String, CachedValue> function) {
+        synchronized (atomicLock) {
+            final CachedValue current = getFromCacheImpl(table, target, key);
+            if (current == null) return null;
+            final CachedValue updated = function.apply(current.value());
+            if (updated == null) return current;
+            if (updated.value() == null) {
+                markRemovedInCacheImpl(table, target, key);
+            } else {
+                setToCacheImpl(table, target, key, updated);
+            }
+            return updated;
+        }
+    }
+
+    /**
+     * Atomically add to a whole-number value in the database
+     * <br>Defaults to reading and writing it with {@link #atomicLock} held (so it's only atomic within this dialect), dialects that can do it in the database should override this
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     * @param   delta   the amount to add
+     *
+     * @return          the new value, or {@code null} if the existing value isn't a whole number or something went wrong
+     */
+    @Nullable
+    protected Long incrementInDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key, long delta) {
+        synchronized (atomicLock) {
+            final Optional<String> existing = getFromDatabaseImpl(table, target, key);
+            final long updated;
+            try {
+                updated = (existing.isPresent() ? Long.parseLong(existing.get().trim()) : 0L) + delta;
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+            return setToDatabaseImpl(table, target, key, String.valueOf(updated)) == null ? updated : null;
+        }
+    }
+
+    /**
+     * Atomically set a value in the database, only if it currently has the expected value
+     * <br>Defaults to reading and writing it with {@link #atomicLock} held (so it's only atomic within this dialect), dialects that can do it in the database should override this
+     *
+     * @param   table       the table
+     * @param   target      the target
+     * @param   key         the key
+     * @param   expected    the expected value, or {@code null} if it shouldn't have a value
+     * @param   value       the new value, or {@code null} to remove it
+     *
+     * @return              {@code true} if the value was set
+     */
+    protected boolean compareAndSetInDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key, @Nullable String expected, @Nullable String value) {
+        synchronized (atomicLock) {
+            if (!Objects.equals(getFromDatabaseImpl(table, target, key).orElse(null), expected)) return false;
+            return value == null ? removeFromDatabaseImpl(table, target, key) : setToDatabaseImpl(table, target, key, value) == null;
+        }
+    }
+
     /**
      * Data for a database migration
      *
@@ -293,5 +848,46 @@ public abstract class Dialect {
      */
     public record MigrationData(@NotNull Map<String, Set<String>> tablesKeys, @NotNull ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>>> data) {}
 
-    public record Stats(long cacheTargets, long cacheValues) {}
+    /**
+     * Statistics about the cache (and connection pool)
+     *
+     * @param cacheTargets      the number of cached targets
+     * @param cacheValues       the number of cached values
+     * @param cacheEvictions    the number of targets removed from the cache since the dialect was created
+     * @param pool              the connection pool statistics, {@code null} if the dialect doesn't have a pool
+     */
+    public record Stats(long cacheTargets, long cacheValues, long cacheEvictions, @Nullable PoolStats pool) {
+        /**
+         * Construct new {@link Stats} for a dialect without a connection pool
+         *
+         * @param   cacheTargets    {@link #cacheTargets}
+         * @param   cacheValues     {@link #cacheValues}
+         * @param   cacheEvictions  {@link #cacheEvictions}
+         */
+        public Stats(long cacheTargets, long cacheValues, long cacheEvictions) {
+            this(cacheTargets, cacheValues, cacheEvictions, null);
+        }
+
+        /**
+         * Construct new {@link Stats} for a dialect that doesn't evict
+         *
+         * @param   cacheTargets    {@link #cacheTargets}
+         * @param   cacheValues     {@link #cacheValues}
+         */
+        public Stats(long cacheTargets, long cacheValues) {
+            this(cacheTargets, cacheValues, 0L);
+        }
+    }
+
+    /**
+     * Statistics about a connection pool
+     *
+     * @param active            the number of connections in use
+     * @param idle              the number of open connections that aren't in use
+     * @param pending           the number of threads waiting for a connection
+     * @param averageWaitMillis the average time it took to get a connection since the dialect was created
+     * @param maxWaitMillis     the longest time it took to get a connection since the dialect was created
+     * @param timeouts          the number of times getting a connection timed out since the dialect was created
+     */
+    public record PoolStats(int active, int idle, int pending, double averageWaitMillis, double maxWaitMillis, long timeouts) {}
 }
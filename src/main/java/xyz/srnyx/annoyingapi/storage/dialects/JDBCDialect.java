@@ -0,0 +1,2075 @@
+package xyz.srnyx.annoyingapi.storage.dialects;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import net.byteflux.libby.classloader.IsolatedClassLoader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import xyz.srnyx.annoyingapi.AnnoyingPlugin;
+import xyz.srnyx.annoyingapi.data.StringData;
+import xyz.srnyx.annoyingapi.library.AnnoyingAPILibrary;
+import xyz.srnyx.annoyingapi.storage.CachedValue;
+import xyz.srnyx.annoyingapi.storage.CircuitBreaker;
+import xyz.srnyx.annoyingapi.storage.ColumnType;
+import xyz.srnyx.annoyingapi.storage.ConnectionException;
+import xyz.srnyx.annoyingapi.storage.DataManager;
+import xyz.srnyx.annoyingapi.storage.DirtyTracker;
+import xyz.srnyx.annoyingapi.storage.FailedSet;
+import xyz.srnyx.annoyingapi.storage.SQLSyntax;
+import xyz.srnyx.annoyingapi.storage.SharedPools;
+import xyz.srnyx.annoyingapi.storage.StorageConfig;
+import xyz.srnyx.annoyingapi.storage.StorageMethod;
+import xyz.srnyx.annoyingapi.storage.TableCursor;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * SQL dialect for a specific type of database that only uses plain JDBC and the hand-written SQL of {@link SQLSyntax}
+ * <br>Used directly unless {@link StorageConfig#use_jooq} is enabled, so by default the jOOQ library never has to be loaded
+ *
+ * @see SQLDialect
+ */
+public class JDBCDialect extends Dialect {
+    private static boolean HIKARI_LOGS_QUIETED = false;
+    /**
+     * The maximum number of targets in one {@link SQLSyntax#selectMany(String, String, int) IN (...)} query, a power of two below every database's parameter limit
+     */
+    private static final int IN_CHUNK_SIZE = 512;
+
+    /**
+     * Where connections are taken from, either {@link #pool} or a {@link SharedPools shared pool}
+     */
+    @NotNull public final DataSource dataSource;
+    /**
+     * The pool created by this dialect, {@code null} if it uses a {@link SharedPools shared pool} that another plugin created
+     */
+    @Nullable public final HikariDataSource pool;
+    /**
+     * Whether {@link #dataSource} is a {@link SharedPools shared pool}
+     */
+    private final boolean shared;
+    /**
+     * The hand-written SQL for the {@link StorageMethod}
+     */
+    @NotNull public final SQLSyntax syntax;
+    /**
+     * Whether tables use the {@link StorageConfig.Layout#NARROW narrow} layout ({@code target, key, value}) instead of a column per key
+     */
+    protected final boolean keyValue;
+    /**
+     * Makes database operations fail fast while the database is down
+     */
+    @NotNull public final CircuitBreaker circuitBreaker;
+    /**
+     * {@code [ Table name: [ Target: [ Data key: Data value ] ] ]}
+     * <br>{@code Map<Table name, Map<Target, Map<Data key, Data value>>>}
+     */
+    @NotNull public final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>>> cache = new ConcurrentHashMap<>();
+    /**
+     * The entries in {@link #cache} that have changed since they were last saved, only these are written when saving the cache
+     */
+    @NotNull public final DirtyTracker dirty = new DirtyTracker();
+    /**
+     * {@code [ Table name: [ Target: Last time (millis) the target was used in the cache ] ]}
+     * <br>Only changed inside the target's {@link #cache} {@link ConcurrentHashMap#compute(Object, java.util.function.BiFunction) compute} (or on cache hits), so it never outlives the cached target
+     */
+    @NotNull private final ConcurrentHashMap<String, ConcurrentHashMap<String, Long>> lastAccess = new ConcurrentHashMap<>();
+    /**
+     * The number of targets removed from {@link #cache}
+     */
+    @NotNull private final AtomicLong evictions = new AtomicLong();
+    /**
+     * {@code [ [ Operation, Table name, Columns... ]: SQL ]}
+     * <br>The SQL of each statement shape is only rendered once, see {@link #sql(String, String, List, Supplier)}
+     */
+    @NotNull private final ConcurrentHashMap<List<String>, String> renderedSql = new ConcurrentHashMap<>();
+    /**
+     * {@code [ Table name: [ Column name: Kind of the column's actual type ] ]}
+     * <br>Read from {@link DatabaseMetaData JDBC metadata} so values are bound as the type the column really has, see {@link #bind(PreparedStatement, int, ColumnType.Kind, String)}
+     */
+    @NotNull private final ConcurrentHashMap<String, Map<String, ColumnType.Kind>> columnKinds = new ConcurrentHashMap<>();
+    /**
+     * Records how long getting connections from {@link #pool} takes
+     */
+    @NotNull private final WaitTracker waitTracker = new WaitTracker();
+
+    /**
+     * Construct a new {@link JDBCDialect} with the given {@link DataManager}
+     *
+     * @param   dataManager         {@link #dataManager}
+     *
+     * @throws  ConnectionException if a database connection error occurs
+     */
+    public JDBCDialect(@NotNull DataManager dataManager) throws ConnectionException {
+        super(dataManager);
+        if (dataManager.storageConfig.method.sqlInfo == null) {
+            throw new IllegalStateException("The storage method " + dataManager.storageConfig.method + " is not an SQL method");
+        }
+        syntax = dataManager.storageConfig.method.sqlInfo.syntax();
+        keyValue = dataManager.storageConfig.layout == StorageConfig.Layout.NARROW;
+        circuitBreaker = new CircuitBreaker(dataManager, this::probe);
+        final Path dataPath = dataManager.storageConfig.plugin.getDataFolder().toPath();
+
+        // Get url & properties
+        String url = dataManager.storageConfig.method.sqlInfo.url().apply(dataPath);
+        final Properties properties = new Properties();
+        properties.putAll(dataManager.storageConfig.method.sqlInfo.properties());
+        if (dataManager.storageConfig.method.isSQLRemote()) {
+            url += dataManager.storageConfig.remote_connection.host + ":" + dataManager.storageConfig.remote_connection.port + "/" + dataManager.storageConfig.remote_connection.database;
+            properties.putAll(dataManager.storageConfig.remote_connection.properties);
+            if (!dataManager.storageConfig.remote_connection.username.isEmpty()) properties.setProperty("user", dataManager.storageConfig.remote_connection.username);
+            if (!dataManager.storageConfig.remote_connection.password.isEmpty()) properties.setProperty("password", dataManager.storageConfig.remote_connection.password);
+        }
+        final String finalUrl = url;
+
+        // Load required libraries
+        if (dataManager.plugin.libraryManager != null) {
+            // Load HikariCP library
+            if (!dataManager.plugin.libraryManager.loadLibrary(AnnoyingAPILibrary.HIKARICP)) {
+                throw new ConnectionException("Failed to download HikariCP library for " + dataManager.storageConfig.method, finalUrl, properties);
+            }
+
+            // Load driver's required library
+            if (dataManager.storageConfig.method.sqlInfo.library() != null && !dataManager.plugin.libraryManager.loadLibrary(dataManager.storageConfig.method.sqlInfo.library())) {
+                throw new ConnectionException("Failed to download required library " + dataManager.storageConfig.method.sqlInfo.library().getId() + " for " + dataManager.storageConfig.method, finalUrl, properties);
+            }
+        }
+
+        // Quiet HikariCP's lifecycle logs
+        if (!HIKARI_LOGS_QUIETED) {
+            HIKARI_LOGS_QUIETED = true;
+            try {
+                final Class<?> configurator = Class.forName("org.apache.logging.log4j.core.config.Configurator");
+                final Class<?> level = Class.forName("org.apache.logging.log4j.Level");
+                final Object WARN = level.getField("WARN").get(null);
+                configurator.getMethod("setLevel", String.class, level).invoke(null, HikariDataSource.class.getPackageName(), WARN);
+            } catch (final ReflectiveOperationException ignored) {}
+        }
+
+        // SQLite: create parent directories
+        if (dataManager.storageConfig.method == StorageMethod.SQLITE) {
+            final File folder = dataPath.resolve("data").resolve("sqlite").toFile();
+            if (!folder.exists() && !folder.mkdirs()) throw new ConnectionException("Failed to create SQLite parent directories", finalUrl, properties);
+        }
+
+        // Create HikariConfig
+        final HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setDataSourceProperties(properties);
+
+        // Pool options
+        final StorageConfig.Pool poolConfig = dataManager.storageConfig.pool;
+        hikariConfig.setPoolName(dataManager.plugin.getName() + " Storage");
+        hikariConfig.setMaximumPoolSize(getMaximumPoolSize());
+        hikariConfig.setMinimumIdle(getMinimumIdle());
+        hikariConfig.setConnectionTimeout(poolConfig.connection_timeout.toMillis());
+        hikariConfig.setIdleTimeout(poolConfig.idle_timeout.toMillis());
+        hikariConfig.setMaxLifetime(poolConfig.max_lifetime.toMillis());
+        hikariConfig.setLeakDetectionThreshold(poolConfig.leak_detection_threshold.toMillis());
+        hikariConfig.setMetricsTrackerFactory((poolName, poolStats) -> waitTracker);
+
+        // If downloading library, connect using an IsolatedClassLoader
+        if (dataManager.plugin.libraryManager != null && dataManager.storageConfig.method.sqlInfo.library() != null) {
+            // Get IsolatedClassLoader of library
+            final IsolatedClassLoader classLoader;
+            try {
+                classLoader = dataManager.plugin.libraryManager.loadLibraryIsolated(dataManager.storageConfig.method.sqlInfo.library());
+            } catch (final Exception e) {
+                throw new ConnectionException(e, finalUrl, properties);
+            }
+            if (classLoader == null) throw new ConnectionException("Failed to load library for " + dataManager.storageConfig.method, finalUrl, properties);
+
+            // Get driver class
+            final Method connectMethod;
+            final Driver driver;
+            try {
+                final Class<?> driverClass = classLoader.loadClass(dataManager.storageConfig.method.sqlInfo.driver());
+                connectMethod = driverClass.getMethod("connect", String.class, Properties.class);
+                driver = (Driver) driverClass.getDeclaredConstructor().newInstance();
+            } catch (final ReflectiveOperationException e) {
+                throw new ConnectionException(e, finalUrl, properties);
+            }
+
+            // Create DataSource from IsolatedClassLoader
+            hikariConfig.setDataSource(new DataSource() {
+                @Override @NotNull
+                public Connection getConnection() throws SQLException {
+                    try {
+                        return (Connection) connectMethod.invoke(driver, finalUrl, properties);
+                    } catch (final Exception e) {
+                        throw new SQLException(e);
+                    }
+                }
+
+                @Override @NotNull
+                public Connection getConnection(String username, String password) throws SQLFeatureNotSupportedException {
+                    throw new SQLFeatureNotSupportedException("getConnection(String, String) is not supported for IsolatedClassLoader of custom data source implementation");
+                }
+                @Override @NotNull
+                public PrintWriter getLogWriter() throws SQLFeatureNotSupportedException {
+                    throw new SQLFeatureNotSupportedException("getLogWriter() is not supported for IsolatedClassLoader of custom data source implementation");
+                }
+                @Override
+                public void setLogWriter(PrintWriter out) {
+                    dataManager.plugin.logErrorTrack(Level.WARNING, "&4setLogWriter(PrintWriter)&c is not supported for IsolatedClassLoader of custom data source implementation");
+                }
+                @Override
+                public void setLoginTimeout(int seconds) {}
+                @Override
+                public int getLoginTimeout() {
+                    return 0;
+                }
+                @Override @NotNull
+                public <T> T unwrap(Class<T> iface) throws SQLException {
+                    throw new SQLException("Not a wrapper");
+                }
+                @Override
+                public boolean isWrapperFor(Class<?> iface) {
+                    return false;
+                }
+                @Override @NotNull
+                public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+                    throw new SQLFeatureNotSupportedException("getParentLogger() is not supported for IsolatedClassLoader of custom data source implementation");
+                }
+            });
+        } else {
+            // Driver class already exists on classpath
+            hikariConfig.setDriverClassName(dataManager.storageConfig.method.sqlInfo.driver());
+            hikariConfig.setJdbcUrl(finalUrl);
+        }
+
+        // Create DataSource
+        shared = poolConfig.shared;
+        if (!shared) {
+            pool = createPool(hikariConfig, finalUrl, properties);
+            dataSource = pool;
+            return;
+        }
+        final HikariDataSource[] created = new HikariDataSource[1];
+        dataSource = SharedPools.acquire(dataManager.plugin, finalUrl, properties, () -> created[0] = createPool(hikariConfig, finalUrl, properties));
+        pool = created[0];
+    }
+
+    @NotNull
+    private static HikariDataSource createPool(@NotNull HikariConfig hikariConfig, @NotNull String url, @NotNull Properties properties) throws ConnectionException {
+        try {
+            return new HikariDataSource(hikariConfig);
+        } catch (final Exception e) {
+            throw new ConnectionException(e, url, properties);
+        }
+    }
+
+    /**
+     * Get the maximum number of connections of the JDBC pool
+     * <br>Called while constructing, so overrides can't use their own fields
+     *
+     * @return  {@link StorageConfig.Pool#getMaximumPoolSize(StorageMethod)}
+     */
+    protected int getMaximumPoolSize() {
+        return dataManager.storageConfig.pool.getMaximumPoolSize(dataManager.storageConfig.method);
+    }
+
+    /**
+     * Get the minimum number of idle connections of the JDBC pool
+     * <br>Called while constructing, so overrides can't use their own fields
+     *
+     * @return  {@link StorageConfig.Pool#getMinimumIdle(StorageMethod)}
+     */
+    protected int getMinimumIdle() {
+        return dataManager.storageConfig.pool.getMinimumIdle(dataManager.storageConfig.method);
+    }
+
+    /**
+     * Close {@link #dataSource}
+     * <br>A {@link SharedPools shared pool} is only closed once no other plugin uses it
+     */
+    public void closeDataSource() {
+        if (shared) {
+            SharedPools.release(dataSource);
+        } else if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Check whether the database can be reached, used by {@link #circuitBreaker} to find out when it's back
+     *
+     * @return  {@code true} if a valid connection could be made
+     *
+     * @throws  SQLException    if getting a connection failed
+     */
+    private boolean probe() throws SQLException {
+        try (final Connection connection = dataSource.getConnection()) {
+            return connection.isValid(Math.max(1, (int) dataManager.storageConfig.pool.connection_timeout.toSeconds()));
+        }
+    }
+
+    /**
+     * {@code false} while {@link #circuitBreaker} is open
+     */
+    @Override
+    public boolean isAvailable() {
+        return !circuitBreaker.isOpen();
+    }
+
+    /**
+     * Get a connection for a data operation, failing fast if {@link #circuitBreaker} is open
+     *
+     * @return  the connection
+     *
+     * @throws  SQLException    if the database is down or getting a connection failed
+     */
+    @NotNull
+    protected Connection getConnection() throws SQLException {
+        circuitBreaker.check();
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Prepare a statement for a data operation with the {@link StorageConfig.CircuitBreaker#query_timeout query timeout}
+     *
+     * @param   connection  the connection
+     * @param   sql         the SQL
+     *
+     * @return              the statement
+     *
+     * @throws  SQLException    if preparing the statement failed
+     */
+    @NotNull
+    protected PreparedStatement prepare(@NotNull Connection connection, @NotNull String sql) throws SQLException {
+        final PreparedStatement statement = connection.prepareStatement(sql);
+        final int timeout = dataManager.storageConfig.circuit_breaker.getQueryTimeoutSeconds();
+        if (timeout > 0) statement.setQueryTimeout(timeout);
+        return statement;
+    }
+
+    /**
+     * Count a failed data operation for {@link #circuitBreaker} and log it (unless it only failed because the database is known to be down)
+     *
+     * @param   message the error message
+     * @param   e       the exception
+     */
+    protected void logFailure(@NotNull String message, @NotNull SQLException e) {
+        circuitBreaker.failure(e);
+        if (!(e instanceof CircuitBreaker.OpenException)) dataManager.plugin.logErrorTrack(Level.SEVERE, message, e);
+    }
+
+    @Override @NotNull
+    public Stats getStats() {
+        long cacheTargets = 0L;
+        long cacheValues = 0L;
+        for (final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> table : cache.values()) {
+            cacheTargets += table.size();
+            if (!table.isEmpty()) for (final ConcurrentHashMap<String, CachedValue> target : table.values()) cacheValues += target.size();
+        }
+
+        // Pool (a shared pool created by another plugin can't be read)
+        final HikariPoolMXBean poolBean = pool == null ? null : pool.getHikariPoolMXBean();
+        final PoolStats pool = poolBean == null ? null : new PoolStats(
+                poolBean.getActiveConnections(),
+                poolBean.getIdleConnections(),
+                poolBean.getThreadsAwaitingConnection(),
+                waitTracker.getAverageWaitMillis(),
+                waitTracker.maxWaitNanos.get() / 1_000_000D,
+                waitTracker.timeouts.sum());
+
+        return new Stats(cacheTargets, cacheValues, evictions.get(), pool);
+    }
+
+    @Override @Nullable
+    public CachedValue getFromCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
+        final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> tableMap = cache.get(table);
+        if (tableMap == null) return null;
+        final Map<String, CachedValue> targetMap = tableMap.get(target);
+        if (targetMap == null) return null;
+        final CachedValue value = targetMap.get(key);
+        // Only touch on hits, a miss is followed by setLoadedToCache which touches it anyway
+        if (value != null) lastAccess.computeIfAbsent(table, k -> new ConcurrentHashMap<>()).replace(target, System.currentTimeMillis());
+        return value;
+    }
+
+    @Override
+    public void setToCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull CachedValue value) {
+        putChanged(table, target, key, value);
+    }
+
+    @Override
+    protected void setLoadedToCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull CachedValue value) {
+        cache.computeIfAbsent(table, k -> new ConcurrentHashMap<>()).compute(target, (k, targetMap) -> {
+            if (targetMap == null) targetMap = new ConcurrentHashMap<>();
+            // putIfAbsent so a value set while this one was being loaded isn't overwritten with the older database value
+            targetMap.putIfAbsent(key, value);
+            touch(table, target);
+            return targetMap;
+        });
+    }
+
+    @Override
+    public void markRemovedInCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
+        putChanged(table, target, key, new CachedValue());
+    }
+
+    /**
+     * Put a changed value in the cache and mark it as changed
+     * <br>Both happen inside the target's {@link ConcurrentHashMap#compute(Object, java.util.function.BiFunction) compute}, so {@link #evictFromCacheImpl(String, String)} can't remove the target in between
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     * @param   value   the value
+     */
+    private void putChanged(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull CachedValue value) {
+        cache.computeIfAbsent(table, k -> new ConcurrentHashMap<>()).compute(target, (k, targetMap) -> {
+            if (targetMap == null) targetMap = new ConcurrentHashMap<>();
+            targetMap.put(key, value);
+            dirty.mark(table, target, key);
+            touch(table, target);
+            return targetMap;
+        });
+    }
+
+    /**
+     * Changes the value inside the target's {@link ConcurrentHashMap#compute(Object, java.util.function.BiFunction) compute}, like {@link #putChanged(String, String, String, CachedValue)}
+     */
+    @Override @Nullable
+    protected CachedValue computeInCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull Function<String, CachedValue> function) {
+        final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> tableMap = cache.get(table);
+        if (tableMap == null) return null;
+        final CachedValue[] result = {null};
+        tableMap.computeIfPresent(target, (k, targetMap) -> {
+            final CachedValue current = targetMap.get(key);
+            if (current == null) return targetMap;
+            final CachedValue updated = function.apply(current.value());
+            if (updated == null) {
+                result[0] = current;
+                return targetMap;
+            }
+            targetMap.put(key, updated);
+            dirty.mark(table, target, key);
+            touch(table, target);
+            result[0] = updated;
+            return targetMap;
+        });
+        return result[0];
+    }
+
+    /**
+     * Record that a target was just used
+     * <br><i>Only call this inside the target's {@link #cache} compute</i>
+     *
+     * @param   table   the table
+     * @param   target  the target
+     */
+    private void touch(@NotNull String table, @NotNull String target) {
+        lastAccess.computeIfAbsent(table, k -> new ConcurrentHashMap<>()).put(target, System.currentTimeMillis());
+    }
+
+    /**
+     * Only removes the target if it has no unsaved changes (see {@link DirtyTracker#isDirty(String, String)})
+     */
+    @Override
+    protected boolean evictFromCacheImpl(@NotNull String table, @NotNull String target) {
+        final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> tableMap = cache.get(table);
+        if (tableMap == null) return true;
+        final boolean[] evicted = {true};
+        tableMap.computeIfPresent(target, (k, targetMap) -> {
+            if (dirty.isDirty(table, target)) {
+                evicted[0] = false;
+                return targetMap;
+            }
+            final ConcurrentHashMap<String, Long> accessTable = lastAccess.get(table);
+            if (accessTable != null) accessTable.remove(target);
+            evictions.incrementAndGet();
+            return null;
+        });
+        return evicted[0];
+    }
+
+    /**
+     * Removes idle targets and the least recently used targets over the limit of each table, configured by {@link StorageConfig.Cache.Eviction}
+     * <br>Changed targets are saved together (in batches) before being removed
+     */
+    @Override
+    protected void evictCacheImpl() {
+        final StorageConfig.Cache.Eviction config = dataManager.storageConfig.cache.eviction;
+        final long now = System.currentTimeMillis();
+        for (final Map.Entry<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>>> tableEntry : cache.entrySet()) {
+            final String table = tableEntry.getKey();
+            final String rawTable = dataManager.getRawTableName(table);
+            final int maxTargets = config.getMaxTargets(rawTable);
+            final long idleMillis = config.getIdleTtl(rawTable).toMillis();
+
+            // Sort targets from least to most recently used
+            final ConcurrentHashMap<String, Long> accessTable = lastAccess.getOrDefault(table, new ConcurrentHashMap<>());
+            final List<Map.Entry<String, Long>> targets = new ArrayList<>();
+            for (final String target : tableEntry.getValue().keySet()) targets.add(Map.entry(target, accessTable.getOrDefault(target, now)));
+            targets.sort(Map.Entry.comparingByValue());
+
+            // Pick targets over the limit, then idle ones
+            final int overLimit = maxTargets == 0 ? 0 : targets.size() - maxTargets;
+            final List<String> toEvict = new ArrayList<>();
+            for (int i = 0; i < targets.size(); i++) {
+                final Map.Entry<String, Long> target = targets.get(i);
+                if (i >= overLimit && (idleMillis <= 0 || now - target.getValue() < idleMillis)) break;
+                toEvict.add(target.getKey());
+            }
+            if (toEvict.isEmpty()) continue;
+
+            // Save changes, then evict (targets that failed to save stay cached)
+            saveTargets(table, toEvict);
+            for (final String target : toEvict) evictFromCacheImpl(table, target);
+        }
+    }
+
+    /**
+     * Save the changes of multiple targets in a table together
+     *
+     * @param   table   the table
+     * @param   targets the targets to save
+     */
+    private void saveTargets(@NotNull String table, @NotNull Collection<String> targets) {
+        if (circuitBreaker.isOpen()) return;
+        final List<String> drained = new ArrayList<>();
+        final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> tableData = new ConcurrentHashMap<>(); // {Target, {Key, Value}}
+        for (final String target : targets) {
+            final Set<String> keys = dirty.drain(table, target);
+            if (keys == null) continue;
+            drained.add(target);
+            final ConcurrentHashMap<String, CachedValue> targetData = getDirtyValues(table, target, keys);
+            if (!targetData.isEmpty()) tableData.put(target, targetData);
+        }
+        if (!tableData.isEmpty()) {
+            final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>>> data = new ConcurrentHashMap<>();
+            data.put(table, tableData);
+            handleCacheSaveFailures(setToDatabase(data));
+        }
+        for (final String target : drained) dirty.saved(table, target);
+    }
+
+    /**
+     * Nothing is saved while {@link #circuitBreaker} is open, the changes stay in the cache until the database is back
+     */
+    @Override
+    public void saveCacheImpl() {
+        if (dirty.isEmpty()) return;
+        if (circuitBreaker.isOpen()) {
+            AnnoyingPlugin.log(Level.WARNING, "&cThe database is unavailable, cached changes will be saved once it's back");
+            return;
+        }
+
+        // Collect the current values of all changed entries
+        final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>>> data = new ConcurrentHashMap<>(); // {Table, {Target, {Key, Value}}}
+        final Map<String, ConcurrentHashMap<String, Set<String>>> drained = dirty.drain();
+        for (final Map.Entry<String, ConcurrentHashMap<String, Set<String>>> tableEntry : drained.entrySet()) {
+            final String table = tableEntry.getKey();
+            final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> tableData = new ConcurrentHashMap<>();
+            for (final Map.Entry<String, Set<String>> targetEntry : tableEntry.getValue().entrySet()) {
+                final ConcurrentHashMap<String, CachedValue> targetData = getDirtyValues(table, targetEntry.getKey(), targetEntry.getValue());
+                if (!targetData.isEmpty()) tableData.put(targetEntry.getKey(), targetData);
+            }
+            if (!tableData.isEmpty()) data.put(table, tableData);
+        }
+
+        handleCacheSaveFailures(setToDatabase(data));
+        for (final Map.Entry<String, ConcurrentHashMap<String, Set<String>>> tableEntry : drained.entrySet()) for (final String target : tableEntry.getValue().keySet()) dirty.saved(tableEntry.getKey(), target);
+    }
+
+    @Override
+    public void saveCacheImpl(@NotNull String table, @NotNull String target) {
+        if (circuitBreaker.isOpen()) return;
+        final Set<String> keys = dirty.drain(table, target);
+        if (keys == null) return;
+        final ConcurrentHashMap<String, CachedValue> targetData = getDirtyValues(table, target, keys);
+        if (!targetData.isEmpty()) handleCacheSaveFailures(setToDatabase(table, target, targetData));
+        dirty.saved(table, target);
+    }
+
+    /**
+     * Get the current cached values of the given changed keys
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   keys    the changed keys
+     *
+     * @return          {@code [ Data key: Data value ]}
+     */
+    @NotNull
+    private ConcurrentHashMap<String, CachedValue> getDirtyValues(@NotNull String table, @NotNull String target, @NotNull Set<String> keys) {
+        final ConcurrentHashMap<String, CachedValue> values = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> tableMap = cache.get(table);
+        if (tableMap == null) return values;
+        final ConcurrentHashMap<String, CachedValue> targetMap = tableMap.get(target);
+        if (targetMap == null) return values;
+        for (final String key : keys) {
+            final CachedValue value = targetMap.get(key);
+            if (value != null) values.put(key, value);
+        }
+        return values;
+    }
+
+    /**
+     * Log failed cache saves and mark them as changed again so the next save retries them
+     * <br>Values that the database rejects (SQLState class 22, for example a value that doesn't fit its column's type) would fail on every save and keep their target from being evicted.
+     * They're retried on their own once (the other values of their row may only have failed because of them), and dropped from the cache if they fail again
+     *
+     * @param   failures    the failures from saving the cache
+     */
+    private void handleCacheSaveFailures(@NotNull List<FailedSet> failures) {
+        for (final FailedSet failure : failures) {
+            if (isDataError(failure.exception())) {
+                final List<FailedSet> retried = setToDatabase(failure.table(), failure.target(), Map.of(failure.column(), new CachedValue(failure.value())));
+                if (retried.isEmpty()) continue;
+                final FailedSet retry = retried.get(0);
+                if (isDataError(retry.exception())) {
+                    // Read from the database again on next use, unless it changed since
+                    final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> tableMap = cache.get(failure.table());
+                    if (tableMap != null) tableMap.computeIfPresent(failure.target(), (target, values) -> {
+                        values.remove(failure.column(), new CachedValue(failure.value()));
+                        return values;
+                    });
+                    dataManager.plugin.logErrorTrack(Level.SEVERE, "&cDropped cached &4" + failure.column() + "&c for &4" + failure.target() + "&c in table &4" + failure.table() + "&c, the database rejected &4" + failure.value(), retry.exception());
+                    continue;
+                }
+            }
+            dirty.mark(failure.table(), failure.target(), failure.column());
+            dataManager.plugin.logErrorTrack(Level.SEVERE, "&cFailed to save cached &4" + failure.column() + "&c for &4" + failure.target() + "&c in table &4" + failure.table() + "&c: &4" + failure.value() + "&c (will retry on next save)", failure.exception());
+        }
+    }
+
+    /**
+     * Check whether a failure is a data error (SQLState class 22), which fails the same way every time it's retried
+     *
+     * @param   exception   the failure
+     *
+     * @return              {@code true} if it's a data error
+     */
+    private static boolean isDataError(@Nullable Throwable exception) {
+        return exception instanceof SQLException sqlException && sqlException.getSQLState() != null && sqlException.getSQLState().startsWith("22");
+    }
+
+    /**
+     * Reads the tables through {@link DatabaseMetaData JDBC metadata} and a {@link SQLSyntax#selectAll(String) select} of every row
+     * <br>Only tables of this dialect's {@link StorageConfig#layout layout} are read, {@link StorageConfig.Layout#NARROW narrow} rows are turned back into a key/value map per target
+     */
+    @Override @NotNull
+    public Optional<MigrationData> getMigrationDataFromDatabaseImpl(@NotNull DataManager newManager) {
+        final Map<String, Set<String>> tablesKeys = new HashMap<>(); // {Table, Keys}
+        final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>>> values = new ConcurrentHashMap<>(); // {Table, {Target, {Key, Value}}}
+        try (final Connection connection = dataSource.getConnection()) {
+            for (final String tableName : getTableNames(connection)) {
+                // Skip tables that don't start with the old prefix
+                if (!tableName.startsWith(dataManager.tablePrefix)) {
+                    AnnoyingPlugin.log(Level.WARNING, dataManager.storageConfig.getMigrationLogPrefix() + "Table &4" + tableName + "&c doesn't start with the old prefix &4" + dataManager.tablePrefix + "&c, skipping...");
+                    continue;
+                }
+
+                try (final Statement statement = connection.createStatement();
+                     final ResultSet result = statement.executeQuery("SELECT * FROM " + syntax.quote(tableName))) {
+                    // Skip tables that don't have target column
+                    final List<String> columns = getColumnNames(result.getMetaData());
+                    final int targetIndex = columns.indexOf(StringData.TARGET_COLUMN);
+                    if (targetIndex == -1) {
+                        AnnoyingPlugin.log(Level.WARNING, dataManager.storageConfig.getMigrationLogPrefix() + "Table &4" + tableName + "&c doesn't have a '&" + StringData.TARGET_COLUMN + "&c' key, skipping...");
+                        continue;
+                    }
+
+                    // Skip tables of the other layout (left over from a migration between layouts)
+                    if (isKeyValueTable(tableName, columns) != keyValue) {
+                        AnnoyingPlugin.log(Level.WARNING, dataManager.storageConfig.getMigrationLogPrefix() + "Table &4" + tableName + "&c isn't a &4" + dataManager.storageConfig.layout + "&c table, skipping...");
+                        continue;
+                    }
+
+                    final String tableWithoutPrefix = dataManager.getRawTableName(tableName);
+                    final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> tableValues = new ConcurrentHashMap<>(); // {Target, {Key, Value}}
+
+                    // Narrow: one row per value
+                    if (keyValue) {
+                        final Set<String> keys = new HashSet<>();
+                        keys.add(StringData.TARGET_COLUMN);
+                        final int keyIndex = columns.indexOf(SQLSyntax.KEY_COLUMN) + 1;
+                        final int valueIndex = columns.indexOf(SQLSyntax.VALUE_COLUMN) + 1;
+                        while (result.next()) {
+                            final String target = result.getString(targetIndex + 1);
+                            final String key = result.getString(keyIndex);
+                            if (target == null || key == null) continue;
+                            keys.add(key);
+                            tableValues.computeIfAbsent(target, k -> new ConcurrentHashMap<>()).put(key, new CachedValue(read(result, valueIndex)));
+                        }
+                        tablesKeys.put(tableWithoutPrefix, keys);
+                        if (!tableValues.isEmpty()) values.put(newManager.getTableName(tableWithoutPrefix), tableValues);
+                        continue;
+                    }
+
+                    // Wide: one row per target
+                    tablesKeys.put(tableWithoutPrefix, new HashSet<>(columns));
+                    while (result.next()) {
+                        // Skip records without a target
+                        final String target = result.getString(targetIndex + 1);
+                        if (target == null) continue;
+
+                        // Add record's values to tableValues
+                        final ConcurrentHashMap<String, CachedValue> keyValues = new ConcurrentHashMap<>(); // {Key, Value}
+                        for (int i = 0; i < columns.size(); i++) if (i != targetIndex) keyValues.put(columns.get(i), new CachedValue(read(result, i + 1)));
+                        tableValues.put(target, keyValues);
+                    }
+                    if (!tableValues.isEmpty()) values.put(newManager.getTableName(tableWithoutPrefix), tableValues);
+                }
+            }
+        } catch (final SQLException e) {
+            dataManager.plugin.logErrorTrack(Level.SEVERE, dataManager.storageConfig.getMigrationLogPrefix() + "Failed to read data for migration", e);
+            return Optional.empty();
+        }
+
+        return Optional.of(new MigrationData(tablesKeys, values));
+    }
+
+    /**
+     * Reads the tables and their columns from {@link DatabaseMetaData JDBC metadata}, skipping the same tables as {@link #getMigrationDataFromDatabaseImpl(DataManager)}
+     * <br>{@link StorageConfig.Layout#NARROW Narrow} tables only have {@link StringData#TARGET_COLUMN}, their keys are rows
+     */
+    @Override @NotNull
+    protected Optional<Map<String, Set<String>>> getMigrationTablesImpl() {
+        final Map<String, Set<String>> tables = new HashMap<>();
+        try (final Connection connection = dataSource.getConnection()) {
+            for (final Map.Entry<String, Map<String, ColumnType.Kind>> entry : getSchema(connection).entrySet()) {
+                final String tableName = entry.getKey();
+                final Set<String> columns = entry.getValue().keySet();
+
+                // Skip tables that don't have target column
+                if (!columns.contains(StringData.TARGET_COLUMN)) {
+                    AnnoyingPlugin.log(Level.WARNING, dataManager.storageConfig.getMigrationLogPrefix() + "Table &4" + tableName + "&c doesn't have a '&" + StringData.TARGET_COLUMN + "&c' key, skipping...");
+                    continue;
+                }
+
+                // Skip tables of the other layout (left over from a migration between layouts)
+                if (isKeyValueTable(tableName, columns) != keyValue) {
+                    AnnoyingPlugin.log(Level.WARNING, dataManager.storageConfig.getMigrationLogPrefix() + "Table &4" + tableName + "&c isn't a &4" + dataManager.storageConfig.layout + "&c table, skipping...");
+                    continue;
+                }
+
+                tables.put(tableName, keyValue ? new HashSet<>(Set.of(StringData.TARGET_COLUMN)) : new HashSet<>(columns));
+            }
+        } catch (final SQLException e) {
+            dataManager.plugin.logErrorTrack(Level.SEVERE, dataManager.storageConfig.getMigrationLogPrefix() + "Failed to read tables for migration", e);
+            return Optional.empty();
+        }
+        return Optional.of(tables);
+    }
+
+    /**
+     * Get the names of the tables in the connection's current catalog/schema
+     *
+     * @param   connection  the connection
+     *
+     * @return              the table names
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @NotNull
+    private static List<String> getTableNames(@NotNull Connection connection) throws SQLException {
+        final List<String> tables = new ArrayList<>();
+        try (final ResultSet result = connection.getMetaData().getTables(connection.getCatalog(), connection.getSchema(), "%", new String[]{"TABLE"})) {
+            while (result.next()) tables.add(result.getString("TABLE_NAME"));
+        }
+        return tables;
+    }
+
+    /**
+     * Whether a table is a {@link StorageConfig.Layout#NARROW narrow} table: it ends with its {@link StorageConfig.Layout#tableSuffix suffix} and only has the target, key and value columns
+     *
+     * @param   tableName   the name of the table
+     * @param   columns     the (lowercase) columns of the table
+     *
+     * @return              {@code true} if it's a narrow table
+     */
+    protected static boolean isKeyValueTable(@NotNull String tableName, @NotNull Collection<String> columns) {
+        return tableName.toLowerCase().endsWith(StorageConfig.Layout.NARROW.tableSuffix)
+                && columns.size() == 3
+                && columns.containsAll(List.of(StringData.TARGET_COLUMN, SQLSyntax.KEY_COLUMN, SQLSyntax.VALUE_COLUMN));
+    }
+
+    /**
+     * Get the (lowercase) column names of a result
+     *
+     * @param   metaData    the result's metadata
+     *
+     * @return              the column names, in order
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @NotNull
+    private static List<String> getColumnNames(@NotNull ResultSetMetaData metaData) throws SQLException {
+        final List<String> columns = new ArrayList<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) columns.add(metaData.getColumnLabel(i).toLowerCase());
+        return columns;
+    }
+
+    @Override @NotNull
+    protected Optional<String> getFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
+        if (keyValue) return Optional.ofNullable(getFromDatabaseImpl(table, target, List.of(key)).get(key));
+        final List<String> columns = List.of(key);
+        try (final Connection connection = getConnection();
+             final PreparedStatement statement = prepare(connection, sql("SELECT", table, columns, () -> syntax.select(table, columns)))) {
+            statement.setString(1, target);
+            try (final ResultSet result = statement.executeQuery()) {
+                final Optional<String> value = result.next() ? Optional.ofNullable(read(result, 1)) : Optional.empty();
+                circuitBreaker.success();
+                return value;
+            }
+        } catch (final SQLException e) {
+            logFailure("&cFailed to get value for &4" + key + "&c in table &4" + table + "&c for &4" + target, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override @NotNull
+    protected Map<String, String> getFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull Collection<String> keys) {
+        final List<String> columns = new ArrayList<>(keys);
+        if (keyValue) try {
+            return selectKeyValues(table, target, columns);
+        } catch (final SQLException e) {
+            logFailure("&cFailed to get values for &4" + String.join(", ", keys) + "&c in table &4" + table + "&c for &4" + target, e);
+            return new HashMap<>();
+        }
+        final Map<String, String> values = new HashMap<>();
+        try (final Connection connection = getConnection();
+             final PreparedStatement statement = prepare(connection, sql("SELECT", table, columns, () -> syntax.select(table, columns)))) {
+            statement.setString(1, target);
+            try (final ResultSet result = statement.executeQuery()) {
+                if (result.next()) for (int i = 0; i < columns.size(); i++) {
+                    final String value = read(result, i + 1);
+                    if (value != null) values.put(columns.get(i), value);
+                }
+            }
+            circuitBreaker.success();
+        } catch (final SQLException e) {
+            logFailure("&cFailed to get values for &4" + String.join(", ", keys) + "&c in table &4" + table + "&c for &4" + target, e);
+        }
+        return values;
+    }
+
+    /**
+     * Reads the targets with one {@link SQLSyntax#selectMany(String, String, int) WHERE target IN (...)} query per {@link #IN_CHUNK_SIZE} targets
+     * <br>Chunks are padded to a power of two by repeating their last target, so only a few statement shapes are ever rendered and prepared
+     */
+    @Override @NotNull
+    protected Map<String, String> getManyFromDatabaseImpl(@NotNull String table, @NotNull Collection<String> targets, @NotNull String key) {
+        final List<String> targetList = new ArrayList<>(targets);
+        final Map<String, String> values = new HashMap<>();
+        try (final Connection connection = getConnection()) {
+            for (int i = 0; i < targetList.size(); i += IN_CHUNK_SIZE) {
+                final List<String> chunk = targetList.subList(i, Math.min(i + IN_CHUNK_SIZE, targetList.size()));
+                final int size = Integer.highestOneBit(chunk.size()) == chunk.size() ? chunk.size() : Integer.highestOneBit(chunk.size()) << 1;
+                final String sql = keyValue
+                        ? sql("KV_SELECT_MANY", table, List.of(String.valueOf(size)), () -> syntax.selectManyKeyValues(table, size))
+                        : sql("SELECT_MANY", table, List.of(key, String.valueOf(size)), () -> syntax.selectMany(table, key, size));
+                try (final PreparedStatement statement = prepare(connection, sql)) {
+                    int index = 1;
+                    if (keyValue) statement.setString(index++, key);
+                    for (int j = 0; j < size; j++) statement.setString(index++, chunk.get(Math.min(j, chunk.size() - 1)));
+                    try (final ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            final String value = keyValue ? result.getString(2) : read(result, 2);
+                            if (value != null) values.put(result.getString(1), value);
+                        }
+                    }
+                }
+            }
+            circuitBreaker.success();
+        } catch (final SQLException e) {
+            logFailure("&cFailed to get values for &4" + key + "&c in table &4" + table + "&c for &4" + targets.size() + "&c targets", e);
+        }
+        return values;
+    }
+
+    /**
+     * Pushed down to the database as one {@link SQLSyntax#selectRange(String, String, boolean, boolean, boolean) ORDER BY ... LIMIT} query, which an {@link xyz.srnyx.annoyingapi.options.DataOptions#indexes index} can answer without a full scan
+     * <br>Wide tables order by the column's type in the database, {@link StorageConfig.Layout#NARROW narrow} tables cast the values to numbers if the key {@link #isNumeric(String, String) is numeric}
+     */
+    @Override @NotNull
+    protected LinkedHashMap<String, String> queryFromDatabaseImpl(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max, boolean descending, int limit) {
+        final LinkedHashMap<String, String> values = new LinkedHashMap<>();
+        final boolean numeric = isNumeric(table, key);
+        final String shape = (min != null ? "MIN_" : "") + (max != null ? "MAX_" : "") + (descending ? "DESC" : "ASC");
+        final String sql = keyValue
+                ? sql("KV_RANGE", table, List.of(shape, String.valueOf(numeric)), () -> syntax.selectKeyValueRange(table, numeric, min != null, max != null, descending))
+                : sql("RANGE", table, List.of(shape, key), () -> syntax.selectRange(table, key, min != null, max != null, descending));
+        try (final Connection connection = getConnection();
+             final PreparedStatement statement = prepare(connection, sql)) {
+            final int index = bindRange(connection, statement, table, key, numeric, min, max);
+            statement.setInt(index, limit > 0 ? limit : Integer.MAX_VALUE);
+            try (final ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    final String value = keyValue ? result.getString(2) : read(result, 2);
+                    if (value != null) values.put(result.getString(1), value);
+                }
+            }
+            circuitBreaker.success();
+        } catch (final SQLException e) {
+            logFailure("&cFailed to query values of &4" + key + "&c in table &4" + table, e);
+        }
+        return values;
+    }
+
+    @Override
+    protected long countFromDatabaseImpl(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max) {
+        final boolean numeric = isNumeric(table, key);
+        final String shape = (min != null ? "MIN_" : "") + (max != null ? "MAX" : "");
+        final String sql = keyValue
+                ? sql("KV_COUNT", table, List.of(shape, String.valueOf(numeric)), () -> syntax.countKeyValueRange(table, numeric, min != null, max != null))
+                : sql("COUNT", table, List.of(shape, key), () -> syntax.countRange(table, key, min != null, max != null));
+        try (final Connection connection = getConnection();
+             final PreparedStatement statement = prepare(connection, sql)) {
+            bindRange(connection, statement, table, key, numeric, min, max);
+            final long count;
+            try (final ResultSet result = statement.executeQuery()) {
+                count = result.next() ? result.getLong(1) : 0;
+            }
+            circuitBreaker.success();
+            return count;
+        } catch (final SQLException e) {
+            logFailure("&cFailed to count values of &4" + key + "&c in table &4" + table, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Bind the parameters of a {@link SQLSyntax#selectRange(String, String, boolean, boolean, boolean) range} or {@link SQLSyntax#countRange(String, String, boolean, boolean) count} statement, up to the limit
+     *
+     * @param   connection  the connection, to read the kind of the column with
+     * @param   statement   the statement to bind to
+     * @param   table       the table
+     * @param   key         the key
+     * @param   numeric     whether the key {@link #isNumeric(String, String) is numeric}
+     * @param   min         the minimum value, or {@code null}
+     * @param   max         the maximum value, or {@code null}
+     *
+     * @return              the index of the next parameter
+     *
+     * @throws  SQLException    if a database access error occurs or a bound can't be converted to the column's type
+     */
+    private int bindRange(@NotNull Connection connection, @NotNull PreparedStatement statement, @NotNull String table, @NotNull String key, boolean numeric, @Nullable String min, @Nullable String max) throws SQLException {
+        int index = 1;
+        if (keyValue) statement.setString(index++, key);
+        final ColumnType.Kind kind = keyValue ? null : getColumnKinds(connection, table).getOrDefault(key, ColumnType.Kind.TEXT);
+        for (final String bound : new String[]{min, max}) {
+            if (bound == null) continue;
+            if (kind != null) {
+                bind(statement, index++, kind, bound);
+            } else if (numeric) {
+                statement.setDouble(index++, Double.parseDouble(bound.trim()));
+            } else {
+                statement.setString(index++, bound);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Each page is one {@link SQLSyntax#selectPage(String, boolean) WHERE target > ? ORDER BY target LIMIT ?} query, which uses the primary key index
+     */
+    @Override @NotNull
+    protected TableCursor.PageReader scanImpl(@NotNull String table) {
+        return (after, limit) -> {
+            final String sql = keyValue
+                    ? sql("KV_PAGE", table, List.of(String.valueOf(after != null)), () -> syntax.selectKeyValuePage(table, after != null))
+                    : sql("PAGE", table, List.of(String.valueOf(after != null)), () -> syntax.selectPage(table, after != null));
+            final List<TableCursor.Row> rows = new ArrayList<>();
+            try (final Connection connection = getConnection();
+                 final PreparedStatement statement = prepare(connection, sql)) {
+                int index = 1;
+                if (after != null) statement.setString(index++, after);
+                statement.setInt(index, limit);
+                try (final ResultSet result = statement.executeQuery()) {
+                    if (keyValue) {
+                        // A target's values are consecutive rows
+                        TableCursor.Row row = null;
+                        while (result.next()) {
+                            final String target = result.getString(1);
+                            if (row == null || !row.target().equals(target)) {
+                                row = new TableCursor.Row(target, new HashMap<>());
+                                rows.add(row);
+                            }
+                            final String value = result.getString(3);
+                            if (value != null) row.values().put(result.getString(2), value);
+                        }
+                    } else {
+                        final ResultSetMetaData metaData = result.getMetaData();
+                        while (result.next()) {
+                            String target = null;
+                            final Map<String, String> values = new HashMap<>();
+                            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                                final String key = metaData.getColumnLabel(i).toLowerCase();
+                                if (key.equals(StringData.TARGET_COLUMN)) {
+                                    target = result.getString(i);
+                                    continue;
+                                }
+                                final String value = read(result, i);
+                                if (value != null) values.put(key, value);
+                            }
+                            if (target != null) rows.add(new TableCursor.Row(target, values));
+                        }
+                    }
+                }
+                circuitBreaker.success();
+            } catch (final SQLException e) {
+                logFailure("&cFailed to read a page of table &4" + table, e);
+                throw new IllegalStateException("Failed to read a page of table " + table, e);
+            }
+            return rows;
+        };
+    }
+
+    /**
+     * Every column of the table is included, all {@code null} if the target doesn't have a row
+     * <br>For {@link StorageConfig.Layout#NARROW narrow} tables, the keys in {@link xyz.srnyx.annoyingapi.options.DataOptions#tables DataOptions#tables} are included instead of columns
+     */
+    @Override @NotNull
+    protected Map<String, String> getAllFromDatabaseImpl(@NotNull String table, @NotNull String target) {
+        if (keyValue) try {
+            final Map<String, String> values = selectKeyValues(table, target, null);
+            for (final String key : dataManager.plugin.options.dataOptions.tables.getOrDefault(dataManager.getRawTableName(table), Collections.emptySet())) {
+                if (!key.equals(StringData.TARGET_COLUMN)) values.putIfAbsent(key, null);
+            }
+            return values;
+        } catch (final SQLException e) {
+            logFailure("&cFailed to get values in table &4" + table + "&c for &4" + target, e);
+            return new HashMap<>();
+        }
+        final Map<String, String> values = new HashMap<>();
+        try (final Connection connection = getConnection();
+             final PreparedStatement statement = prepare(connection, sql("SELECT_ALL", table, List.of(), () -> syntax.selectAll(table)))) {
+            statement.setString(1, target);
+            try (final ResultSet result = statement.executeQuery()) {
+                final boolean hasRow = result.next();
+                final ResultSetMetaData metaData = result.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    final String key = metaData.getColumnLabel(i).toLowerCase();
+                    if (!key.equals(StringData.TARGET_COLUMN)) values.put(key, hasRow ? read(result, i) : null);
+                }
+            }
+            circuitBreaker.success();
+        } catch (final SQLException e) {
+            logFailure("&cFailed to get values in table &4" + table + "&c for &4" + target, e);
+        }
+        return values;
+    }
+
+    /**
+     * Select a target's values from a {@link StorageConfig.Layout#NARROW narrow} table
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   keys    the keys to select, or {@code null} for all of them
+     *
+     * @return          {@code [ Data key: Data value ]}, keys without a value are left out
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @NotNull
+    private Map<String, String> selectKeyValues(@NotNull String table, @NotNull String target, @Nullable List<String> keys) throws SQLException {
+        final int count = keys == null ? 0 : keys.size();
+        final Map<String, String> values = new HashMap<>();
+        try (final Connection connection = getConnection();
+             final PreparedStatement statement = prepare(connection, sql("KV_SELECT", table, List.of(String.valueOf(count)), () -> syntax.selectKeyValues(table, count)))) {
+            statement.setString(1, target);
+            for (int i = 0; i < count; i++) statement.setString(i + 2, keys.get(i));
+            try (final ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    final String value = result.getString(2);
+                    if (value != null) values.put(result.getString(1), value);
+                }
+            }
+        }
+        circuitBreaker.success();
+        return values;
+    }
+
+    @Override @Nullable
+    protected FailedSet setToDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull String value) {
+        return setToDatabaseImpl(table, target, Map.of(key, value)).stream()
+                .findFirst().orElse(null);
+    }
+
+    @Override @NotNull
+    protected List<FailedSet> setToDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull Map<String, String> data) {
+        try {
+            upsert(table, target, data);
+            circuitBreaker.success();
+            return Collections.emptyList();
+        } catch (final SQLException e) {
+            circuitBreaker.failure(e);
+            final List<FailedSet> failed = new ArrayList<>();
+            for (final Map.Entry<String, String> entry : data.entrySet()) failed.add(new FailedSet(table, target, entry.getKey(), entry.getValue(), e));
+            return failed;
+        }
+    }
+
+    /**
+     * Writes all targets as JDBC batches instead of one statement (and commit) per target
+     * <br>Each of the {@link #batches(Map) batches} is sent in its own transaction
+     */
+    @Override @NotNull
+    protected List<FailedSet> setToDatabaseImpl(@NotNull Map<String, Map<String, Map<String, String>>> data) {
+        final List<FailedSet> failed = new ArrayList<>();
+        for (final Batch batch : batches(data)) failed.addAll(upsertBatch(batch.table(), batch.columns(), batch.rows()));
+        return failed;
+    }
+
+    /**
+     * Split values into the batches that {@link #setToDatabaseImpl(Map)} sends
+     * <br>Rows are grouped by table and column set so each group can share one {@link SQLSyntax#upsert(String, List) upsert} statement,
+     * then split into chunks of {@link xyz.srnyx.annoyingapi.storage.StorageConfig.Cache#batch_size batch_size} rows
+     *
+     * @param   data    {@code [ Table: [ Target: [ Data key: Data value ] ] ]}
+     *
+     * @return          the batches
+     */
+    @NotNull
+    protected List<Batch> batches(@NotNull Map<String, Map<String, Map<String, String>>> data) {
+        final int batchSize = Math.max(1, dataManager.storageConfig.cache.batch_size);
+        final List<Batch> batches = new ArrayList<>();
+        for (final Map.Entry<String, Map<String, Map<String, String>>> tableEntry : data.entrySet()) {
+            final String table = tableEntry.getKey();
+
+            // Group targets by their (sorted) column set (narrow tables write every key with the same statements, so they're all one group)
+            final Map<List<String>, List<Map.Entry<String, Map<String, String>>>> groups = new LinkedHashMap<>(); // {Columns, [Target, {Key, Value}]}
+            for (final Map.Entry<String, Map<String, String>> targetEntry : tableEntry.getValue().entrySet()) {
+                if (targetEntry.getValue().isEmpty()) continue;
+                final List<String> columns = keyValue ? new ArrayList<>() : new ArrayList<>(targetEntry.getValue().keySet());
+                Collections.sort(columns);
+                groups.computeIfAbsent(columns, k -> new ArrayList<>()).add(targetEntry);
+            }
+
+            // Split each group into chunks
+            for (final Map.Entry<List<String>, List<Map.Entry<String, Map<String, String>>>> group : groups.entrySet()) {
+                final List<Map.Entry<String, Map<String, String>>> rows = group.getValue();
+                for (int i = 0; i < rows.size(); i += batchSize) batches.add(new Batch(table, group.getKey(), rows.subList(i, Math.min(i + batchSize, rows.size()))));
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Upsert a chunk of rows that all set the same columns as one JDBC batch in one transaction
+     * <br>If the batch fails, it's rolled back and the rows are retried one by one so that only the rows that actually fail are reported
+     *
+     * @param   table   the table to upsert into
+     * @param   columns the columns every row sets
+     * @param   rows    the rows ({@code [Target, {Key, Value}]})
+     *
+     * @return          failed values as {@link FailedSet FailedSets}
+     */
+    @NotNull
+    private List<FailedSet> upsertBatch(@NotNull String table, @NotNull List<String> columns, @NotNull List<Map.Entry<String, Map<String, String>>> rows) {
+        try (final Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                writeRows(connection, table, columns, rows);
+                connection.commit();
+                circuitBreaker.success();
+                return Collections.emptyList();
+            } catch (final SQLException e) {
+                circuitBreaker.failure(e);
+                connection.rollback();
+            }
+        } catch (final SQLException e) {
+            // Couldn't connect or roll back, the row-by-row retry below reports the actual failures
+            circuitBreaker.failure(e);
+        }
+
+        // Retry row by row
+        final List<FailedSet> failed = new ArrayList<>();
+        for (final Map.Entry<String, Map<String, String>> row : rows) failed.addAll(setToDatabaseImpl(table, row.getKey(), row.getValue()));
+        return failed;
+    }
+
+    /**
+     * Update given columns for target if it already exists, otherwise insert new row
+     * <br>Done as a single native statement from {@link SQLSyntax#upsert(String, List)} rather than jOOQ's {@code onDuplicateKeyUpdate}/{@code onConflict}
+     * emulation, since that emulation requires real primary key metadata that a dynamically-named {@code DSL.table(String)}
+     * doesn't carry (this fails on H2 with "cannot be emulated when inserting into non-updatable tables")
+     * <br>Being one statement, it's also atomic when multiple servers write to the same new target at once
+     *
+     * @param   table   the table to upsert into
+     * @param   target  the target to upsert
+     * @param   values  the column/value pairs to upsert
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    private void upsert(@NotNull String table, @NotNull String target, @NotNull Map<String, String> values) throws SQLException {
+        final List<String> columns = new ArrayList<>(values.keySet());
+        try (final Connection connection = getConnection()) {
+            if (!keyValue) {
+                try (final PreparedStatement statement = prepare(connection, upsertSql(table, columns))) {
+                    bindUpsert(statement, target, columns, values, getColumnKinds(connection, table));
+                    statement.executeUpdate();
+                }
+                return;
+            }
+
+            // Narrow: the target's keys are separate rows, so write them in one transaction
+            connection.setAutoCommit(false);
+            try {
+                writeKeyValues(connection, table, List.of(Map.entry(target, values)));
+                connection.commit();
+            } catch (final SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Write rows that all set the same columns as JDBC batches, without committing
+     *
+     * @param   connection  the connection (with auto-commit disabled)
+     * @param   table       the table to write to
+     * @param   columns     the columns every row sets (ignored for {@link StorageConfig.Layout#NARROW narrow} tables)
+     * @param   rows        the rows ({@code [Target, {Key, Value}]})
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    private void writeRows(@NotNull Connection connection, @NotNull String table, @NotNull List<String> columns, @NotNull List<Map.Entry<String, Map<String, String>>> rows) throws SQLException {
+        if (keyValue) {
+            writeKeyValues(connection, table, rows);
+            return;
+        }
+        final Map<String, ColumnType.Kind> kinds = getColumnKinds(connection, table);
+        try (final PreparedStatement statement = prepare(connection, upsertSql(table, columns))) {
+            for (final Map.Entry<String, Map<String, String>> row : rows) {
+                bindUpsert(statement, row.getKey(), columns, row.getValue(), kinds);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Write values to a {@link StorageConfig.Layout#NARROW narrow} table as JDBC batches, without committing
+     * <br>Values are upserted as {@code (target, key, value)} rows, {@code null} values delete their row
+     *
+     * @param   connection  the connection (with auto-commit disabled)
+     * @param   table       the table to write to
+     * @param   rows        the rows ({@code [Target, {Key, Value}]})
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    private void writeKeyValues(@NotNull Connection connection, @NotNull String table, @NotNull List<Map.Entry<String, Map<String, String>>> rows) throws SQLException {
+        try (final PreparedStatement upsert = prepare(connection, keyValueUpsertSql(table));
+             final PreparedStatement delete = prepare(connection, keyValueDeleteSql(table))) {
+            boolean upserts = false;
+            boolean deletes = false;
+            for (final Map.Entry<String, Map<String, String>> row : rows) for (final Map.Entry<String, String> entry : row.getValue().entrySet()) {
+                final PreparedStatement statement = entry.getValue() == null ? delete : upsert;
+                statement.setString(1, row.getKey());
+                statement.setString(2, entry.getKey());
+                if (entry.getValue() == null) {
+                    deletes = true;
+                } else {
+                    statement.setString(3, entry.getValue());
+                    upserts = true;
+                }
+                statement.addBatch();
+            }
+            if (upserts) upsert.executeBatch();
+            if (deletes) delete.executeBatch();
+        }
+    }
+
+    /**
+     * Get the (cached) SQL of a {@link StorageConfig.Layout#NARROW narrow} table's {@link SQLSyntax#upsert(String, List, List) upsert}
+     *
+     * @param   table   the table to upsert into
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    protected String keyValueUpsertSql(@NotNull String table) {
+        return sql("KV_UPSERT", table, List.of(), () -> syntax.upsert(table, List.of(StringData.TARGET_COLUMN, SQLSyntax.KEY_COLUMN), List.of(SQLSyntax.VALUE_COLUMN)));
+    }
+
+    /**
+     * Get the (cached) SQL of a {@link StorageConfig.Layout#NARROW narrow} table's {@link SQLSyntax#deleteKeyValue(String) delete}
+     *
+     * @param   table   the table to delete from
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    protected String keyValueDeleteSql(@NotNull String table) {
+        return sql("KV_DELETE", table, List.of(), () -> syntax.deleteKeyValue(table));
+    }
+
+    /**
+     * Get the (cached) SQL of a {@link SQLSyntax#upsert(String, List) upsert}
+     *
+     * @param   table   the table to upsert into
+     * @param   columns the columns to set
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    protected String upsertSql(@NotNull String table, @NotNull List<String> columns) {
+        return sql("UPSERT", table, columns, () -> syntax.upsert(table, columns));
+    }
+
+    /**
+     * Get the SQL of a statement shape, only rendering it the first time
+     * <br>Executing the same SQL text also lets the driver reuse its prepared statements (see the {@link StorageMethod.SQLInfo#properties() driver properties})
+     *
+     * @param   operation   the name of the operation, to tell shapes with the same table and columns apart
+     * @param   table       the table
+     * @param   columns     the columns, in the order they're rendered
+     * @param   renderer    renders the SQL if it isn't cached yet
+     *
+     * @return              the SQL
+     */
+    @NotNull
+    protected String sql(@NotNull String operation, @NotNull String table, @NotNull List<String> columns, @NotNull Supplier<String> renderer) {
+        final List<String> shape = new ArrayList<>(columns.size() + 2);
+        shape.add(operation);
+        shape.add(table);
+        shape.addAll(columns);
+        return renderedSql.computeIfAbsent(shape, k -> renderer.get());
+    }
+
+    /**
+     * Bind the parameters of a {@link SQLSyntax#upsert(String, List) upsert} statement
+     *
+     * @param   statement   the statement to bind to
+     * @param   target      the target
+     * @param   columns     the columns, in the order they were rendered
+     * @param   values      the column/value pairs
+     * @param   kinds       the kinds of the table's columns, from {@link #getColumnKinds(Connection, String)}
+     *
+     * @throws  SQLException    if a database access error occurs or a value can't be converted to its column's type
+     */
+    private static void bindUpsert(@NotNull PreparedStatement statement, @NotNull String target, @NotNull List<String> columns, @NotNull Map<String, String> values, @NotNull Map<String, ColumnType.Kind> kinds) throws SQLException {
+        statement.setString(1, target);
+        for (int i = 0; i < columns.size(); i++) {
+            final String column = columns.get(i);
+            bind(statement, i + 2, kinds.getOrDefault(column.toLowerCase(), ColumnType.Kind.TEXT), values.get(column));
+        }
+    }
+
+    /**
+     * Bind a value as the native JDBC type of its column, so typed columns don't rely on the database converting strings
+     *
+     * @param   statement   the statement to bind to
+     * @param   index       the parameter index
+     * @param   kind        the kind of the column
+     * @param   value       the value, or {@code null}
+     *
+     * @throws  SQLException    if a database access error occurs or the value can't be converted to the column's type
+     */
+    private static void bind(@NotNull PreparedStatement statement, int index, @NotNull ColumnType.Kind kind, @Nullable String value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, switch (kind) {
+                case INT -> Types.INTEGER;
+                case LONG -> Types.BIGINT;
+                case DOUBLE -> Types.DOUBLE;
+                case BOOLEAN -> Types.BOOLEAN;
+                case UUID -> Types.OTHER;
+                case VARCHAR, TEXT -> Types.VARCHAR;
+            });
+            return;
+        }
+        try {
+            switch (kind) {
+                case INT -> statement.setInt(index, Integer.parseInt(value.trim()));
+                case LONG -> statement.setLong(index, Long.parseLong(value.trim()));
+                case DOUBLE -> statement.setDouble(index, Double.parseDouble(value));
+                case BOOLEAN -> statement.setBoolean(index, ColumnType.parseBoolean(value));
+                case UUID -> statement.setObject(index, UUID.fromString(value.trim()));
+                case VARCHAR, TEXT -> statement.setString(index, value);
+            }
+        } catch (final IllegalArgumentException e) {
+            // SQLState 22018: invalid character value for cast
+            throw new SQLDataException("'" + value + "' is not a valid " + kind.name().toLowerCase(Locale.ROOT) + " value", "22018", e);
+        }
+    }
+
+    /**
+     * Read a value as a string in the same format that {@link xyz.srnyx.annoyingapi.data.Data#set(String, Object)} stores it in (for example {@code true} rather than {@code TRUE}/{@code 1}/{@code t})
+     *
+     * @param   result  the result, on a row
+     * @param   index   the column index
+     *
+     * @return          the value, or {@code null}
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @Nullable
+    private static String read(@NotNull ResultSet result, int index) throws SQLException {
+        final ResultSetMetaData metaData = result.getMetaData();
+        final String value = switch (getKind(metaData.getColumnType(index), metaData.getColumnTypeName(index))) {
+            case INT, LONG -> String.valueOf(result.getLong(index));
+            case DOUBLE -> String.valueOf(result.getDouble(index));
+            case BOOLEAN -> String.valueOf(result.getBoolean(index));
+            case UUID, VARCHAR, TEXT -> result.getString(index);
+        };
+        return result.wasNull() ? null : value;
+    }
+
+    /**
+     * Get the kind of a column from its JDBC type
+     *
+     * @param   sqlType     the {@link Types JDBC type}
+     * @param   typeName    the database's name of the type
+     *
+     * @return              the kind, {@link ColumnType.Kind#TEXT} for anything that's bound as a string
+     */
+    @NotNull
+    private static ColumnType.Kind getKind(int sqlType, @Nullable String typeName) {
+        // Names first, SQLite reports most declared types as INTEGER/VARCHAR and PostgreSQL reports booleans as BIT
+        final String name = typeName == null ? "" : typeName.toUpperCase(Locale.ROOT);
+        if (name.equals("UUID")) return ColumnType.Kind.UUID;
+        if (name.startsWith("BOOL")) return ColumnType.Kind.BOOLEAN;
+        if (name.startsWith("BIGINT") || name.equals("INT8")) return ColumnType.Kind.LONG;
+        return switch (sqlType) {
+            case Types.BOOLEAN, Types.BIT -> ColumnType.Kind.BOOLEAN;
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER -> ColumnType.Kind.INT;
+            case Types.BIGINT -> ColumnType.Kind.LONG;
+            case Types.FLOAT, Types.REAL, Types.DOUBLE -> ColumnType.Kind.DOUBLE;
+            default -> ColumnType.Kind.TEXT;
+        };
+    }
+
+    /**
+     * Get the kinds of a table's columns, only getting a connection if they haven't been read yet
+     *
+     * @param   table   the table
+     *
+     * @return          {@code [ Column name: Kind ]}, empty if the table doesn't exist
+     *
+     * @throws  SQLException    if a database access error occurs
+     *
+     * @see             #getColumnKinds(Connection, String)
+     */
+    @NotNull
+    protected Map<String, ColumnType.Kind> getColumnKinds(@NotNull String table) throws SQLException {
+        final Map<String, ColumnType.Kind> cached = columnKinds.get(table);
+        if (cached != null) return cached;
+        try (final Connection connection = getConnection()) {
+            return getColumnKinds(connection, table);
+        }
+    }
+
+    /**
+     * Get the kinds of a table's columns, reading them from {@link DatabaseMetaData JDBC metadata} the first time
+     *
+     * @param   connection  the connection to read the metadata with
+     * @param   table       the table
+     *
+     * @return              {@code [ Column name: Kind ]}, empty if the table doesn't exist
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @NotNull
+    private Map<String, ColumnType.Kind> getColumnKinds(@NotNull Connection connection, @NotNull String table) throws SQLException {
+        final Map<String, ColumnType.Kind> cached = columnKinds.get(table);
+        if (cached != null) return cached;
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final Map<String, ColumnType.Kind> kinds = new HashMap<>();
+        try (final ResultSet result = metaData.getColumns(connection.getCatalog(), connection.getSchema(), escapePattern(metaData, table), "%")) {
+            while (result.next()) kinds.put(result.getString("COLUMN_NAME").toLowerCase(), getKind(result.getInt("DATA_TYPE"), result.getString("TYPE_NAME")));
+        }
+        // Not cached if the table doesn't exist yet
+        if (!kinds.isEmpty()) columnKinds.put(table, kinds);
+        return kinds;
+    }
+
+    @Override
+    protected boolean removeFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
+        try (final Connection connection = getConnection();
+             final PreparedStatement statement = prepare(connection, keyValue ? keyValueDeleteSql(table) : sql("SET_NULL", table, List.of(key), () -> syntax.setNull(table, key)))) {
+            statement.setString(1, target);
+            if (keyValue) statement.setString(2, key);
+            statement.executeUpdate();
+            circuitBreaker.success();
+            return true;
+        } catch (final SQLException e) {
+            logFailure("&cFailed to remove value for &4" + key + "&c in table &4" + table + "&c for &4" + target, e);
+            return false;
+        }
+    }
+
+    /**
+     * Runs as an in-place {@link SQLSyntax#increment(String, String, boolean) UPDATE}, so concurrent increments (also from other servers) are never lost
+     * <br>If there's nothing to update yet, the amount is inserted instead (if another server inserted it first, that is incremented instead)
+     * <br>The new value is read in the same transaction
+     */
+    @Override @Nullable
+    protected Long incrementInDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key, long delta) {
+        try (final Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                final ColumnType.Kind kind = keyValue ? ColumnType.Kind.TEXT : getColumnKinds(connection, table).getOrDefault(key, ColumnType.Kind.TEXT);
+                if (!increment(connection, table, target, key, kind, delta)) {
+                    final Savepoint savepoint = connection.setSavepoint();
+                    try (final PreparedStatement statement = prepare(connection, insertSql(table, key))) {
+                        statement.setString(1, target);
+                        if (keyValue) statement.setString(2, key);
+                        bind(statement, keyValue ? 3 : 2, kind, String.valueOf(delta));
+                        statement.executeUpdate();
+                    } catch (final SQLException e) {
+                        if (!syntax.isDuplicateKey(e)) throw e;
+                        connection.rollback(savepoint);
+                        if (!increment(connection, table, target, key, kind, delta)) throw e;
+                    }
+                }
+
+                // Read the new value
+                final String value = keyValue ? selectKeyValue(connection, table, target, key) : selectValue(connection, table, target, key);
+                connection.commit();
+                circuitBreaker.success();
+                if (value == null) return null;
+                try {
+                    return Long.parseLong(value.trim());
+                } catch (final NumberFormatException e) {
+                    // Number column that isn't whole, for example a DOUBLE
+                    return (long) Double.parseDouble(value);
+                }
+            } catch (final SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (final SQLException e) {
+            logFailure("&cFailed to increment value for &4" + key + "&c in table &4" + table + "&c for &4" + target, e);
+            return null;
+        }
+    }
+
+    /**
+     * Runs as a conditional {@link SQLSyntax#compareAndSet(String, String, boolean) UPDATE} (or {@link SQLSyntax#insert(String, List, List) INSERT} if it's expected to not have a value),
+     * so only one of multiple concurrent calls (also from other servers) with the same expected value succeeds
+     */
+    @Override
+    protected boolean compareAndSetInDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key, @Nullable String expected, @Nullable String value) {
+        if (expected == null && value == null) return getFromDatabaseImpl(table, target, key).isEmpty();
+        try (final Connection connection = getConnection()) {
+            final boolean swapped;
+            if (keyValue) {
+                swapped = compareAndSetKeyValue(connection, table, target, key, expected, value);
+            } else {
+                final ColumnType.Kind kind = getColumnKinds(connection, table).getOrDefault(key, ColumnType.Kind.TEXT);
+                swapped = compareAndSet(connection, table, target, key, kind, expected, value);
+            }
+            circuitBreaker.success();
+            return swapped;
+        } catch (final SQLException e) {
+            logFailure("&cFailed to compare and set value for &4" + key + "&c in table &4" + table + "&c for &4" + target, e);
+            return false;
+        }
+    }
+
+    /**
+     * Run the {@link SQLSyntax#increment(String, String, boolean) increment} (or {@link SQLSyntax#incrementKeyValue(String) narrow increment}) of a value
+     *
+     * @param   connection  the connection
+     * @param   table       the table
+     * @param   target      the target
+     * @param   key         the key
+     * @param   kind        the kind of the key's column
+     * @param   delta       the amount to add
+     *
+     * @return              {@code true} if there was something to update, {@code false} if the target (or narrow key) doesn't have a row yet
+     *
+     * @throws  SQLException    if a database access error occurs, or the value isn't a whole number
+     */
+    private boolean increment(@NotNull Connection connection, @NotNull String table, @NotNull String target, @NotNull String key, @NotNull ColumnType.Kind kind, long delta) throws SQLException {
+        final boolean numeric = kind == ColumnType.Kind.INT || kind == ColumnType.Kind.LONG || kind == ColumnType.Kind.DOUBLE;
+        final String sql = keyValue
+                ? sql("KV_INCREMENT", table, List.of(), () -> syntax.incrementKeyValue(table))
+                : sql("INCREMENT", table, List.of(key, String.valueOf(numeric)), () -> syntax.increment(table, key, numeric));
+        try (final PreparedStatement statement = prepare(connection, sql)) {
+            statement.setLong(1, delta);
+            statement.setString(2, target);
+            if (keyValue) statement.setString(3, key);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Compare and set a value of a wide table
+     *
+     * @param   connection  the connection
+     * @param   table       the table
+     * @param   target      the target
+     * @param   key         the key
+     * @param   kind        the kind of the key's column
+     * @param   expected    the expected value, or {@code null} if it shouldn't have a value
+     * @param   value       the new value, or {@code null} to remove it
+     *
+     * @return              {@code true} if the value was set
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    private boolean compareAndSet(@NotNull Connection connection, @NotNull String table, @NotNull String target, @NotNull String key, @NotNull ColumnType.Kind kind, @Nullable String expected, @Nullable String value) throws SQLException {
+        final boolean expectNull = expected == null;
+        try (final PreparedStatement statement = prepare(connection, sql("CAS", table, List.of(key, String.valueOf(expectNull)), () -> syntax.compareAndSet(table, key, expectNull)))) {
+            bind(statement, 1, kind, value);
+            statement.setString(2, target);
+            if (!expectNull) try {
+                bind(statement, 3, kind, expected);
+            } catch (final SQLDataException e) {
+                // Not a valid value for the column, so it can't be the current one
+                return false;
+            }
+            if (statement.executeUpdate() > 0) return true;
+            if (!expectNull) return false;
+
+            // The target doesn't have a row yet
+            try (final PreparedStatement insert = prepare(connection, insertSql(table, key))) {
+                insert.setString(1, target);
+                bind(insert, 2, kind, value);
+                return insert.executeUpdate() > 0;
+            } catch (final SQLException e) {
+                if (!syntax.isDuplicateKey(e)) throw e;
+            }
+            // Another server inserted the row in the meantime, it may still not have a value for the key
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Compare and set a value of a {@link StorageConfig.Layout#NARROW narrow} table
+     *
+     * @param   connection  the connection
+     * @param   table       the table
+     * @param   target      the target
+     * @param   key         the key
+     * @param   expected    the expected value, or {@code null} if it shouldn't have a value
+     * @param   value       the new value, or {@code null} to remove it
+     *
+     * @return              {@code true} if the value was set
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    private boolean compareAndSetKeyValue(@NotNull Connection connection, @NotNull String table, @NotNull String target, @NotNull String key, @Nullable String expected, @Nullable String value) throws SQLException {
+        // Doesn't have a value, so there's no row yet
+        if (expected == null) try (final PreparedStatement statement = prepare(connection, insertSql(table, key))) {
+            statement.setString(1, target);
+            statement.setString(2, key);
+            statement.setString(3, value);
+            return statement.executeUpdate() > 0;
+        } catch (final SQLException e) {
+            if (syntax.isDuplicateKey(e)) return false;
+            throw e;
+        }
+
+        // Removing deletes the row
+        if (value == null) try (final PreparedStatement statement = prepare(connection, sql("KV_CAS_DELETE", table, List.of(), () -> syntax.compareAndDeleteKeyValue(table)))) {
+            statement.setString(1, target);
+            statement.setString(2, key);
+            statement.setString(3, expected);
+            return statement.executeUpdate() > 0;
+        }
+
+        try (final PreparedStatement statement = prepare(connection, sql("KV_CAS", table, List.of(), () -> syntax.compareAndSetKeyValue(table)))) {
+            statement.setString(1, value);
+            statement.setString(2, target);
+            statement.setString(3, key);
+            statement.setString(4, expected);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Get the (cached) SQL of the {@link SQLSyntax#insert(String, List, List) insert} of a single value
+     * <br><b>Parameters:</b> the target, then the value (for {@link StorageConfig.Layout#NARROW narrow} tables: the target, the key, then the value)
+     *
+     * @param   table   the table to insert into
+     * @param   key     the key of the value (ignored for narrow tables)
+     *
+     * @return          the SQL
+     */
+    @NotNull
+    private String insertSql(@NotNull String table, @NotNull String key) {
+        if (keyValue) return sql("KV_INSERT", table, List.of(), () -> syntax.insert(table, List.of(StringData.TARGET_COLUMN, SQLSyntax.KEY_COLUMN), List.of(SQLSyntax.VALUE_COLUMN)));
+        return sql("INSERT", table, List.of(key), () -> syntax.insert(table, List.of(StringData.TARGET_COLUMN), List.of(key)));
+    }
+
+    /**
+     * Select a target's value of a wide table with an existing connection
+     *
+     * @param   connection  the connection
+     * @param   table       the table
+     * @param   target      the target
+     * @param   key         the key
+     *
+     * @return              the value, or {@code null} if it has none
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @Nullable
+    private String selectValue(@NotNull Connection connection, @NotNull String table, @NotNull String target, @NotNull String key) throws SQLException {
+        final List<String> columns = List.of(key);
+        try (final PreparedStatement statement = prepare(connection, sql("SELECT", table, columns, () -> syntax.select(table, columns)))) {
+            statement.setString(1, target);
+            try (final ResultSet result = statement.executeQuery()) {
+                return result.next() ? read(result, 1) : null;
+            }
+        }
+    }
+
+    /**
+     * Select a target's value of a {@link StorageConfig.Layout#NARROW narrow} table with an existing connection
+     *
+     * @param   connection  the connection
+     * @param   table       the table
+     * @param   target      the target
+     * @param   key         the key
+     *
+     * @return              the value, or {@code null} if it has none
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @Nullable
+    private String selectKeyValue(@NotNull Connection connection, @NotNull String table, @NotNull String target, @NotNull String key) throws SQLException {
+        try (final PreparedStatement statement = prepare(connection, sql("KV_SELECT", table, List.of("1"), () -> syntax.selectKeyValues(table, 1)))) {
+            statement.setString(1, target);
+            statement.setString(2, key);
+            try (final ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getString(2) : null;
+            }
+        }
+    }
+
+    /**
+     * Create the given tables and keys in the database, all keys as {@link ColumnType#TEXT text}
+     *
+     * @param   tablesKeys   the tables and keys to create
+     *
+     * @see                 #createTablesKeys(Map, Map, Map)
+     */
+    public void createTablesKeys(@NotNull Map<String, Set<String>> tablesKeys) {
+        createTablesKeys(tablesKeys, Collections.emptyMap());
+    }
+
+    /**
+     * Create the given tables and keys in the database, without any {@link xyz.srnyx.annoyingapi.options.DataOptions#indexes indexes}
+     *
+     * @param   tablesKeys  the tables and keys to create
+     * @param   columnTypes the types of the keys
+     *
+     * @see                 #createTablesKeys(Map, Map, Map)
+     */
+    public void createTablesKeys(@NotNull Map<String, Set<String>> tablesKeys, @NotNull Map<String, Map<String, ColumnType>> columnTypes) {
+        createTablesKeys(tablesKeys, columnTypes, Collections.emptyMap());
+    }
+
+    /**
+     * Create the given tables and keys in the database
+     * <br>The existing schema is read from {@link DatabaseMetaData#getColumns(String, String, String, String) JDBC metadata} in one query and only the difference is applied:
+     * missing tables are created with all of their columns, and missing columns are added with one {@link SQLSyntax#addColumns(String, Map) ALTER} per table
+     * <br>If the schema already matches, no DDL is run at all
+     * <br>The types of existing columns are never changed
+     * <br>{@link StorageConfig.Layout#NARROW Narrow} tables are only created, their keys and types don't need any DDL (values are always text)
+     * <br>Missing indexes are created after the tables/columns, {@link ColumnType#TEXT text} columns are skipped (with a warning) since not every database can index them.
+     * Narrow tables get one index on {@link SQLSyntax#KEY_COLUMN} instead, if any of their keys should be indexed.
+     * It only narrows queries down to a key's rows, the {@code ORDER BY CAST(value ...)} of top/range queries still sorts them without an index
+     *
+     * @param   tablesKeys  the tables and keys to create
+     * @param   columnTypes the types of the keys ({@code [ Table: [ Key: Type ] ]}, like {@link xyz.srnyx.annoyingapi.options.DataOptions#columnTypes}), keys without one are {@link ColumnType#TEXT text}
+     * @param   indexes     the keys to index ({@code [ Table: [ Key ] ]}, like {@link xyz.srnyx.annoyingapi.options.DataOptions#indexes}), only for tables in {@code tablesKeys}
+     */
+    public void createTablesKeys(@NotNull Map<String, Set<String>> tablesKeys, @NotNull Map<String, Map<String, ColumnType>> columnTypes, @NotNull Map<String, Set<String>> indexes) {
+        try (final Connection connection = dataSource.getConnection()) {
+            final Map<String, Map<String, ColumnType.Kind>> schema = getSchema(connection);
+            final List<String> statements = getSchemaChanges(connection, schema, tablesKeys, columnTypes, indexes, true);
+            if (statements.isEmpty()) {
+                columnKinds.putAll(schema);
+                return;
+            }
+
+            // Run them as one batch
+            boolean batched = false;
+            try (final Statement statement = connection.createStatement()) {
+                for (final String sql : statements) statement.addBatch(sql);
+                statement.executeBatch();
+                batched = true;
+            } catch (final SQLException e) {
+                // Retried below
+            }
+
+            // Batch failed, part of it may have been applied (depending on the database), so only retry what's still missing one by one to report the actual failures
+            if (!batched) for (final String sql : getSchemaChanges(connection, getSchema(connection), tablesKeys, columnTypes, indexes, false)) try (final Statement statement = connection.createStatement()) {
+                statement.executeUpdate(sql);
+            } catch (final SQLException e) {
+                dataManager.plugin.logErrorTrack(Level.SEVERE, "&cFailed to create tables/keys: &4" + sql, e);
+            }
+
+            // The columns changed, their kinds are read again on next use
+            columnKinds.clear();
+        } catch (final SQLException e) {
+            dataManager.plugin.logErrorTrack(Level.SEVERE, "&cFailed to create tables", e);
+        }
+    }
+
+    /**
+     * Get the DDL that {@link #createTablesKeys(Map, Map, Map)} would run for the given tables, keys and indexes
+     *
+     * @param   tablesKeys  the tables and keys
+     * @param   columnTypes the types of the keys
+     * @param   indexes     the keys to index
+     *
+     * @return              the statements, empty if the schema already matches
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @NotNull
+    public List<String> getSchemaChanges(@NotNull Map<String, Set<String>> tablesKeys, @NotNull Map<String, Map<String, ColumnType>> columnTypes, @NotNull Map<String, Set<String>> indexes) throws SQLException {
+        try (final Connection connection = dataSource.getConnection()) {
+            return getSchemaChanges(connection, getSchema(connection), tablesKeys, columnTypes, indexes, false);
+        }
+    }
+
+    /**
+     * Work out the DDL needed to get from the existing schema to the given tables, keys and indexes
+     *
+     * @param   connection  the connection
+     * @param   schema      the existing schema, from {@link #getSchema(Connection)}
+     * @param   tablesKeys  the tables and keys
+     * @param   columnTypes the types of the keys
+     * @param   indexes     the keys to index
+     * @param   warn        whether to warn about keys that can't be indexed
+     *
+     * @return              the statements, in the order they have to run
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @NotNull
+    private List<String> getSchemaChanges(@NotNull Connection connection, @NotNull Map<String, Map<String, ColumnType.Kind>> schema, @NotNull Map<String, Set<String>> tablesKeys, @NotNull Map<String, Map<String, ColumnType>> columnTypes, @NotNull Map<String, Set<String>> indexes, boolean warn) throws SQLException {
+        final List<String> statements = new ArrayList<>();
+        for (final Map.Entry<String, Set<String>> entry : tablesKeys.entrySet()) {
+            final String table = dataManager.getTableName(entry.getKey());
+            if (keyValue) {
+                // Keys are rows, only the table itself is needed
+                if (!schema.containsKey(table)) statements.add(syntax.createKeyValueTable(table));
+                continue;
+            }
+            final Map<String, ColumnType> types = columnTypes.getOrDefault(entry.getKey().toLowerCase(), Collections.emptyMap());
+            final Map<String, ColumnType> columns = new TreeMap<>();
+            for (final String key : entry.getValue()) {
+                final String column = key.toLowerCase();
+                columns.put(column, types.getOrDefault(column, ColumnType.TEXT));
+            }
+            columns.remove(StringData.TARGET_COLUMN);
+
+            final Map<String, ColumnType.Kind> existing = schema.get(table);
+            if (existing == null) {
+                statements.add(syntax.createTable(table, columns));
+                continue;
+            }
+            columns.keySet().removeAll(existing.keySet());
+            statements.addAll(syntax.addColumns(table, columns));
+        }
+
+        // Indexes, once their tables/columns exist
+        for (final Map.Entry<String, Set<String>> entry : indexes.entrySet()) {
+            final String rawTable = entry.getKey().toLowerCase();
+            if (entry.getValue().isEmpty() || !tablesKeys.containsKey(rawTable)) continue;
+            final String table = dataManager.getTableName(rawTable);
+            final Map<String, ColumnType.Kind> existing = schema.getOrDefault(table, Collections.emptyMap());
+            final Map<String, ColumnType> types = columnTypes.getOrDefault(rawTable, Collections.emptyMap());
+            final Set<String> columns = new TreeSet<>();
+            if (keyValue) {
+                columns.add(SQLSyntax.KEY_COLUMN);
+            } else for (final String key : entry.getValue()) {
+                final String column = key.toLowerCase();
+                final ColumnType.Kind kind = existing.containsKey(column) ? existing.get(column) : types.getOrDefault(column, ColumnType.TEXT).kind();
+                if (kind == ColumnType.Kind.TEXT) {
+                    if (warn) AnnoyingPlugin.log(Level.WARNING, "&cCan't index text column &4" + column + "&c in table &4" + table + "&c, give it another type in DataOptions#columnTypes (for example varchar)");
+                    continue;
+                }
+                columns.add(column);
+            }
+            if (!existing.isEmpty()) columns.removeAll(getIndexedColumns(connection, table));
+            for (final String column : columns) statements.add(syntax.createIndex(table, column));
+        }
+        return statements;
+    }
+
+    /**
+     * Get the (lowercase) columns of this plugin's tables (the ones starting with the {@link DataManager#tablePrefix table prefix})
+     *
+     * @param   connection  the connection
+     *
+     * @return              {@code [ Table name: [ Column name: Kind ] ]}
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @NotNull
+    private Map<String, Map<String, ColumnType.Kind>> getSchema(@NotNull Connection connection) throws SQLException {
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final Map<String, Map<String, ColumnType.Kind>> schema = new HashMap<>();
+        try (final ResultSet result = metaData.getColumns(connection.getCatalog(), connection.getSchema(), escapePattern(metaData, dataManager.tablePrefix) + "%", "%")) {
+            while (result.next()) schema
+                    .computeIfAbsent(result.getString("TABLE_NAME").toLowerCase(), k -> new HashMap<>())
+                    .put(result.getString("COLUMN_NAME").toLowerCase(), getKind(result.getInt("DATA_TYPE"), result.getString("TYPE_NAME")));
+        }
+        return schema;
+    }
+
+    /**
+     * Get the columns of a table that already have an index (including the primary key), only counting the first column of each index
+     *
+     * @param   connection  the connection
+     * @param   table       the table
+     *
+     * @return              the (lowercase) columns
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @NotNull
+    private static Set<String> getIndexedColumns(@NotNull Connection connection, @NotNull String table) throws SQLException {
+        final Set<String> columns = new HashSet<>();
+        try (final ResultSet result = connection.getMetaData().getIndexInfo(connection.getCatalog(), connection.getSchema(), table, false, true)) {
+            while (result.next()) {
+                final String column = result.getString("COLUMN_NAME");
+                if (column != null && result.getShort("ORDINAL_POSITION") == 1) columns.add(column.toLowerCase());
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Escape the wildcards of a name for a {@link DatabaseMetaData} search pattern
+     *
+     * @param   metaData    the metadata
+     * @param   name        the name
+     *
+     * @return              the escaped name
+     *
+     * @throws  SQLException    if a database access error occurs
+     */
+    @NotNull
+    private static String escapePattern(@NotNull DatabaseMetaData metaData, @NotNull String name) throws SQLException {
+        final String escape = metaData.getSearchStringEscape();
+        return escape == null ? name : name.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+
+    /**
+     * Pre-compiles the {@code get}/{@code set}/{@code remove} statements of the given tables so the rendering/classloading/JIT
+     * cost of first use doesn't impact real calls
+     * <br>Every statement is rendered into the SQL cache and prepared once on a single pooled connection,
+     * then a row is read with a sentinel target that can never match a real row, so nothing is ever written or needs cleaning up
+     * <br><i>Driver statement caches are per connection, so only that connection's cache is filled. The other pooled connections still prepare each statement on their first use (the rendering is shared)</i>
+     *
+     * @param   tablesKeys  the (unprefixed) tables and their keys, like {@link xyz.srnyx.annoyingapi.options.DataOptions#tables}
+     */
+    public void warmup(@NotNull Map<String, Set<String>> tablesKeys) {
+        final String sentinel = "__annoyingapi_warmup__";
+        try (final Connection connection = dataSource.getConnection()) {
+            for (final Map.Entry<String, Set<String>> entry : tablesKeys.entrySet()) {
+                final String table = dataManager.getTableName(entry.getKey());
+
+                // Render statements
+                final List<String> statements = new ArrayList<>();
+                if (keyValue) {
+                    // The same statements are used for every key
+                    statements.add(sql("KV_SELECT", table, List.of("0"), () -> syntax.selectKeyValues(table, 0)));
+                    statements.add(sql("KV_SELECT", table, List.of("1"), () -> syntax.selectKeyValues(table, 1)));
+                    statements.add(keyValueUpsertSql(table));
+                    statements.add(keyValueDeleteSql(table));
+                } else {
+                    statements.add(sql("SELECT_ALL", table, List.of(), () -> syntax.selectAll(table)));
+                    for (final String key : entry.getValue()) {
+                        final String column = key.toLowerCase();
+                        if (column.equals(StringData.TARGET_COLUMN)) continue;
+                        final List<String> columns = List.of(column);
+                        statements.add(sql("SELECT", table, columns, () -> syntax.select(table, columns)));
+                        statements.add(upsertSql(table, columns));
+                        statements.add(sql("SET_NULL", table, columns, () -> syntax.setNull(table, column)));
+                    }
+                }
+
+                // Prepare statements
+                try {
+                    for (final String statement : statements) connection.prepareStatement(statement).close();
+                    try (final PreparedStatement statement = connection.prepareStatement(statements.get(0))) {
+                        statement.setString(1, sentinel);
+                        statement.executeQuery().close();
+                    }
+                } catch (final SQLException ignored) {
+                    // Table/column doesn't exist (yet), its statements will be prepared on first use instead
+                }
+            }
+        } catch (final SQLException ignored) {}
+    }
+
+    /**
+     * Warms up the statements of a single table
+     *
+     * @param   rawTable    the (unprefixed) table to warm up
+     *
+     * @see                 #warmup(Map)
+     */
+    public void warmup(@NotNull String rawTable) {
+        warmup(Map.of(rawTable, dataManager.plugin.options.dataOptions.tables.getOrDefault(rawTable.toLowerCase(), Collections.emptySet())));
+    }
+
+    /**
+     * Rows of one table that all set the same columns, written together by {@link #setToDatabaseImpl(Map)}
+     *
+     * @param   table   the table
+     * @param   columns the columns every row sets (sorted, empty for {@link StorageConfig.Layout#NARROW narrow} tables)
+     * @param   rows    the rows ({@code [Target, {Key, Value}]})
+     */
+    protected record Batch(@NotNull String table, @NotNull List<String> columns, @NotNull List<Map.Entry<String, Map<String, String>>> rows) {}
+
+    /**
+     * Records how long it takes to get connections from the pool, for {@link PoolStats}
+     */
+    private static final class WaitTracker implements IMetricsTracker {
+        @NotNull private final LongAdder acquisitions = new LongAdder();
+        @NotNull private final LongAdder waitNanos = new LongAdder();
+        @NotNull private final AtomicLong maxWaitNanos = new AtomicLong();
+        @NotNull private final LongAdder timeouts = new LongAdder();
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquisitions.increment();
+            waitNanos.add(elapsedAcquiredNanos);
+            maxWaitNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        private double getAverageWaitMillis() {
+            final long count = acquisitions.sum();
+            return count == 0 ? 0 : waitNanos.sum() / (double) count / 1_000_000D;
+        }
+    }
+}
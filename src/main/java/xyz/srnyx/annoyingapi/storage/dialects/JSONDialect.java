@@ -9,6 +9,8 @@ import org.jetbrains.annotations.Nullable;
 import xyz.srnyx.annoyingapi.storage.DataManager;
 import xyz.srnyx.annoyingapi.storage.FailedSet;
 import xyz.srnyx.annoyingapi.storage.CachedValue;
+import xyz.srnyx.annoyingapi.storage.SortedIndex;
+import xyz.srnyx.annoyingapi.storage.TableCursor;
 import xyz.srnyx.javautilities.FileUtility;
 import xyz.srnyx.javautilities.manipulation.Mapper;
 
@@ -31,6 +33,10 @@ public class JSONDialect extends Dialect {
     // Need to use paths to ensure compatibility across operating systems
     @NotNull private final File folder = dataManager.plugin.getDataFolder().toPath().resolve("data").resolve("json").toFile();
     @NotNull private final Map<String, JsonFile> tables = new HashMap<>();
+    /**
+     * The indexes used for queries, built on first use and kept up to date with the cache and file, keyed by {@code [table, key]}
+     */
+    @NotNull private final Map<List<String>, SortedIndex> indexes = new ConcurrentHashMap<>();
 
     /**
      * Creates a new H2 dialect
@@ -62,9 +68,15 @@ public class JSONDialect extends Dialect {
         return Optional.ofNullable(tables.get(table));
     }
 
+    /**
+     * Once the table is cached, keys without a value are cached as having none (like {@link YAMLDialect})
+     */
     @Override @Nullable
     public CachedValue getFromCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
-        return getTableFromCache(table).map(file -> file.get(target, key)).orElse(null);
+        return getTableFromCache(table).map(file -> {
+            final CachedValue value = file.get(target, key);
+            return value != null ? value : new CachedValue();
+        }).orElse(null);
     }
 
     @Override
@@ -76,11 +88,13 @@ public class JSONDialect extends Dialect {
                     return newFile;
                 })
                 .set(target, key, value.value());
+        updateIndex(table, target, key, value.value());
     }
 
     @Override
     public void markRemovedInCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
         getTableFromCache(table).ifPresent(file -> file.remove(target, key));
+        updateIndex(table, target, key, null);
     }
 
     @Override
@@ -135,16 +149,126 @@ public class JSONDialect extends Dialect {
         return Optional.of(new MigrationData(tablesKeys, data));
     }
 
+    /**
+     * The tables are the files, their keys are only found when reading the targets
+     */
+    @Override @NotNull
+    protected Optional<Map<String, Set<String>>> getMigrationTablesImpl() {
+        final Map<String, Set<String>> tables = new HashMap<>();
+        for (final String table : FileUtility.getFileNames(folder, "json")) tables.put(table, new HashSet<>());
+        return Optional.of(tables);
+    }
+
     @Override @NotNull
     protected Optional<String> getFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
         return Optional.ofNullable(getTableFromDatabase(table).get(target, key)).map(CachedValue::value);
     }
 
+    /**
+     * Reads the file once for all targets
+     */
+    @Override @NotNull
+    protected Map<String, String> getManyFromDatabaseImpl(@NotNull String table, @NotNull Collection<String> targets, @NotNull String key) {
+        final JsonFile file = getTableFromDatabase(table);
+        final Map<String, String> values = new HashMap<>();
+        for (final String target : targets) {
+            final CachedValue value = file.get(target, key);
+            if (value != null && value.value() != null) values.put(target, value.value());
+        }
+        return values;
+    }
+
+    /**
+     * Answered from a {@link SortedIndex} of the key, which is built from the file (or cache) the first time
+     */
+    @Override @NotNull
+    protected LinkedHashMap<String, String> queryFromDatabaseImpl(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max, boolean descending, int limit) {
+        return getIndex(table, key).query(min, max, descending, limit);
+    }
+
+    /**
+     * Answered from a {@link SortedIndex} of the key, which is built from the file (or cache) the first time
+     */
+    @Override
+    protected long countFromDatabaseImpl(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max) {
+        return getIndex(table, key).count(min, max);
+    }
+
+    /**
+     * The file (or cache) is read once when the scan starts, pages are only made of the targets after the previous page in it
+     * so the values aren't all copied at once
+     */
+    @Override @NotNull
+    protected TableCursor.PageReader scanImpl(@NotNull String table) {
+        final JsonFile file = getTableFromCache(table).orElseGet(() -> getTableFromDatabase(table));
+        final TreeSet<String> targets = new TreeSet<>(file.json.keySet());
+        return (after, limit) -> {
+            final List<TableCursor.Row> rows = new ArrayList<>();
+            for (final String target : after == null ? targets : targets.tailSet(after, false)) {
+                if (rows.size() >= limit) break;
+                final Optional<JsonObject> targetData = file.getTargetData(target);
+                if (targetData.isEmpty()) continue;
+                final Map<String, String> values = new HashMap<>();
+                for (final Map.Entry<String, JsonElement> entry : targetData.get().entrySet()) if (!entry.getValue().isJsonNull()) values.put(entry.getKey(), entry.getValue().getAsString());
+                rows.add(new TableCursor.Row(target, values));
+            }
+            return rows;
+        };
+    }
+
+    /**
+     * Get the index of a key, building it if it doesn't exist yet
+     *
+     * @param   table   the table
+     * @param   key     the key
+     *
+     * @return          the index
+     */
+    @NotNull
+    private SortedIndex getIndex(@NotNull String table, @NotNull String key) {
+        return indexes.computeIfAbsent(List.of(table, key), k -> {
+            final SortedIndex index = new SortedIndex(isNumeric(table, key));
+            final JsonFile file = getTableFromCache(table).orElseGet(() -> getTableFromDatabase(table));
+            for (final String target : file.json.keySet()) {
+                final CachedValue value = file.get(target, key);
+                if (value != null) index.put(target, value.value());
+            }
+            return index;
+        });
+    }
+
+    /**
+     * Update a target's value in the index of a key, if it's been built
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     * @param   value   the new value, or {@code null} if it was removed
+     */
+    private void updateIndex(@NotNull String table, @NotNull String target, @NotNull String key, @Nullable String value) {
+        // Waits for the index if it's being built, so the update can't be missed
+        indexes.computeIfPresent(List.of(table, key), (k, index) -> {
+            index.put(target, value);
+            return index;
+        });
+    }
+
+    @Override @NotNull
+    protected Map<String, String> getAllFromDatabaseImpl(@NotNull String table, @NotNull String target) {
+        final Map<String, String> values = new HashMap<>();
+        getTableFromDatabase(table).getTargetData(target).ifPresent(targetData -> {
+            for (final Map.Entry<String, JsonElement> entry : targetData.entrySet()) values.put(entry.getKey(), entry.getValue().isJsonNull() ? null : entry.getValue().getAsString());
+        });
+        return values;
+    }
+
     @Override @Nullable
     protected FailedSet setToDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull String value) {
         final JsonFile file = getTableFromDatabase(table);
         file.set(target, key, value);
-        return file.save() ? null : new FailedSet(table, target, key, value);
+        if (!file.save()) return new FailedSet(table, target, key, value);
+        updateIndex(table, target, key, value);
+        return null;
     }
 
     @Override @NotNull
@@ -158,7 +282,10 @@ public class JSONDialect extends Dialect {
 
         // Return failures if saving fails
         final List<FailedSet> failed = new ArrayList<>();
-        if (file.save()) return failed;
+        if (file.save()) {
+            for (final Map.Entry<String, String> entry : entrySet) updateIndex(table, target, entry.getKey(), entry.getValue());
+            return failed;
+        }
         for (final Map.Entry<String, String> entry : entrySet) failed.add(new FailedSet(table, target, entry.getKey(), entry.getValue()));
         return failed;
     }
@@ -167,7 +294,9 @@ public class JSONDialect extends Dialect {
     protected boolean removeFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
         final JsonFile file = getTableFromDatabase(table);
         file.remove(target, key);
-        return file.save();
+        if (!file.save()) return false;
+        updateIndex(table, target, key, null);
+        return true;
     }
 
     /**
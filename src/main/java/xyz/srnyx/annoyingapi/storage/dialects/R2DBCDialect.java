@@ -0,0 +1,927 @@
+package xyz.srnyx.annoyingapi.storage.dialects;
+
+import io.r2dbc.spi.Closeable;
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import io.r2dbc.spi.R2dbcException;
+import io.r2dbc.spi.R2dbcNonTransientResourceException;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import io.r2dbc.spi.R2dbcTransientResourceException;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import xyz.srnyx.annoyingapi.library.AnnoyingAPILibrary;
+import xyz.srnyx.annoyingapi.data.StringData;
+import xyz.srnyx.annoyingapi.storage.CircuitBreaker;
+import xyz.srnyx.annoyingapi.storage.ColumnType;
+import xyz.srnyx.annoyingapi.storage.ConnectionException;
+import xyz.srnyx.annoyingapi.storage.DataManager;
+import xyz.srnyx.annoyingapi.storage.FailedSet;
+import xyz.srnyx.annoyingapi.storage.StorageConfig;
+import xyz.srnyx.annoyingapi.storage.StorageMethod;
+
+import java.io.IOException;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+
+/**
+ * SQL dialect that reads and writes values through R2DBC, so waiting for the database doesn't park a thread per query (see {@link StorageConfig#use_r2dbc})
+ * <br>Connections come from an R2DBC pool (sized by {@link StorageConfig.Pool}), so the number of queries in flight isn't limited by the number of threads.
+ * The JDBC pool next to it only gets up to {@link #JDBC_POOL_SIZE} connections, which are closed while idle
+ * <br>Only the hot paths go through R2DBC: reading a target's values and writing/removing values, which includes {@link #saveCache() saving the cache}.
+ * Creating tables, migrations, multi-target/range queries, scans and atomic operations are the same blocking JDBC as {@link JDBCDialect}
+ * <br>The {@code *Async} methods don't block at all. Their futures are completed on the driver's threads, so don't block in their callbacks
+ */
+public class R2DBCDialect extends JDBCDialect {
+    /**
+     * The maximum number of connections of the JDBC pool, which only serves the operations that don't go through R2DBC
+     */
+    public static final int JDBC_POOL_SIZE = 2;
+    /**
+     * The maximum number of pooled connections
+     */
+    @NotNull private static final Option<Integer> MAX_SIZE = Option.valueOf("maxSize");
+    /**
+     * The number of connections opened when the pool starts
+     */
+    @NotNull private static final Option<Integer> INITIAL_SIZE = Option.valueOf("initialSize");
+    /**
+     * How long getting a pooled connection may take (including waiting for one to be free)
+     */
+    @NotNull private static final Option<Duration> MAX_ACQUIRE_TIME = Option.valueOf("maxAcquireTime");
+    /**
+     * How long a connection may be idle in the pool
+     */
+    @NotNull private static final Option<Duration> MAX_IDLE_TIME = Option.valueOf("maxIdleTime");
+    /**
+     * How long a connection may be kept open
+     */
+    @NotNull private static final Option<Duration> MAX_LIFE_TIME = Option.valueOf("maxLifeTime");
+
+    /**
+     * The pooled R2DBC connection factory
+     */
+    @NotNull public final ConnectionFactory connectionFactory;
+
+    /**
+     * Construct a new {@link R2DBCDialect} with the given {@link DataManager}
+     *
+     * @param   dataManager         {@link #dataManager}
+     *
+     * @throws  ConnectionException if a database connection error occurs or the R2DBC driver can't be loaded
+     */
+    public R2DBCDialect(@NotNull DataManager dataManager) throws ConnectionException {
+        super(dataManager);
+        final StorageMethod method = dataManager.storageConfig.method;
+        final StorageMethod.SQLInfo sqlInfo = method.sqlInfo;
+        if (sqlInfo == null || sqlInfo.r2dbcDriver() == null || sqlInfo.r2dbcLibrary() == null) {
+            super.closeDataSource();
+            throw new IllegalStateException("The storage method " + method + " doesn't have an R2DBC driver");
+        }
+
+        // Get url & properties (only for errors)
+        final StorageConfig.RemoteConnection remote = dataManager.storageConfig.remote_connection;
+        final String url = "r2dbc:pool:" + sqlInfo.r2dbcDriver() + "://" + remote.host + ":" + remote.port + "/" + remote.database;
+        final Properties properties = new Properties();
+        if (!remote.username.isEmpty()) properties.setProperty("user", remote.username);
+        if (!remote.password.isEmpty()) properties.setProperty("password", remote.password);
+
+        // Load pool & driver libraries
+        if (dataManager.plugin.libraryManager != null && !dataManager.plugin.libraryManager.loadLibrary(AnnoyingAPILibrary.R2DBC_POOL, sqlInfo.r2dbcLibrary())) {
+            super.closeDataSource();
+            throw new ConnectionException("Failed to download R2DBC libraries for " + method, url, properties);
+        }
+
+        // Options (remote_connection.properties are JDBC driver properties, so they aren't passed on)
+        final StorageConfig.Pool pool = dataManager.storageConfig.pool;
+        final ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.builder()
+                .option(ConnectionFactoryOptions.DRIVER, "pool")
+                .option(ConnectionFactoryOptions.PROTOCOL, sqlInfo.r2dbcDriver())
+                .option(ConnectionFactoryOptions.HOST, remote.host)
+                .option(ConnectionFactoryOptions.PORT, remote.port)
+                .option(ConnectionFactoryOptions.DATABASE, remote.database)
+                .option(ConnectionFactoryOptions.CONNECT_TIMEOUT, pool.connection_timeout)
+                .option(MAX_SIZE, pool.getMaximumPoolSize(method))
+                .option(INITIAL_SIZE, pool.getMinimumIdle(method))
+                .option(MAX_ACQUIRE_TIME, pool.connection_timeout)
+                .option(MAX_IDLE_TIME, pool.idle_timeout)
+                .option(MAX_LIFE_TIME, pool.max_lifetime);
+        if (!remote.username.isEmpty()) options.option(ConnectionFactoryOptions.USER, remote.username);
+        if (!remote.password.isEmpty()) options.option(ConnectionFactoryOptions.PASSWORD, remote.password);
+
+        // Find driver
+        try {
+            connectionFactory = ConnectionFactories.get(options.build());
+        } catch (final IllegalStateException e) {
+            super.closeDataSource();
+            throw new ConnectionException(e, url, properties);
+        }
+    }
+
+    /**
+     * At most {@link #JDBC_POOL_SIZE}, the R2DBC pool gets the configured size
+     */
+    @Override
+    protected int getMaximumPoolSize() {
+        return Math.min(JDBC_POOL_SIZE, super.getMaximumPoolSize());
+    }
+
+    /**
+     * No idle connections, JDBC is only used now and then (closed after {@link StorageConfig.Pool#idle_timeout})
+     */
+    @Override
+    protected int getMinimumIdle() {
+        return 0;
+    }
+
+    /**
+     * Also closes the R2DBC pool, waiting up to {@link StorageConfig.Pool#connection_timeout} for it
+     */
+    @Override
+    public void closeDataSource() {
+        super.closeDataSource();
+        if (connectionFactory instanceof Closeable closeable) try {
+            collect(closeable.close()).get(dataManager.storageConfig.pool.connection_timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (final ExecutionException | TimeoutException e) {
+            dataManager.plugin.logErrorTrack(Level.WARNING, "&cFailed to close the R2DBC connection pool", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get a value of a target without blocking
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     *
+     * @return          a future completed with the value, empty if not found or if it failed (the failure is logged)
+     *
+     * @see             #getFromDatabase(String, String, String)
+     */
+    @NotNull
+    public CompletableFuture<Optional<String>> getFromDatabaseAsync(@NotNull String table, @NotNull String target, @NotNull String key) {
+        final String keyLower = key.toLowerCase();
+        return getFromDatabaseAsync(table, target, List.of(keyLower)).thenApply(values -> Optional.ofNullable(values.get(keyLower)));
+    }
+
+    /**
+     * Get multiple values of a target without blocking
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   keys    the keys
+     *
+     * @return          a future completed with {@code [ Data key: Data value ]} (keys without a value are left out), empty if it failed (the failure is logged)
+     *
+     * @see             #getFromDatabase(String, String, Collection)
+     */
+    @NotNull
+    public CompletableFuture<Map<String, String>> getFromDatabaseAsync(@NotNull String table, @NotNull String target, @NotNull Collection<String> keys) {
+        final List<String> keysLower = new ArrayList<>();
+        for (final String key : keys) if (!keysLower.contains(key.toLowerCase())) keysLower.add(key.toLowerCase());
+        if (keysLower.isEmpty()) return CompletableFuture.completedFuture(new HashMap<>());
+        final String tableLower = table.toLowerCase();
+        return recover(select(tableLower, target, keysLower), "&cFailed to get values for &4" + String.join(", ", keysLower) + "&c in table &4" + tableLower + "&c for &4" + target, HashMap::new);
+    }
+
+    /**
+     * Get all values of a target without blocking
+     *
+     * @param   table   the table
+     * @param   target  the target
+     *
+     * @return          a future completed with {@code [ Data key: Data value ]} (values may be {@code null} if the key exists but has no value for the target), empty if it failed (the failure is logged)
+     *
+     * @see             #getAllFromDatabase(String, String)
+     */
+    @NotNull
+    public CompletableFuture<Map<String, String>> getAllFromDatabaseAsync(@NotNull String table, @NotNull String target) {
+        final String tableLower = table.toLowerCase();
+        return recover(selectAll(tableLower, target), "&cFailed to get values in table &4" + tableLower + "&c for &4" + target, HashMap::new);
+    }
+
+    /**
+     * Set values of a target without blocking
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   data    {@code [ Data key: Data value ]}, {@code null} values are removed
+     *
+     * @return          a future completed with the failed values as {@link FailedSet FailedSets}
+     *
+     * @see             #setToDatabase(String, String, Map)
+     */
+    @NotNull
+    public CompletableFuture<List<FailedSet>> setToDatabaseAsync(@NotNull String table, @NotNull String target, @NotNull Map<String, String> data) {
+        final Map<String, String> dataLower = new LinkedHashMap<>();
+        for (final Map.Entry<String, String> entry : data.entrySet()) dataLower.put(entry.getKey().toLowerCase(), entry.getValue());
+        if (dataLower.isEmpty()) return CompletableFuture.completedFuture(Collections.emptyList());
+        final String tableLower = table.toLowerCase();
+        return upsert(tableLower, target, dataLower, keyValue ? null : kinds(tableLower));
+    }
+
+    /**
+     * Remove a value of a target without blocking
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     *
+     * @return          a future completed with {@code true} if the value was removed, {@code false} if it failed (the failure is logged)
+     *
+     * @see             #removeValueFromDatabase(String, String, String)
+     */
+    @NotNull
+    public CompletableFuture<Boolean> removeValueFromDatabaseAsync(@NotNull String table, @NotNull String target, @NotNull String key) {
+        final String tableLower = table.toLowerCase();
+        final String keyLower = key.toLowerCase();
+        return recover(remove(tableLower, target, keyLower), "&cFailed to remove value for &4" + keyLower + "&c in table &4" + tableLower + "&c for &4" + target, () -> false);
+    }
+
+    @Override @NotNull
+    protected Optional<String> getFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
+        return Optional.ofNullable(getFromDatabaseImpl(table, target, List.of(key)).get(key));
+    }
+
+    @Override @NotNull
+    protected Map<String, String> getFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull Collection<String> keys) {
+        return recover(select(table, target, new ArrayList<>(keys)), "&cFailed to get values for &4" + String.join(", ", keys) + "&c in table &4" + table + "&c for &4" + target, HashMap::new).join();
+    }
+
+    @Override @NotNull
+    protected Map<String, String> getAllFromDatabaseImpl(@NotNull String table, @NotNull String target) {
+        return recover(selectAll(table, target), "&cFailed to get values in table &4" + table + "&c for &4" + target, HashMap::new).join();
+    }
+
+    @Override @NotNull
+    protected List<FailedSet> setToDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull Map<String, String> data) {
+        return upsert(table, target, data, keyValue ? null : kinds(table)).join();
+    }
+
+    /**
+     * Sends the {@link #batches(Map) batches} concurrently, at most one per pooled connection at a time, each in its own transaction
+     * <br>Only the calling thread waits (once, for all of them)
+     */
+    @Override @NotNull
+    protected List<FailedSet> setToDatabaseImpl(@NotNull Map<String, Map<String, Map<String, String>>> data) {
+        final List<Batch> batches = batches(data);
+        if (batches.isEmpty()) return Collections.emptyList();
+
+        // Resolve the column kinds here, the lanes continue on the driver's event loop threads which mustn't block on JDBC metadata
+        final Map<String, CompletableFuture<Map<String, ColumnType.Kind>>> kinds = new HashMap<>();
+        if (!keyValue) for (final Batch batch : batches) kinds.computeIfAbsent(batch.table(), this::kinds);
+
+        // Spread the batches over as many lanes as there are connections, each lane sends its batches one after another
+        final int laneCount = Math.min(batches.size(), Math.max(1, dataManager.storageConfig.pool.getMaximumPoolSize(dataManager.storageConfig.method)));
+        final List<CompletableFuture<List<FailedSet>>> lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) lanes.add(CompletableFuture.completedFuture(new ArrayList<>()));
+        for (int i = 0; i < batches.size(); i++) {
+            final Batch batch = batches.get(i);
+            lanes.set(i % laneCount, lanes.get(i % laneCount).thenCompose(failed -> upsertBatch(batch, kinds.get(batch.table())).thenApply(batchFailed -> {
+                failed.addAll(batchFailed);
+                return failed;
+            })));
+        }
+
+        final List<FailedSet> failed = new ArrayList<>();
+        for (final CompletableFuture<List<FailedSet>> lane : lanes) failed.addAll(lane.join());
+        return failed;
+    }
+
+    @Override
+    protected boolean removeFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
+        return recover(remove(table, target, key), "&cFailed to remove value for &4" + key + "&c in table &4" + table + "&c for &4" + target, () -> false).join();
+    }
+
+    /**
+     * Select some values of a target
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   keys    the keys (for {@link StorageConfig.Layout#NARROW narrow} tables, empty for all of them)
+     *
+     * @return          a future completed with {@code [ Data key: Data value ]}, keys without a value are left out
+     */
+    @NotNull
+    private CompletableFuture<Map<String, String>> select(@NotNull String table, @NotNull String target, @NotNull List<String> keys) {
+        if (keyValue) {
+            final int count = keys.size();
+            final String sql = r2dbcSql("KV_SELECT", table, List.of(String.valueOf(count)), () -> syntax.selectKeyValues(table, count));
+            return withConnection(connection -> {
+                final Statement statement = connection.createStatement(sql).bind(0, target);
+                for (int i = 0; i < count; i++) statement.bind(i + 1, keys.get(i));
+                return query(statement, (row, metadata) -> new AbstractMap.SimpleEntry<>(row.get(0, String.class), row.get(1, String.class)));
+            }).thenApply(rows -> {
+                final Map<String, String> values = new HashMap<>();
+                for (final Map.Entry<String, String> row : rows) if (row.getValue() != null) values.put(row.getKey(), row.getValue());
+                return values;
+            });
+        }
+
+        final String sql = r2dbcSql("SELECT", table, keys, () -> syntax.select(table, keys));
+        return kinds(table).thenCompose(kinds -> withConnection(connection -> query(connection.createStatement(sql).bind(0, target), (row, metadata) -> {
+            final Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                final String value = read(row.get(i), kinds.get(keys.get(i)));
+                if (value != null) values.put(keys.get(i), value);
+            }
+            return values;
+        })).thenApply(rows -> rows.isEmpty() ? new HashMap<>() : rows.get(0)));
+    }
+
+    /**
+     * Select all values of a target
+     *
+     * @param   table   the table
+     * @param   target  the target
+     *
+     * @return          a future completed with {@code [ Data key: Data value ]}, values are {@code null} if the key exists but has no value for the target
+     */
+    @NotNull
+    private CompletableFuture<Map<String, String>> selectAll(@NotNull String table, @NotNull String target) {
+        if (keyValue) return select(table, target, List.of()).thenApply(values -> {
+            for (final String key : dataManager.plugin.options.dataOptions.tables.getOrDefault(dataManager.getRawTableName(table), Collections.emptySet())) {
+                if (!key.equals(StringData.TARGET_COLUMN)) values.putIfAbsent(key, null);
+            }
+            return values;
+        });
+
+        final String sql = r2dbcSql("SELECT_ALL", table, List.of(), () -> syntax.selectAll(table));
+        return kinds(table).thenCompose(kinds -> withConnection(connection -> query(connection.createStatement(sql).bind(0, target), (row, metadata) -> {
+            final Map<String, String> values = new HashMap<>();
+            final List<? extends ColumnMetadata> columns = metadata.getColumnMetadatas();
+            for (int i = 0; i < columns.size(); i++) {
+                final String key = columns.get(i).getName().toLowerCase();
+                if (!key.equals(StringData.TARGET_COLUMN)) values.put(key, read(row.get(i), kinds.get(key)));
+            }
+            return values;
+        })).thenApply(rows -> {
+            // Without a row, every column is null
+            final Map<String, String> values = rows.isEmpty() ? new HashMap<>() : rows.get(0);
+            for (final String key : kinds.keySet()) if (!key.equals(StringData.TARGET_COLUMN)) values.putIfAbsent(key, null);
+            return values;
+        }));
+    }
+
+    /**
+     * Upsert values of a target as one statement (or one transaction for {@link StorageConfig.Layout#NARROW narrow} tables)
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   data    {@code [ Data key: Data value ]}
+     * @param   kinds   the {@link #kinds(String) kinds} of the table's columns, {@code null} for {@link StorageConfig.Layout#NARROW narrow} tables
+     *
+     * @return          a future completed with the failed values as {@link FailedSet FailedSets}, never completed exceptionally
+     */
+    @NotNull
+    private CompletableFuture<List<FailedSet>> upsert(@NotNull String table, @NotNull String target, @NotNull Map<String, String> data, @Nullable CompletableFuture<Map<String, ColumnType.Kind>> kinds) {
+        final List<Map.Entry<String, Map<String, String>>> rows = List.of(Map.entry(target, data));
+        final CompletableFuture<Void> write;
+        if (keyValue) {
+            write = withTransaction(connection -> writeKeyValues(connection, table, rows));
+        } else {
+            final List<String> columns = new ArrayList<>(data.keySet());
+            write = Objects.requireNonNull(kinds).thenCompose(columnKinds -> withConnection(connection -> writeRows(connection, table, columns, rows, columnKinds)));
+        }
+        return write.handle((v, error) -> {
+            if (error == null) {
+                circuitBreaker.success();
+                return Collections.emptyList();
+            }
+            final SQLException e = toSQLException(error);
+            circuitBreaker.failure(e);
+            final List<FailedSet> failed = new ArrayList<>();
+            for (final Map.Entry<String, String> entry : data.entrySet()) failed.add(new FailedSet(table, target, entry.getKey(), entry.getValue(), e));
+            return failed;
+        });
+    }
+
+    /**
+     * Upsert a {@link Batch} in one transaction
+     * <br>If it fails, the rows are retried one by one so that only the rows that actually fail are reported
+     *
+     * @param   batch   the batch
+     * @param   kinds   the {@link #kinds(String) kinds} of the table's columns, {@code null} for {@link StorageConfig.Layout#NARROW narrow} tables
+     *
+     * @return          a future completed with the failed values as {@link FailedSet FailedSets}, never completed exceptionally
+     */
+    @NotNull
+    private CompletableFuture<List<FailedSet>> upsertBatch(@NotNull Batch batch, @Nullable CompletableFuture<Map<String, ColumnType.Kind>> kinds) {
+        final CompletableFuture<Void> write = keyValue
+                ? withTransaction(connection -> writeKeyValues(connection, batch.table(), batch.rows()))
+                : Objects.requireNonNull(kinds).thenCompose(columnKinds -> withTransaction(connection -> writeRows(connection, batch.table(), batch.columns(), batch.rows(), columnKinds)));
+        return write.handle((v, error) -> error).thenCompose(error -> {
+            if (error == null) {
+                circuitBreaker.success();
+                return CompletableFuture.completedFuture(Collections.emptyList());
+            }
+            circuitBreaker.failure(toSQLException(error));
+
+            // Retry row by row
+            final List<CompletableFuture<List<FailedSet>>> retries = new ArrayList<>();
+            for (final Map.Entry<String, Map<String, String>> row : batch.rows()) retries.add(upsert(batch.table(), row.getKey(), row.getValue(), kinds));
+            return CompletableFuture.allOf(retries.toArray(new CompletableFuture[0])).thenApply(v -> {
+                final List<FailedSet> failed = new ArrayList<>();
+                for (final CompletableFuture<List<FailedSet>> retry : retries) failed.addAll(retry.join());
+                return failed;
+            });
+        });
+    }
+
+    /**
+     * Remove a value of a target
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     *
+     * @return          a future completed with {@code true} once it's removed
+     */
+    @NotNull
+    private CompletableFuture<Boolean> remove(@NotNull String table, @NotNull String target, @NotNull String key) {
+        final String sql = keyValue
+                ? r2dbcSql("KV_DELETE", table, List.of(), () -> keyValueDeleteSql(table))
+                : r2dbcSql("SET_NULL", table, List.of(key), () -> syntax.setNull(table, key));
+        return withConnection(connection -> {
+            final Statement statement = connection.createStatement(sql).bind(0, target);
+            if (keyValue) statement.bind(1, key);
+            return update(statement);
+        }).thenApply(count -> true);
+    }
+
+    /**
+     * Upsert rows that all set the same columns as one batched statement, without committing
+     *
+     * @param   connection  the connection
+     * @param   table       the table to write to
+     * @param   columns     the columns every row sets
+     * @param   rows        the rows ({@code [Target, {Key, Value}]})
+     * @param   kinds       the kinds of the table's columns
+     *
+     * @return              a future completed once the rows are written
+     *
+     * @throws  SQLDataException    if a value can't be converted to its column's type
+     */
+    @NotNull
+    private CompletableFuture<Void> writeRows(@NotNull Connection connection, @NotNull String table, @NotNull List<String> columns, @NotNull List<Map.Entry<String, Map<String, String>>> rows, @NotNull Map<String, ColumnType.Kind> kinds) throws SQLDataException {
+        final Statement statement = connection.createStatement(r2dbcSql("UPSERT", table, columns, () -> upsertSql(table, columns)));
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) statement.add();
+            final Map.Entry<String, Map<String, String>> row = rows.get(i);
+            statement.bind(0, row.getKey());
+            for (int j = 0; j < columns.size(); j++) {
+                final String column = columns.get(j);
+                bind(statement, j + 1, kinds.getOrDefault(column.toLowerCase(), ColumnType.Kind.TEXT), row.getValue().get(column));
+            }
+        }
+        return update(statement).thenApply(count -> null);
+    }
+
+    /**
+     * Write values to a {@link StorageConfig.Layout#NARROW narrow} table as batched statements, without committing
+     * <br>Values are upserted as {@code (target, key, value)} rows, {@code null} values delete their row
+     *
+     * @param   connection  the connection
+     * @param   table       the table to write to
+     * @param   rows        the rows ({@code [Target, {Key, Value}]})
+     *
+     * @return              a future completed once the values are written
+     */
+    @NotNull
+    private CompletableFuture<Void> writeKeyValues(@NotNull Connection connection, @NotNull String table, @NotNull List<Map.Entry<String, Map<String, String>>> rows) {
+        final List<String[]> upserts = new ArrayList<>();
+        final List<String[]> deletes = new ArrayList<>();
+        for (final Map.Entry<String, Map<String, String>> row : rows) for (final Map.Entry<String, String> entry : row.getValue().entrySet()) {
+            if (entry.getValue() == null) {
+                deletes.add(new String[]{row.getKey(), entry.getKey()});
+            } else {
+                upserts.add(new String[]{row.getKey(), entry.getKey(), entry.getValue()});
+            }
+        }
+
+        CompletableFuture<Long> write = CompletableFuture.completedFuture(0L);
+        if (!upserts.isEmpty()) write = write.thenCompose(count -> update(batch(connection.createStatement(r2dbcSql("KV_UPSERT", table, List.of(), () -> keyValueUpsertSql(table))), upserts)));
+        if (!deletes.isEmpty()) write = write.thenCompose(count -> update(batch(connection.createStatement(r2dbcSql("KV_DELETE", table, List.of(), () -> keyValueDeleteSql(table))), deletes)));
+        return write.thenApply(count -> null);
+    }
+
+    /**
+     * Get the SQL of a statement shape for R2DBC (with the driver's {@link xyz.srnyx.annoyingapi.storage.SQLSyntax#bindMarkers(String) bind markers}), only rendering it the first time
+     *
+     * @param   operation   the name of the operation
+     * @param   table       the table
+     * @param   columns     the columns, in the order they're rendered
+     * @param   renderer    renders the SQL with {@code ?} parameters
+     *
+     * @return              the SQL
+     *
+     * @see                 #sql(String, String, List, Supplier)
+     */
+    @NotNull
+    private String r2dbcSql(@NotNull String operation, @NotNull String table, @NotNull List<String> columns, @NotNull Supplier<String> renderer) {
+        return sql("R2DBC_" + operation, table, columns, () -> syntax.bindMarkers(renderer.get()));
+    }
+
+    /**
+     * Get the kinds of a table's columns
+     * <br>The first time for each table, they're read from JDBC metadata on the calling thread, so only call this from a caller's thread (never from a driver callback)
+     *
+     * @param   table   the table
+     *
+     * @return          a future completed with {@code [ Column name: Kind ]}
+     */
+    @NotNull
+    private CompletableFuture<Map<String, ColumnType.Kind>> kinds(@NotNull String table) {
+        try {
+            return CompletableFuture.completedFuture(getColumnKinds(table));
+        } catch (final SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Run an action with a pooled connection, giving the connection back once the action is done
+     * <br>Fails fast if {@link #circuitBreaker} is open, and times out after the {@link StorageConfig.CircuitBreaker#query_timeout query timeout}
+     *
+     * @param   action  the action
+     *
+     * @return          a future completed with the result of the action
+     *
+     * @param   <T>     the type of the result
+     */
+    @NotNull
+    private <T> CompletableFuture<T> withConnection(@NotNull ConnectionAction<T> action) {
+        try {
+            circuitBreaker.check();
+        } catch (final CircuitBreaker.OpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final CompletableFuture<T> future = first(connectionFactory.create()).thenCompose(connection -> {
+            final CompletableFuture<T> done = new CompletableFuture<>();
+            run(action, connection).whenComplete((value, error) -> collect(connection.close()).whenComplete((v, closeError) -> {
+                if (error != null) {
+                    done.completeExceptionally(error);
+                } else {
+                    done.complete(value);
+                }
+            }));
+            return done;
+        });
+        final int timeout = dataManager.storageConfig.circuit_breaker.getQueryTimeoutSeconds();
+        return timeout > 0 ? future.orTimeout(timeout, TimeUnit.SECONDS) : future;
+    }
+
+    /**
+     * Run an action in a transaction, committing if it succeeds and rolling back if it fails
+     *
+     * @param   action  the action
+     *
+     * @return          a future completed once the transaction is committed
+     */
+    @NotNull
+    private CompletableFuture<Void> withTransaction(@NotNull ConnectionAction<Void> action) {
+        return withConnection(connection -> collect(connection.beginTransaction())
+                .thenCompose(v -> run(action, connection))
+                .thenCompose(v -> collect(connection.commitTransaction()))
+                .<Void>thenApply(v -> null)
+                .exceptionallyCompose(error -> collect(connection.rollbackTransaction()).<Void>handle((v, rollbackError) -> {
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+                })));
+    }
+
+    /**
+     * Log and count (for {@link #circuitBreaker}) a failed operation, replacing its result with a fallback
+     *
+     * @param   future      the operation
+     * @param   message     the error message
+     * @param   fallback    the result if it fails
+     *
+     * @return              a future that's never completed exceptionally
+     *
+     * @param   <T>         the type of the result
+     */
+    @NotNull
+    private <T> CompletableFuture<T> recover(@NotNull CompletableFuture<T> future, @NotNull String message, @NotNull Supplier<T> fallback) {
+        return future.handle((value, error) -> {
+            if (error == null) {
+                circuitBreaker.success();
+                return value;
+            }
+            logFailure(message, toSQLException(error));
+            return fallback.get();
+        });
+    }
+
+    /**
+     * Bind a value as the native type of its column, see {@link JDBCDialect}'s binding
+     *
+     * @param   statement   the statement to bind to
+     * @param   index       the parameter index (starting at {@code 0})
+     * @param   kind        the kind of the column
+     * @param   value       the value, or {@code null}
+     *
+     * @throws  SQLDataException    if the value can't be converted to the column's type
+     */
+    private static void bind(@NotNull Statement statement, int index, @NotNull ColumnType.Kind kind, @Nullable String value) throws SQLDataException {
+        if (value == null) {
+            statement.bindNull(index, switch (kind) {
+                case INT -> Integer.class;
+                case LONG -> Long.class;
+                case DOUBLE -> Double.class;
+                case BOOLEAN -> Boolean.class;
+                case UUID -> UUID.class;
+                case VARCHAR, TEXT -> String.class;
+            });
+            return;
+        }
+        final Object bound;
+        try {
+            bound = switch (kind) {
+                case INT -> Integer.parseInt(value.trim());
+                case LONG -> Long.parseLong(value.trim());
+                case DOUBLE -> Double.parseDouble(value);
+                case BOOLEAN -> ColumnType.parseBoolean(value);
+                case UUID -> UUID.fromString(value.trim());
+                case VARCHAR, TEXT -> value;
+            };
+        } catch (final IllegalArgumentException e) {
+            // SQLState 22018: invalid character value for cast
+            throw new SQLDataException("'" + value + "' is not a valid " + kind.name().toLowerCase(Locale.ROOT) + " value", "22018", e);
+        }
+        statement.bind(index, bound);
+    }
+
+    /**
+     * Bind string parameters for every row of a batched statement
+     *
+     * @param   statement   the statement
+     * @param   rows        the parameters of each row
+     *
+     * @return              the statement
+     */
+    @NotNull
+    private static Statement batch(@NotNull Statement statement, @NotNull List<String[]> rows) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) statement.add();
+            final String[] parameters = rows.get(i);
+            for (int j = 0; j < parameters.length; j++) statement.bind(j, parameters[j]);
+        }
+        return statement;
+    }
+
+    /**
+     * Read a value as a string in the same format that {@link xyz.srnyx.annoyingapi.data.Data#set(String, Object)} stores it in, like {@link JDBCDialect} does
+     *
+     * @param   value   the value from the driver, or {@code null}
+     * @param   kind    the kind of the column, {@code null} if unknown
+     *
+     * @return          the value, or {@code null}
+     */
+    @Nullable
+    private static String read(@Nullable Object value, @Nullable ColumnType.Kind kind) {
+        if (value == null) return null;
+        if (value instanceof Number number) {
+            // MySQL's BOOLEAN is a TINYINT(1)
+            if (kind == ColumnType.Kind.BOOLEAN) return String.valueOf(number.intValue() != 0);
+            if (value instanceof Double || value instanceof Float) return String.valueOf(number.doubleValue());
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) return String.valueOf(number.longValue());
+        }
+        return value.toString();
+    }
+
+    /**
+     * Execute a statement and add up the updated row counts of all its results
+     *
+     * @param   statement   the statement
+     *
+     * @return              a future completed with the number of updated rows
+     */
+    @NotNull
+    private static CompletableFuture<Long> update(@NotNull Statement statement) {
+        return consume(statement.execute(), Result::getRowsUpdated).thenApply(counts -> {
+            long total = 0;
+            for (final Long count : counts) total += count;
+            return total;
+        });
+    }
+
+    /**
+     * Execute a statement and map the rows of all its results
+     *
+     * @param   statement   the statement
+     * @param   mapper      maps a row, mustn't return {@code null}
+     *
+     * @return              a future completed with the mapped rows, in order
+     *
+     * @param   <T>         the type of a mapped row
+     */
+    @NotNull
+    private static <T> CompletableFuture<List<T>> query(@NotNull Statement statement, @NotNull BiFunction<Row, RowMetadata, ? extends T> mapper) {
+        return consume(statement.execute(), result -> result.map(mapper));
+    }
+
+    /**
+     * Consume every result of an execution as soon as it arrives (drivers don't send the next result until the current one is consumed)
+     *
+     * @param   results     the results
+     * @param   consumer    turns a result into its items
+     *
+     * @return              a future completed with the items of all results, in order
+     *
+     * @param   <T>         the type of the items
+     */
+    @NotNull
+    private static <T> CompletableFuture<List<T>> consume(@NotNull Publisher<? extends Result> results, @NotNull Function<Result, Publisher<? extends T>> consumer) {
+        final CompletableFuture<List<T>> future = new CompletableFuture<>();
+        results.subscribe(new Subscriber<Result>() {
+            @NotNull private final List<CompletableFuture<List<T>>> parts = new ArrayList<>();
+
+            @Override
+            public void onSubscribe(@NotNull Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(@NotNull Result result) {
+                parts.add(collect(consumer.apply(result)));
+            }
+
+            @Override
+            public void onError(@NotNull Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).whenComplete((v, error) -> {
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                        return;
+                    }
+                    final List<T> items = new ArrayList<>();
+                    for (final CompletableFuture<List<T>> part : parts) items.addAll(part.join());
+                    future.complete(items);
+                });
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Get the only item of a publisher
+     *
+     * @param   publisher   the publisher
+     *
+     * @return              a future completed with the item
+     *
+     * @param   <T>         the type of the item
+     */
+    @NotNull
+    private static <T> CompletableFuture<T> first(@NotNull Publisher<? extends T> publisher) {
+        return R2DBCDialect.<T>collect(publisher).thenApply(items -> {
+            if (items.isEmpty()) throw new IllegalStateException("Publisher completed without an item");
+            return items.get(0);
+        });
+    }
+
+    /**
+     * Request and collect every item of a publisher
+     *
+     * @param   publisher   the publisher
+     *
+     * @return              a future completed with the items once the publisher completes
+     *
+     * @param   <T>         the type of the items
+     */
+    @NotNull
+    private static <T> CompletableFuture<List<T>> collect(@NotNull Publisher<? extends T> publisher) {
+        final CompletableFuture<List<T>> future = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            @NotNull private final List<T> items = new ArrayList<>();
+
+            @Override
+            public void onSubscribe(@NotNull Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(@NotNull T item) {
+                items.add(item);
+            }
+
+            @Override
+            public void onError(@NotNull Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(items);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Run an action, turning a thrown exception into a failed future
+     *
+     * @param   action      the action
+     * @param   connection  the connection to run it with
+     *
+     * @return              the action's future
+     *
+     * @param   <T>         the type of the result
+     */
+    @NotNull
+    private static <T> CompletableFuture<T> run(@NotNull ConnectionAction<T> action, @NotNull Connection connection) {
+        try {
+            return action.apply(connection);
+        } catch (final SQLException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Convert the reason an operation failed to an {@link SQLException}, so it can be logged and counted by {@link #circuitBreaker} like JDBC failures
+     * <br>R2DBC resource exceptions and I/O errors count as connection failures
+     *
+     * @param   throwable   the reason
+     *
+     * @return              the {@link SQLException}
+     */
+    @NotNull
+    private static SQLException toSQLException(@NotNull Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) cause = cause.getCause();
+        if (cause instanceof SQLException sqlException) return sqlException;
+        if (cause instanceof TimeoutException || cause instanceof R2dbcTimeoutException) return new SQLTimeoutException(cause.getMessage(), cause);
+        if (cause instanceof R2dbcException r2dbc) {
+            String state = r2dbc.getSqlState();
+            // SQLState class 08 is "connection exception"
+            if (state == null && (r2dbc instanceof R2dbcNonTransientResourceException || r2dbc instanceof R2dbcTransientResourceException)) state = "08000";
+            return new SQLException(r2dbc.getMessage(), state, r2dbc.getErrorCode(), r2dbc);
+        }
+        if (cause instanceof IOException) return new SQLNonTransientConnectionException(cause.getMessage(), "08000", cause);
+        return new SQLException(cause);
+    }
+
+    /**
+     * An operation that uses a connection
+     *
+     * @param   <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface ConnectionAction<T> {
+        /**
+         * Start the operation
+         *
+         * @param   connection  the connection
+         *
+         * @return              a future completed with the result
+         *
+         * @throws  SQLException    if the operation couldn't be started
+         */
+        @NotNull
+        CompletableFuture<T> apply(@NotNull Connection connection) throws SQLException;
+    }
+}
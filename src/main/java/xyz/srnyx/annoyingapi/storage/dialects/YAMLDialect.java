@@ -7,6 +7,8 @@ import xyz.srnyx.annoyingapi.storage.DataManager;
 import xyz.srnyx.annoyingapi.file.AnnoyingData;
 import xyz.srnyx.annoyingapi.storage.FailedSet;
 import xyz.srnyx.annoyingapi.storage.CachedValue;
+import xyz.srnyx.annoyingapi.storage.SortedIndex;
+import xyz.srnyx.annoyingapi.storage.TableCursor;
 import xyz.srnyx.javautilities.FileUtility;
 
 import java.io.File;
@@ -19,6 +21,10 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class YAMLDialect extends Dialect {
     @NotNull private final Map<String, AnnoyingData> tables = new HashMap<>();
+    /**
+     * The indexes used for queries, built on first use and kept up to date with the cache and file, keyed by {@code [table, key]}
+     */
+    @NotNull private final Map<List<String>, SortedIndex> indexes = new ConcurrentHashMap<>();
 
     /**
      * Creates a new H2 dialect
@@ -63,11 +69,13 @@ public class YAMLDialect extends Dialect {
                     return file;
                 })
                 .set(target + "." + key, value.value());
+        updateIndex(table, target, key, value.value());
     }
 
     @Override
     public void markRemovedInCacheImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
         getTableFromCache(table).ifPresent(file -> file.set(target + "." + key, null));
+        updateIndex(table, target, key, null);
     }
 
     @Override
@@ -110,14 +118,123 @@ public class YAMLDialect extends Dialect {
         return Optional.of(new MigrationData(tablesKeys, data));
     }
 
+    /**
+     * The tables are the files, their keys are only found when reading the targets
+     */
+    @Override @NotNull
+    protected Optional<Map<String, Set<String>>> getMigrationTablesImpl() {
+        final Map<String, Set<String>> tables = new HashMap<>();
+        for (final String table : FileUtility.getFileNames(new File(dataManager.plugin.getDataFolder(), "data/yaml"), "yaml")) tables.put(table, new HashSet<>());
+        return Optional.of(tables);
+    }
+
     @Override @NotNull
     protected Optional<String> getFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
         return Optional.ofNullable(getTableFromDatabase(table).getString(target + "." + key));
     }
 
+    /**
+     * Reads the file once for all targets
+     */
+    @Override @NotNull
+    protected Map<String, String> getManyFromDatabaseImpl(@NotNull String table, @NotNull Collection<String> targets, @NotNull String key) {
+        final AnnoyingData file = getTableFromDatabase(table);
+        final Map<String, String> values = new HashMap<>();
+        for (final String target : targets) {
+            final String value = file.getString(target + "." + key);
+            if (value != null) values.put(target, value);
+        }
+        return values;
+    }
+
+    /**
+     * Answered from a {@link SortedIndex} of the key, which is built from the file (or cache) the first time
+     */
+    @Override @NotNull
+    protected LinkedHashMap<String, String> queryFromDatabaseImpl(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max, boolean descending, int limit) {
+        return getIndex(table, key).query(min, max, descending, limit);
+    }
+
+    /**
+     * Answered from a {@link SortedIndex} of the key, which is built from the file (or cache) the first time
+     */
+    @Override
+    protected long countFromDatabaseImpl(@NotNull String table, @NotNull String key, @Nullable String min, @Nullable String max) {
+        return getIndex(table, key).count(min, max);
+    }
+
+    /**
+     * The file (or cache) is read once when the scan starts, pages are only made of the targets after the previous page in it
+     * so the values aren't all copied at once
+     */
+    @Override @NotNull
+    protected TableCursor.PageReader scanImpl(@NotNull String table) {
+        final AnnoyingData file = getTableFromCache(table).orElseGet(() -> getTableFromDatabase(table));
+        final TreeSet<String> targets = new TreeSet<>(file.getKeys(false));
+        return (after, limit) -> {
+            final List<TableCursor.Row> rows = new ArrayList<>();
+            for (final String target : after == null ? targets : targets.tailSet(after, false)) {
+                if (rows.size() >= limit) break;
+                final ConfigurationSection targetData = file.getConfigurationSection(target);
+                if (targetData == null) continue;
+                final Map<String, String> values = new HashMap<>();
+                for (final String key : targetData.getKeys(false)) {
+                    final String value = targetData.getString(key);
+                    if (value != null) values.put(key, value);
+                }
+                rows.add(new TableCursor.Row(target, values));
+            }
+            return rows;
+        };
+    }
+
+    /**
+     * Get the index of a key, building it if it doesn't exist yet
+     *
+     * @param   table   the table
+     * @param   key     the key
+     *
+     * @return          the index
+     */
+    @NotNull
+    private SortedIndex getIndex(@NotNull String table, @NotNull String key) {
+        return indexes.computeIfAbsent(List.of(table, key), k -> {
+            final SortedIndex index = new SortedIndex(isNumeric(table, key));
+            final AnnoyingData file = getTableFromCache(table).orElseGet(() -> getTableFromDatabase(table));
+            for (final String target : file.getKeys(false)) index.put(target, file.getString(target + "." + key));
+            return index;
+        });
+    }
+
+    /**
+     * Update a target's value in the index of a key, if it's been built
+     *
+     * @param   table   the table
+     * @param   target  the target
+     * @param   key     the key
+     * @param   value   the new value, or {@code null} if it was removed
+     */
+    private void updateIndex(@NotNull String table, @NotNull String target, @NotNull String key, @Nullable String value) {
+        // Waits for the index if it's being built, so the update can't be missed
+        indexes.computeIfPresent(List.of(table, key), (k, index) -> {
+            index.put(target, value);
+            return index;
+        });
+    }
+
+    @Override @NotNull
+    protected Map<String, String> getAllFromDatabaseImpl(@NotNull String table, @NotNull String target) {
+        final Map<String, String> values = new HashMap<>();
+        final ConfigurationSection targetData = getTableFromDatabase(table).getConfigurationSection(target);
+        if (targetData != null) for (final String key : targetData.getKeys(false)) values.put(key, targetData.getString(key));
+        return values;
+    }
+
     @Override @Nullable
     protected FailedSet setToDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key, @NotNull String value) {
-        return getTableFromDatabase(table).setSave(target + "." + key, value) ? null : new FailedSet(table, target, key, value);
+        if (!getTableFromDatabase(table).setSave(target + "." + key, value)) return new FailedSet(table, target, key, value);
+        updateIndex(table, target, key, value);
+        return null;
     }
 
     @Override @NotNull
@@ -132,13 +249,18 @@ public class YAMLDialect extends Dialect {
 
         // Return failures if saving fails
         final List<FailedSet> failed = new ArrayList<>();
-        if (file.save()) return failed;
+        if (file.save()) {
+            for (final Map.Entry<String, String> entry : entrySet) updateIndex(table, target, entry.getKey(), entry.getValue());
+            return failed;
+        }
         for (final Map.Entry<String, String> entry : entrySet) failed.add(new FailedSet(table, target, entry.getKey(), entry.getValue()));
         return failed;
     }
 
     @Override
     protected boolean removeFromDatabaseImpl(@NotNull String table, @NotNull String target, @NotNull String key) {
-        return getTableFromDatabase(table).setSave(target + "." + key, null);
+        if (!getTableFromDatabase(table).setSave(target + "." + key, null)) return false;
+        updateIndex(table, target, key, null);
+        return true;
     }
 }
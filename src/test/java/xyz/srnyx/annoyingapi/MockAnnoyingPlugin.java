@@ -1,10 +1,20 @@
 package xyz.srnyx.annoyingapi;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import xyz.srnyx.annoyingapi.library.AnnoyingLibraryManager;
+import xyz.srnyx.annoyingapi.storage.DataManager;
+import xyz.srnyx.annoyingapi.storage.StorageConfig;
+
+import java.util.concurrent.CountDownLatch;
 
 
 public class MockAnnoyingPlugin extends AnnoyingPlugin {
+    /**
+     * If set, the next {@link #connectDataManager(StorageConfig)} waits for it before connecting (only the next one)
+     */
+    @Nullable public volatile CountDownLatch connectGate;
+
     public MockAnnoyingPlugin() {
         options.pluginOptions.applyMockTemplate();
     }
@@ -14,4 +24,16 @@ public class MockAnnoyingPlugin extends AnnoyingPlugin {
         // Class loader can't be casted for the library manager to work
         return null;
     }
+
+    @Override @Nullable
+    protected DataManager connectDataManager(@NotNull StorageConfig storageConfig) {
+        final CountDownLatch gate = connectGate;
+        connectGate = null;
+        if (gate != null) try {
+            gate.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return super.connectDataManager(storageConfig);
+    }
 }
@@ -0,0 +1,166 @@
+package xyz.srnyx.annoyingapi.data;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import xyz.srnyx.annoyingapi.storage.ConnectionException;
+import xyz.srnyx.annoyingapi.storage.DataManager;
+import xyz.srnyx.annoyingapi.storage.StorageConfig;
+import xyz.srnyx.annoyingapi.storage.StorageMethod;
+import xyz.srnyx.annoyingapi.storage.StorageTestSupport;
+import xyz.srnyx.annoyingapi.storage.WriteQueue;
+import xyz.srnyx.annoyingapi.storage.dialects.JDBCDialect;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link StringData} (and the {@link Data} methods it inherits) using H2
+ */
+class StringDataTest extends StorageTestSupport {
+    private DataManager manager;
+
+    @NotNull
+    private DataManager connect(boolean groupCommit) throws ConnectionException {
+        final StorageConfig config = PLUGIN.newStorageConfig("storage.yml");
+        assertNotNull(config);
+        config.method = StorageMethod.H2;
+        config.async_threads = 1;
+        config.group_commit.enabled = groupCommit;
+        // Long interval so only flush() commits during the test
+        config.group_commit.interval = Duration.ofMinutes(10);
+        manager = new DataManager(config);
+        ((JDBCDialect) manager.dialect).createTablesKeys(Map.of("players", Set.of("name")));
+        PLUGIN.dataManager = manager;
+        PLUGIN.dataManagerReady = CompletableFuture.completedFuture(manager);
+        return manager;
+    }
+
+    @AfterEach
+    void tearDown() {
+        PLUGIN.dataManager = null;
+        PLUGIN.dataManagerReady = CompletableFuture.completedFuture(null);
+        if (manager != null) manager.close(false);
+        manager = null;
+    }
+
+    @Test
+    void asyncMethods_runOnStorageExecutor() throws Exception {
+        connect(false);
+        final StringData data = new StringData(PLUGIN, "players", "player1").useCache(false);
+
+        // Occupy the only storage thread
+        final CountDownLatch release = new CountDownLatch(1);
+        manager.executor.execute(() -> {
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        final CompletableFuture<Boolean> set = data.setAsync("name", "Alice");
+        final CompletableFuture<String> get = data.getAsync("name");
+        final CompletableFuture<Map<String, String>> getAll = data.getAllAsync();
+        assertFalse(set.isDone() || get.isDone() || getAll.isDone(), "nothing should run before the storage thread is free");
+
+        release.countDown();
+        assertTrue(set.get(5, TimeUnit.SECONDS));
+        assertEquals("Alice", get.get(5, TimeUnit.SECONDS));
+        assertEquals(Map.of("name", "Alice"), getAll.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void asyncMethods_roundTripValues() throws Exception {
+        connect(false);
+        final StringData data = new StringData(PLUGIN, "players", "player1").useCache(false);
+
+        assertTrue(data.setAsync("name", "Alice").get(5, TimeUnit.SECONDS));
+        assertEquals("Alice", manager.dialect.getFromDatabase("players", "player1", "name").orElse(null));
+        assertEquals("Alice", data.getAsync("name").get(5, TimeUnit.SECONDS));
+        assertEquals(Map.of("name", "Alice"), data.getAllAsync().get(5, TimeUnit.SECONDS));
+
+        assertTrue(data.removeAsync("name").get(5, TimeUnit.SECONDS));
+        assertNull(data.getAsync("name").get(5, TimeUnit.SECONDS));
+        assertEquals(Map.of(), data.getAllAsync().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void setAsync_groupCommit_completesOnceCommitted() throws Exception {
+        connect(true);
+        final WriteQueue queue = manager.writeQueue;
+        assertNotNull(queue);
+        final StringData data = new StringData(PLUGIN, "players", "player1").useCache(false);
+
+        final CompletableFuture<Boolean> set = data.setAsync("name", "Alice");
+        assertFalse(set.isDone(), "the future should wait for the commit");
+        assertTrue(manager.dialect.getFromDatabase("players", "player1", "name").isEmpty());
+        // Queued values are still visible to reads
+        assertEquals("Alice", data.get("name"));
+
+        queue.flush();
+        assertTrue(set.get(5, TimeUnit.SECONDS));
+        assertEquals("Alice", manager.dialect.getFromDatabase("players", "player1", "name").orElse(null));
+    }
+
+    @Test
+    void getOrLoad_concurrentCallers_loadOnceAndShareTheValue() throws Exception {
+        connect(false);
+        final int callers = 8;
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) results.add(pool.submit(() -> {
+                start.await();
+                return new StringData(PLUGIN, "players", "player1").useCache(false).getOrLoad("name", () -> {
+                    loads.incrementAndGet();
+                    try {
+                        // Slow enough for every caller to be waiting
+                        Thread.sleep(200);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "Alice";
+                });
+            }));
+            start.countDown();
+            for (final Future<String> result : results) assertEquals("Alice", result.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, loads.get(), "the loader should only run once");
+        assertEquals("Alice", manager.dialect.getFromDatabase("players", "player1", "name").orElse(null));
+    }
+
+    @Test
+    void syncExecutor_continuesOnMainThread() throws Exception {
+        connect(false);
+        final StringData data = new StringData(PLUGIN, "players", "player1");
+        assertTrue(data.setAsync("name", "Alice").get(5, TimeUnit.SECONDS));
+
+        final CompletableFuture<Boolean> onMainThread = data.getAsync("name")
+                .thenApplyAsync(value -> "Alice".equals(value) && Bukkit.isPrimaryThread(), PLUGIN.scheduler.syncExecutor());
+        // Sync tasks only run when the server ticks
+        for (int i = 0; i < 500 && !onMainThread.isDone(); i++) {
+            MockBukkit.getMock().getScheduler().performOneTick();
+            Thread.sleep(10);
+        }
+        assertTrue(onMainThread.get(1, TimeUnit.SECONDS), "the callback should get the value on the main thread");
+    }
+}
@@ -0,0 +1,69 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link CircuitBreaker}
+ */
+class CircuitBreakerTest extends StorageTestSupport {
+    @NotNull
+    private DataManager createDataManager(@NotNull Duration retryInterval) throws ConnectionException {
+        final StorageConfig config = PLUGIN.newStorageConfig("storage.yml");
+        assertNotNull(config);
+        config.method = StorageMethod.H2;
+        config.circuit_breaker.failure_threshold = 3;
+        config.circuit_breaker.retry_interval = retryInterval;
+        return new DataManager(config);
+    }
+
+    @Test
+    void failure_opensAfterThresholdOfConnectionFailuresInARow() throws ConnectionException {
+        final DataManager manager = createDataManager(Duration.ofMinutes(10));
+        final CircuitBreaker breaker = new CircuitBreaker(manager, () -> false);
+
+        // Other errors and interrupted streaks don't count
+        breaker.failure(new SQLException("syntax error", "42000"));
+        breaker.failure(new SQLTransientConnectionException("down"));
+        breaker.failure(new SQLTransientConnectionException("down"));
+        breaker.success();
+        breaker.failure(new SQLTransientConnectionException("down"));
+        breaker.failure(new SQLException("connection refused", "08001"));
+        assertFalse(breaker.isOpen());
+        assertDoesNotThrow(breaker::check);
+
+        breaker.failure(new SQLTransientConnectionException("down"));
+        assertTrue(breaker.isOpen());
+        assertThrows(CircuitBreaker.OpenException.class, breaker::check);
+        assertEquals(1, breaker.getTrips());
+
+        manager.close(false);
+    }
+
+    @Test
+    void probe_closesBreakerOnceDatabaseIsBack() throws Exception {
+        final DataManager manager = createDataManager(Duration.ofMillis(10));
+        final AtomicBoolean back = new AtomicBoolean();
+        final CircuitBreaker breaker = new CircuitBreaker(manager, back::get);
+        for (int i = 0; i < 3; i++) breaker.failure(new SQLTransientConnectionException("down"));
+        assertTrue(breaker.isOpen());
+
+        // Still down after a few probes
+        Thread.sleep(100);
+        assertTrue(breaker.isOpen());
+
+        back.set(true);
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (breaker.isOpen() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertFalse(breaker.isOpen());
+
+        manager.close(false);
+    }
+}
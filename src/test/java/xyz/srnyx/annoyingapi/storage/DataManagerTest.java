@@ -1,9 +1,18 @@
 package xyz.srnyx.annoyingapi.storage;
 
 import org.junit.jupiter.api.Test;
-import xyz.srnyx.annoyingapi.storage.dialects.SQLDialect;
+import xyz.srnyx.annoyingapi.storage.dialects.JDBCDialect;
 
 import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +33,74 @@ class DataManagerTest extends StorageTestSupport {
         assertEquals(PLUGIN.getName().toLowerCase().replaceAll("[^a-z0-9]", "") + "_", prefix);
     }
 
+    @Test
+    void close_waitsForQueuedAsyncOperations() throws ConnectionException {
+        final DataManager manager = createDataManager(StorageMethod.H2);
+        final AtomicBoolean ran = new AtomicBoolean();
+        manager.executor.execute(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ran.set(true);
+        });
+
+        manager.close(false);
+        assertTrue(ran.get(), "queued operation should finish before close returns");
+        assertTrue(manager.executor.isShutdown());
+    }
+
+    @Test
+    void loadDataManger_asyncConnect_completesReadyFutureWithManager() {
+        PLUGIN.options.dataOptions.enabled(true).asyncConnect(true);
+        try {
+            PLUGIN.loadDataManger(null, false);
+            final DataManager manager = PLUGIN.awaitDataManager();
+            assertNotNull(manager, "the manager should connect in the background");
+            assertTrue(PLUGIN.dataManagerReady.isDone());
+            assertSame(manager, PLUGIN.dataManager);
+            assertSame(manager, PLUGIN.dataManagerReady.join());
+        } finally {
+            // Closes the manager
+            PLUGIN.options.dataOptions.enabled(false).asyncConnect(false);
+            PLUGIN.loadDataManger(null, false);
+        }
+        assertNull(PLUGIN.dataManager);
+    }
+
+    @Test
+    void loadDataManger_afterTimedOutConnect_keepsNewManagerAndClosesLateOne() throws InterruptedException {
+        final Duration readyTimeout = PLUGIN.options.dataOptions.readyTimeout;
+        final CountDownLatch gate = new CountDownLatch(1);
+        PLUGIN.options.dataOptions.enabled(true).asyncConnect(true).readyTimeout(Duration.ofMillis(50));
+        try {
+            // The first connect is held up
+            PLUGIN.connectGate = gate;
+            PLUGIN.loadDataManger(null, false);
+            final CompletableFuture<DataManager> late = PLUGIN.dataManagerReady;
+
+            // Reloading times out waiting for it and connects a new manager
+            PLUGIN.options.dataOptions.asyncConnect(false);
+            PLUGIN.loadDataManger(null, false);
+            final DataManager manager = PLUGIN.dataManager;
+            assertNotNull(manager);
+
+            // The late manager connects afterwards, it's closed without replacing the new one
+            gate.countDown();
+            final DataManager lateManager = late.join();
+            assertNotNull(lateManager);
+            assertTrue(lateManager.executor.awaitTermination(5, TimeUnit.SECONDS), "the late manager should be closed");
+            assertSame(manager, PLUGIN.dataManager);
+            assertFalse(manager.executor.isShutdown());
+        } finally {
+            gate.countDown();
+            PLUGIN.connectGate = null;
+            PLUGIN.options.dataOptions.enabled(false).asyncConnect(false).readyTimeout(readyTimeout);
+            PLUGIN.loadDataManger(null, false);
+        }
+    }
+
     @Test
     void attemptDatabaseMigration_migratesDataAndSwapsFiles() throws ConnectionException {
         // Old manager: JSON, with some data written
@@ -38,7 +115,7 @@ class DataManagerTest extends StorageTestSupport {
 
         // Run the migration
         final DataManager migratedManager = oldManager.attemptDatabaseMigration();
-        assertInstanceOf(SQLDialect.class, migratedManager.dialect);
+        assertInstanceOf(JDBCDialect.class, migratedManager.dialect);
         assertEquals(StorageMethod.H2, migratedManager.storageConfig.method);
         assertEquals("Alice", migratedManager.dialect.getFromDatabase(migratedManager.getTableName("players"), "player1", "name").orElse(null));
 
@@ -48,7 +125,32 @@ class DataManagerTest extends StorageTestSupport {
         assertTrue(new File(dataFolder, "storage.yml").exists(), "storage.yml should exist after migration");
         assertFalse(new File(dataFolder, "storage-new.yml").exists(), "storage-new.yml should have been renamed away");
 
-        ((SQLDialect) migratedManager.dialect).dataSource.close();
+        ((JDBCDialect) migratedManager.dialect).closeDataSource();
+    }
+
+    @Test
+    void attemptDatabaseMigration_movesDataFromWideToNarrowLayout() throws ConnectionException {
+        // Old manager: H2 with the wide layout, with some data written
+        final DataManager oldManager = createDataManager(StorageMethod.H2, "storage.yml");
+        ((JDBCDialect) oldManager.dialect).createTablesKeys(Map.of("players", Set.of("name", "coins")));
+        assertNull(oldManager.dialect.setToDatabase("players", "player1", "name", "Alice"));
+
+        // Prepare storage-new.yml on disk, same database with the narrow layout
+        final StorageConfig newConfig = PLUGIN.newStorageConfig("storage-new.yml");
+        assertNotNull(newConfig);
+        newConfig.method = StorageMethod.H2;
+        newConfig.layout = StorageConfig.Layout.NARROW;
+        newConfig.save();
+
+        // The narrow table sits next to the wide one
+        final DataManager migratedManager = oldManager.attemptDatabaseMigration();
+        assertEquals(StorageConfig.Layout.NARROW, migratedManager.storageConfig.layout);
+        final String table = migratedManager.getTableName("players");
+        assertEquals("players_kv", table);
+        // Keys without a value aren't stored
+        assertEquals(Map.of("name", "Alice"), migratedManager.dialect.getFromDatabase(table, "player1", List.of("name", "coins")));
+
+        ((JDBCDialect) migratedManager.dialect).closeDataSource();
     }
 
     @Test
@@ -65,11 +167,37 @@ class DataManagerTest extends StorageTestSupport {
 
         // Run the migration through the full production pipeline (not just Dialect-level extraction)
         final DataManager migratedManager = oldManager.attemptDatabaseMigration();
-        assertInstanceOf(SQLDialect.class, migratedManager.dialect);
+        assertInstanceOf(JDBCDialect.class, migratedManager.dialect);
 
         // The migrated data must be reachable under the resolved (lowercased) table name
         assertEquals("Alice", migratedManager.dialect.getFromDatabase(migratedManager.getTableName("Players"), "player1", "name").orElse(null));
 
-        ((SQLDialect) migratedManager.dialect).dataSource.close();
+        ((JDBCDialect) migratedManager.dialect).closeDataSource();
+    }
+
+    @Test
+    void attemptDatabaseMigration_continuesFromCheckpoint() throws ConnectionException, IOException {
+        // Old manager: JSON, with three targets written
+        final DataManager oldManager = createDataManager(StorageMethod.JSON, "storage.yml");
+        for (final String target : List.of("player1", "player2", "player3")) assertNull(oldManager.dialect.setToDatabase("players", target, "name", target));
+
+        // Prepare storage-new.yml on disk, pointing at H2
+        final StorageConfig newConfig = PLUGIN.newStorageConfig("storage-new.yml");
+        assertNotNull(newConfig);
+        newConfig.method = StorageMethod.H2;
+        newConfig.save();
+
+        // An earlier run got up to player2
+        final File checkpointFile = new File(PLUGIN.getDataFolder(), MigrationCheckpoint.FILE_NAME);
+        new MigrationCheckpoint(checkpointFile, MigrationCheckpoint.describe(oldManager.storageConfig, newConfig)).save("players", "player2");
+
+        // Only the rest is migrated, then the checkpoint is removed
+        final DataManager migratedManager = oldManager.attemptDatabaseMigration();
+        final String table = migratedManager.getTableName("players");
+        assertEquals("player3", migratedManager.dialect.getFromDatabase(table, "player3", "name").orElse(null));
+        assertTrue(migratedManager.dialect.getFromDatabase(table, "player1", "name").isEmpty());
+        assertFalse(checkpointFile.exists(), "the checkpoint should be deleted once the migration is done");
+
+        ((JDBCDialect) migratedManager.dialect).closeDataSource();
     }
 }
@@ -0,0 +1,38 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link MigrationCheckpoint}
+ */
+class MigrationCheckpointTest {
+
+    @Test
+    void load_continuesOnlyTheSameMigration() throws IOException {
+        final File file = Files.createTempDirectory("checkpoint").resolve(MigrationCheckpoint.FILE_NAME).toFile();
+        final MigrationCheckpoint fresh = MigrationCheckpoint.load(file, "JSON -> H2");
+        assertNull(fresh.getTable());
+        assertFalse(fresh.isDone("players"));
+
+        fresh.save("players", "player2");
+        final MigrationCheckpoint loaded = MigrationCheckpoint.load(file, "JSON -> H2");
+        assertEquals("players", loaded.getTable());
+        assertTrue(loaded.isDone("homes"));
+        assertFalse(loaded.isDone("players"));
+        assertFalse(loaded.isDone("warps"));
+        assertEquals("player2", loaded.getLastTarget("players"));
+        assertNull(loaded.getLastTarget("warps"));
+
+        // Another migration starts over
+        assertNull(MigrationCheckpoint.load(file, "JSON -> MYSQL").getTable());
+
+        loaded.delete();
+        assertFalse(file.exists());
+    }
+}
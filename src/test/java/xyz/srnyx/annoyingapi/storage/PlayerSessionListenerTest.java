@@ -0,0 +1,118 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import xyz.srnyx.annoyingapi.storage.dialects.JDBCDialect;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link PlayerSessionListener} and the {@link DataManager#preload(String)}/{@link DataManager#unload(String)} it calls
+ */
+class PlayerSessionListenerTest extends StorageTestSupport {
+    private Map<String, Set<String>> tables;
+    private DataManager manager;
+    private JDBCDialect dialect;
+    private PlayerSessionListener listener;
+
+    @BeforeEach
+    void setUp() throws ConnectionException {
+        tables = new HashMap<>(PLUGIN.options.dataOptions.tables);
+        PLUGIN.options.dataOptions.tables.put("players", new HashSet<>(Set.of("name")));
+        PLUGIN.options.dataOptions.tables.put("homes", new HashSet<>(Set.of("home")));
+
+        manager = createDataManager(StorageMethod.H2);
+        dialect = (JDBCDialect) manager.dialect;
+        dialect.createTablesKeys(Map.of("players", Set.of("name"), "homes", Set.of("home")));
+        PLUGIN.dataManager = manager;
+        PLUGIN.dataManagerReady = CompletableFuture.completedFuture(manager);
+        listener = new PlayerSessionListener(PLUGIN);
+    }
+
+    @AfterEach
+    void tearDown() {
+        PLUGIN.dataManager = null;
+        PLUGIN.dataManagerReady = CompletableFuture.completedFuture(null);
+        PLUGIN.options.dataOptions.tables.clear();
+        PLUGIN.options.dataOptions.tables.putAll(tables);
+        manager.close(false);
+    }
+
+    @NotNull
+    private static AsyncPlayerPreLoginEvent preLogin(@NotNull UUID uuid) {
+        return new AsyncPlayerPreLoginEvent("Player", InetAddress.getLoopbackAddress(), uuid);
+    }
+
+    @Test
+    void preLogin_loadsEveryTableIntoTheCache() {
+        final UUID uuid = UUID.randomUUID();
+        final String target = uuid.toString();
+        assertNull(dialect.setToDatabase("players", target, "name", "Alice"));
+        assertNull(dialect.setToDatabase("homes", target, "home", "0,64,0"));
+
+        listener.onAsyncPlayerPreLogin(preLogin(uuid));
+
+        final CachedValue name = dialect.getFromCache("players", target, "name");
+        final CachedValue home = dialect.getFromCache("homes", target, "home");
+        assertNotNull(name, "players should be preloaded");
+        assertNotNull(home, "homes should be preloaded");
+        assertEquals("Alice", name.value());
+        assertEquals("0,64,0", home.value());
+    }
+
+    @Test
+    void quit_savesChangesAndEvictsTarget() throws InterruptedException {
+        final PlayerMock player = MockBukkit.getMock().addPlayer();
+        final String target = player.getUniqueId().toString();
+        dialect.setToCache("players", target, "name", new CachedValue("Bob"));
+
+        listener.onPlayerQuit(new PlayerQuitEvent(player, "Bye"));
+        // Unloading runs on the storage executor
+        manager.executor.shutdown();
+        assertTrue(manager.executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertNull(dialect.getFromCache("players", target, "name"), "the target should be evicted");
+        assertEquals("Bob", dialect.getFromDatabase("players", target, "name").orElse(null), "the change should be saved first");
+    }
+
+    @Test
+    void preLogin_deniedOrSessionsDisabled_doesNothing() {
+        final UUID uuid = UUID.randomUUID();
+        final String target = uuid.toString();
+        assertNull(dialect.setToDatabase("players", target, "name", "Alice"));
+
+        // Denied login
+        final AsyncPlayerPreLoginEvent denied = preLogin(uuid);
+        denied.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, "Banned");
+        listener.onAsyncPlayerPreLogin(denied);
+        assertNull(dialect.getFromCache("players", target, "name"));
+
+        // Sessions disabled
+        manager.storageConfig.cache.player_sessions = false;
+        listener.onAsyncPlayerPreLogin(preLogin(uuid));
+        assertNull(dialect.getFromCache("players", target, "name"));
+
+        // Quitting doesn't save or evict either
+        final PlayerMock player = MockBukkit.getMock().addPlayer();
+        final String quitter = player.getUniqueId().toString();
+        dialect.setToCache("players", quitter, "name", new CachedValue("Bob"));
+        listener.onPlayerQuit(new PlayerQuitEvent(player, "Bye"));
+        assertNotNull(dialect.getFromCache("players", quitter, "name"));
+        assertTrue(dialect.getFromDatabase("players", quitter, "name").isEmpty());
+    }
+}
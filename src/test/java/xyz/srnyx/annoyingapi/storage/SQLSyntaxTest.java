@@ -0,0 +1,152 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link SQLSyntax} (rendering only, no database involved)
+ */
+class SQLSyntaxTest {
+
+    @Test
+    void upsert_isASingleStatementForEverySyntax() {
+        for (final SQLSyntax syntax : SQLSyntax.values()) {
+            final String sql = syntax.upsert("players", List.of("name", "coins"));
+            assertFalse(sql.contains(";"), syntax + " upsert should be one statement: " + sql);
+            assertEquals(3, sql.chars().filter(c -> c == '?').count(), syntax + " upsert should bind target + 2 columns: " + sql);
+        }
+    }
+
+    @Test
+    void upsert_usesNativeSyntaxPerDatabase() {
+        assertTrue(SQLSyntax.H2.upsert("players", List.of("name")).startsWith("MERGE INTO \"players\""));
+        assertTrue(SQLSyntax.H2.upsert("players", List.of("name")).contains("KEY (\"target\")"));
+        assertTrue(SQLSyntax.MYSQL.upsert("players", List.of("name")).endsWith("ON DUPLICATE KEY UPDATE `name` = VALUES(`name`)"));
+        assertTrue(SQLSyntax.POSTGRESQL.upsert("players", List.of("name")).endsWith("ON CONFLICT (\"target\") DO UPDATE SET \"name\" = EXCLUDED.\"name\""));
+        assertTrue(SQLSyntax.SQLITE.upsert("players", List.of("name")).endsWith("ON CONFLICT (\"target\") DO UPDATE SET \"name\" = EXCLUDED.\"name\""));
+    }
+
+    @Test
+    void upsert_withoutColumnsOnlyInsertsTheTarget() {
+        assertEquals("INSERT INTO \"players\" (\"target\") VALUES (?) ON CONFLICT (\"target\") DO NOTHING", SQLSyntax.POSTGRESQL.upsert("players", List.of()));
+        assertEquals("INSERT INTO `players` (`target`) VALUES (?) ON DUPLICATE KEY UPDATE `target` = `target`", SQLSyntax.MYSQL.upsert("players", List.of()));
+    }
+
+    @Test
+    void select_onlyReadsTheGivenColumnsOfOneTarget() {
+        assertEquals("SELECT \"name\", \"coins\" FROM \"players\" WHERE \"target\" = ?", SQLSyntax.H2.select("players", List.of("name", "coins")));
+        assertEquals("SELECT * FROM `players` WHERE `target` = ?", SQLSyntax.MYSQL.selectAll("players"));
+    }
+
+    @Test
+    void setNull_onlyClearsOneColumnOfOneTarget() {
+        assertEquals("UPDATE \"players\" SET \"name\" = NULL WHERE \"target\" = ?", SQLSyntax.POSTGRESQL.setNull("players", "name"));
+    }
+
+    @Test
+    void createTable_includesAllColumnsInOneStatement() {
+        assertEquals("CREATE TABLE IF NOT EXISTS \"players\" (\"target\" VARCHAR(255) NOT NULL, \"coins\" TEXT, \"name\" TEXT, PRIMARY KEY (\"target\"))", SQLSyntax.POSTGRESQL.createTable("players", List.of("coins", "name")));
+        assertEquals("CREATE TABLE IF NOT EXISTS `players` (`target` VARCHAR(255) NOT NULL, PRIMARY KEY (`target`))", SQLSyntax.MYSQL.createTable("players"));
+    }
+
+    @Test
+    void addColumns_usesOneStatementPerTableWhereSupported() {
+        assertEquals(List.of("ALTER TABLE \"players\" ADD (\"coins\" CLOB, \"name\" CLOB)"), SQLSyntax.H2.addColumns("players", List.of("coins", "name")));
+        assertEquals(List.of("ALTER TABLE `players` ADD COLUMN `coins` LONGTEXT, ADD COLUMN `name` LONGTEXT"), SQLSyntax.MYSQL.addColumns("players", List.of("coins", "name")));
+        assertEquals(List.of("ALTER TABLE \"players\" ADD COLUMN \"coins\" TEXT, ADD COLUMN \"name\" TEXT"), SQLSyntax.POSTGRESQL.addColumns("players", List.of("coins", "name")));
+        // SQLite can only add one column at a time
+        assertEquals(2, SQLSyntax.SQLITE.addColumns("players", List.of("coins", "name")).size());
+        for (final SQLSyntax syntax : SQLSyntax.values()) assertTrue(syntax.addColumns("players", List.of()).isEmpty());
+    }
+
+    @Test
+    void createTable_usesDeclaredColumnTypes() {
+        final Map<String, ColumnType> columns = new LinkedHashMap<>();
+        columns.put("coins", ColumnType.INT);
+        columns.put("last_seen", ColumnType.LONG);
+        columns.put("vip", ColumnType.BOOLEAN);
+        columns.put("friend", ColumnType.UUID);
+        columns.put("nickname", ColumnType.parse("varchar(16)"));
+        assertEquals("CREATE TABLE IF NOT EXISTS \"players\" (\"target\" VARCHAR(255) NOT NULL, \"coins\" INTEGER, \"last_seen\" BIGINT, \"vip\" BOOLEAN, \"friend\" UUID, \"nickname\" VARCHAR(16), PRIMARY KEY (\"target\"))", SQLSyntax.H2.createTable("players", columns));
+        // No native UUID type in MySQL
+        assertEquals(List.of("ALTER TABLE `players` ADD COLUMN `friend` CHAR(36)"), SQLSyntax.MYSQL.addColumns("players", Map.of("friend", ColumnType.UUID)));
+        assertThrows(IllegalArgumentException.class, () -> ColumnType.parse("varchar(0)"));
+        assertThrows(IllegalArgumentException.class, () -> ColumnType.parse("blob"));
+    }
+
+    @Test
+    void columnType_normalizesValuesToTheirStoredFormat() {
+        assertEquals("100.0", ColumnType.DOUBLE.normalize("100"));
+        assertEquals("5", ColumnType.INT.normalize(" 5 "));
+        assertEquals("true", ColumnType.BOOLEAN.normalize("1"));
+        assertEquals("0f3a1c2e-0000-4000-8000-000000000000", ColumnType.UUID.normalize("0F3A1C2E-0000-4000-8000-000000000000"));
+        assertEquals("any text", ColumnType.TEXT.normalize("any text"));
+        assertThrows(IllegalArgumentException.class, () -> ColumnType.INT.normalize("lots"));
+        assertThrows(IllegalArgumentException.class, () -> ColumnType.INT.normalize(String.valueOf(Long.MAX_VALUE)));
+        assertThrows(IllegalArgumentException.class, () -> ColumnType.BOOLEAN.normalize("yes"));
+        assertThrows(IllegalArgumentException.class, () -> ColumnType.varchar(3).normalize("four"));
+    }
+
+    @Test
+    void keyValue_statementsUseTargetAndKeyAsPrimaryKey() {
+        assertEquals("CREATE TABLE IF NOT EXISTS \"players_kv\" (\"target\" VARCHAR(255) NOT NULL, \"key\" VARCHAR(255) NOT NULL, \"value\" CLOB, PRIMARY KEY (\"target\", \"key\"))", SQLSyntax.H2.createKeyValueTable("players_kv"));
+        assertEquals("INSERT INTO \"players_kv\" (\"target\", \"key\", \"value\") VALUES (?, ?, ?) ON CONFLICT (\"target\", \"key\") DO UPDATE SET \"value\" = EXCLUDED.\"value\"", SQLSyntax.SQLITE.upsert("players_kv", List.of("target", SQLSyntax.KEY_COLUMN), List.of(SQLSyntax.VALUE_COLUMN)));
+        assertEquals("SELECT `key`, `value` FROM `players_kv` WHERE `target` = ? AND `key` IN (?, ?)", SQLSyntax.MYSQL.selectKeyValues("players_kv", 2));
+        assertEquals("DELETE FROM \"players_kv\" WHERE \"target\" = ? AND \"key\" = ?", SQLSyntax.POSTGRESQL.deleteKeyValue("players_kv"));
+    }
+
+    @Test
+    void selectMany_selectsTargetWithValueForEveryTarget() {
+        assertEquals("SELECT \"target\", \"coins\" FROM \"players\" WHERE \"target\" IN (?, ?, ?)", SQLSyntax.H2.selectMany("players", "coins", 3));
+        assertEquals("SELECT `target`, `value` FROM `players_kv` WHERE `key` = ? AND `target` IN (?, ?)", SQLSyntax.MYSQL.selectManyKeyValues("players_kv", 2));
+    }
+
+    @Test
+    void selectRange_ordersAndLimitsInTheDatabase() {
+        assertEquals("SELECT \"target\", \"kills\" FROM \"players\" WHERE \"kills\" IS NOT NULL AND \"kills\" >= ? ORDER BY \"kills\" DESC, \"target\" DESC LIMIT ?", SQLSyntax.H2.selectRange("players", "kills", true, false, true));
+        assertEquals("SELECT COUNT(*) FROM `players` WHERE `kills` IS NOT NULL AND `kills` >= ? AND `kills` <= ?", SQLSyntax.MYSQL.countRange("players", "kills", true, true));
+        assertEquals("SELECT \"target\", \"value\" FROM \"players_kv\" WHERE \"key\" = ? AND \"value\" IS NOT NULL AND CAST(\"value\" AS DOUBLE PRECISION) <= ? ORDER BY CAST(\"value\" AS DOUBLE PRECISION) ASC, \"target\" ASC LIMIT ?", SQLSyntax.POSTGRESQL.selectKeyValueRange("players_kv", true, false, true, false));
+        assertEquals("CREATE INDEX \"players_kills_idx\" ON \"players\" (\"kills\")", SQLSyntax.SQLITE.createIndex("players", "kills"));
+    }
+
+    @Test
+    void selectPage_usesKeysetPaginationOnTarget() {
+        assertEquals("SELECT * FROM \"players\" ORDER BY \"target\" LIMIT ?", SQLSyntax.H2.selectPage("players", false));
+        assertEquals("SELECT * FROM `players` WHERE `target` > ? ORDER BY `target` LIMIT ?", SQLSyntax.MYSQL.selectPage("players", true));
+        assertEquals("SELECT t.\"target\", t.\"key\", t.\"value\" FROM \"players_kv\" t JOIN (SELECT DISTINCT \"target\" FROM \"players_kv\" WHERE \"target\" > ? ORDER BY \"target\" LIMIT ?) p ON t.\"target\" = p.\"target\" ORDER BY t.\"target\"", SQLSyntax.POSTGRESQL.selectKeyValuePage("players_kv", true));
+    }
+
+    @Test
+    void increment_addsInPlaceCastingTextColumns() {
+        assertEquals("UPDATE \"players\" SET \"coins\" = COALESCE(\"coins\", 0) + ? WHERE \"target\" = ?", SQLSyntax.POSTGRESQL.increment("players", "coins", true));
+        assertEquals("UPDATE \"players\" SET \"kills\" = CAST(CAST(CAST(COALESCE(\"kills\", '0') AS VARCHAR) AS BIGINT) + ? AS VARCHAR) WHERE \"target\" = ?", SQLSyntax.H2.increment("players", "kills", false));
+        assertEquals("UPDATE `players_kv` SET `value` = CAST(CAST(`value` AS SIGNED) + ? AS CHAR) WHERE `target` = ? AND `key` = ?", SQLSyntax.MYSQL.incrementKeyValue("players_kv"));
+    }
+
+    @Test
+    void compareAndSet_onlyUpdatesExpectedValue() {
+        assertEquals("UPDATE \"players\" SET \"name\" = ? WHERE \"target\" = ? AND \"name\" = ?", SQLSyntax.SQLITE.compareAndSet("players", "name", false));
+        assertEquals("UPDATE \"players\" SET \"name\" = ? WHERE \"target\" = ? AND \"name\" IS NULL", SQLSyntax.SQLITE.compareAndSet("players", "name", true));
+        assertEquals("DELETE FROM \"players_kv\" WHERE \"target\" = ? AND \"key\" = ? AND \"value\" = ?", SQLSyntax.H2.compareAndDeleteKeyValue("players_kv"));
+        assertEquals("INSERT INTO \"players\" (\"target\", \"name\") VALUES (?, ?)", SQLSyntax.H2.insert("players", List.of("target"), List.of("name")));
+    }
+
+    @Test
+    void bindMarkers_areNumberedOnlyForPostgresql() {
+        final String upsert = SQLSyntax.POSTGRESQL.upsert("players", List.of("coins?"));
+        assertEquals("INSERT INTO \"players\" (\"target\", \"coins?\") VALUES ($1, $2) ON CONFLICT (\"target\") DO UPDATE SET \"coins?\" = EXCLUDED.\"coins?\"", SQLSyntax.POSTGRESQL.bindMarkers(upsert));
+        final String select = SQLSyntax.MYSQL.select("players", List.of("coins"));
+        assertSame(select, SQLSyntax.MYSQL.bindMarkers(select));
+    }
+
+    @Test
+    void quote_escapesEmbeddedQuoteCharacters() {
+        assertEquals("\"we\"\"ird\"", SQLSyntax.H2.quote("we\"ird"));
+        assertEquals("`we``ird`", SQLSyntax.MYSQL.quote("we`ird"));
+    }
+}
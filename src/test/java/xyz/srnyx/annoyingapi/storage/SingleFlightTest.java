@@ -0,0 +1,64 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link SingleFlight}
+ */
+class SingleFlightTest {
+
+    @Test
+    void run_concurrentCallersForSameKeyShareOneCall() throws Exception {
+        final SingleFlight<String, String> flight = new SingleFlight<>();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        final List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> flight.run("key", () -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return "value";
+        })));
+        while (!flight.isRunning("key")) Thread.onSpinWait();
+        for (int i = 0; i < 7; i++) results.add(executor.submit(() -> flight.run("key", () -> {
+            calls.incrementAndGet();
+            return "other";
+        })));
+        Thread.sleep(100);
+        release.countDown();
+
+        for (final Future<String> result : results) assertEquals("value", result.get(10, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertFalse(flight.isRunning("key"));
+        executor.shutdown();
+    }
+
+    @Test
+    void run_laterCallsRunAgain() {
+        final SingleFlight<String, Integer> flight = new SingleFlight<>();
+        final AtomicInteger calls = new AtomicInteger();
+        assertEquals(1, flight.run("key", calls::incrementAndGet));
+        assertEquals(2, flight.run("key", calls::incrementAndGet));
+    }
+
+    @Test
+    void run_exceptionIsThrownAndNotRemembered() {
+        final SingleFlight<String, String> flight = new SingleFlight<>();
+        assertThrows(IllegalStateException.class, () -> flight.run("key", () -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals("value", flight.run("key", () -> "value"));
+    }
+}
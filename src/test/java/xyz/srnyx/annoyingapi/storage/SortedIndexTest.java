@@ -0,0 +1,45 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link SortedIndex}
+ */
+class SortedIndexTest {
+
+    @Test
+    void query_ordersNumbersByValueThenTarget() {
+        final SortedIndex index = new SortedIndex(true);
+        index.put("a", "5");
+        index.put("b", "10");
+        index.put("c", "10.0");
+        index.put("d", "not a number");
+        index.put("e", "2");
+        index.put("a", "20");
+        index.put("e", null);
+
+        assertEquals(List.of("a", "c", "b"), List.copyOf(index.query(null, null, true, 0).keySet()));
+        assertEquals(List.of("b", "c"), List.copyOf(index.query(null, null, false, 2).keySet()));
+        assertEquals("20", index.query("11", null, false, 0).get("a"));
+        assertTrue(index.query("11", "5", false, 0).isEmpty());
+        assertEquals(3, index.count(null, null));
+        assertEquals(2, index.count("10", "10"));
+        assertThrows(IllegalArgumentException.class, () -> index.query("x", null, false, 0));
+    }
+
+    @Test
+    void query_ordersTextAsText() {
+        final SortedIndex index = new SortedIndex(false);
+        index.put("a", "9");
+        index.put("b", "10");
+        index.put("c", "apple");
+
+        assertEquals(List.of("b", "a", "c"), List.copyOf(index.query(null, null, false, 0).keySet()));
+        assertEquals(List.of("c"), List.copyOf(index.query("a", null, true, 0).keySet()));
+        assertEquals(2, index.count(null, "9"));
+    }
+}
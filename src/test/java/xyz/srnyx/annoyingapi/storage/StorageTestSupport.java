@@ -19,6 +19,16 @@ public abstract class StorageTestSupport extends MockBukkitTestSupport {
         final StorageConfig config = PLUGIN.newStorageConfig(fileName);
         assertNotNull(config, "Failed to build StorageConfig for " + fileName);
         config.method = method;
+        configure(config);
         return new DataManager(config);
     }
+
+    /**
+     * Change the config of every {@link DataManager} created by {@link #createDataManager(StorageMethod, String)} before it's created
+     *
+     * @param   config  the config
+     */
+    protected void configure(@NotNull StorageConfig config) {
+        // Defaults
+    }
 }
@@ -0,0 +1,72 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TableCursor}
+ */
+class TableCursorTest {
+
+    /**
+     * Pages over a sorted set of targets like a database would, recording the {@code after} of every read
+     */
+    private static TableCursor.PageReader reader(TreeSet<String> targets, List<String> reads) {
+        return (after, limit) -> {
+            reads.add(after);
+            return (after == null ? targets : targets.tailSet(after, false)).stream()
+                    .limit(limit)
+                    .map(target -> new TableCursor.Row(target, Map.of("key", target)))
+                    .collect(Collectors.toList());
+        };
+    }
+
+    @Test
+    void iterates_everyTargetInOrderOnePageAtATime() {
+        final TreeSet<String> targets = new TreeSet<>(List.of("e", "a", "d", "b", "c"));
+        final List<String> reads = new ArrayList<>();
+        try (final TableCursor cursor = new TableCursor(reader(targets, reads), 2)) {
+            assertEquals(List.of("a", "b", "c", "d", "e"), cursor.stream().map(TableCursor.Row::target).toList());
+            assertFalse(cursor.hasNext());
+            assertThrows(NoSuchElementException.class, cursor::next);
+        }
+        assertEquals(Arrays.asList(null, "b", "d"), reads);
+
+        // A full last page needs one more (empty) read to know it was the last
+        reads.clear();
+        targets.remove("e");
+        try (final TableCursor cursor = new TableCursor(reader(targets, reads), 2)) {
+            assertEquals(4, cursor.stream().count());
+        }
+        assertEquals(Arrays.asList(null, "b", "d"), reads);
+    }
+
+    @Test
+    void iterates_onlyTargetsAfterTheStartingTarget() {
+        final List<String> reads = new ArrayList<>();
+        try (final TableCursor cursor = new TableCursor(reader(new TreeSet<>(List.of("a", "b", "c", "d")), reads), 2, "b")) {
+            assertEquals(List.of("c", "d"), cursor.stream().map(TableCursor.Row::target).toList());
+        }
+        assertEquals(List.of("b", "d"), reads);
+    }
+
+    @Test
+    void close_stopsIteratingWithoutReadingMore() {
+        final List<String> reads = new ArrayList<>();
+        final TableCursor cursor = new TableCursor(reader(new TreeSet<>(List.of("a", "b", "c")), reads), 1);
+        assertEquals("a", cursor.next().target());
+        cursor.close();
+        assertFalse(cursor.hasNext());
+        assertEquals(1, reads.size());
+        assertThrows(IllegalArgumentException.class, () -> new TableCursor((after, limit) -> List.of(), 0));
+    }
+}
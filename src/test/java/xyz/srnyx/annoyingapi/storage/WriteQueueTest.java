@@ -0,0 +1,76 @@
+package xyz.srnyx.annoyingapi.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteQueueTest extends StorageTestSupport {
+    @NotNull
+    private DataManager createQueuedDataManager(int maxEntries) throws ConnectionException {
+        final StorageConfig config = PLUGIN.newStorageConfig("storage.yml");
+        assertNotNull(config);
+        config.method = StorageMethod.H2;
+        config.group_commit.enabled = true;
+        // Long interval so only max_entries/flush() commit during the test
+        config.group_commit.interval = Duration.ofMinutes(10);
+        config.group_commit.max_entries = maxEntries;
+        return new DataManager(config);
+    }
+
+    @Test
+    void enqueue_coalescesRepeatedKeysAndCompletesOnCommit() throws Exception {
+        final DataManager manager = createQueuedDataManager(100);
+        final WriteQueue queue = manager.writeQueue;
+        assertNotNull(queue);
+
+        final CompletableFuture<Boolean> first = queue.enqueue("players", "player1", "name", "Alice");
+        final CompletableFuture<Boolean> second = queue.enqueue("players", "player1", "NAME", "Bob");
+        assertSame(first, second, "repeated writes to the same key should share one future");
+        assertFalse(first.isDone());
+        assertEquals("Bob", queue.getPending("players", "player1", "name").value());
+        assertTrue(manager.dialect.getFromDatabase("players", "player1", "name").isEmpty(), "nothing should be committed before a flush");
+
+        queue.flush();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertNull(queue.getPending("players", "player1", "name"));
+        assertEquals("Bob", manager.dialect.getFromDatabase("players", "player1", "name").orElse(null));
+
+        manager.close(false);
+    }
+
+    @Test
+    void enqueue_fullQueue_commitsWithoutWaitingForInterval() throws Exception {
+        final DataManager manager = createQueuedDataManager(3);
+        final WriteQueue queue = manager.writeQueue;
+        assertNotNull(queue);
+
+        queue.enqueue("players", "player1", "name", "Alice");
+        queue.enqueue("players", "player2", "name", "Bob");
+        final CompletableFuture<Boolean> last = queue.enqueue("players", "player3", "name", "Carol");
+        assertTrue(last.get(5, TimeUnit.SECONDS));
+        assertEquals("Alice", manager.dialect.getFromDatabase("players", "player1", "name").orElse(null));
+        assertEquals("Carol", manager.dialect.getFromDatabase("players", "player3", "name").orElse(null));
+
+        manager.close(false);
+    }
+
+    @Test
+    void close_commitsQueuedWritesAndRejectsNewOnes() throws ConnectionException {
+        final DataManager manager = createQueuedDataManager(100);
+        final WriteQueue queue = manager.writeQueue;
+        assertNotNull(queue);
+
+        final CompletableFuture<Boolean> future = queue.enqueue("players", "player1", "name", "Alice");
+        queue.close();
+        assertTrue(future.join());
+        assertTrue(queue.enqueue("players", "player1", "name", "Bob").isCompletedExceptionally());
+        assertEquals("Alice", manager.dialect.getFromDatabase("players", "player1", "name").orElse(null));
+
+        manager.close(false);
+    }
+}
@@ -1,5 +1,6 @@
 package xyz.srnyx.annoyingapi.storage.dialect;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.jetbrains.annotations.NotNull;
 import org.jooq.impl.DSL;
 import org.jooq.impl.SQLDataType;
@@ -9,12 +10,16 @@ import xyz.srnyx.annoyingapi.storage.*;
 import xyz.srnyx.annoyingapi.storage.dialects.Dialect;
 import xyz.srnyx.annoyingapi.storage.dialects.SQLDialect;
 
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,6 +27,10 @@ import static org.junit.jupiter.api.Assertions.*;
  * Tests for {@link SQLDialect} using H2
  */
 class H2DialectTest extends StorageTestSupport {
+    @Override
+    protected void configure(@NotNull StorageConfig config) {
+        config.use_jooq = true;
+    }
 
     @NotNull
     private SQLDialect createSqlDialect() throws ConnectionException {
@@ -60,6 +69,45 @@ class H2DialectTest extends StorageTestSupport {
         assertEquals("Alicia", dialect.getFromDatabase("players", "player1", "name").orElse(null));
     }
 
+    @Test
+    void setToDatabase_concurrentWritersToNewTargetDontConflict() throws Exception {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name", "coins"));
+
+        // Every writer races to create the same new row, which UPDATE-then-INSERT would fail with a duplicate key
+        final int writers = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(writers);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<FailedSet>> results = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            final String column = i % 2 == 0 ? "name" : "coins";
+            final String value = column + i;
+            results.add(executor.submit(() -> {
+                start.await();
+                return dialect.setToDatabase("players", "player1", column, value);
+            }));
+        }
+        start.countDown();
+        for (final Future<FailedSet> result : results) assertNull(result.get(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(1, dialect.dsl.fetchCount(DSL.table(DSL.name("players"))));
+        assertTrue(dialect.getFromDatabase("players", "player1", "name").orElse("").startsWith("name"));
+        assertTrue(dialect.getFromDatabase("players", "player1", "coins").orElse("").startsWith("coins"));
+    }
+
+    @Test
+    void setToDatabase_upsertKeepsColumnsThatArentSet() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name", "coins"));
+
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+        assertNull(dialect.setToDatabase("players", "player1", "coins", "10"));
+
+        assertEquals("Alice", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+        assertEquals("10", dialect.getFromDatabase("players", "player1", "coins").orElse(null));
+    }
+
     @Test
     void createTablesKeys_addsMissingColumnToExistingTable() throws ConnectionException {
         final SQLDialect dialect = createSqlDialect();
@@ -105,6 +153,34 @@ class H2DialectTest extends StorageTestSupport {
         assertEquals("50", dialect.getFromDatabase("players", "player1", "coins").orElse(null));
     }
 
+    @Test
+    void getFromDatabase_multipleKeysOnlyReturnsRequestedValues() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name", "coins", "bio"));
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+        assertNull(dialect.setToDatabase("players", "player1", "bio", "x".repeat(10000)));
+
+        final Map<String, String> values = dialect.getFromDatabase("players", "player1", List.of("NAME", "coins"));
+        assertEquals(Map.of("name", "Alice"), values);
+        assertTrue(dialect.getFromDatabase("players", "player2", List.of("name", "coins")).isEmpty());
+    }
+
+    @Test
+    void getAllFromDatabase_returnsEveryColumnOfTheRow() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name", "coins"));
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+
+        final Map<String, String> expected = new HashMap<>();
+        expected.put("name", "Alice");
+        expected.put("coins", null);
+        assertEquals(expected, dialect.getAllFromDatabase("players", "player1"));
+
+        // Missing row still lists the columns, so they can be cached as having no value
+        expected.put("name", null);
+        assertEquals(expected, dialect.getAllFromDatabase("players", "player2"));
+    }
+
     @Test
     void removeValueFromDatabase_clearsValue() throws ConnectionException {
         final SQLDialect dialect = createSqlDialect();
@@ -116,6 +192,211 @@ class H2DialectTest extends StorageTestSupport {
         assertTrue(dialect.getFromDatabase("players", "player1", "name").isEmpty());
     }
 
+    @Test
+    void pool_usesMethodDefaultsAndReportsStats() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        assertNotNull(dialect.pool);
+        assertEquals(4, dialect.pool.getMaximumPoolSize());
+        assertEquals(1, dialect.pool.getMinimumIdle());
+
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+        final Dialect.PoolStats pool = dialect.getStats().pool();
+        assertNotNull(pool);
+        assertEquals(0, pool.active(), "every connection should be back in the pool");
+        assertEquals(0, pool.timeouts());
+    }
+
+    @Test
+    void warmup_preparesStatementsWithoutWritingAnything() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        final Map<String, Set<String>> tablesKeys = tablesKeys("players", "name", "coins");
+        dialect.createTablesKeys(tablesKeys);
+
+        // Missing tables are skipped instead of stopping the warmup
+        tablesKeys.put("missing", Set.of("name"));
+        dialect.warmup(tablesKeys);
+
+        assertEquals(0, dialect.dsl.fetchCount(DSL.table(DSL.name("players"))));
+        assertNull(dialect.setToDatabase("players", "player1", "coins", "5"));
+        assertEquals("5", dialect.getFromDatabase("players", "player1", "coins").orElse(null));
+    }
+
+    @Test
+    void saveCache_onlyWritesEntriesChangedSinceLastSave() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+
+        dialect.setToCache("players", "player1", "name", new CachedValue("Alice"));
+        dialect.saveCache();
+        assertEquals("Alice", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+
+        // Change player1 behind the cache's back, its untouched cached entry must not be written again
+        assertNull(dialect.setToDatabase("players", "player1", "name", "External"));
+        dialect.setToCache("players", "player2", "name", new CachedValue("Bob"));
+        dialect.saveCache();
+
+        assertEquals("External", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+        assertEquals("Bob", dialect.getFromDatabase("players", "player2", "name").orElse(null));
+        assertTrue(dialect.dirty.isEmpty());
+    }
+
+    @Test
+    void saveCache_targetOnlyWritesThatTargetsChanges() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+
+        dialect.setToCache("players", "player1", "name", new CachedValue("Alice"));
+        dialect.setToCache("players", "player2", "name", new CachedValue("Bob"));
+        dialect.saveCache("players", "player1");
+
+        assertEquals("Alice", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+        assertTrue(dialect.getFromDatabase("players", "player2", "name").isEmpty());
+
+        // player2 is still pending for the next full save
+        dialect.saveCache();
+        assertEquals("Bob", dialect.getFromDatabase("players", "player2", "name").orElse(null));
+    }
+
+    @Test
+    void setLoadedToCache_isNotWrittenBackOnSave() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+
+        dialect.setLoadedToCache("players", "player1", "name", new CachedValue("Stale"));
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Fresh"));
+        dialect.saveCache();
+
+        assertEquals("Fresh", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+        assertEquals("Stale", dialect.getFromCache("players", "player1", "name").value());
+    }
+
+    @Test
+    void markRemovedInCache_isWrittenAsNullOnSave() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+        dialect.markRemovedInCache("players", "player1", "name");
+        dialect.saveCache();
+
+        assertTrue(dialect.getFromDatabase("players", "player1", "name").isEmpty());
+    }
+
+    @Test
+    void saveCache_batchesManyTargetsAcrossChunksAndColumnSets() throws ConnectionException {
+        final DataManager manager = createDataManager(StorageMethod.H2);
+        manager.storageConfig.cache.batch_size = 7;
+        final SQLDialect dialect = (SQLDialect) manager.dialect;
+        dialect.createTablesKeys(tablesKeys("players", "name", "coins"));
+
+        for (int i = 0; i < 50; i++) {
+            dialect.setToCache("players", "player" + i, "name", new CachedValue("name" + i));
+            if (i % 3 == 0) dialect.setToCache("players", "player" + i, "coins", new CachedValue(String.valueOf(i)));
+        }
+        dialect.saveCache();
+
+        assertEquals(50, dialect.dsl.fetchCount(DSL.table(DSL.name("players"))));
+        assertEquals("name42", dialect.getFromDatabase("players", "player42", "name").orElse(null));
+        assertEquals("42", dialect.getFromDatabase("players", "player42", "coins").orElse(null));
+        assertNull(dialect.getFromDatabase("players", "player43", "coins").orElse(null));
+    }
+
+    @Test
+    void setToDatabase_failedRowInBatchIsReportedAloneAndOthersAreWritten() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+
+        // The target column is VARCHAR(255), so this row fails and takes the rest of its batch down with it
+        final String tooLong = "x".repeat(300);
+        final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedValue>> targets = new ConcurrentHashMap<>();
+        for (final String target : List.of("player1", tooLong, "player2")) targets.put(target, new ConcurrentHashMap<>(Map.of("name", new CachedValue(target.substring(0, 7)))));
+        final List<FailedSet> failed = dialect.setToDatabase(new ConcurrentHashMap<>(Map.of("players", targets)));
+
+        assertEquals(1, failed.size());
+        assertEquals(tooLong, failed.get(0).target());
+        assertEquals("player1", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+        assertEquals("player2", dialect.getFromDatabase("players", "player2", "name").orElse(null));
+    }
+
+    @Test
+    void evictFromCache_keepsTargetUntilItsChangesAreSaved() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+        dialect.setToCache("players", "player1", "name", new CachedValue("Alice"));
+
+        assertFalse(dialect.evictFromCache("players", "player1"));
+        assertNotNull(dialect.getFromCache("players", "player1", "name"));
+
+        dialect.saveCache("players", "player1");
+        assertTrue(dialect.evictFromCache("players", "player1"));
+        assertNull(dialect.getFromCache("players", "player1", "name"));
+        assertEquals("Alice", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+    }
+
+    @Test
+    void evictFromCache_loadedValuesAreEvictedImmediately() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+        dialect.setLoadedToCache("players", "player1", "name", new CachedValue("Alice"));
+
+        assertTrue(dialect.evictFromCache("players", "player1"));
+        assertNull(dialect.getFromCache("players", "player1", "name"));
+    }
+
+    @Test
+    void evictCache_removesLeastRecentlyUsedTargetsOverLimitAfterSavingThem() throws Exception {
+        final DataManager manager = createDataManager(StorageMethod.H2);
+        manager.storageConfig.cache.eviction.max_targets = 2;
+        manager.storageConfig.cache.eviction.idle_ttl = Duration.ZERO;
+        final SQLDialect dialect = (SQLDialect) manager.dialect;
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+
+        for (final String target : List.of("player1", "player2", "player3")) {
+            dialect.setToCache("players", target, "name", new CachedValue(target));
+            Thread.sleep(5);
+        }
+        // Using player1 makes player2 the least recently used
+        assertNotNull(dialect.getFromCache("players", "player1", "name"));
+        dialect.evictCache();
+
+        assertNull(dialect.getFromCache("players", "player2", "name"));
+        assertNotNull(dialect.getFromCache("players", "player1", "name"));
+        assertNotNull(dialect.getFromCache("players", "player3", "name"));
+        assertEquals("player2", dialect.getFromDatabase("players", "player2", "name").orElse(null));
+        assertEquals(1, dialect.getStats().cacheEvictions());
+    }
+
+    @Test
+    void evictCache_removesIdleTargets() throws Exception {
+        final DataManager manager = createDataManager(StorageMethod.H2);
+        manager.storageConfig.cache.eviction.max_targets = 0;
+        manager.storageConfig.cache.eviction.idle_ttl = Duration.ofMillis(1);
+        final SQLDialect dialect = (SQLDialect) manager.dialect;
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+
+        dialect.setLoadedToCache("players", "player1", "name", new CachedValue("Alice"));
+        Thread.sleep(10);
+        dialect.evictCache();
+
+        assertNull(dialect.getFromCache("players", "player1", "name"));
+        assertEquals(0, dialect.getStats().cacheTargets());
+    }
+
+    @Test
+    void loadToCache_loadsRowWithoutMarkingItChanged() throws ConnectionException {
+        final SQLDialect dialect = createSqlDialect();
+        dialect.createTablesKeys(tablesKeys("players", "name", "coins"));
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+        dialect.setToCache("players", "player1", "coins", new CachedValue("5"));
+
+        assertEquals("Alice", dialect.loadToCache("players", "player1").get("name"));
+        assertEquals("Alice", Objects.requireNonNull(dialect.getFromCache("players", "player1", "name")).value());
+        // The value set before loading isn't overwritten by the database value
+        assertEquals("5", Objects.requireNonNull(dialect.getFromCache("players", "player1", "coins")).value());
+        assertFalse(dialect.dirty.isDirty("players", "player2"));
+    }
+
     @Test
     void getMigrationDataFromDatabase_returnsWhatWasWritten() throws ConnectionException {
         final SQLDialect dialect = createSqlDialect();
@@ -176,15 +457,74 @@ class H2DialectTest extends StorageTestSupport {
         assertTrue(migrationData.tablesKeys().containsKey("players"));
     }
 
+    @Test
+    void sharedPool_isReusedAndOnlyClosedByLastUser() throws ConnectionException {
+        final StorageConfig firstConfig = PLUGIN.newStorageConfig("storage.yml");
+        final StorageConfig secondConfig = PLUGIN.newStorageConfig("storage.yml");
+        assertNotNull(firstConfig);
+        assertNotNull(secondConfig);
+        firstConfig.method = secondConfig.method = StorageMethod.H2;
+        firstConfig.pool.shared = secondConfig.pool.shared = true;
+        configure(firstConfig);
+        configure(secondConfig);
+
+        final DataManager first = new DataManager(firstConfig);
+        final DataManager second = new DataManager(secondConfig);
+        final SQLDialect firstDialect = (SQLDialect) first.dialect;
+        final HikariDataSource pool = firstDialect.pool;
+        assertNotNull(pool, "the first manager should create the pool");
+        assertNull(((SQLDialect) second.dialect).pool, "the second manager should reuse the first manager's pool");
+
+        firstDialect.createTablesKeys(tablesKeys("players", "name"));
+        assertNull(firstDialect.setToDatabase("players", "player1", "name", "Alice"));
+        first.close(false);
+        assertFalse(pool.isClosed(), "the pool should stay open while another manager uses it");
+        assertEquals("Alice", second.dialect.getFromDatabase("players", "player1", "name").orElse(null));
+
+        second.close(false);
+        assertTrue(pool.isClosed());
+    }
+
+    @Test
+    void circuitBreaker_open_failsFastAndKeepsCachedChanges() throws ConnectionException {
+        final StorageConfig config = PLUGIN.newStorageConfig("storage.yml");
+        assertNotNull(config);
+        config.method = StorageMethod.H2;
+        config.circuit_breaker.retry_interval = Duration.ofMinutes(10);
+        configure(config);
+        final DataManager manager = new DataManager(config);
+        final SQLDialect dialect = (SQLDialect) manager.dialect;
+        dialect.createTablesKeys(tablesKeys("players", "name"));
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+
+        // Trip the breaker
+        for (int i = 0; i < config.circuit_breaker.failure_threshold; i++) dialect.circuitBreaker.failure(new SQLTransientConnectionException("down"));
+        assertFalse(dialect.isAvailable());
+
+        // Reads fail fast, and the failure isn't remembered as a missing value
+        assertTrue(dialect.getFromDatabase("players", "player1", "name").isEmpty());
+        assertTrue(dialect.loadToCache("players", "player1", "name").isEmpty());
+        assertNull(dialect.getFromCache("players", "player1", "name"));
+
+        // Cached changes aren't saved (or dropped) while it's down
+        dialect.setToCache("players", "player2", "name", new CachedValue("Bob"));
+        dialect.saveCache();
+        assertTrue(dialect.dirty.isDirty("players", "player2"));
+
+        manager.close(false);
+    }
+
     @Test
     void dataSource_closesCleanly() throws ConnectionException {
         final SQLDialect dialect = createSqlDialect();
         dialect.createTablesKeys(tablesKeys("players", "name"));
         assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
 
-        assertFalse(dialect.dataSource.isClosed());
-        dialect.dataSource.close();
-        assertTrue(dialect.dataSource.isClosed());
+        final HikariDataSource pool = dialect.pool;
+        assertNotNull(pool);
+        assertFalse(pool.isClosed());
+        dialect.closeDataSource();
+        assertTrue(pool.isClosed());
     }
 
     @Test
@@ -0,0 +1,317 @@
+package xyz.srnyx.annoyingapi.storage.dialect;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import xyz.srnyx.annoyingapi.storage.*;
+import xyz.srnyx.annoyingapi.storage.dialects.Dialect;
+import xyz.srnyx.annoyingapi.storage.dialects.JDBCDialect;
+import xyz.srnyx.annoyingapi.storage.dialects.SQLDialect;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link JDBCDialect} (no jOOQ) using H2
+ */
+class H2JDBCDialectTest extends StorageTestSupport {
+
+    @NotNull
+    private DataManager createJdbcDataManager() throws ConnectionException {
+        final StorageConfig config = PLUGIN.newStorageConfig("storage.yml");
+        assertNotNull(config);
+        config.method = StorageMethod.H2;
+        config.use_jooq = false;
+        final DataManager manager = new DataManager(config);
+        assertInstanceOf(JDBCDialect.class, manager.dialect);
+        assertFalse(manager.dialect instanceof SQLDialect, "jOOQ dialect shouldn't be used when use_jooq is false");
+        return manager;
+    }
+
+    @Test
+    void createTablesKeys_isRepeatableAndOnlyAddsMissingColumns() throws ConnectionException {
+        final JDBCDialect dialect = (JDBCDialect) createJdbcDataManager().dialect;
+        dialect.createTablesKeys(Map.of("players", Set.of("name")));
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+
+        // Running again with an extra column keeps the existing data
+        dialect.createTablesKeys(Map.of("players", Set.of("name", "coins")));
+        assertEquals("Alice", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+        assertNull(dialect.setToDatabase("players", "player1", "coins", "5"));
+        assertEquals("5", dialect.getFromDatabase("players", "player1", "coins").orElse(null));
+    }
+
+    @Test
+    void createTablesKeys_unchangedSchema_runsNoDdl() throws ConnectionException, SQLException {
+        final JDBCDialect dialect = (JDBCDialect) createJdbcDataManager().dialect;
+        final Map<String, Set<String>> tablesKeys = Map.of("players", Set.of("name", "coins"));
+        final Map<String, Map<String, ColumnType>> columnTypes = Map.of("players", Map.of("coins", ColumnType.INT));
+        final Map<String, Set<String>> indexes = Map.of("players", Set.of("coins"));
+        assertEquals(2, dialect.getSchemaChanges(tablesKeys, columnTypes, indexes).size(), "the table and its index should be missing");
+
+        // Once created, running it again has nothing to do
+        dialect.createTablesKeys(tablesKeys, columnTypes, indexes);
+        assertEquals(List.of(), dialect.getSchemaChanges(tablesKeys, columnTypes, indexes));
+        dialect.createTablesKeys(tablesKeys, columnTypes, indexes);
+        assertEquals(List.of(), dialect.getSchemaChanges(tablesKeys, columnTypes, indexes));
+
+        // Only the new column is added
+        assertEquals(1, dialect.getSchemaChanges(Map.of("players", Set.of("name", "coins", "kills")), columnTypes, indexes).size());
+    }
+
+    @Test
+    void createTablesKeys_createsDeclaredTypesAndBindsNativeValues() throws ConnectionException, SQLException {
+        final JDBCDialect dialect = (JDBCDialect) createJdbcDataManager().dialect;
+        dialect.createTablesKeys(Map.of("players", Set.of("name", "coins", "vip")), Map.of("players", Map.of("coins", ColumnType.INT, "vip", ColumnType.BOOLEAN)));
+
+        // Columns have their declared types, others are text
+        final Map<String, Integer> types = new HashMap<>();
+        try (final Connection connection = dialect.dataSource.getConnection();
+             final ResultSet result = connection.getMetaData().getColumns(null, null, "players", "%")) {
+            while (result.next()) types.put(result.getString("COLUMN_NAME"), result.getInt("DATA_TYPE"));
+        }
+        assertEquals(Types.INTEGER, types.get("coins"));
+        assertEquals(Types.BOOLEAN, types.get("vip"));
+        assertEquals(Types.CLOB, types.get("name"));
+
+        // Values are read back in the format they were set in
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+        assertNull(dialect.setToDatabase("players", "player1", "coins", "5"));
+        assertNull(dialect.setToDatabase("players", "player1", "vip", "true"));
+        assertEquals(Map.of("name", "Alice", "coins", "5", "vip", "true"), dialect.getAllFromDatabase("players", "player1"));
+
+        // Values that don't fit the type aren't stored
+        assertNotNull(dialect.setToDatabase("players", "player1", "coins", "lots"));
+        assertEquals("5", dialect.getFromDatabase("players", "player1", "coins").orElse(null));
+    }
+
+    @Test
+    void saveCache_dropsValuesTheDatabaseRejectsAndSavesTheRest() throws ConnectionException {
+        final JDBCDialect dialect = (JDBCDialect) createJdbcDataManager().dialect;
+        dialect.createTablesKeys(Map.of("players", Set.of("name", "coins")), Map.of("players", Map.of("coins", ColumnType.INT)));
+        dialect.setToCache("players", "player1", "name", new CachedValue("Alice"));
+        dialect.setToCache("players", "player1", "coins", new CachedValue("lots"));
+        dialect.saveCache();
+
+        // The rejected value isn't retried on every save (and doesn't keep the target from being evicted)
+        assertEquals("Alice", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+        assertTrue(dialect.dirty.isEmpty());
+        assertNull(dialect.getFromCache("players", "player1", "coins"));
+    }
+
+    @Test
+    void getManyFromDatabase_readsEveryTargetAcrossChunks() throws ConnectionException {
+        final JDBCDialect dialect = (JDBCDialect) createJdbcDataManager().dialect;
+        dialect.createTablesKeys(Map.of("players", Set.of("name", "coins")), Map.of("players", Map.of("coins", ColumnType.LONG)));
+
+        // More targets than fit in one query, and a last chunk that has to be padded
+        final List<String> targets = new ArrayList<>();
+        final Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 600; i++) {
+            final String target = "player" + i;
+            targets.add(target);
+            if (i % 3 == 0) continue;
+            assertNull(dialect.setToDatabase("players", target, "coins", String.valueOf(i)));
+            expected.put(target, String.valueOf(i));
+        }
+        targets.add("player1");
+        assertEquals(expected, dialect.getManyFromDatabase("players", targets, "coins"));
+        assertEquals(Map.of(), dialect.getManyFromDatabase("players", targets, "name"));
+        assertEquals(Map.of(), dialect.getManyFromDatabase("players", List.of(), "coins"));
+    }
+
+    @Test
+    void queryFromDatabase_ordersByColumnAndCreatesIndexes() throws ConnectionException, SQLException {
+        final JDBCDialect dialect = (JDBCDialect) createJdbcDataManager().dialect;
+        final Map<String, Set<String>> tables = Map.of("scores", Set.of("kills", "name"));
+        final Map<String, Map<String, ColumnType>> types = Map.of("scores", Map.of("kills", ColumnType.LONG));
+        final Map<String, Set<String>> indexes = Map.of("scores", Set.of("kills", "name"));
+        dialect.createTablesKeys(tables, types, indexes);
+        // Nothing to do the second time
+        dialect.createTablesKeys(tables, types, indexes);
+
+        // Text columns aren't indexed
+        final List<String> indexed = new ArrayList<>();
+        try (final Connection connection = dialect.dataSource.getConnection();
+             final ResultSet result = connection.getMetaData().getIndexInfo(connection.getCatalog(), connection.getSchema(), "scores", false, true)) {
+            while (result.next()) indexed.add(result.getString("INDEX_NAME").toLowerCase() + ":" + result.getString("COLUMN_NAME").toLowerCase());
+        }
+        assertTrue(indexed.contains("scores_kills_idx:kills"));
+        assertFalse(indexed.stream().anyMatch(index -> index.endsWith(":name")));
+
+        // Numbers are ordered as numbers, targets without a value are left out
+        assertNull(dialect.setToDatabase("scores", "player1", "kills", "9"));
+        assertNull(dialect.setToDatabase("scores", "player2", "kills", "10"));
+        assertNull(dialect.setToDatabase("scores", "player3", "kills", "10"));
+        assertNull(dialect.setToDatabase("scores", "player4", "name", "Dave"));
+        assertEquals(List.of("player3", "player2"), List.copyOf(dialect.queryFromDatabase("scores", "kills", null, null, true, 2).keySet()));
+        assertEquals(Map.of("player1", "9"), dialect.queryFromDatabase("scores", "kills", "1", "9", false, 0));
+        assertEquals(3, dialect.countFromDatabase("scores", "kills", null, null));
+        assertEquals(2, dialect.countFromDatabase("scores", "kills", "10", null));
+    }
+
+    @Test
+    void scan_pagesThroughEveryTargetInOrder() throws ConnectionException {
+        final JDBCDialect dialect = (JDBCDialect) createJdbcDataManager().dialect;
+        dialect.createTablesKeys(Map.of("players", Set.of("name", "coins")), Map.of("players", Map.of("coins", ColumnType.LONG)));
+        for (int i = 0; i < 7; i++) assertNull(dialect.setToDatabase("players", "player" + i, "coins", String.valueOf(i)));
+        assertNull(dialect.setToDatabase("players", "player3", "name", "Carol"));
+
+        final List<TableCursor.Row> rows = new ArrayList<>();
+        try (final TableCursor cursor = dialect.scan("players", 3)) {
+            cursor.forEachRemaining(rows::add);
+        }
+        assertEquals(List.of("player0", "player1", "player2", "player3", "player4", "player5", "player6"), rows.stream().map(TableCursor.Row::target).toList());
+        assertEquals(Map.of("coins", "0"), rows.get(0).values());
+        assertEquals(Map.of("name", "Carol", "coins", "3"), rows.get(3).values());
+        assertThrows(IllegalArgumentException.class, () -> dialect.scan("players", 0));
+    }
+
+    @Test
+    void incrementInDatabase_addsInPlaceWithoutLosingConcurrentIncrements() throws Exception {
+        final JDBCDialect dialect = (JDBCDialect) createJdbcDataManager().dialect;
+        dialect.createTablesKeys(Map.of("players", Set.of("name", "kills", "coins")), Map.of("players", Map.of("coins", ColumnType.LONG)));
+
+        // Missing values count as 0, both for text and number columns
+        assertEquals(5L, dialect.incrementInDatabase("players", "player1", "kills", 5));
+        assertEquals(3L, dialect.incrementInDatabase("players", "player1", "kills", -2));
+        assertEquals(10L, dialect.incrementInDatabase("players", "player1", "coins", 10));
+        assertEquals("3", dialect.getFromDatabase("players", "player1", "kills").orElse(null));
+
+        // Not a whole number
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+        assertNull(dialect.incrementInDatabase("players", "player1", "name", 1));
+        assertEquals("Alice", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+
+        // Concurrent increments of a new target
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) futures.add(executor.submit(() -> dialect.incrementInDatabase("players", "player2", "kills", 1)));
+        for (final Future<Long> future : futures) assertNotNull(future.get());
+        executor.shutdown();
+        assertEquals("40", dialect.getFromDatabase("players", "player2", "kills").orElse(null));
+    }
+
+    @Test
+    void compareAndSetInDatabase_onlySetsExpectedValue() throws ConnectionException {
+        final JDBCDialect dialect = (JDBCDialect) createJdbcDataManager().dialect;
+        dialect.createTablesKeys(Map.of("players", Set.of("name", "coins")), Map.of("players", Map.of("coins", ColumnType.INT)));
+
+        // Expecting no value, also if the target doesn't have a row yet
+        assertTrue(dialect.compareAndSetInDatabase("players", "player1", "name", null, "Alice"));
+        assertFalse(dialect.compareAndSetInDatabase("players", "player1", "name", null, "Bob"));
+        assertTrue(dialect.compareAndSetInDatabase("players", "player1", "coins", null, "5"));
+
+        assertFalse(dialect.compareAndSetInDatabase("players", "player1", "name", "Bob", "Carol"));
+        assertTrue(dialect.compareAndSetInDatabase("players", "player1", "name", "Alice", "Carol"));
+        assertFalse(dialect.compareAndSetInDatabase("players", "player1", "coins", "lots", "6"));
+        assertTrue(dialect.compareAndSetInDatabase("players", "player1", "coins", "5", null));
+        assertEquals(Map.of("name", "Carol"), dialect.getFromDatabase("players", "player1", List.of("name", "coins")));
+    }
+
+    @Test
+    void atomicOperations_workOnNarrowLayout() throws ConnectionException {
+        final StorageConfig config = PLUGIN.newStorageConfig("storage.yml");
+        assertNotNull(config);
+        config.method = StorageMethod.H2;
+        config.use_jooq = false;
+        config.layout = StorageConfig.Layout.NARROW;
+        final DataManager manager = new DataManager(config);
+        final JDBCDialect dialect = (JDBCDialect) manager.dialect;
+        final String table = manager.getTableName("players");
+        dialect.createTablesKeys(Map.of("players", Set.of()));
+
+        assertEquals(2L, dialect.incrementInDatabase(table, "player1", "kills", 2));
+        assertEquals(5L, dialect.incrementInDatabase(table, "player1", "kills", 3));
+        assertTrue(dialect.compareAndSetInDatabase(table, "player1", "name", null, "Alice"));
+        assertFalse(dialect.compareAndSetInDatabase(table, "player1", "name", null, "Bob"));
+        assertTrue(dialect.compareAndSetInDatabase(table, "player1", "kills", "5", null));
+        assertEquals(Map.of("name", "Alice"), dialect.getFromDatabase(table, "player1", List.of("name", "kills")));
+        assertTrue(dialect.compareAndSetInDatabase(table, "player2", "name", null, "Bob"));
+        assertEquals(Map.of("player1", "Alice", "player2", "Bob"), dialect.getManyFromDatabase(table, List.of("player1", "player2", "player3"), "name"));
+        manager.close(false);
+    }
+
+    @Test
+    void queryFromDatabase_castsNumericValuesOnNarrowLayout() throws ConnectionException {
+        final StorageConfig config = PLUGIN.newStorageConfig("storage.yml");
+        assertNotNull(config);
+        config.method = StorageMethod.H2;
+        config.use_jooq = false;
+        config.layout = StorageConfig.Layout.NARROW;
+        final DataManager manager = new DataManager(config);
+        final JDBCDialect dialect = (JDBCDialect) manager.dialect;
+        final String table = manager.getTableName("scores");
+        dialect.createTablesKeys(Map.of("scores", Set.of()), Map.of(), Map.of("scores", Set.of("kills")));
+        PLUGIN.options.dataOptions.columnTypes.put("scores", Map.of("kills", ColumnType.LONG));
+        try {
+            assertNull(dialect.setToDatabase(table, "player1", "kills", "9"));
+            assertNull(dialect.setToDatabase(table, "player2", "kills", "10"));
+            assertNull(dialect.setToDatabase(table, "player3", "name", "Carol"));
+            assertEquals(List.of("player2", "player1"), List.copyOf(dialect.queryFromDatabase(table, "kills", null, null, true, 0).keySet()));
+            assertEquals(1, dialect.countFromDatabase(table, "kills", "9.5", null));
+            assertThrows(IllegalArgumentException.class, () -> dialect.countFromDatabase(table, "kills", "many", null));
+        } finally {
+            PLUGIN.options.dataOptions.columnTypes.remove("scores");
+            manager.close(false);
+        }
+    }
+
+    @Test
+    void narrowLayout_storesKeysAsRowsWithoutDdl() throws ConnectionException {
+        final StorageConfig config = PLUGIN.newStorageConfig("storage.yml");
+        assertNotNull(config);
+        config.method = StorageMethod.H2;
+        config.use_jooq = false;
+        config.layout = StorageConfig.Layout.NARROW;
+        final DataManager manager = new DataManager(config);
+        final JDBCDialect dialect = (JDBCDialect) manager.dialect;
+        final String table = manager.getTableName("players");
+        assertEquals("players_kv", table);
+        dialect.createTablesKeys(Map.of("players", Set.of("name")));
+
+        // Keys that weren't declared don't need a column
+        assertNull(dialect.setToDatabase(table, "player1", "name", "Alice"));
+        assertNull(dialect.setToDatabase(table, "player1", "coins", "5"));
+        assertEquals(Map.of("name", "Alice", "coins", "5"), dialect.getFromDatabase(table, "player1", List.of("name", "coins", "missing")));
+
+        assertTrue(dialect.removeValueFromDatabase(table, "player1", "coins"));
+        assertTrue(dialect.getFromDatabase(table, "player1", "coins").isEmpty());
+        assertEquals("Alice", dialect.getFromDatabase(table, "player1", "name").orElse(null));
+
+        // A page holds every key of its targets
+        assertNull(dialect.setToDatabase(table, "player2", "name", "Bob"));
+        assertNull(dialect.setToDatabase(table, "player2", "coins", "7"));
+        assertNull(dialect.setToDatabase(table, "player3", "name", "Carol"));
+        try (final TableCursor cursor = dialect.scan(table, 2)) {
+            assertEquals(List.of(
+                    new TableCursor.Row("player1", Map.of("name", "Alice")),
+                    new TableCursor.Row("player2", Map.of("name", "Bob", "coins", "7")),
+                    new TableCursor.Row("player3", Map.of("name", "Carol"))), cursor.stream().toList());
+        }
+        manager.close(false);
+    }
+
+    @Test
+    void getMigrationDataFromDatabase_readsTablesWithoutJooq() throws ConnectionException {
+        final DataManager manager = createJdbcDataManager();
+        final JDBCDialect dialect = (JDBCDialect) manager.dialect;
+        dialect.createTablesKeys(Map.of("players", Set.of("name")));
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+
+        final Dialect.MigrationData data = dialect.getMigrationDataFromDatabase(manager).orElseThrow();
+        assertTrue(data.tablesKeys().get("players").contains("name"));
+        assertEquals("Alice", data.data().get("players").get("player1").get("name").value());
+    }
+}
@@ -6,6 +6,7 @@ import xyz.srnyx.annoyingapi.storage.*;
 import xyz.srnyx.annoyingapi.storage.dialects.Dialect;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -65,6 +66,75 @@ class JSONDialectTest extends StorageTestSupport {
         assertTrue(dialect.getFromDatabase("players", "player1", "name").isEmpty());
     }
 
+    @Test
+    void getManyFromDatabase_readsEveryTargetWithAValue() throws ConnectionException {
+        final Dialect dialect = createJsonDialect();
+
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+        assertNull(dialect.setToDatabase("players", "player2", "name", "Bob"));
+        assertNull(dialect.setToDatabase("players", "player3", "coins", "5"));
+        assertEquals(Map.of("player1", "Alice", "player2", "Bob"), dialect.getManyFromDatabase("players", List.of("player1", "player2", "player3", "player4"), "name"));
+    }
+
+    @Test
+    void scan_pagesThroughEveryTargetInOrder() throws ConnectionException {
+        final Dialect dialect = createJsonDialect();
+
+        assertNull(dialect.setToDatabase("players", "player2", "name", "Bob"));
+        assertNull(dialect.setToDatabase("players", "player1", "name", "Alice"));
+        assertNull(dialect.setToDatabase("players", "player1", "coins", "5"));
+        assertNull(dialect.setToDatabase("players", "player3", "coins", "7"));
+        try (final TableCursor cursor = dialect.scan("players", 2)) {
+            assertEquals(List.of(
+                    new TableCursor.Row("player1", Map.of("name", "Alice", "coins", "5")),
+                    new TableCursor.Row("player2", Map.of("name", "Bob")),
+                    new TableCursor.Row("player3", Map.of("coins", "7"))), cursor.stream().toList());
+        }
+    }
+
+    @Test
+    void queryFromDatabase_keepsIndexUpToDateWithWrites() throws ConnectionException {
+        final Dialect dialect = createJsonDialect();
+        PLUGIN.options.dataOptions.columnTypes.put("scores", Map.of("kills", ColumnType.INT));
+        try {
+            assertNull(dialect.setToDatabase("scores", "player1", "kills", "9"));
+            assertNull(dialect.setToDatabase("scores", "player2", "kills", "10"));
+            assertEquals(List.of("player2", "player1"), List.copyOf(dialect.queryFromDatabase("scores", "kills", null, null, true, 0).keySet()));
+
+            // Writes after the index is built
+            assertNull(dialect.setToDatabase("scores", "player3", "kills", "15"));
+            assertTrue(dialect.removeValueFromDatabase("scores", "player2", "kills"));
+            dialect.setToCache("scores", "player1", "kills", new CachedValue("20"));
+            assertEquals(List.of("player1", "player3"), List.copyOf(dialect.queryFromDatabase("scores", "kills", null, null, true, 0).keySet()));
+            assertEquals(1, dialect.countFromDatabase("scores", "kills", null, "15"));
+        } finally {
+            PLUGIN.options.dataOptions.columnTypes.remove("scores");
+        }
+    }
+
+    @Test
+    void atomicOperations_changeFileAndCache() throws ConnectionException {
+        final Dialect dialect = createJsonDialect();
+
+        // In the file
+        assertEquals(5L, dialect.incrementInDatabase("players", "player1", "kills", 5));
+        assertEquals(7L, dialect.incrementInDatabase("players", "player1", "kills", 2));
+        assertTrue(dialect.compareAndSetInDatabase("players", "player1", "name", null, "Alice"));
+        assertFalse(dialect.compareAndSetInDatabase("players", "player1", "name", "Bob", "Carol"));
+        assertNull(dialect.incrementInDatabase("players", "player1", "name", 1));
+        assertEquals("Alice", dialect.getFromDatabase("players", "player1", "name").orElse(null));
+
+        // In the cache, keys without a value are known to have none once the table is cached
+        assertNull(dialect.computeInCache("players", "player1", "kills", current -> new CachedValue("0")));
+        dialect.loadToCache("players", "player1", "kills");
+        final CachedValue updated = dialect.computeInCache("players", "player1", "kills", current -> new CachedValue(String.valueOf(Long.parseLong(current) + 1)));
+        assertNotNull(updated);
+        assertEquals("8", updated.value());
+        final CachedValue missing = dialect.computeInCache("players", "player1", "deaths", current -> current == null ? new CachedValue("1") : null);
+        assertNotNull(missing);
+        assertEquals("1", missing.value());
+    }
+
     @Test
     void getMigrationDataFromDatabase_returnsWhatWasWritten() throws ConnectionException {
         final Dialect dialect = createJsonDialect();